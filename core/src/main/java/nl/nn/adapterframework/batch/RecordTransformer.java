@@ -1,5 +1,5 @@
 /*
-   Copyright 2013 Nationale-Nederlanden, 2021 WeAreFrank!
+   Copyright 2013 Nationale-Nederlanden, 2021, 2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -496,9 +496,14 @@ public class RecordTransformer extends AbstractRecordHandler {
 				if (inputFieldIndex >= inputFields.size()) {
 					throw new ConfigurationException("Function refers to a non-existing inputfield [" + inputFieldIndex + "]");
 				}
-				date = inFormatter.parse(inputFields.get(inputFieldIndex));
+				// SimpleDateFormat is not thread safe, and records can be transformed in parallel
+				synchronized (inFormatter) {
+					date = inFormatter.parse(inputFields.get(inputFieldIndex));
+				}
+			}
+			synchronized (outFormatter) {
+				result.append(outFormatter.format(date));
 			}
-			result.append(outFormatter.format(date));
 			return null;
 		}
 	}
@@ -508,13 +513,14 @@ public class RecordTransformer extends AbstractRecordHandler {
 	 * @author John Dekker
 	 */
 	abstract class Condition implements IOutputField {
-		private boolean output;
+		// kept per thread, as records can be transformed in parallel
+		private final ThreadLocal<Boolean> output = ThreadLocal.withInitial(() -> false);
 
 		@Override
 		public IOutputField appendValue(IOutputField curFunction, StringBuffer result, List<String> inputFields) throws Exception {
 			// first call, check wether the condition is true or false 
 			if (this == curFunction) {
-				output = conditionIsTrue(inputFields);
+				output.set(conditionIsTrue(inputFields));
 				return this;
 			}
 
@@ -523,7 +529,7 @@ public class RecordTransformer extends AbstractRecordHandler {
 				return null;
 			}
 
-			if (output) {
+			if (output.get()) {
 				// write the result of the funtion to the output
 				IOutputField condition = curFunction.appendValue(curFunction, result, inputFields);
 				if (condition != null)
@@ -532,7 +538,7 @@ public class RecordTransformer extends AbstractRecordHandler {
 			else {
 				// function is a subcondition within this condition 
 				if (curFunction instanceof Condition) {
-					((Condition)curFunction).output = false;
+					((Condition)curFunction).output.set(false);
 					return curFunction;
 				}
 			}
@@ -1,5 +1,5 @@
 /*
-   Copyright 2013, 2018 Nationale-Nederlanden, 2020-2022 WeAreFrank!
+   Copyright 2013, 2018 Nationale-Nederlanden, 2020-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -19,15 +19,21 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.task.TaskExecutor;
 
 import lombok.Getter;
+import lombok.Setter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.configuration.ConfigurationWarnings;
 import nl.nn.adapterframework.configuration.SuppressKeys;
@@ -41,6 +47,7 @@ import nl.nn.adapterframework.doc.ElementType.ElementTypes;
 import nl.nn.adapterframework.pipes.FixedForwardPipe;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.util.FileUtils;
+import nl.nn.adapterframework.util.Semaphore;
 import nl.nn.adapterframework.util.StreamUtil;
 
 /**
@@ -70,6 +77,12 @@ public class StreamTransformerPipe extends FixedForwardPipe {
 
 	private @Getter IReaderFactory readerFactory=new InputStreamReaderFactory();
 
+	private @Getter boolean parallel = false;
+	private @Getter int maxChildThreads = 0;
+	private @Getter int parallelBlockSize = 100;
+	private @Getter int maxPendingBlocks = 0;
+	private @Getter @Setter TaskExecutor taskExecutor;
+
 	protected String getStreamId(Message input, PipeLineSession session) {
 		return session.getCorrelationId();
 	}
@@ -126,6 +139,14 @@ public class StreamTransformerPipe extends FixedForwardPipe {
 		if (initialManager==null) {
 			throw new ConfigurationException("no initial manager specified");
 		}
+		if (isParallel()) {
+			if (getParallelBlockSize()<1) {
+				throw new ConfigurationException("parallelBlockSize must be at least 1");
+			}
+			if (getTaskExecutor()==null) {
+				throw new ConfigurationException("no taskExecutor available for parallel transformation");
+			}
+		}
 		for (String managerName: registeredManagers.keySet()) {
 			IRecordHandlerManager manager = getManager(managerName);
 			manager.configure(registeredManagers, registeredRecordHandlers, registeredResultHandlers, defaultHandler);
@@ -393,122 +414,317 @@ public class StreamTransformerPipe extends FixedForwardPipe {
 		}
 	}
 
+	/**
+	 * A line of the input that is to be handled by a flow, with the outcome of its record handler, if the flow has one.
+	 */
+	private static class Record {
+		private final int linenumber;
+		private final String rawRecord;
+		private final String managerName;
+		private final RecordHandlingFlow flow;
+		private List<String> parsedRecord;
+		private String result;
+		private Exception exception;
+
+		Record(int linenumber, String rawRecord, String managerName, RecordHandlingFlow flow) {
+			this.linenumber = linenumber;
+			this.rawRecord = rawRecord;
+			this.managerName = managerName;
+			this.flow = flow;
+		}
+
+		/*
+		 * Parse and transform the record. Exceptions are kept, to be thrown when the record is handled in order.
+		 */
+		void transform(PipeLineSession session) {
+			IRecordHandler recordHandler = flow.getRecordHandler();
+			if (recordHandler != null) {
+				try {
+					parsedRecord = recordHandler.parse(session, rawRecord);
+					result = recordHandler.handleRecord(session, parsedRecord);
+				} catch (Exception e) {
+					exception = e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * State that is carried from record to record while the records are handled in order.
+	 */
+	private static class TransformationState {
+		private final Map<String, Object> blocks;
+		private int linenumber = 0;
+		private int counter = 0;
+		private StringBuffer originalBlock = null;
+		private List<String> prevParsedRecord = null;
+		private IRecordHandler prevHandler = null;
+
+		TransformationState(Map<String, Object> blocks) {
+			this.blocks = blocks;
+		}
+	}
+
 	/*
 	 * Read all lines from the reader, treat every line as a record and transform
 	 * it using the registered managers, record- and result handlers.
 	 */
 	private String transform(String streamId, BufferedReader reader, PipeLineSession session, Map<String, Object> blocks) throws PipeRunException {
-		String rawRecord = null;
-		int linenumber = 0;
-		int counter = 0;
-		StringBuffer sb = null;
-		List<String> prevParsedRecord = null;
-		IRecordHandler prevHandler = null;
+		TransformationState state = new TransformationState(blocks);
 
 		IRecordHandlerManager currentManager = initialManager.getRecordFactoryUsingFilename(session, streamId);
 		try {
 			openDocument(session, streamId);
+			if (isParallel()) {
+				transformInParallel(streamId, reader, session, currentManager, state);
+			} else {
+				String rawRecord;
+				while ((rawRecord = reader.readLine()) != null) {
+					if (Thread.currentThread().isInterrupted()) {
+						throw new InterruptedException();
+					}
+					state.linenumber++; // remember linenumber for exception handler
+					if (StringUtils.isEmpty(rawRecord)) {
+						continue; // ignore empty line
+					}
+
+					// get handlers for current line
+					RecordHandlingFlow flow = currentManager.getRecordHandler(session, rawRecord);
+					if (flow == null) {
+						log.debug("<no flow>: "+rawRecord);
+						continue; // ignore line for which no handlers are registered
+					}
+					Record record = new Record(state.linenumber, rawRecord, currentManager.getName(), flow);
+					record.transform(session);
+					handleRecord(session, streamId, record, state);
+
+					// get the manager for the next record
+					currentManager = flow.getNextRecordHandlerManager();
+				}
+			}
+			return finalizeResult(session, streamId, false, blocks);
+		} catch(Exception e) {
+			try {
+				finalizeResult(session, streamId, true, blocks);
+			} catch(Throwable t) {
+				log.error("Unexpected error during finalizeResult of [" + streamId + "]", t);
+			}
+			throw new PipeRunException(this, "Error while transforming [" + streamId + "] at or after line [" + state.linenumber+"]", e);
+		} finally {
+			closeDocument(session,streamId);
+		}
+	}
+
+	/*
+	 * Reads the records and determines their flows in the current thread, and has blocks of records parsed and transformed by
+	 * child threads. The transformed records are handled in the original order in the current thread, so all block handling and
+	 * all calls to the result handlers are the same as when transforming sequentially. The number of blocks that have been read but
+	 * have not been handled yet is limited by maxPendingBlocks, which bounds the memory use.
+	 */
+	private void transformInParallel(String streamId, BufferedReader reader, PipeLineSession session, IRecordHandlerManager currentManager, TransformationState state) throws Exception {
+		int maxThreads = getMaxChildThreads()>0 ? getMaxChildThreads() : Runtime.getRuntime().availableProcessors();
+		int maxPendingBlocks = getMaxPendingBlocks()>0 ? getMaxPendingBlocks() : 2*maxThreads;
+		Semaphore childThreadSemaphore = new Semaphore(maxThreads);
+		Deque<FutureTask<List<Record>>> pendingBlocks = new ArrayDeque<>();
+		try {
+			List<Record> block = new ArrayList<>(getParallelBlockSize());
+			String rawRecord;
+			int linenumber = 0;
 			while ((rawRecord = reader.readLine()) != null) {
 				if (Thread.currentThread().isInterrupted()) {
 					throw new InterruptedException();
 				}
-				linenumber++; // remember linenumber for exception handler
+				linenumber++;
 				if (StringUtils.isEmpty(rawRecord)) {
 					continue; // ignore empty line
 				}
-
-				// get handlers for current line
-				RecordHandlingFlow flow = currentManager.getRecordHandler(session, rawRecord);
+				RecordHandlingFlow flow;
+				try {
+					flow = currentManager.getRecordHandler(session, rawRecord);
+				} catch (Exception e) {
+					state.linenumber = linenumber;
+					throw e;
+				}
 				if (flow == null) {
 					log.debug("<no flow>: "+rawRecord);
 					continue; // ignore line for which no handlers are registered
 				}
-				//log.debug("flow ["+flow.getRecordKey()+"] openBlockBeforeLine ["+flow.getOpenBlockBeforeLine()+"]");
-				IResultHandler resultHandler = flow.getResultHandler();
-				closeBlock(session, resultHandler, streamId, flow, flow.getCloseBlockBeforeLine(),"closeBlockBeforeLine of flow ["+flow.getRecordKey()+"]",blocks);
-				String obbl = null;
-				if (flow.getOpenBlockBeforeLineNumber()>0) {
-					if (counter%flow.getOpenBlockBeforeLineNumber()==0) {
-						obbl = flow.getOpenBlockBeforeLine();
-					}
-				} else {
-					obbl = flow.getOpenBlockBeforeLine();
-				}
-				openBlock(session, resultHandler, streamId, flow, obbl, blocks);
-
-				if (isStoreOriginalBlock()) {
-					if (resultHandler instanceof ResultBlock2Sender) {
-						// If blocks does not contain a previous block, it never existed, or has been removed by closing the block.
-						// In both cases a new block has just started
-						if (!blocks.containsKey(originalBlockKey)) {
-							sb = new StringBuffer();
-						}
-						if (sb.length()>0) {
-							sb.append(System.getProperty("line.separator"));
-						}
-						sb.append(rawRecord);
-						// already put the block in the blocks, also if the block is not yet complete.
-						blocks.put(originalBlockKey, sb.toString());
+				block.add(new Record(linenumber, rawRecord, currentManager.getName(), flow));
+				currentManager = flow.getNextRecordHandlerManager();
+
+				if (block.size() >= getParallelBlockSize()) {
+					pendingBlocks.add(submitBlock(block, session, childThreadSemaphore));
+					block = new ArrayList<>(getParallelBlockSize());
+					while (pendingBlocks.size() >= maxPendingBlocks) {
+						handleRecords(session, streamId, pendingBlocks.removeFirst().get(), state);
 					}
 				}
+			}
+			if (!block.isEmpty()) {
+				pendingBlocks.add(submitBlock(block, session, childThreadSemaphore));
+			}
+			while (!pendingBlocks.isEmpty()) {
+				handleRecords(session, streamId, pendingBlocks.removeFirst().get(), state);
+			}
+		} finally {
+			for (FutureTask<List<Record>> pendingBlock : pendingBlocks) {
+				pendingBlock.cancel(true);
+			}
+		}
+	}
 
-				IRecordHandler curHandler = flow.getRecordHandler();
-				if (curHandler != null) {
-					if (log.isDebugEnabled()) log.debug("manager ["+currentManager.getName()+"] key ["+flow.getRecordKey()+"] record handler ["+curHandler.getName()+"] line ["+linenumber+"] record ["+rawRecord+"]");
-					// there is a record handler, so transform the line
-					List<String> parsedRecord = curHandler.parse(session, rawRecord);
-					String result = curHandler.handleRecord(session, parsedRecord);
-					counter++;
-
-					// if there is a result handler, write the transformed result
-					if (result != null && resultHandler != null) {
-						boolean recordTypeChanged = curHandler.isNewRecordType(session, curHandler.equals(prevHandler), prevParsedRecord, parsedRecord);
-						if (log.isTraceEnabled()) log.trace("manager ["+currentManager.getName()+"] key ["+flow.getRecordKey()+"] record handler ["+curHandler.getName()+"] recordTypeChanged ["+recordTypeChanged+"]");
-						if (recordTypeChanged && prevHandler!=null && resultHandler.isBlockByRecordType()) {
-							String prevRecordType = prevHandler.getRecordType(prevParsedRecord);
-							if (log.isDebugEnabled()) log.debug("record handler ["+prevHandler.getName()+"] result handler ["+resultHandler.getName()+"] closing block for record type ["+prevRecordType+"]");
-							closeBlock(session, resultHandler, streamId, flow, prevRecordType, "record type change", blocks);
-						}
-						// the hasPrefix() call allows users use a suffix without a prefix.
-						// The suffix is then only written at the end of the file.
-						if (recordTypeChanged && resultHandler.hasPrefix()) {
-							if (prevHandler != null)  {
-								resultHandler.closeRecordType(session, streamId);
-							}
-							resultHandler.openRecordType(session, streamId);
-						}
-						if (recordTypeChanged && resultHandler.isBlockByRecordType()) {
-							String recordType = curHandler.getRecordType(parsedRecord);
-							if (log.isDebugEnabled()) log.debug("record handler ["+curHandler.getName()+"] result handler ["+resultHandler.getName()+"] opening block ["+recordType+"]");
-							openBlock(session, resultHandler, streamId, flow, recordType, blocks);
-						}
-						resultHandler.handleResult(session, streamId, flow.getRecordKey(), result);
+	/*
+	 * The record handlers of a block get a copy of the session, as the session itself is not thread safe and may be modified by the result handlers.
+	 */
+	private FutureTask<List<Record>> submitBlock(List<Record> block, PipeLineSession session, Semaphore childThreadSemaphore) throws InterruptedException {
+		BlockTask task = new BlockTask(block, new PipeLineSession(session), childThreadSemaphore);
+		childThreadSemaphore.acquire();
+		try {
+			getTaskExecutor().execute(task);
+		} catch (RuntimeException e) {
+			task.cancel(false);
+			throw e;
+		}
+		return task;
+	}
+
+	/**
+	 * Transforms a block of records in a child thread. The copy of the session and the permit of the child thread are released
+	 * exactly once: by the child thread when it has transformed the block, or when the task is cancelled before it was started.
+	 */
+	private static class BlockTask extends FutureTask<List<Record>> {
+		private final PipeLineSession blockSession;
+		private final Semaphore childThreadSemaphore;
+		private final AtomicBoolean claimed;
+
+		BlockTask(List<Record> block, PipeLineSession blockSession, Semaphore childThreadSemaphore) {
+			this(block, blockSession, childThreadSemaphore, new AtomicBoolean());
+		}
+
+		private BlockTask(List<Record> block, PipeLineSession blockSession, Semaphore childThreadSemaphore, AtomicBoolean claimed) {
+			super(() -> {
+				if (!claimed.compareAndSet(false, true)) {
+					return block; // cancelled, resources have been released already
+				}
+				try {
+					for (Record record : block) {
+						record.transform(blockSession);
 					}
-					prevParsedRecord = parsedRecord;
-					prevHandler = curHandler;
-				} else {
-					if (log.isDebugEnabled()) log.debug("manager ["+currentManager.getName()+"] key ["+flow.getRecordKey()+"], no record handler, line ["+linenumber+"] record ["+rawRecord+"]");
+					return block;
+				} finally {
+					release(blockSession, childThreadSemaphore);
 				}
+			});
+			this.blockSession = blockSession;
+			this.childThreadSemaphore = childThreadSemaphore;
+			this.claimed = claimed;
+		}
 
-				closeBlock(session, resultHandler, streamId, flow, flow.getCloseBlockAfterLine(),"closeBlockAfterLine of flow ["+flow.getRecordKey()+"]", blocks);
-				openBlock(session, resultHandler, streamId, flow, flow.getOpenBlockAfterLine(), blocks);
-
-				// get the manager for the next record
-				currentManager = flow.getNextRecordHandlerManager();
+		@Override
+		protected void done() {
+			if (isCancelled() && claimed.compareAndSet(false, true)) {
+				release(blockSession, childThreadSemaphore);
 			}
-			return finalizeResult(session, streamId, false, blocks);
-		} catch(Exception e) {
+		}
+
+		private static void release(PipeLineSession blockSession, Semaphore childThreadSemaphore) {
 			try {
-				finalizeResult(session, streamId, true, blocks);
-			} catch(Throwable t) {
-				log.error("Unexpected error during finalizeResult of [" + streamId + "]", t);
+				blockSession.close();
+			} finally {
+				childThreadSemaphore.release();
 			}
-			throw new PipeRunException(this, "Error while transforming [" + streamId + "] at or after line [" + linenumber+"]", e);
-		} finally {
-			closeDocument(session,streamId);
 		}
 	}
 
+	private void handleRecords(PipeLineSession session, String streamId, List<Record> records, TransformationState state) throws Exception {
+		for (Record record : records) {
+			handleRecord(session, streamId, record, state);
+		}
+	}
+
+	/*
+	 * Handle the blocks and the result of a single record. Must be called for the records in the order they were read.
+	 */
+	private void handleRecord(PipeLineSession session, String streamId, Record record, TransformationState state) throws Exception {
+		Map<String, Object> blocks = state.blocks;
+		RecordHandlingFlow flow = record.flow;
+		String rawRecord = record.rawRecord;
+		state.linenumber = record.linenumber;
+
+		//log.debug("flow ["+flow.getRecordKey()+"] openBlockBeforeLine ["+flow.getOpenBlockBeforeLine()+"]");
+		IResultHandler resultHandler = flow.getResultHandler();
+		closeBlock(session, resultHandler, streamId, flow, flow.getCloseBlockBeforeLine(),"closeBlockBeforeLine of flow ["+flow.getRecordKey()+"]",blocks);
+		String obbl = null;
+		if (flow.getOpenBlockBeforeLineNumber()>0) {
+			if (state.counter%flow.getOpenBlockBeforeLineNumber()==0) {
+				obbl = flow.getOpenBlockBeforeLine();
+			}
+		} else {
+			obbl = flow.getOpenBlockBeforeLine();
+		}
+		openBlock(session, resultHandler, streamId, flow, obbl, blocks);
+
+		if (isStoreOriginalBlock()) {
+			if (resultHandler instanceof ResultBlock2Sender) {
+				// If blocks does not contain a previous block, it never existed, or has been removed by closing the block.
+				// In both cases a new block has just started
+				if (!blocks.containsKey(originalBlockKey)) {
+					state.originalBlock = new StringBuffer();
+				}
+				if (state.originalBlock.length()>0) {
+					state.originalBlock.append(System.getProperty("line.separator"));
+				}
+				state.originalBlock.append(rawRecord);
+				// already put the block in the blocks, also if the block is not yet complete.
+				blocks.put(originalBlockKey, state.originalBlock.toString());
+			}
+		}
+
+		IRecordHandler curHandler = flow.getRecordHandler();
+		if (curHandler != null) {
+			if (log.isDebugEnabled()) log.debug("manager ["+record.managerName+"] key ["+flow.getRecordKey()+"] record handler ["+curHandler.getName()+"] line ["+record.linenumber+"] record ["+rawRecord+"]");
+			// there is a record handler, so the line has been transformed
+			if (record.exception != null) {
+				throw record.exception;
+			}
+			List<String> parsedRecord = record.parsedRecord;
+			String result = record.result;
+			state.counter++;
+
+			// if there is a result handler, write the transformed result
+			if (result != null && resultHandler != null) {
+				boolean recordTypeChanged = curHandler.isNewRecordType(session, curHandler.equals(state.prevHandler), state.prevParsedRecord, parsedRecord);
+				if (log.isTraceEnabled()) log.trace("manager ["+record.managerName+"] key ["+flow.getRecordKey()+"] record handler ["+curHandler.getName()+"] recordTypeChanged ["+recordTypeChanged+"]");
+				if (recordTypeChanged && state.prevHandler!=null && resultHandler.isBlockByRecordType()) {
+					String prevRecordType = state.prevHandler.getRecordType(state.prevParsedRecord);
+					if (log.isDebugEnabled()) log.debug("record handler ["+state.prevHandler.getName()+"] result handler ["+resultHandler.getName()+"] closing block for record type ["+prevRecordType+"]");
+					closeBlock(session, resultHandler, streamId, flow, prevRecordType, "record type change", blocks);
+				}
+				// the hasPrefix() call allows users use a suffix without a prefix.
+				// The suffix is then only written at the end of the file.
+				if (recordTypeChanged && resultHandler.hasPrefix()) {
+					if (state.prevHandler != null)  {
+						resultHandler.closeRecordType(session, streamId);
+					}
+					resultHandler.openRecordType(session, streamId);
+				}
+				if (recordTypeChanged && resultHandler.isBlockByRecordType()) {
+					String recordType = curHandler.getRecordType(parsedRecord);
+					if (log.isDebugEnabled()) log.debug("record handler ["+curHandler.getName()+"] result handler ["+resultHandler.getName()+"] opening block ["+recordType+"]");
+					openBlock(session, resultHandler, streamId, flow, recordType, blocks);
+				}
+				resultHandler.handleResult(session, streamId, flow.getRecordKey(), result);
+			}
+			state.prevParsedRecord = parsedRecord;
+			state.prevHandler = curHandler;
+		} else {
+			if (log.isDebugEnabled()) log.debug("manager ["+record.managerName+"] key ["+flow.getRecordKey()+"], no record handler, line ["+record.linenumber+"] record ["+rawRecord+"]");
+		}
+
+		closeBlock(session, resultHandler, streamId, flow, flow.getCloseBlockAfterLine(),"closeBlockAfterLine of flow ["+flow.getRecordKey()+"]", blocks);
+		openBlock(session, resultHandler, streamId, flow, flow.getOpenBlockAfterLine(), blocks);
+	}
+
 	private void openDocument(PipeLineSession session, String inputFilename) throws Exception {
 		for (IResultHandler resultHandler: registeredResultHandlers.values()) {
 			resultHandler.openDocument(session, inputFilename);
@@ -569,4 +785,41 @@ public class StreamTransformerPipe extends FixedForwardPipe {
 	public void setReaderFactory(IReaderFactory factory) {
 		readerFactory = factory;
 	}
+
+	/**
+	 * If set <code>true</code>, records are parsed and transformed by the record handlers in child threads, in blocks of <code>parallelBlockSize</code> records.
+	 * The results are passed to the result handlers in the order of the input, from the thread that calls the pipe. Record handlers must be thread safe,
+	 * and are called with a copy of the session, so changes they make to the session are not visible to other records or to the result handlers.
+	 * @ff.default false
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Only used when <code>parallel</code> is <code>true</code>. Maximum number of child threads per call of this pipe that transform blocks of records simultaneously.
+	 * Use <code>0</code> for the number of available processors
+	 * @ff.default 0
+	 */
+	public void setMaxChildThreads(int maxChildThreads) {
+		this.maxChildThreads = maxChildThreads;
+	}
+
+	/**
+	 * Only used when <code>parallel</code> is <code>true</code>. Number of records that are transformed together by a child thread.
+	 * @ff.default 100
+	 */
+	public void setParallelBlockSize(int parallelBlockSize) {
+		this.parallelBlockSize = parallelBlockSize;
+	}
+
+	/**
+	 * Only used when <code>parallel</code> is <code>true</code>. Maximum number of blocks that have been read, but of which the results have not been passed to the result handlers yet.
+	 * When this number is reached, reading waits for the oldest block to be handled, which keeps the memory usage flat when processing very large inputs.
+	 * Use <code>0</code> for twice the number of child threads
+	 * @ff.default 0
+	 */
+	public void setMaxPendingBlocks(int maxPendingBlocks) {
+		this.maxPendingBlocks = maxPendingBlocks;
+	}
 }
@@ -15,6 +15,10 @@
 */
 package nl.nn.adapterframework.cache;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.Logger;
 import org.springframework.context.ApplicationContext;
@@ -24,6 +28,11 @@ import lombok.Setter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.core.IConfigurationAware;
 import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.core.SenderException;
+import nl.nn.adapterframework.functional.ThrowingSupplier;
+import nl.nn.adapterframework.statistics.HasStatistics;
+import nl.nn.adapterframework.statistics.StatisticsKeeper;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.util.LogUtil;
 import nl.nn.adapterframework.util.TransformerPool;
@@ -32,12 +41,17 @@ import nl.nn.adapterframework.util.TransformerPool.OutputType;
 /**
  * Baseclass for caching.
  * Provides key transformation functionality.
+ * <p>
+ * Values that are obtained via {@link #get(String, ThrowingSupplier)} are loaded only once at a time per key: callers that miss
+ * while the value is being loaded wait for that load, instead of calling the backend themselves. When <code>refreshAfterSeconds</code> is set,
+ * values older than that are refreshed by the first caller that finds them, while other callers are served the existing value in the meantime.
+ * </p>
  *
  *
  * @author  Gerrit van Brakel
  * @since   4.11
  */
-public abstract class CacheAdapterBase<V> implements ICache<String,V>, IConfigurationAware {
+public abstract class CacheAdapterBase<V> implements ICache<String,V>, IConfigurationAware, HasStatistics {
 	protected Logger log = LogUtil.getLogger(this);
 	private @Getter ClassLoader configurationClassLoader = Thread.currentThread().getContextClassLoader();
 	private @Getter @Setter ApplicationContext applicationContext;
@@ -58,14 +72,24 @@ public abstract class CacheAdapterBase<V> implements ICache<String,V>, IConfigur
 	private @Getter String valueInputSessionKey;
 	private @Getter boolean cacheEmptyValues=false;
 
+	private @Getter int refreshAfterSeconds=0;
+
 	private TransformerPool keyTp=null;
 	private TransformerPool valueTp=null;
 
+	private final ConcurrentHashMap<String,CompletableFuture<V>> loadsInProgress = new ConcurrentHashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong staleHits = new AtomicLong();
+	private final AtomicLong loadWaits = new AtomicLong();
+	private StatisticsKeeper loadStatistics;
+
 	@Override
 	public void configure(String ownerName) throws ConfigurationException {
 		if (StringUtils.isEmpty(getName())) {
 			setName(ownerName+"_cache");
 		}
+		loadStatistics = new StatisticsKeeper(getName()+" load");
 		if (StringUtils.isNotEmpty(getKeyXPath()) || StringUtils.isNotEmpty(getKeyStyleSheet())) {
 			keyTp=TransformerPool.configureTransformer(this, getKeyNamespaceDefs(), getKeyXPath(), getKeyStyleSheet(), getKeyXPathOutputType(),false,null);
 		}
@@ -79,6 +103,14 @@ public abstract class CacheAdapterBase<V> implements ICache<String,V>, IConfigur
 	protected abstract boolean removeElement(Object key);
 	protected abstract V toValue(Message value);
 
+	/**
+	 * Returns the time in milliseconds at which the value for the key was stored, or 0 when it is not known.
+	 * Used to determine whether a value must be refreshed.
+	 */
+	protected long getElementCreationTime(String key) {
+		return 0;
+	}
+
 	@Override
 	public String transformKey(String input, PipeLineSession session) {
 		if (StringUtils.isNotEmpty(getKeyInputSessionKey()) && session!=null) {
@@ -133,10 +165,84 @@ public abstract class CacheAdapterBase<V> implements ICache<String,V>, IConfigur
 		putElement(key, value);
 	}
 
+	@Override
+	public <E extends Exception> V get(String key, ThrowingSupplier<V,E> loader) throws E {
+		V value = getElement(key);
+		CompletableFuture<V> load = new CompletableFuture<>();
+		if (value!=null) {
+			if (!isRefreshDue(key)) {
+				hits.incrementAndGet();
+				return value;
+			}
+			if (loadsInProgress.putIfAbsent(key, load)!=null) {
+				if (log.isDebugEnabled()) log.debug("{}value for key [{}] is being refreshed, returning current value", getLogPrefix(), key);
+				staleHits.incrementAndGet();
+				return value;
+			}
+			if (log.isDebugEnabled()) log.debug("{}refreshing value for key [{}]", getLogPrefix(), key);
+			return load(key, load, loader);
+		}
+		misses.incrementAndGet();
+		CompletableFuture<V> loadInProgress = loadsInProgress.putIfAbsent(key, load);
+		if (loadInProgress==null) {
+			value = getElement(key); // a load may have completed after the first lookup
+			if (value!=null) {
+				loadsInProgress.remove(key, load);
+				load.complete(value);
+				return value;
+			}
+			return load(key, load, loader);
+		}
+		if (log.isDebugEnabled()) log.debug("{}waiting for value of key [{}] that is being loaded", getLogPrefix(), key);
+		loadWaits.incrementAndGet();
+		value = loadInProgress.join();
+		if (value!=null) {
+			return value;
+		}
+		// the load that was waited for did not produce a value that could be cached, so its result cannot be shared
+		return load(key, null, loader);
+	}
+
+	private boolean isRefreshDue(String key) {
+		if (getRefreshAfterSeconds()<=0) {
+			return false;
+		}
+		long creationTime = getElementCreationTime(key);
+		return creationTime>0 && System.currentTimeMillis()-creationTime > getRefreshAfterSeconds()*1000L;
+	}
+
+	private <E extends Exception> V load(String key, CompletableFuture<V> load, ThrowingSupplier<V,E> loader) throws E {
+		long startTime = System.nanoTime();
+		V value = null;
+		try {
+			value = loader.get();
+			if (value!=null) {
+				putElement(key, value);
+			}
+			return value;
+		} finally {
+			loadStatistics.addNanos(System.nanoTime()-startTime);
+			if (load!=null) {
+				loadsInProgress.remove(key, load);
+				load.complete(value);
+			}
+		}
+	}
+
 	public boolean remove(String key) {
 		return removeElement(key);
 	}
 
+	@Override
+	public <D> void iterateOverStatistics(StatisticsKeeperIterationHandler<D> hski, D data, Action action) throws SenderException {
+		hski.handleScalar(data, getName()+" hits", hits.get());
+		hski.handleScalar(data, getName()+" misses", misses.get());
+		hski.handleScalar(data, getName()+" stale hits", staleHits.get());
+		hski.handleScalar(data, getName()+" load waits", loadWaits.get());
+		hski.handleStatisticsKeeper(data, loadStatistics);
+		loadStatistics.performAction(action);
+	}
+
 
 	/**
 	 * name of the cache, will be lowercased
@@ -148,6 +254,15 @@ public abstract class CacheAdapterBase<V> implements ICache<String,V>, IConfigur
 		}
 	}
 
+	/**
+	 * When set, values that were stored longer than this number of seconds ago are reloaded by the first caller that requests them, while other callers are served the current value until the reload is complete.
+	 * Should be smaller than the time to live of the entries.
+	 * @ff.default 0
+	 */
+	public void setRefreshAfterSeconds(int refreshAfterSeconds) {
+		this.refreshAfterSeconds = refreshAfterSeconds;
+	}
+
 	public String getLogPrefix() {
 		return "cache ["+getName()+"] ";
 	}
@@ -17,9 +17,12 @@ package nl.nn.adapterframework.cache;
 
 import java.io.IOException;
 
+import org.apache.commons.lang3.StringUtils;
+
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.stream.Message;
@@ -30,6 +33,9 @@ import nl.nn.adapterframework.util.AppConstants;
  *
  * N.B. the default values shown can be overridden using properties in appConstants. The property names are found by prefixing the attribute name with <code>cache.default.</code>.
  *
+ * Binary values are cached as bytes, other values as strings. When <code>maxBytesInMemory</code> is set, the cache is bounded by the
+ * estimated size of its entries instead of their number.
+ *
  * @author  Gerrit van Brakel
  * @since   4.11
  */
@@ -37,6 +43,7 @@ public class EhCache<V> extends CacheAdapterBase<V> {
 
 	private static final String KEY_PREFIX = "cache.default.";
 	private static final String KEY_MAX_ELEMENTS_IN_MEMORY = KEY_PREFIX + "maxElementsInMemory";
+	private static final String KEY_MAX_BYTES_IN_MEMORY = KEY_PREFIX + "maxBytesInMemory";
 	private static final String KEY_MEMORYSTORE_EVICTION_POLICY = KEY_PREFIX + "memoryStoreEvictionPolicy";
 	private static final String KEY_ETERNAL = KEY_PREFIX + "eternal";
 	private static final String KEY_TIME_TO_LIVE_SECONDS = KEY_PREFIX + "timeToLiveSeconds";
@@ -47,6 +54,7 @@ public class EhCache<V> extends CacheAdapterBase<V> {
 	private static final String KEY_DISK_EXPIRY_THREAD_INTERVAL_SECONDS = KEY_PREFIX + "diskExpiryThreadIntervalSeconds";
 
 	private int maxElementsInMemory=100;
+	private String maxBytesInMemory=null;
 	private String memoryStoreEvictionPolicy="LRU";
 	private boolean eternal=false;
 	private int timeToLiveSeconds=36000;
@@ -63,6 +71,7 @@ public class EhCache<V> extends CacheAdapterBase<V> {
 		super();
 		AppConstants ac = AppConstants.getInstance();
 		maxElementsInMemory=ac.getInt(KEY_MAX_ELEMENTS_IN_MEMORY, maxElementsInMemory);
+		maxBytesInMemory=ac.getProperty(KEY_MAX_BYTES_IN_MEMORY, maxBytesInMemory);
 		memoryStoreEvictionPolicy=ac.getProperty(KEY_MEMORYSTORE_EVICTION_POLICY, memoryStoreEvictionPolicy);
 		eternal=ac.getBoolean(KEY_ETERNAL, eternal);
 		timeToLiveSeconds=ac.getInt(KEY_TIME_TO_LIVE_SECONDS, timeToLiveSeconds);
@@ -81,10 +90,34 @@ public class EhCache<V> extends CacheAdapterBase<V> {
 			setOverflowToDisk(true);
 		}
 		MemoryStoreEvictionPolicy.fromString(getMemoryStoreEvictionPolicy());
+		if (StringUtils.isNotEmpty(getMaxBytesInMemory())) {
+			try {
+				new CacheConfiguration().setMaxBytesLocalHeap(getMaxBytesInMemory());
+			} catch (IllegalArgumentException e) {
+				throw new ConfigurationException("invalid value for maxBytesInMemory ["+getMaxBytesInMemory()+"]", e);
+			}
+		}
 	}
 
 	@Override
 	public void open() {
+		cacheManager=IbisCacheManager.getInstance();
+		if (StringUtils.isNotEmpty(getMaxBytesInMemory())) {
+			CacheConfiguration cacheConfiguration = new CacheConfiguration();
+			cacheConfiguration.setMaxBytesLocalHeap(getMaxBytesInMemory());
+			cacheConfiguration
+					.name(getName())
+					.memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.fromString(getMemoryStoreEvictionPolicy()))
+					.eternal(isEternal())
+					.timeToLiveSeconds(getTimeToLiveSeconds())
+					.timeToIdleSeconds(getTimeToIdleSeconds())
+					.diskExpiryThreadIntervalSeconds(getDiskExpiryThreadIntervalSeconds())
+					.overflowToDisk(isOverflowToDisk())
+					.diskPersistent(isDiskPersistent())
+					.maxEntriesLocalDisk(getMaxElementsOnDisk());
+			cache = cacheManager.addCache(new Cache(cacheConfiguration));
+			return;
+		}
 		Cache configCache = new Cache(
 				getName(),
 				getMaxElementsInMemory(),
@@ -100,7 +133,6 @@ public class EhCache<V> extends CacheAdapterBase<V> {
 				null,
 				getMaxElementsOnDisk()
 				);
-		cacheManager=IbisCacheManager.getInstance();
 		cache = cacheManager.addCache(configCache);
 	}
 
@@ -129,6 +161,15 @@ public class EhCache<V> extends CacheAdapterBase<V> {
 		return (V)element.getValue();
 	}
 
+	@Override
+	protected long getElementCreationTime(String key) {
+		Element element = cache.getQuiet(key);
+		if (element==null) {
+			return 0;
+		}
+		return element.getLatestOfCreationAndUpdateTime();
+	}
+
 	@Override
 	protected void putElement(String key, V value) {
 		Element element=new Element(key,value);
@@ -143,9 +184,12 @@ public class EhCache<V> extends CacheAdapterBase<V> {
 	@Override
 	protected V toValue(Message value) {
 		try {
+			if (value.isBinary()) {
+				return (V)value.asByteArray();
+			}
 			return (V)value.asString();
 		} catch (IOException e) {
-			log.warn("Could not perform toValue() by asString()", e);
+			log.warn("Could not perform toValue()", e);
 			return null;
 		}
 	}
@@ -161,6 +205,17 @@ public class EhCache<V> extends CacheAdapterBase<V> {
 		return maxElementsInMemory;
 	}
 
+	/**
+	 * The maximum estimated size of the elements in memory, before they are evicted, like <code>512k</code>, <code>64m</code> or <code>1g</code>.
+	 * When set, maxElementsInMemory is ignored.
+	 */
+	public void setMaxBytesInMemory(String maxBytesInMemory) {
+		this.maxBytesInMemory = maxBytesInMemory;
+	}
+	public String getMaxBytesInMemory() {
+		return maxBytesInMemory;
+	}
+
 	/**
 	 * Either <code>LRU</code>=Least Recent Use,<code>LFU</code>=Least Frequent Use or <code>FIFO</code>=First In - First Out
 	 * @ff.default LRU
@@ -17,6 +17,7 @@ package nl.nn.adapterframework.cache;
 
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.functional.ThrowingSupplier;
 import nl.nn.adapterframework.stream.Message;
 
 /**
@@ -55,4 +56,19 @@ public interface ICache<K,V> {
 	 */
 	void put(K key, V value);
 
+	/**
+	 * Obtain the value for the key. When it is not present, it is obtained from the loader and stored in the cache.
+	 * The loader returns <code>null</code> when its result must not be cached.
+	 */
+	default <E extends Exception> V get(K key, ThrowingSupplier<V,E> loader) throws E {
+		V value = get(key);
+		if (value==null) {
+			value = loader.get();
+			if (value!=null) {
+				put(key, value);
+			}
+		}
+		return value;
+	}
+
 }
@@ -24,5 +24,6 @@ public interface IZipWritingElement extends ICollectingElement<ZipWriter>, IConf
 	boolean isCompleteFileHeader();
 	boolean isCloseInputstreamOnExit();
 	boolean isCloseOutputstreamOnExit();
+	int getCompressionLevel();
 
 }
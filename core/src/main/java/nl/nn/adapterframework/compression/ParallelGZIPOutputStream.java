@@ -0,0 +1,205 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * OutputStream that writes data in GZIP format, like {@link java.util.zip.GZIPOutputStream}, but compresses blocks of data concurrently.
+ * <p>
+ * The data is split in blocks that are deflated independently by tasks on the executor. Each block is primed with the last 32K of the
+ * previous block as dictionary and ended with a sync flush, so that the concatenated blocks form a single valid deflate stream, that
+ * compresses nearly as well as a sequentially compressed stream. Blocks are written in order; the number of blocks that are being
+ * compressed or wait to be written is bounded, to keep memory usage flat.
+ * </p>
+ */
+public class ParallelGZIPOutputStream extends FilterOutputStream {
+
+	public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	private static final byte[] GZIP_HEADER = { 0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+	private final int level;
+	private final int blockSize;
+	private final int maxBlocksInProgress;
+	private final Executor executor;
+
+	private final CRC32 crc = new CRC32();
+	private long uncompressedSize;
+	private byte[] block;
+	private int blockLength;
+	private byte[] dictionary;
+	private final Deque<FutureTask<byte[]>> blocksInProgress = new ArrayDeque<>();
+	private boolean finished;
+
+	public ParallelGZIPOutputStream(OutputStream out, Executor executor) throws IOException {
+		this(out, executor, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE, 2 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param executor executor to run the compression tasks on. When <code>null</code>, blocks are compressed in the calling thread.
+	 * @param level compression level, as in {@link Deflater#setLevel(int)}
+	 * @param blockSize size of the uncompressed blocks, at least 32K
+	 * @param maxBlocksInProgress maximum number of blocks that are being compressed or wait to be written
+	 */
+	public ParallelGZIPOutputStream(OutputStream out, Executor executor, int level, int blockSize, int maxBlocksInProgress) throws IOException {
+		super(out);
+		this.executor = executor!=null ? executor : Runnable::run;
+		this.level = level;
+		this.blockSize = Math.max(blockSize, DICTIONARY_SIZE);
+		this.maxBlocksInProgress = Math.max(maxBlocksInProgress, 1);
+		block = new byte[this.blockSize];
+		out.write(GZIP_HEADER);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte)b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (finished) {
+			throw new IOException("write beyond end of stream");
+		}
+		crc.update(b, off, len);
+		uncompressedSize += len;
+		while (len > 0) {
+			int chunk = Math.min(len, blockSize - blockLength);
+			System.arraycopy(b, off, block, blockLength, chunk);
+			blockLength += chunk;
+			off += chunk;
+			len -= chunk;
+			if (blockLength == blockSize) {
+				submitBlock(false);
+			}
+		}
+	}
+
+	private void submitBlock(boolean last) throws IOException {
+		final byte[] data = block;
+		final int length = blockLength;
+		final byte[] blockDictionary = dictionary;
+		dictionary = length >= DICTIONARY_SIZE ? Arrays.copyOfRange(data, length - DICTIONARY_SIZE, length) : null;
+		FutureTask<byte[]> task = new FutureTask<>(() -> deflate(data, length, blockDictionary, last));
+		blocksInProgress.add(task);
+		executor.execute(task);
+		block = new byte[blockSize];
+		blockLength = 0;
+		writeCompletedBlocks(false);
+	}
+
+	private byte[] deflate(byte[] data, int length, byte[] blockDictionary, boolean last) {
+		Deflater deflater = new Deflater(level, true);
+		try {
+			if (blockDictionary != null) {
+				deflater.setDictionary(blockDictionary);
+			}
+			deflater.setInput(data, 0, length);
+			ByteArrayOutputStream result = new ByteArrayOutputStream(length / 2 + 64);
+			byte[] buffer = new byte[16 * 1024];
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					int count = deflater.deflate(buffer);
+					result.write(buffer, 0, count);
+				}
+			} else {
+				int count;
+				do {
+					count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					result.write(buffer, 0, count);
+				} while (count == buffer.length);
+			}
+			return result.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Writes the compressed blocks that are ready, in order. Waits for the oldest block when too many blocks are in progress, or when <code>all</code> is set.
+	 */
+	private void writeCompletedBlocks(boolean all) throws IOException {
+		while (!blocksInProgress.isEmpty()) {
+			FutureTask<byte[]> oldest = blocksInProgress.peek();
+			if (!all && !oldest.isDone() && blocksInProgress.size() < maxBlocksInProgress) {
+				return;
+			}
+			try {
+				out.write(oldest.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted waiting for compression of block");
+			} catch (ExecutionException e) {
+				throw new IOException("cannot compress block", e.getCause());
+			}
+			blocksInProgress.remove();
+		}
+	}
+
+	/**
+	 * Writes the data that has been compressed so far and flushes the underlying stream. Data that has been written but not yet filled a block remains buffered.
+	 */
+	@Override
+	public void flush() throws IOException {
+		writeCompletedBlocks(false);
+		out.flush();
+	}
+
+	/**
+	 * Compresses and writes the remaining data and the GZIP trailer, without closing the underlying stream.
+	 */
+	public void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		submitBlock(true);
+		writeCompletedBlocks(true);
+		writeInt((int)crc.getValue());
+		writeInt((int)uncompressedSize);
+		finished = true;
+	}
+
+	private void writeInt(int value) throws IOException {
+		out.write(value & 0xff);
+		out.write((value >> 8) & 0xff);
+		out.write((value >> 16) & 0xff);
+		out.write((value >> 24) & 0xff);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			blocksInProgress.forEach(task -> task.cancel(true));
+			out.close();
+		}
+	}
+}
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -150,9 +151,17 @@ public class ZipWriter implements ICollector<IZipWritingElement> {
 	}
 
 	public void openEntry(String filename) throws CompressionException {
+		openEntry(filename, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * Opens a new deflated entry, compressed with the specified level.
+	 */
+	public void openEntry(String filename, int compressionLevel) throws CompressionException {
 		closeEntry();
 		ZipEntry entry = new ZipEntry(filename);
 		try {
+			zipoutput.setLevel(compressionLevel);
 			zipoutput.putNextEntry(entry);
 			entryOpen=true;
 		} catch (IOException e) {
@@ -199,7 +208,7 @@ public class ZipWriter implements ICollector<IZipWritingElement> {
 			if (completeFileHeader) {
 				writeEntryWithCompletedHeader(filename, contents, writingElement.isCloseInputstreamOnExit(), charset);
 			} else {
-				writeEntry(filename, contents, writingElement.isCloseInputstreamOnExit(), charset);
+				writeEntry(filename, contents, writingElement.isCloseInputstreamOnExit(), charset, writingElement.getCompressionLevel());
 			}
 			return contents==input ? Message.nullMessage() : input;
 		} catch (IOException | CompressionException e) {
@@ -221,7 +230,7 @@ public class ZipWriter implements ICollector<IZipWritingElement> {
 			return null;
 		}
 		try {
-			openEntry(filename);
+			openEntry(filename, writingElement.getCompressionLevel());
 			OutputStream stream = StreamUtil.dontClose(getZipoutput());
 			return new MessageOutputStream(writingElement, stream, (IForwardTarget)null, charset) {
 
@@ -241,7 +250,7 @@ public class ZipWriter implements ICollector<IZipWritingElement> {
 	public OutputStream streamItem(Message input, PipeLineSession session, ParameterValueList pvl, IZipWritingElement writingElement) throws CollectionException {
 		try {
 			String filename = ParameterValueList.getValue(pvl, PARAMETER_FILENAME, input.asString());
-			openEntry(filename);
+			openEntry(filename, writingElement.getCompressionLevel());
 		} catch (CompressionException | IOException e) {
 			throw new CollectionException("cannot prepare collection to stream item", e);
 		}
@@ -250,10 +259,14 @@ public class ZipWriter implements ICollector<IZipWritingElement> {
 
 
 	public void writeEntry(String filename, Message contents, boolean close, String charset) throws CompressionException, IOException {
+		writeEntry(filename, contents, close, charset, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	public void writeEntry(String filename, Message contents, boolean close, String charset, int compressionLevel) throws CompressionException, IOException {
 		if (StringUtils.isEmpty(filename)) {
 			throw new CompressionException("filename cannot be empty");
 		}
-		openEntry(filename);
+		openEntry(filename, compressionLevel);
 		if (contents!=null) {
 			try (InputStream is = contents.asInputStream( charset)) {
 				Misc.streamToStream(is,getZipoutput());
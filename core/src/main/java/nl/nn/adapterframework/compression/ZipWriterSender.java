@@ -15,6 +15,8 @@
 */
 package nl.nn.adapterframework.compression;
 
+import java.util.zip.Deflater;
+
 import lombok.Getter;
 import nl.nn.adapterframework.collection.CollectionException;
 import nl.nn.adapterframework.collection.CollectorSender;
@@ -42,6 +44,7 @@ public class ZipWriterSender extends CollectorSender<IZipWritingElement, ZipWrit
 	private @Getter boolean closeOutputstreamOnExit=true;
 	private @Getter String charset=StreamUtil.DEFAULT_INPUT_STREAM_ENCODING;
 	private @Getter boolean completeFileHeader=false;
+	private @Getter int compressionLevel=Deflater.DEFAULT_COMPRESSION;
 
 	public ZipWriterSender() {
 		super();
@@ -108,6 +111,14 @@ public class ZipWriterSender extends CollectorSender<IZipWritingElement, ZipWrit
 		completeFileHeader = b;
 	}
 
+	/**
+	 * Only for action='write': Compression level of the zip entry, from 0 (no compression) to 9 (best compression). Use -1 for the default level. Ignored when completeFileHeader=<code>true</code>, as the entry is then stored without compression
+	 * @ff.default -1
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		this.compressionLevel = compressionLevel;
+	}
+
 
 
 }
@@ -45,6 +45,7 @@ public class AdapterManager extends ConfigurableLifecyleBase implements Applicat
 	private List<Runnable> stopAdapterThreads = Collections.synchronizedList(new ArrayList<Runnable>());
 
 	private final Map<String, Adapter> adapters = new LinkedHashMap<>(); // insertion order map
+	private final @Getter StartupTimeline startupTimeline = new StartupTimeline();
 
 	public void registerAdapter(Adapter adapter) {
 		if(!inState(BootState.STOPPED)) {
@@ -71,6 +72,7 @@ public class AdapterManager extends ConfigurableLifecyleBase implements Applicat
 		}
 
 		adapters.remove(name);
+		startupTimeline.remove(name);
 		log.debug("unregistered adapter [{}] from AdapterManager [{}]", name, this);
 	}
 
@@ -128,6 +130,8 @@ public class AdapterManager extends ConfigurableLifecyleBase implements Applicat
 		log.info("configuring all adapters in AdapterManager [{}]", this);
 
 		for (Adapter adapter : getAdapterList()) {
+			long startTime = System.currentTimeMillis();
+			boolean success = false;
 			try {
 				if(adapterLifecycleWrappers != null) {
 					for (AdapterLifecycleWrapperBase adapterProcessor : adapterLifecycleWrappers) {
@@ -135,8 +139,11 @@ public class AdapterManager extends ConfigurableLifecyleBase implements Applicat
 					}
 				}
 				adapter.configure();
+				success = true;
 			} catch (ConfigurationException e) {
 				log.error("error configuring adapter [{}]", adapter.getName(), e);
+			} finally {
+				startupTimeline.record(adapter.getName(), startTime, success);
 			}
 		}
 	}
@@ -17,11 +17,17 @@ package nl.nn.adapterframework.configuration;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.Logger;
@@ -30,6 +36,7 @@ import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.ApplicationContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 import lombok.Getter;
 import nl.nn.adapterframework.configuration.classloaders.IConfigurationClassLoader;
@@ -60,6 +67,7 @@ import nl.nn.adapterframework.util.flow.FlowDiagramManager;
  */
 public class IbisContext extends IbisApplicationContext {
 	private static final Logger LOG = LogUtil.getLogger(IbisContext.class);
+	public static final String LOAD_THREADS_KEY = "configurations.load.threads";
 
 	static {
 		if(!Boolean.parseBoolean(APP_CONSTANTS.getProperty("jdbc.convertFieldnamesToUppercase")))
@@ -77,7 +85,8 @@ public class IbisContext extends IbisApplicationContext {
 	private @Getter IbisManager ibisManager;
 	private FlowDiagramManager flowDiagramManager;
 	private ClassLoaderManager classLoaderManager = null;
-	private static List<String> loadingConfigs = new ArrayList<>();
+	private static List<String> loadingConfigs = Collections.synchronizedList(new ArrayList<>());
+	private @Getter StartupTimeline startupTimeline = new StartupTimeline();
 
 	private Thread ibisContextReconnectThread = null;
 
@@ -126,6 +135,7 @@ public class IbisContext extends IbisApplicationContext {
 				log("failed to initalize FlowDiagramManager", MessageKeeperLevel.ERROR, e);
 			}
 
+			startupTimeline.clear();
 			load();
 
 			log("startup in " + (System.currentTimeMillis() - start) + " ms");
@@ -194,6 +204,7 @@ public class IbisContext extends IbisApplicationContext {
 	public void unload(String configurationName) {
 		Configuration configuration = ibisManager.getConfiguration(configurationName);
 		if (configuration != null) {
+			startupTimeline.remove(configurationName);
 			ibisManager.unload(configurationName);
 			if (!configuration.getRegisteredAdapters().isEmpty()) {
 				log("Not all adapters are unregistered: " + configuration.getRegisteredAdapters(), MessageKeeperLevel.ERROR);
@@ -267,40 +278,17 @@ public class IbisContext extends IbisApplicationContext {
 
 		//We have an ordered list with all configurations, lets loop through!
 		Map<String, Class<? extends IConfigurationClassLoader>> allConfigNamesItems = retrieveAllConfigNames();
-		for (Entry<String, Class<? extends IConfigurationClassLoader>> currentConfigNameItem : allConfigNamesItems.entrySet()) {
-			String currentConfigurationName = currentConfigNameItem.getKey();
-			String classLoaderType = (currentConfigNameItem.getValue() == null) ? null : currentConfigNameItem.getValue().getCanonicalName();
-
-			if (configurationName == null || configurationName.equals(currentConfigurationName)) {
-				LOG.info("loading configuration ["+currentConfigurationName+"]");
-				configFound = true;
-
-				ClassLoaderException classLoaderException = null;
-				ClassLoader classLoader = null;
-				try {
-					classLoader = classLoaderManager.get(currentConfigurationName, classLoaderType);
-
-					//An error occurred but we don't want to throw any exceptions.
-					//Skip configuration digesting so it can be done at a later time.
-					if(classLoader == null)
-						continue;
-
-				} catch (ClassLoaderException e) {
-					classLoaderException = e;
-					if(LOG.isDebugEnabled()) LOG.debug("configuration ["+currentConfigurationName+"] got exception creating/retrieving classloader type ["+classLoaderType+"] errorMessage ["+e.getMessage()+"]");
-				}
-
-				if(LOG.isDebugEnabled()) LOG.debug("configuration ["+currentConfigurationName+"] found classloader ["+ClassUtils.nameOf(classLoader)+"]");
-				try {
-					loadingConfigs.add(currentConfigurationName);
-					createAndConfigureConfigurationWithClassLoader(classLoader, currentConfigurationName, classLoaderException);
-				} catch (Exception e) {
-					log("an exception occurred while loading configuration ["+currentConfigurationName+"]", MessageKeeperLevel.ERROR, e);
-				} finally {
-					loadingConfigs.remove(currentConfigurationName);
+		int loadThreads = APP_CONSTANTS.getInt(LOAD_THREADS_KEY, 1);
+		if (configurationName == null && loadThreads > 1 && allConfigNamesItems.size() > 1) {
+			loadInParallel(allConfigNamesItems, loadThreads);
+			configFound = true;
+		} else {
+			for (Entry<String, Class<? extends IConfigurationClassLoader>> currentConfigNameItem : allConfigNamesItems.entrySet()) {
+				String currentConfigurationName = currentConfigNameItem.getKey();
+				if (configurationName == null || configurationName.equals(currentConfigurationName)) {
+					configFound = true;
+					loadConfiguration(currentConfigurationName, currentConfigNameItem.getValue());
 				}
-
-				LOG.info("configuration ["+currentConfigurationName+"] loaded successfully");
 			}
 		}
 
@@ -311,6 +299,72 @@ public class IbisContext extends IbisApplicationContext {
 		}
 	}
 
+	/**
+	 * Loads the configurations concurrently on a pool of <code>loadThreads</code> threads. A configuration that has a
+	 * parentConfig is only loaded after its parent, as its ClassLoader is created from the parent's ClassLoader.
+	 */
+	private void loadInParallel(Map<String, Class<? extends IConfigurationClassLoader>> allConfigNamesItems, int loadThreads) {
+		LOG.info("loading [{}] configurations using [{}] threads", allConfigNamesItems.size(), loadThreads);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(loadThreads, allConfigNamesItems.size()), new CustomizableThreadFactory("ConfigurationLoader-"));
+		try {
+			Map<String, CompletableFuture<Void>> loadedConfigurations = new LinkedHashMap<>();
+			for (Entry<String, Class<? extends IConfigurationClassLoader>> currentConfigNameItem : allConfigNamesItems.entrySet()) {
+				String currentConfigurationName = currentConfigNameItem.getKey();
+				String parentConfig = APP_CONSTANTS.getString("configurations." + currentConfigurationName + ".parentConfig", null);
+				CompletableFuture<Void> parentLoaded = loadedConfigurations.getOrDefault(parentConfig, CompletableFuture.completedFuture(null));
+				// a failing parent is reported by its own task, the child is loaded regardless, like when loading sequentially
+				CompletableFuture<Void> loaded = parentLoaded
+						.handle((result, parentException) -> null)
+						.thenRunAsync(() -> loadConfiguration(currentConfigurationName, currentConfigNameItem.getValue()), executor);
+				loadedConfigurations.put(currentConfigurationName, loaded);
+			}
+			CompletableFuture.allOf(loadedConfigurations.values().toArray(new CompletableFuture[0])).join();
+		} catch (CompletionException e) {
+			log("an exception occurred while loading configurations", MessageKeeperLevel.ERROR, e);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void loadConfiguration(String currentConfigurationName, Class<? extends IConfigurationClassLoader> classLoaderClass) {
+		String classLoaderType = (classLoaderClass == null) ? null : classLoaderClass.getCanonicalName();
+		LOG.info("loading configuration ["+currentConfigurationName+"]");
+		long startTime = System.currentTimeMillis();
+
+		ClassLoaderException classLoaderException = null;
+		ClassLoader classLoader = null;
+		try {
+			synchronized (classLoaderManager) {
+				classLoader = classLoaderManager.get(currentConfigurationName, classLoaderType);
+			}
+
+			//An error occurred but we don't want to throw any exceptions.
+			//Skip configuration digesting so it can be done at a later time.
+			if(classLoader == null) {
+				startupTimeline.record(currentConfigurationName, startTime, false);
+				return;
+			}
+
+		} catch (ClassLoaderException e) {
+			classLoaderException = e;
+			if(LOG.isDebugEnabled()) LOG.debug("configuration ["+currentConfigurationName+"] got exception creating/retrieving classloader type ["+classLoaderType+"] errorMessage ["+e.getMessage()+"]");
+		}
+
+		if(LOG.isDebugEnabled()) LOG.debug("configuration ["+currentConfigurationName+"] found classloader ["+ClassUtils.nameOf(classLoader)+"]");
+		boolean success = false;
+		try {
+			loadingConfigs.add(currentConfigurationName);
+			success = createAndConfigureConfigurationWithClassLoader(classLoader, currentConfigurationName, classLoaderException);
+		} catch (Exception e) {
+			log("an exception occurred while loading configuration ["+currentConfigurationName+"]", MessageKeeperLevel.ERROR, e);
+		} finally {
+			loadingConfigs.remove(currentConfigurationName);
+			startupTimeline.record(currentConfigurationName, startTime, success);
+		}
+
+		LOG.info("configuration ["+currentConfigurationName+"] loaded successfully");
+	}
+
 	/** Helper method to create stubbed configurations used in JunitTests */
 	protected Map<String, Class<? extends IConfigurationClassLoader>> retrieveAllConfigNames() {
 		return ConfigurationUtils.retrieveAllConfigNames(getApplicationContext());
@@ -338,8 +392,9 @@ public class IbisContext extends IbisApplicationContext {
 
 	/**
 	 * either ClassLoader is populated or ConfigurationException, but never both!
+	 * @return <code>true</code> if the configuration was configured without exceptions
 	 */
-	private void createAndConfigureConfigurationWithClassLoader(ClassLoader classLoader, String currentConfigurationName, ClassLoaderException classLoaderException) {
+	private boolean createAndConfigureConfigurationWithClassLoader(ClassLoader classLoader, String currentConfigurationName, ClassLoaderException classLoaderException) {
 		if(LOG.isDebugEnabled()) LOG.debug("creating new configuration ["+currentConfigurationName+"]");
 
 		ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
@@ -366,9 +421,11 @@ public class IbisContext extends IbisApplicationContext {
 			configuration.configure();
 
 			LOG.info("configured configuration ["+currentConfigurationName+"] successfully");
+			return true;
 		} catch (ConfigurationException e) {
 			configuration.setConfigurationException(e);
 			log("exception loading configuration ["+currentConfigurationName+"]", MessageKeeperLevel.ERROR, e);
+			return false;
 		} finally {
 			Thread.currentThread().setContextClassLoader(originalClassLoader);
 		}
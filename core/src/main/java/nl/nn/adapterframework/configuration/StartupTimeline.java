@@ -0,0 +1,86 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * Records when the configurations and adapters of the application were loaded and configured, and how long that took,
+ * to find out which of them determine the startup time.
+ */
+public class StartupTimeline {
+
+	private final List<Entry> entries = new ArrayList<>();
+
+	public static class Entry {
+		private @Getter final String name;
+		private @Getter final long startTime;
+		private @Getter final long duration;
+		private @Getter final String threadName;
+		private @Getter final boolean success;
+
+		private Entry(String name, long startTime, long duration, boolean success) {
+			this.name = name;
+			this.startTime = startTime;
+			this.duration = duration;
+			this.threadName = Thread.currentThread().getName();
+			this.success = success;
+		}
+
+		public Map<String, Object> asMap() {
+			Map<String, Object> result = new LinkedHashMap<>();
+			result.put("name", name);
+			result.put("startTime", startTime);
+			result.put("duration", duration);
+			result.put("thread", threadName);
+			result.put("success", success);
+			return result;
+		}
+	}
+
+	/**
+	 * Records an item that started at <code>startTime</code> and has just ended, in the current thread.
+	 * A previous entry for the same name is replaced, e.g. when a configuration is reloaded.
+	 */
+	public synchronized void record(String name, long startTime, boolean success) {
+		entries.removeIf(entry -> entry.getName().equals(name));
+		entries.add(new Entry(name, startTime, System.currentTimeMillis() - startTime, success));
+	}
+
+	public synchronized void remove(String name) {
+		entries.removeIf(entry -> entry.getName().equals(name));
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized Entry getEntry(String name) {
+		return entries.stream().filter(entry -> entry.getName().equals(name)).findFirst().orElse(null);
+	}
+
+	/**
+	 * @return the entries, in the order in which they ended.
+	 */
+	public synchronized List<Entry> getEntries() {
+		return new ArrayList<>(entries);
+	}
+}
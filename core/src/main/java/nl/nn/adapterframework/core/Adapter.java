@@ -15,6 +15,7 @@
 */
 package nl.nn.adapterframework.core;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
@@ -22,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.CloseableThreadContext;
@@ -291,11 +293,11 @@ public class Adapter implements IAdapter, NamedBean {
 	/**
 	 * Decrease the number of messages in process
 	 */
-	private void decNumOfMessagesInProcess(long duration, boolean processingSuccess) {
+	private void decNumOfMessagesInProcess(long durationNanos, boolean processingSuccess) {
 		synchronized (statsMessageProcessingDuration) {
 			numOfMessagesInProcess--;
 			numOfMessagesProcessed.increase();
-			statsMessageProcessingDuration.addValue(duration);
+			statsMessageProcessingDuration.addNanos(durationNanos);
 			if (processingSuccess) {
 				lastMessageProcessingState = PROCESS_STATE_OK;
 			} else {
@@ -439,9 +441,9 @@ public class Adapter implements IAdapter, NamedBean {
 			}
 			hski.closeGroup(recsData);
 
-			ICache<String,String> cache=pipeline.getCache();
+			ICache<String,Serializable> cache=pipeline.getCache();
 			if (cache instanceof HasStatistics) {
-				((HasStatistics) cache).iterateOverStatistics(hski, recsData, action);
+				((HasStatistics) cache).iterateOverStatistics(hski, adapterData, action);
 			}
 
 			Object pipeData=hski.openGroup(adapterData,null,"pipe");
@@ -597,6 +599,7 @@ public class Adapter implements IAdapter, NamedBean {
 		PipeLineResult result = null;
 
 		long startTime = System.currentTimeMillis();
+		long startNanos = System.nanoTime();
 		boolean processingSuccess = true;
 		// prevent executing a stopped adapter
 		// the receivers should implement this, but you never now....
@@ -657,9 +660,10 @@ public class Adapter implements IAdapter, NamedBean {
 			throw e;
 		} finally {
 			long endTime = System.currentTimeMillis();
-			long duration = endTime - startTime;
+			long durationNanos = System.nanoTime() - startNanos;
+			long duration = TimeUnit.NANOSECONDS.toMillis(durationNanos);
 			//reset the InProcess fields, and increase processedMessagesCount
-			decNumOfMessagesInProcess(duration, processingSuccess);
+			decNumOfMessagesInProcess(durationNanos, processingSuccess);
 			ThreadContext.put(PipeLineSession.EXIT_STATE_CONTEXT_KEY, result.getState().name());
 			if (result.getExitCode()!=0) {
 				ThreadContext.put(PipeLineSession.EXIT_CODE_CONTEXT_KEY, Integer.toString(result.getExitCode()));
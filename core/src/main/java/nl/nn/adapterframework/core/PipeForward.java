@@ -50,6 +50,8 @@ public class PipeForward {
 
 	private @Getter String name;
 	private @Getter String path;
+	// resolved by the PipeLine at configuration time; transient to keep it out of toString()
+	private transient IForwardTarget target;
 
 	public PipeForward(String name, String path) {
 		this.name = name;
@@ -75,6 +77,18 @@ public class PipeForward {
 	@Mandatory
 	public void setPath(String path) {
 		this.path = path;
+		this.target = null;
+	}
+
+	/**
+	 * Returns the Pipe or PipeLineExit that the path of this forward was resolved to when the PipeLine was configured, or <code>null</code> when not resolved.
+	 */
+	IForwardTarget getTarget() {
+		return target;
+	}
+
+	void setTarget(IForwardTarget target) {
+		this.target = target;
 	}
 
 	/**
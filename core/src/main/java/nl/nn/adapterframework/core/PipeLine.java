@@ -16,11 +16,12 @@
 package nl.nn.adapterframework.core;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Hashtable;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.CloseableThreadContext;
@@ -44,6 +45,7 @@ import nl.nn.adapterframework.statistics.HasStatistics;
 import nl.nn.adapterframework.statistics.SizeStatisticsKeeper;
 import nl.nn.adapterframework.statistics.StatisticsKeeper;
 import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
+import nl.nn.adapterframework.statistics.ThreadResourceMeter;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.util.ClassUtils;
 import nl.nn.adapterframework.util.Locker;
@@ -88,7 +90,7 @@ import nl.nn.adapterframework.util.Misc;
  * @author  Johan Verrips
  */
 @Category("Basic")
-public class PipeLine extends TransactionAttributes implements ICacheEnabled<String,String>, HasStatistics, IConfigurationAware {
+public class PipeLine extends TransactionAttributes implements ICacheEnabled<String,Serializable>, HasStatistics, IConfigurationAware {
 	private @Getter @Setter ApplicationContext applicationContext;
 	private @Getter ClassLoader configurationClassLoader = Thread.currentThread().getContextClassLoader();
 
@@ -100,6 +102,8 @@ public class PipeLine extends TransactionAttributes implements ICacheEnabled<Str
 	public static final String PIPELINE_DURATION_STATS  = "duration";
 	public static final String PIPELINE_WAIT_STATS  = "wait";
 	public static final String PIPELINE_SIZE_STATS  = "msgsize";
+	public static final String PIPELINE_CPU_STATS  = "cpu";
+	public static final String PIPELINE_ALLOCATION_STATS  = "allocated";
 
 	public static final String DEFAULT_SUCCESS_EXIT_NAME = "READY";
 
@@ -115,9 +119,9 @@ public class PipeLine extends TransactionAttributes implements ICacheEnabled<Str
 	private @Getter IWrapperPipe inputWrapper    = null;
 	private @Getter IWrapperPipe outputWrapper   = null;
 	private @Getter Map<String, PipeLineExit> pipeLineExits = new LinkedHashMap<String, PipeLineExit>();
-	private @Getter Map<String, PipeForward> globalForwards = new Hashtable<String, PipeForward>();
+	private @Getter Map<String, PipeForward> globalForwards = new ConcurrentHashMap<String, PipeForward>();
 	private @Getter Locker locker;
-	private @Getter ICache<String,String> cache;
+	private @Getter ICache<String,Serializable> cache;
 
 	private Map<String, IPipe> pipesByName = new LinkedHashMap<String, IPipe>();
 	private @Getter List<IPipe> pipes	  = new ArrayList<IPipe>();
@@ -126,10 +130,12 @@ public class PipeLine extends TransactionAttributes implements ICacheEnabled<Str
 	private @Getter INamedObject owner; // for logging purposes
 	private @Setter PipeLineProcessor pipeLineProcessor;
 
-	private Map<String, StatisticsKeeper> pipeStatistics = new Hashtable<String, StatisticsKeeper>();
-	private Map<String, StatisticsKeeper> pipeWaitingStatistics = new Hashtable<String, StatisticsKeeper>();
+	private Map<String, StatisticsKeeper> pipeStatistics = new ConcurrentHashMap<String, StatisticsKeeper>();
+	private Map<String, StatisticsKeeper> pipeWaitingStatistics = new ConcurrentHashMap<String, StatisticsKeeper>();
 	private @Getter StatisticsKeeper requestSizeStats;
-	private Map<String, StatisticsKeeper> pipeSizeStats = new Hashtable<String, StatisticsKeeper>();
+	private Map<String, StatisticsKeeper> pipeSizeStats = new ConcurrentHashMap<String, StatisticsKeeper>();
+	private Map<String, StatisticsKeeper> pipeCpuStatistics = new ConcurrentHashMap<String, StatisticsKeeper>();
+	private Map<String, StatisticsKeeper> pipeAllocationStatistics = new ConcurrentHashMap<String, StatisticsKeeper>();
 
 
 	private @Getter List<IPipeLineExitHandler> exitHandlers = new ArrayList<IPipeLineExitHandler>();
@@ -331,6 +337,8 @@ public class PipeLine extends TransactionAttributes implements ICacheEnabled<Str
 			}
 		}
 
+		linkForwards();
+
 		super.configure();
 		log.debug("successfully configured");
 		configurationSucceeded = true;
@@ -386,6 +394,12 @@ public class PipeLine extends TransactionAttributes implements ICacheEnabled<Str
 				}
 			}
 			pipeStatistics.put(pipe.getName(), new StatisticsKeeper(pipe.getName()));
+			if (ThreadResourceMeter.isEnabled()) {
+				pipeCpuStatistics.put(pipe.getName(), new StatisticsKeeper(pipe.getName()));
+				if (ThreadResourceMeter.isAllocationMeasured()) {
+					pipeAllocationStatistics.put(pipe.getName(), new SizeStatisticsKeeper(pipe.getName()));
+				}
+			}
 			//congestionSensors.addSensor(pipe);
 		} catch (Throwable t) {
 			ConfigurationException e = new ConfigurationException("Exception configuring "+ ClassUtils.nameOf(pipe),t);
@@ -397,6 +411,32 @@ public class PipeLine extends TransactionAttributes implements ICacheEnabled<Str
 		}
 	}
 
+	/**
+	 * Resolves the path of each forward of the pipes, validators, wrappers and of the global forwards to the target Pipe or PipeLineExit,
+	 * so that {@link #resolveForward(IPipe, PipeForward)} does not need to look them up for each step.
+	 */
+	private void linkForwards() {
+		List<IPipe> allPipes = new ArrayList<>(pipes);
+		allPipes.add(getInputValidator());
+		allPipes.add(getOutputValidator());
+		allPipes.add(getInputWrapper());
+		allPipes.add(getOutputWrapper());
+		for (IPipe pipe : allPipes) {
+			if (pipe != null && pipe.getForwards() != null) {
+				pipe.getForwards().values().forEach(this::linkForward);
+			}
+		}
+		globalForwards.values().forEach(this::linkForward);
+	}
+
+	private void linkForward(PipeForward forward) {
+		String path = forward.getPath();
+		if (StringUtils.isNotEmpty(path)) {
+			PipeLineExit plExit = getPipeLineExits().get(path);
+			forward.setTarget(plExit != null ? plExit : getPipe(path));
+		}
+	}
+
 	public boolean configurationSucceeded() {
 		return configurationSucceeded;
 	}
@@ -456,6 +496,13 @@ public class PipeLine extends TransactionAttributes implements ICacheEnabled<Str
 			hski.closeGroup(waitStatsData);
 		}
 
+		if (pipeCpuStatistics.size() > 0) {
+			handleResourceUsageStats(pipeCpuStatistics, PIPELINE_CPU_STATS, hski, data, action);
+		}
+		if (pipeAllocationStatistics.size() > 0) {
+			handleResourceUsageStats(pipeAllocationStatistics, PIPELINE_ALLOCATION_STATS, hski, data, action);
+		}
+
 		Object sizeStatsData = hski.openGroup(data, null, PIPELINE_SIZE_STATS);
 		hski.handleStatisticsKeeper(sizeStatsData,getRequestSizeStats());
 		for (IPipe pipe : adapter.getPipeLine().getPipes()) {
@@ -474,6 +521,18 @@ public class PipeLine extends TransactionAttributes implements ICacheEnabled<Str
 		hski.closeGroup(sizeStatsData);
 	}
 
+	private void handleResourceUsageStats(Map<String, StatisticsKeeper> statistics, String type, StatisticsKeeperIterationHandler hski, Object data, Action action) throws SenderException {
+		Object statsData = hski.openGroup(data, null, type);
+		handlePipeStat(getInputValidator(), statistics, statsData, hski, false, action);
+		handlePipeStat(getOutputValidator(), statistics, statsData, hski, false, action);
+		handlePipeStat(getInputWrapper(), statistics, statsData, hski, false, action);
+		handlePipeStat(getOutputWrapper(), statistics, statsData, hski, false, action);
+		for (IPipe pipe : adapter.getPipeLine().getPipes()) {
+			handlePipeStat(pipe, statistics, statsData, hski, false, action);
+		}
+		hski.closeGroup(statsData);
+	}
+
 	private void handlePipeStat(INamedObject pipe, Map<String, StatisticsKeeper> pipelineStatistics, Object pipeStatsData, StatisticsKeeperIterationHandler handler, boolean deep, Action action) throws SenderException {
 		if (pipe == null) {
 			return;
@@ -488,6 +547,18 @@ public class PipeLine extends TransactionAttributes implements ICacheEnabled<Str
 	public StatisticsKeeper getPipeStatistics(INamedObject pipe){
 		return pipeStatistics.get(pipe.getName());
 	}
+	/**
+	 * Returns the statistics of the CPU time used by the pipe, or <code>null</code> when resource usage statistics are not enabled.
+	 */
+	public StatisticsKeeper getPipeCpuStatistics(INamedObject pipe){
+		return pipeCpuStatistics.get(pipe.getName());
+	}
+	/**
+	 * Returns the statistics of the bytes allocated by the pipe, or <code>null</code> when they are not measured.
+	 */
+	public StatisticsKeeper getPipeAllocationStatistics(INamedObject pipe){
+		return pipeAllocationStatistics.get(pipe.getName());
+	}
 	public StatisticsKeeper getPipeWaitingStatistics(IPipe pipe){
 		return pipeWaitingStatistics.get(pipe.getName());
 	}
@@ -533,6 +604,10 @@ public class PipeLine extends TransactionAttributes implements ICacheEnabled<Str
 		if (forward==null){
 			throw new PipeRunException(pipe, "Pipeline of ["+getOwner().getName()+"] got a null forward from pipe ["+pipe.getName()+"].");
 		}
+		IForwardTarget target = forward.getTarget();
+		if (target != null) {
+			return target;
+		}
 		String path = forward.getPath();
 		if (StringUtils.isEmpty(path)){
 			throw new PipeRunException(pipe, "Pipeline of ["+getOwner().getName()+"] got a forward ["+forward.getName()+"] with a path that equals null or has a zero-length value from pipe ["+pipe.getName()+"]. Check the configuration, probably forwards are not defined for this pipe.");
@@ -733,7 +808,7 @@ public class PipeLine extends TransactionAttributes implements ICacheEnabled<Str
 
 	/** Cache of results */
 	@Override
-	public void setCache(ICache<String,String> cache) {
+	public void setCache(ICache<String,Serializable> cache) {
 		this.cache=cache;
 	}
 
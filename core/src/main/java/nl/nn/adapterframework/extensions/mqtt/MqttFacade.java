@@ -1,5 +1,5 @@
 /*
-   Copyright 2017 - 2020 WeAreFrank!
+   Copyright 2017 - 2020, 2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -25,7 +25,7 @@ import nl.nn.adapterframework.util.LogUtil;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.Logger;
-import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttSecurityException;
@@ -52,12 +52,13 @@ public class MqttFacade implements HasPhysicalDestination, IConfigurable {
 	private @Getter boolean automaticReconnect = true;
 	private @Getter String charset = "UTF-8";
 	private @Getter String clientId;
+	private @Getter int maxInflight = MqttConnectOptions.MAX_INFLIGHT_DEFAULT;
 
 	private @Getter String username;
 	private @Getter String password;
 	private @Getter String authAlias;
 
-	protected MqttClient client;
+	protected MqttAsyncClient client;
 	protected MqttConnectOptions connectOptions;
 
 	@Override
@@ -74,11 +75,15 @@ public class MqttFacade implements HasPhysicalDestination, IConfigurable {
 		if (StringUtils.isEmpty(getPersistenceDirectory())) {
 			throw new ConfigurationException("persistenceDirectory must be specified");
 		}
+		if (getMaxInflight() < 1) {
+			throw new ConfigurationException("maxInflight must be at least 1");
+		}
 		connectOptions = new MqttConnectOptions();
 		connectOptions.setCleanSession(isCleanSession());
 		connectOptions.setAutomaticReconnect(isAutomaticReconnect());
 		connectOptions.setConnectionTimeout(getTimeout());
 		connectOptions.setKeepAliveInterval(getKeepAliveInterval());
+		connectOptions.setMaxInflight(getMaxInflight());
 		connectOptions.setMqttVersion(MqttConnectOptions.MQTT_VERSION_DEFAULT); //Default: 0, V3.1: 3, V3.1.1: 4
 
 		if(!StringUtils.isEmpty(getAuthAlias()) || (!StringUtils.isEmpty(getUsername()) && !StringUtils.isEmpty(getPassword()))) {
@@ -87,17 +92,21 @@ public class MqttFacade implements HasPhysicalDestination, IConfigurable {
 			connectOptions.setPassword(credentialFactory.getPassword().toCharArray());
 		}
 
-		MqttDefaultFilePersistence dataStore = new MqttDefaultFilePersistence(getPersistenceDirectory());
 		try {
-			client = new MqttClient(brokerUrl, clientId, dataStore);
+			client = createClient();
 		} catch (MqttException e) {
 			throw new ConfigurationException("Could not create client", e);
 		}
 	}
 
+	protected MqttAsyncClient createClient() throws MqttException {
+		MqttDefaultFilePersistence dataStore = new MqttDefaultFilePersistence(getPersistenceDirectory());
+		return new MqttAsyncClient(getBrokerUrl(), getClientId(), dataStore);
+	}
+
 	public void open() throws Exception {
 		try {
-			client.connect(connectOptions);
+			client.connect(connectOptions).waitForCompletion();
 		} catch (MqttSecurityException e) {
 			throw new ListenerException("Could not connect", e);
 		} catch (MqttException e) {
@@ -107,7 +116,7 @@ public class MqttFacade implements HasPhysicalDestination, IConfigurable {
 
 	public void close() {
 		try {
-			client.disconnect();
+			client.disconnect().waitForCompletion();
 		} catch (MqttException e) {
 			log.warn(getLogPrefix() + "caught exception stopping listener", e);
 		}
@@ -188,6 +197,13 @@ public class MqttFacade implements HasPhysicalDestination, IConfigurable {
 		this.automaticReconnect = automaticReconnect;
 	}
 
+	/** maximum number of messages with QoS 1 or 2 that are sent but not yet acknowledged by the broker. See <a href="https://www.eclipse.org/paho/files/javadoc/org/eclipse/paho/client/mqttv3/MqttConnectOptions.html#setMaxInflight-int-" target="_blank">MqttConnectOptions.setMaxInflight(int maxInflight)</a>
+	 * @ff.default 10
+	 */
+	public void setMaxInflight(int maxInflight) {
+		this.maxInflight = maxInflight;
+	}
+
 	/** character encoding of received messages
 	 * @ff.default UTF-8
 	 */
@@ -1,5 +1,5 @@
 /*
-   Copyright 2017, 2020 WeAreFrank!
+   Copyright 2017, 2020, 2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -19,7 +19,12 @@ import java.util.Map;
 
 import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
+import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.springframework.core.task.TaskExecutor;
+
+import lombok.Getter;
+import lombok.Setter;
 
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.core.IMessageHandler;
@@ -28,12 +33,21 @@ import nl.nn.adapterframework.core.IbisExceptionListener;
 import nl.nn.adapterframework.core.ListenerException;
 import nl.nn.adapterframework.core.PipeLineResult;
 import nl.nn.adapterframework.receivers.Receiver;
+import nl.nn.adapterframework.core.SenderException;
 import nl.nn.adapterframework.receivers.ReceiverAware;
+import nl.nn.adapterframework.statistics.HasStatistics;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
 import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.task.BoundedTaskExecutor;
 import nl.nn.adapterframework.util.RunState;
 
 /**
  * MQTT listener which will connect to a broker and subscribe to a topic.
+ * <p>
+ * When the <code>numThreads</code> of the receiver is larger than 1, that number of messages is processed concurrently.
+ * Each message is then acknowledged to the broker after it has been processed, also when processing failed, and the order in which messages are
+ * processed is not guaranteed anymore.
+ * </p>
  *
  * Links to <a href="https://www.eclipse.org/paho/files/javadoc" target="_blank">https://www.eclipse.org/paho/files/javadoc</a> are opened in a new window/tab because the response from eclipse.org contains header X-Frame-Options:SAMEORIGIN which will make the browser refuse to open the link inside this frame.
  *
@@ -41,11 +55,13 @@ import nl.nn.adapterframework.util.RunState;
  * @author Niels Meijer
  */
 
-public class MqttListener extends MqttFacade implements ReceiverAware<MqttMessage>, IPushingListener<MqttMessage>, MqttCallbackExtended {
+public class MqttListener extends MqttFacade implements ReceiverAware<MqttMessage>, IPushingListener<MqttMessage>, MqttCallbackExtended, HasStatistics {
 
 	private Receiver<MqttMessage> receiver;
 	private IMessageHandler<MqttMessage> messageHandler;
 	private IbisExceptionListener ibisExceptionListener;
+	private @Getter @Setter TaskExecutor taskExecutor;
+	private BoundedTaskExecutor processingExecutor;
 
 	@Override
 	public void setReceiver(Receiver<MqttMessage> receiver) {
@@ -76,13 +92,23 @@ public class MqttListener extends MqttFacade implements ReceiverAware<MqttMessag
 
 		super.configure();
 		client.setCallback(this);
+
+		int numThreads = receiver.getNumThreads();
+		if (numThreads > 1) {
+			if (getTaskExecutor() == null) {
+				throw new ConfigurationException("no taskExecutor available to process messages concurrently");
+			}
+			// the callback thread waits while all threads are busy, so no more messages are taken from the broker than can be processed
+			processingExecutor = new BoundedTaskExecutor(getTaskExecutor(), "message processing of "+getName(), numThreads, 0, true);
+			client.setManualAcks(true);
+		}
 	}
 
 	@Override
 	public void open() throws ListenerException {
 		try {
 			super.open();
-			client.subscribe(getTopic(), getQos());
+			client.subscribe(getTopic(), getQos()).waitForCompletion();
 		} catch (Exception e) {
 			throw new ListenerException("Could not subscribe to topic", e);
 		}
@@ -124,6 +150,22 @@ public class MqttListener extends MqttFacade implements ReceiverAware<MqttMessag
 
 	@Override
 	public void messageArrived(String topic, MqttMessage message) throws Exception {
+		if (processingExecutor == null) {
+			processMessage(message);
+			return;
+		}
+		processingExecutor.execute(() -> {
+			// acknowledged after the receiver has handled a failure too, like in sequential mode, to keep the in-flight window free
+			processMessage(message);
+			try {
+				client.messageArrivedComplete(message.getId(), message.getQos());
+			} catch (MqttException e) {
+				log.warn(getLogPrefix()+"could not acknowledge message ["+message.getId()+"]", e);
+			}
+		});
+	}
+
+	private void processMessage(MqttMessage message) {
 		try {
 			messageHandler.processRawMessage(this, message);
 		} catch(Throwable t) {
@@ -131,6 +173,13 @@ public class MqttListener extends MqttFacade implements ReceiverAware<MqttMessag
 		}
 	}
 
+	@Override
+	public <D> void iterateOverStatistics(StatisticsKeeperIterationHandler<D> hski, D data, Action action) throws SenderException {
+		if (processingExecutor != null) {
+			processingExecutor.iterateOverStatistics(hski, data, action);
+		}
+	}
+
 	@Override
 	public String getIdFromRawMessage(MqttMessage rawMessage, Map<String, Object> context) throws ListenerException {
 		return "" + rawMessage.getId();
@@ -1,5 +1,5 @@
 /*
-   Copyright 2017, 2022 WeAreFrank!
+   Copyright 2017, 2022-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -16,8 +16,19 @@
 
 package nl.nn.adapterframework.extensions.mqtt;
 
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 
+import lombok.Getter;
+
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.core.ISenderWithParameters;
 import nl.nn.adapterframework.core.PipeLineSession;
@@ -26,19 +37,37 @@ import nl.nn.adapterframework.core.SenderResult;
 import nl.nn.adapterframework.core.TimeoutException;
 import nl.nn.adapterframework.parameters.Parameter;
 import nl.nn.adapterframework.parameters.ParameterList;
+import nl.nn.adapterframework.statistics.HasStatistics;
+import nl.nn.adapterframework.statistics.StatisticsKeeper;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
 import nl.nn.adapterframework.stream.Message;
 
 /**
- * MQTT listener which will connect to a broker and subscribe to a topic.
+ * MQTT sender which will connect to a broker and publish messages to a topic.
+ * <p>
+ * By default each message is published after the broker has acknowledged the previous one, according to the QoS.
+ * When <code>waitForDelivery=false</code>, messages are published asynchronously, with at most <code>maxInflight</code>
+ * messages waiting for their acknowledgement at the same time. A message that could not be delivered causes the
+ * next message sent by this sender to fail.
+ * </p>
  *
  * Links to <a href="https://www.eclipse.org/paho/files/javadoc" target="_blank">https://www.eclipse.org/paho/files/javadoc</a> are opened in a new window/tab because the response from eclipse.org contains header X-Frame-Options:SAMEORIGIN which will make the browser refuse to open the link inside this frame.
  *
  * @author Niels Meijer
  */
 
-public class MqttSender extends MqttFacade implements ISenderWithParameters {
+public class MqttSender extends MqttFacade implements ISenderWithParameters, MqttCallback, HasStatistics {
 	protected ParameterList paramList = null;
 
+	private @Getter boolean waitForDelivery = true;
+
+	private Semaphore inflightWindow;
+	private final AtomicReference<Throwable> deliveryFailure = new AtomicReference<>();
+	private final AtomicLong publishedCount = new AtomicLong();
+	private final AtomicLong deliveredCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private StatisticsKeeper deliveryStatistics;
+
 	@Override
 	public void configure() throws ConfigurationException {
 		if (paramList!=null) {
@@ -46,6 +75,14 @@ public class MqttSender extends MqttFacade implements ISenderWithParameters {
 		}
 
 		super.configure();
+		inflightWindow = new Semaphore(getMaxInflight());
+		if (!isWaitForDelivery()) {
+			// the client counts a message as in flight until just after deliveryComplete() has been called, so it gets one extra place
+			// to never refuse a message that is published as soon as a place in the window has been released
+			connectOptions.setMaxInflight(getMaxInflight()+1);
+			client.setCallback(this);
+		}
+		deliveryStatistics = new StatisticsKeeper("delivery to "+getTopic());
 	}
 
 	@Override
@@ -81,16 +118,32 @@ public class MqttSender extends MqttFacade implements ISenderWithParameters {
 	}
 
 	public Message sendMessage(Message message, PipeLineSession session, String soapHeader) throws SenderException, TimeoutException {
+		Throwable earlierFailure = deliveryFailure.getAndSet(null);
+		if (earlierFailure != null) {
+			throw new SenderException(getLogPrefix()+"delivery of an earlier message failed", earlierFailure);
+		}
 		try {
 			if(!client.isConnected()) {
 				super.open();
 			}
 
 			log.debug(message);
-			MqttMessage MqttMessage = new MqttMessage();
-			MqttMessage.setPayload(message.asByteArray());
-			MqttMessage.setQos(getQos());
-			client.publish(getTopic(), MqttMessage);
+			MqttMessage mqttMessage = new MqttMessage();
+			mqttMessage.setPayload(message.asByteArray());
+			mqttMessage.setQos(getQos());
+			if (isWaitForDelivery()) {
+				long t0 = System.currentTimeMillis();
+				publishedCount.incrementAndGet();
+				try {
+					client.publish(getTopic(), mqttMessage).waitForCompletion();
+				} catch (MqttException e) {
+					failedCount.incrementAndGet();
+					throw e;
+				}
+				delivered(t0);
+			} else {
+				publishAsynchronously(mqttMessage);
+			}
 		}
 		catch (Exception e) {
 			throw new SenderException(e);
@@ -98,8 +151,84 @@ public class MqttSender extends MqttFacade implements ISenderWithParameters {
 		return message;
 	}
 
+	private void publishAsynchronously(MqttMessage mqttMessage) throws MqttException, InterruptedException {
+		inflightWindow.acquire();
+		long t0 = System.currentTimeMillis();
+		IMqttActionListener deliveryListener = new IMqttActionListener() {
+			@Override
+			public void onSuccess(IMqttToken token) {
+				delivered(t0);
+			}
+
+			@Override
+			public void onFailure(IMqttToken token, Throwable exception) {
+				inflightWindow.release();
+				failedCount.incrementAndGet();
+				log.warn(getLogPrefix()+"could not deliver message to topic ["+getTopic()+"]", exception);
+				deliveryFailure.compareAndSet(null, exception);
+			}
+		};
+		try {
+			client.publish(getTopic(), mqttMessage, null, deliveryListener);
+			publishedCount.incrementAndGet();
+		} catch (MqttException e) {
+			inflightWindow.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public void deliveryComplete(IMqttDeliveryToken token) {
+		// releases the place in the window only when the client itself no longer counts the message as in flight, failures are released by the delivery listener
+		if (token.getException() == null) {
+			inflightWindow.release();
+		}
+	}
+
+	@Override
+	public void messageArrived(String topic, MqttMessage message) {
+		// only publishes
+	}
+
+	@Override
+	public void connectionLost(Throwable cause) {
+		log.warn(getLogPrefix()+"connection lost", cause);
+	}
+
+	private void delivered(long t0) {
+		deliveredCount.incrementAndGet();
+		long t1 = System.currentTimeMillis();
+		synchronized (deliveryStatistics) {
+			deliveryStatistics.addValue(t1-t0);
+		}
+	}
+
+	@Override
+	public <D> void iterateOverStatistics(StatisticsKeeperIterationHandler<D> hski, D data, Action action) throws SenderException {
+		hski.handleScalar(data, "messages published", publishedCount.get());
+		hski.handleScalar(data, "messages delivered", deliveredCount.get());
+		hski.handleScalar(data, "delivery failures", failedCount.get());
+		if (inflightWindow != null) {
+			hski.handleScalar(data, "messages in flight", getMaxInflight() - inflightWindow.availablePermits());
+		}
+		if (deliveryStatistics != null) {
+			synchronized (deliveryStatistics) {
+				hski.handleStatisticsKeeper(data, deliveryStatistics);
+				deliveryStatistics.performAction(action);
+			}
+		}
+	}
+
 	@Override
 	public boolean isSynchronous() {
 		return false;
 	}
+
+	/**
+	 * When <code>false</code>, messages are published without waiting for the acknowledgement of the broker, with at most <code>maxInflight</code> messages unacknowledged at the same time
+	 * @ff.default true
+	 */
+	public void setWaitForDelivery(boolean waitForDelivery) {
+		this.waitForDelivery = waitForDelivery;
+	}
 }
@@ -0,0 +1,164 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.HTTP;
+
+import nl.nn.adapterframework.http.HttpSenderBase.RequestCompression;
+
+/**
+ * {@link HttpEntity} that compresses the wrapped entity while it is written or read. As the compressed length is not known
+ * in advance, the entity is always sent chunked.
+ */
+public class CompressingHttpEntity extends HttpEntityWrapper {
+	// magic number, compression method deflate, no flags, no modification time, no extra flags and OS 0, like GZIPOutputStream writes
+	private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+	private final RequestCompression compression;
+
+	public CompressingHttpEntity(HttpEntity wrappedEntity, RequestCompression compression) {
+		super(wrappedEntity);
+		this.compression = compression;
+	}
+
+	@Override
+	public Header getContentEncoding() {
+		return new BasicHeader(HTTP.CONTENT_ENCODING, compression.getContentEncoding());
+	}
+
+	@Override
+	public long getContentLength() {
+		return -1;
+	}
+
+	@Override
+	public boolean isChunked() {
+		return true;
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		InputStream content = super.getContent();
+		if (compression == RequestCompression.GZIP) {
+			return gzip(content);
+		}
+		return new DeflaterInputStream(content);
+	}
+
+	/**
+	 * Reads the content in gzip format: a header, the deflated content and a trailer with the checksum and the length
+	 * of the content, which can only be created once all content has been read.
+	 */
+	private static InputStream gzip(InputStream content) {
+		CRC32 crc = new CRC32();
+		CountingInputStream countingContent = new CountingInputStream(new CheckedInputStream(content, crc));
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		InputStream deflatedContent = new DeflaterInputStream(countingContent, deflater) {
+			@Override
+			public void close() throws IOException {
+				// a Deflater that is passed to the stream is not ended by it, also not when the stream is closed before all content has been read
+				try {
+					super.close();
+				} finally {
+					deflater.end();
+				}
+			}
+		};
+		Enumeration<InputStream> parts = new Enumeration<InputStream>() {
+			private int part = 0;
+
+			@Override
+			public boolean hasMoreElements() {
+				return part < 3;
+			}
+
+			@Override
+			public InputStream nextElement() {
+				switch (part++) {
+				case 0:
+					return new ByteArrayInputStream(GZIP_HEADER);
+				case 1:
+					return deflatedContent;
+				case 2:
+					byte[] trailer = new byte[8];
+					writeIntLittleEndian(trailer, 0, crc.getValue());
+					writeIntLittleEndian(trailer, 4, countingContent.getByteCount());
+					return new ByteArrayInputStream(trailer);
+				default:
+					throw new NoSuchElementException();
+				}
+			}
+		};
+		return new SequenceInputStream(parts);
+	}
+
+	private static void writeIntLittleEndian(byte[] buffer, int offset, long value) {
+		for (int i=0; i<4; i++) {
+			buffer[offset+i] = (byte) (value >> (8*i));
+		}
+	}
+
+	@Override
+	public void writeTo(OutputStream outStream) throws IOException {
+		DeflaterOutputStream compressingStream;
+		Deflater deflater;
+		if (compression == RequestCompression.GZIP) {
+			deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			compressingStream = new GzipOutputStream(outStream, deflater);
+		} else {
+			deflater = new Deflater();
+			compressingStream = new DeflaterOutputStream(outStream, deflater);
+		}
+		try {
+			super.writeTo(compressingStream);
+			// finish instead of close, the connection manager takes care of the underlying stream
+			compressingStream.finish();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * {@link GZIPOutputStream} with a {@link Deflater} of the caller, as GZIPOutputStream only ends its own Deflater when it is closed.
+	 */
+	private static class GzipOutputStream extends GZIPOutputStream {
+
+		GzipOutputStream(OutputStream out, Deflater deflater) throws IOException {
+			super(out);
+			def.end();
+			def = deflater;
+		}
+	}
+}
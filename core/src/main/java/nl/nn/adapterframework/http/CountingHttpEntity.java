@@ -0,0 +1,81 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.LongConsumer;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * {@link HttpEntity} that counts the number of bytes that are written or read, and passes it to a callback
+ * when the entity has been written completely, or when its content has been read until the end or has been closed.
+ */
+public class CountingHttpEntity extends HttpEntityWrapper {
+	private final LongConsumer sizeCallback;
+
+	public CountingHttpEntity(HttpEntity wrappedEntity, LongConsumer sizeCallback) {
+		super(wrappedEntity);
+		this.sizeCallback = sizeCallback;
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		InputStream content = super.getContent();
+		if (content == null) {
+			return null;
+		}
+		return new CountingInputStream(content) {
+			private boolean reported = false;
+
+			@Override
+			protected synchronized void afterRead(int n) {
+				super.afterRead(n);
+				if (n == -1) {
+					report();
+				}
+			}
+
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					report();
+				}
+			}
+
+			private void report() {
+				if (!reported) {
+					reported = true;
+					sizeCallback.accept(getByteCount());
+				}
+			}
+		};
+	}
+
+	@Override
+	public void writeTo(OutputStream outStream) throws IOException {
+		CountingOutputStream countingStream = new CountingOutputStream(outStream);
+		super.writeTo(countingStream);
+		sizeCallback.accept(countingStream.getByteCount());
+	}
+}
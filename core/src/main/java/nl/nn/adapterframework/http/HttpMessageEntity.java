@@ -1,5 +1,5 @@
 /*
-   Copyright 2022 WeAreFrank!
+   Copyright 2022-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -90,7 +90,7 @@ public class HttpMessageEntity extends AbstractHttpEntity {
 
 	@Override
 	public void writeTo(OutputStream outStream) throws IOException {
-		int length = Math.toIntExact(getContentLength());
+		long length = getContentLength();
 		try (InputStream inStream = message.asInputStream()) {
 			final byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
 			int readLen;
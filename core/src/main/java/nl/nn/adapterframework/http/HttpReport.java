@@ -1,5 +1,5 @@
 /*
-   Copyright 2021 WeAreFrank!
+   Copyright 2021, 2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -27,6 +27,7 @@ import javax.xml.transform.stream.StreamResult;
 
 import nl.nn.adapterframework.util.XmlUtils;
 
+import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.entity.ByteArrayEntity;
 import org.w3c.dom.Document;
@@ -68,6 +69,27 @@ public class HttpReport extends HttpEntityEnclosingRequestBase {
 		this(URI.create(uri), element);
 	}
 
+	/**
+	 * @param uri to connect to
+	 * @param entity the report request, which is sent as it is
+	 * @throws IllegalArgumentException if the uri is invalid.
+	 */
+	public HttpReport(final URI uri, HttpEntity entity) {
+		super();
+		setURI(uri);
+		setHeader("Depth", "0");
+		setEntity(entity);
+	}
+
+	/**
+	 * @param uri to connect to
+	 * @param entity the report request, which is sent as it is
+	 * @throws IllegalArgumentException if the uri is invalid.
+	 */
+	public HttpReport(final String uri, HttpEntity entity) {
+		this(URI.create(uri), entity);
+	}
+
 	@Override
 	public String getMethod() {
 		return METHOD_NAME;
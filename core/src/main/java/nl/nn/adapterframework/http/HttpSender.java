@@ -1,5 +1,5 @@
 /*
-   Copyright 2013, 2016-2020 Nationale-Nederlanden, 2020-2022 WeAreFrank!
+   Copyright 2013, 2016-2020 Nationale-Nederlanden, 2020-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -40,7 +40,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
@@ -50,7 +49,8 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.FormBodyPart;
 import org.apache.http.entity.mime.FormBodyPartBuilder;
 import org.apache.http.entity.mime.MIME;
@@ -242,18 +242,20 @@ public class HttpSender extends HttpSenderBase {
 			case PUT:
 			case PATCH:
 				HttpEntity entity;
-				if(postType == PostType.RAW) {
-					String messageString = BooleanUtils.isTrue(getTreatInputMessageAsParameters()) && !Message.isEmpty(message) ? message.asString() : "";
+				if(postType == PostType.RAW && BooleanUtils.isTrue(getTreatInputMessageAsParameters()) && !Message.isEmpty(message) && (parameters == null || requestOrBodyParamsSet.isEmpty())) {
+					// nothing to append, stream the message instead of copying it into memory
+					HttpMessageEntity messageEntity = new HttpMessageEntity(message, getFullContentType());
+					messageEntity.setContentEncoding((String) null); // the charset is part of the Content-Type, it is not a Content-Encoding
+					entity = messageEntity;
+				} else if(postType == PostType.RAW) {
+					Message body = BooleanUtils.isTrue(getTreatInputMessageAsParameters()) && !Message.isEmpty(message) ? message : null;
+					String encodedParameters = null;
 					if (parameters!=null) {
-						StringBuffer msg = new StringBuffer(messageString);
-						appendParameters(true,msg,parameters);
-						if (StringUtils.isEmpty(messageString) && msg.length()>1) {
-							messageString=msg.substring(1);
-						} else {
-							messageString=msg.toString();
-						}
+						StringBuffer params = new StringBuffer();
+						appendParameters(true,params,parameters);
+						encodedParameters = params.length()>0 ? params.substring(1) : null; // strip the leading '&'
 					}
-					entity = new ByteArrayEntity(messageString.getBytes(StreamUtil.DEFAULT_INPUT_STREAM_ENCODING), getFullContentType());
+					entity = new UrlEncodedMessageEntity(body, null, encodedParameters, StreamUtil.DEFAULT_CHARSET, getFullContentType());
 				} else if(postType == PostType.BINARY) {
 					entity = new HttpMessageEntity(message, getFullContentType());
 				} else {
@@ -283,8 +285,9 @@ public class HttpSender extends HttpSenderBase {
 				return new HttpHead(relativePath.toString());
 
 			case REPORT:
-				Element element = XmlUtils.buildElement(message.asString(), true);
-				HttpReport reportMethod = new HttpReport(relativePath.toString(), element);
+				HttpMessageEntity reportEntity = new HttpMessageEntity(message);
+				reportEntity.setContentEncoding((String) null);
+				HttpReport reportMethod = new HttpReport(relativePath.toString(), reportEntity);
 				if (null != getFullContentType()) { //Manually set Content-Type header
 					reportMethod.setHeader("Content-Type", getFullContentType().toString());
 				}
@@ -309,8 +312,9 @@ public class HttpSender extends HttpSenderBase {
 		if (postType==PostType.URLENCODED && StringUtils.isEmpty(getMultipartXmlSessionKey())) { // x-www-form-urlencoded
 			List<NameValuePair> requestFormElements = new ArrayList<>();
 
+			Message firstBodyPart = null;
 			if (StringUtils.isNotEmpty(getFirstBodyPartName())) {
-				requestFormElements.add(new BasicNameValuePair(getFirstBodyPartName(), message.asString()));
+				firstBodyPart = Message.isNull(message) ? Message.nullMessage() : message;
 				log.debug(getLogPrefix()+"appended parameter ["+getFirstBodyPartName()+"] with value ["+message+"]");
 			}
 			if (parameters!=null) {
@@ -324,11 +328,15 @@ public class HttpSender extends HttpSenderBase {
 					}
 				}
 			}
+			Charset charset;
 			try {
-				hmethod.setEntity(new UrlEncodedFormEntity(requestFormElements, getCharSet()));
-			} catch (UnsupportedEncodingException e) {
+				charset = Charset.forName(getCharSet());
+			} catch (IllegalArgumentException e) {
 				throw new SenderException(getLogPrefix()+"unsupported encoding for one or more POST parameters", e);
 			}
+			// the message is URL encoded while it is written, instead of being copied into memory first
+			String encodedParameters = URLEncodedUtils.format(requestFormElements, charset);
+			hmethod.setEntity(new UrlEncodedMessageEntity(firstBodyPart, getFirstBodyPartName(), encodedParameters, charset, ContentType.create(URLEncodedUtils.CONTENT_TYPE, charset)));
 		}
 		else { //formdata and mtom
 			HttpEntity requestEntity = createMultiPartEntity(message, parameters, session);
@@ -1,5 +1,5 @@
 /*
-   Copyright 2017-2022 WeAreFrank!
+   Copyright 2017-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -29,6 +29,7 @@ import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.HostnameVerifier;
@@ -36,8 +37,13 @@ import javax.servlet.http.HttpServletResponse;
 import javax.xml.transform.TransformerConfigurationException;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.MethodNotSupportedException;
 import org.apache.http.StatusLine;
 import org.apache.http.auth.AuthProtocolState;
@@ -55,6 +61,8 @@ import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.DefaultHostnameVerifier;
@@ -67,11 +75,12 @@ import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.DefaultRedirectStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 
 import lombok.Getter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.configuration.ConfigurationWarning;
+import nl.nn.adapterframework.configuration.ConfigurationWarnings;
 import nl.nn.adapterframework.core.HasPhysicalDestination;
 import nl.nn.adapterframework.core.ParameterException;
 import nl.nn.adapterframework.core.PipeLineSession;
@@ -92,6 +101,11 @@ import nl.nn.adapterframework.parameters.Parameter;
 import nl.nn.adapterframework.parameters.ParameterValue;
 import nl.nn.adapterframework.parameters.ParameterValueList;
 import nl.nn.adapterframework.senders.SenderWithParametersBase;
+import nl.nn.adapterframework.statistics.GaugeStatistic;
+import nl.nn.adapterframework.statistics.HasStatistics;
+import nl.nn.adapterframework.statistics.SizeStatisticsKeeper;
+import nl.nn.adapterframework.statistics.StatisticsKeeper;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.task.TimeoutGuard;
 import nl.nn.adapterframework.util.AppConstants;
@@ -163,6 +177,13 @@ import nl.nn.adapterframework.util.XmlUtils;
  * In case <code>cannot create or initialize SocketFactory: (IOException) Unable to verify MAC</code>-exceptions are thrown,
  * please check password or authAlias configuration of the corresponding certificate.
  * </p>
+ * <p>
+ * Note 5:
+ * Requests are executed with the blocking HTTP/1.1 client of httpclient 4: each request holds a thread and a connection of the pool
+ * until the response headers have been received, and the connection until the response body has been read. There is no asynchronous or HTTP/2 mode.
+ * Use <code>maxConnections</code> and <code>maxConnectionsPerRoute</code> to size the pool for the number of concurrent requests; the number of leased,
+ * available and pending connections, in total and per host, and the response time per host are reported as statistics.
+ * </p>
  *
  * @ff.parameters Any parameters present are appended to the request (when method is <code>GET</code> as request-parameters, when method <code>POST</code> as body part) except the <code>headersParams</code> list, which are added as HTTP headers, and the <code>urlParam</code> header
  * @ff.forward "&lt;statusCode of the HTTP response&gt;" default
@@ -172,12 +193,14 @@ import nl.nn.adapterframework.util.XmlUtils;
  */
 //TODO: Fix javadoc!
 
-public abstract class HttpSenderBase extends SenderWithParametersBase implements HasPhysicalDestination, HasKeystore, HasTruststore {
+public abstract class HttpSenderBase extends SenderWithParametersBase implements HasPhysicalDestination, HasKeystore, HasTruststore, HasStatistics {
 
 	private final String CONTEXT_KEY_STATUS_CODE="Http.StatusCode";
 	private final String CONTEXT_KEY_REASON_PHRASE="Http.ReasonPhrase";
 	public static final String MESSAGE_ID_HEADER = "Message-Id";
 	public static final String CORRELATION_ID_HEADER = "Correlation-Id";
+	/** Maximum number of routes that get response time statistics of their own */
+	public static final int MAX_ROUTE_STATISTICS = 50;
 
 	private final @Getter(onMethod = @__(@Override)) String domain = "Http";
 
@@ -192,10 +215,30 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 	private @Getter String charSet = StreamUtil.DEFAULT_INPUT_STREAM_ENCODING;
 	private @Getter ContentType fullContentType = null;
 	private @Getter String contentType = null;
+	private @Getter RequestCompression requestCompression = RequestCompression.NONE;
+
+	public enum RequestCompression {
+		/** The request body is sent as is */
+		NONE(null),
+		/** The request body is compressed with gzip */
+		GZIP("gzip"),
+		/** The request body is compressed with deflate */
+		DEFLATE("deflate");
+
+		private final @Getter String contentEncoding;
+
+		private RequestCompression(String contentEncoding) {
+			this.contentEncoding = contentEncoding;
+		}
+	}
 
 	/* CONNECTION POOL */
 	private @Getter int timeout = 10000;
 	private @Getter int maxConnections = 10;
+	private @Getter int maxConnectionsPerRoute = 0;
+	private @Getter boolean adaptiveConnections = false;
+	private @Getter int minConnectionsPerRoute = 1;
+	private @Getter int slowResponseThreshold = 1000; // [ms]
 	private @Getter int maxExecuteRetries = 1;
 	private @Getter boolean staleChecking=true;
 	private @Getter int staleTimeout = 5000; // [ms]
@@ -204,6 +247,16 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 	private HttpClientBuilder httpClientBuilder = HttpClientBuilder.create();
 	private @Getter HttpClientContext httpClientContext = HttpClientContext.create();
 	private @Getter CloseableHttpClient httpClient;
+	private PoolingConnectionManager connectionManager;
+	private final Map<String, StatisticsKeeper> routeStatistics = new ConcurrentHashMap<>();
+	private final StatisticsKeeper otherRoutesStatistics = new StatisticsKeeper("response time of other routes");
+	private final StatisticsKeeper leaseWaitStatistics = new StatisticsKeeper("connection lease wait");
+	private GaugeStatistic connectionsLeased;
+	private GaugeStatistic connectionsAvailable;
+	private GaugeStatistic connectionRequestsPending;
+	private GaugeStatistic connectionsMax;
+	private final StatisticsKeeper requestSizeStatistics = new SizeStatisticsKeeper("request size");
+	private final StatisticsKeeper responseSizeStatistics = new SizeStatisticsKeeper("response size");
 
 	/* SECURITY */
 	private @Getter String authAlias;
@@ -311,6 +364,12 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 	public void configure() throws ConfigurationException {
 		super.configure();
 
+		// created here instead of at construction, so the gauges read the pool of the configured instance
+		connectionsLeased = new GaugeStatistic(() -> (long) getTotalPoolStats().getLeased());
+		connectionsAvailable = new GaugeStatistic(() -> (long) getTotalPoolStats().getAvailable());
+		connectionRequestsPending = new GaugeStatistic(() -> (long) getTotalPoolStats().getPending());
+		connectionsMax = new GaugeStatistic(() -> (long) getTotalPoolStats().getMax());
+
 		/**
 		 * TODO find out if this really breaks proxy authentication or not.
 		 */
@@ -367,6 +426,12 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 		if (getMaxConnections() <= 0) {
 			throw new ConfigurationException(getLogPrefix()+"maxConnections is set to ["+getMaxConnections()+"], which is not enough for adequate operation");
 		}
+		if (isAdaptiveConnections() && (getMinConnectionsPerRoute() <= 0 || getMinConnectionsPerRoute() > getMaxConnectionsPerRouteOrDefault())) {
+			throw new ConfigurationException(getLogPrefix()+"minConnectionsPerRoute ["+getMinConnectionsPerRoute()+"] must be between 1 and the maximum number of connections per route ["+getMaxConnectionsPerRouteOrDefault()+"]");
+		}
+		if (getMaxConnectionsPerRoute() > getMaxConnections()) {
+			ConfigurationWarnings.add(this, log, "maxConnectionsPerRoute ["+getMaxConnectionsPerRoute()+"] is larger than maxConnections ["+getMaxConnections()+"], only ["+getMaxConnections()+"] connections will be used");
+		}
 
 		try {
 			if (urlParameter == null) {
@@ -374,6 +439,8 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 					throw new ConfigurationException(getLogPrefix()+"url must be specified, either as attribute, or as parameter");
 				}
 				staticUri = getURI(getUrl());
+				// create the statistics of the only route in advance, to have it registered as metric
+				getRouteStatistics(new HttpHost(staticUri.getHost(), getPort(staticUri), staticUri.getScheme()));
 			}
 		} catch (URISyntaxException e) {
 			throw new ConfigurationException(getLogPrefix()+"cannot interpret url ["+getUrl()+"]", e);
@@ -429,6 +496,16 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 			httpClientBuilder.disableCookieManagement();
 		}
 
+		// Compress the request and count the bytes sent and received. Responses are decompressed by the ResponseContentEncoding interceptor
+		// of the HttpClient itself, that runs after this one, so the size of the response is measured before decompression.
+		httpClientBuilder.addInterceptorFirst((HttpRequestInterceptor) (request, context) -> prepareRequestEntity(request));
+		httpClientBuilder.addInterceptorFirst((HttpResponseInterceptor) (response, context) -> {
+			HttpEntity entity = response.getEntity();
+			if (entity != null && !(entity instanceof CountingHttpEntity)) {
+				response.setEntity(new CountingHttpEntity(entity, size -> addSize(responseSizeStatistics, size)));
+			}
+		});
+
 		// The redirect strategy used to only redirect GET, DELETE and HEAD.
 		httpClientBuilder.setRedirectStrategy(new DefaultRedirectStrategy() {
 			@Override
@@ -442,27 +519,30 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 	public void open() throws SenderException {
 		// In order to support multiThreading and connectionPooling
 		// If a sslSocketFactory has been defined, the connectionManager has to be initialized with the sslSocketFactory
-		PoolingHttpClientConnectionManager connectionManager;
 		int timeToLive = getConnectionTimeToLive();
 		if (timeToLive<=0) {
 			timeToLive = -1;
 		}
 		SSLConnectionSocketFactory sslSocketFactory = getSSLConnectionSocketFactory();
 		if(sslSocketFactory != null) {
-			Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
-				.register("http", PlainConnectionSocketFactory.getSocketFactory())
-				.register("https", sslSocketFactory)
-				.build();
-			connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry, null, null, null, timeToLive, TimeUnit.SECONDS);
-			log.debug(getLogPrefix()+"created PoolingHttpClientConnectionManager with custom SSLConnectionSocketFactory");
+			log.debug(getLogPrefix()+"creating PoolingConnectionManager with custom SSLConnectionSocketFactory");
 		}
 		else {
-			connectionManager = new PoolingHttpClientConnectionManager(timeToLive, TimeUnit.SECONDS);
-			log.debug(getLogPrefix()+"created default PoolingHttpClientConnectionManager");
+			sslSocketFactory = SSLConnectionSocketFactory.getSocketFactory();
+			log.debug(getLogPrefix()+"creating PoolingConnectionManager with default SSLConnectionSocketFactory");
 		}
+		Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+			.register("http", PlainConnectionSocketFactory.getSocketFactory())
+			.register("https", sslSocketFactory)
+			.build();
+		connectionManager = new PoolingConnectionManager(socketFactoryRegistry, timeToLive, TimeUnit.SECONDS, leaseWaitStatistics);
 
 		connectionManager.setMaxTotal(getMaxConnections());
-		connectionManager.setDefaultMaxPerRoute(getMaxConnections());
+		connectionManager.setDefaultMaxPerRoute(getMaxConnectionsPerRouteOrDefault());
+		connectionManager.setAdaptive(isAdaptiveConnections());
+		connectionManager.setMinRouteLimit(getMinConnectionsPerRoute());
+		connectionManager.setMaxRouteLimit(getMaxConnectionsPerRouteOrDefault());
+		connectionManager.setSlowResponseThreshold(getSlowResponseThreshold());
 
 		if (isStaleChecking()) {
 			log.info(getLogPrefix()+"set up connectionManager, setting stale checking ["+isStaleChecking()+"]");
@@ -718,6 +798,10 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 		String reasonPhrase = null;
 		HttpHost targetHost = new HttpHost(targetUri.getHost(), getPort(targetUri), targetUri.getScheme());
 
+		if (connectionManager != null && connectionManager.isSaturated(targetHost)) {
+			throw new SenderException(getLogPrefix()+"all connections to ["+targetHost+"] are in use and as many requests are waiting for one, rejecting request");
+		}
+
 		TimeoutGuard tg = new TimeoutGuard(1+getTimeout()/1000, getName()) {
 
 			@Override
@@ -726,14 +810,22 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 			}
 
 		};
+		long t0 = System.currentTimeMillis();
 		try {
 			log.debug(getLogPrefix()+"executing method [" + httpRequestBase.getRequestLine() + "]");
 			HttpResponse httpResponse = getHttpClient().execute(targetHost, httpRequestBase, httpClientContext);
+			long duration = System.currentTimeMillis()-t0;
+			addRouteStatistics(targetHost, duration);
 			log.debug(getLogPrefix()+"executed method");
 
 			HttpResponseHandler responseHandler = new HttpResponseHandler(httpResponse);
 			StatusLine statusline = httpResponse.getStatusLine();
 			statusCode = statusline.getStatusCode();
+			if (connectionManager != null) {
+				// the wait for a connection of the pool says nothing about the route
+				long responseTime = System.currentTimeMillis()-connectionManager.takeLeaseCompleted(t0);
+				connectionManager.registerResult(targetHost, responseTime, statusCode >= 500 || statusCode == 429);
+			}
 			success = validateResponseCode(statusCode);
 			reasonPhrase =  statusline.getReasonPhrase();
 
@@ -753,6 +845,10 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 			log.debug(getLogPrefix()+"retrieved result ["+result+"]");
 		} catch (IOException e) {
 			httpRequestBase.abort();
+			// a timeout while waiting for a connection of the pool says nothing about the route, it must not lower its limit
+			if (connectionManager != null && !(e instanceof ConnectionPoolTimeoutException)) {
+				connectionManager.registerResult(targetHost, System.currentTimeMillis()-connectionManager.takeLeaseCompleted(t0), true);
+			}
 			if (e instanceof SocketTimeoutException) {
 				throw new TimeoutException(e);
 			}
@@ -806,6 +902,118 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 		return new SenderResult(success, result, reasonPhrase, Integer.toString(statusCode));
 	}
 
+	/**
+	 * Wraps the entity of the request that is executed by the HttpClient, leaving the entity of the original request untouched.
+	 * When the request is retried, the entity has already been wrapped.
+	 */
+	private void prepareRequestEntity(HttpRequest request) {
+		if (request instanceof HttpEntityEnclosingRequest) {
+			HttpEntityEnclosingRequest entityEnclosingRequest = (HttpEntityEnclosingRequest) request;
+			HttpEntity entity = entityEnclosingRequest.getEntity();
+			if (entity != null && !(entity instanceof CountingHttpEntity)) {
+				if (getRequestCompression() != RequestCompression.NONE) {
+					entity = new CompressingHttpEntity(entity, getRequestCompression());
+				}
+				entityEnclosingRequest.setEntity(new CountingHttpEntity(entity, size -> addSize(requestSizeStatistics, size)));
+			}
+		}
+	}
+
+	private void addSize(StatisticsKeeper sizeStatistics, long size) {
+		synchronized (sizeStatistics) {
+			sizeStatistics.addValue(size);
+		}
+	}
+
+	/**
+	 * Registers the time it took to obtain a connection, send the request and receive the response headers.
+	 * The time to read the response body is not included, as the body is streamed to the caller.
+	 */
+	private void addRouteStatistics(HttpHost targetHost, long duration) {
+		StatisticsKeeper sk = getRouteStatistics(targetHost);
+		synchronized (sk) {
+			sk.addValue(duration);
+		}
+	}
+
+	/**
+	 * Returns the statistics of the route to the target host. When the url is taken from a parameter, the number of routes is unbounded,
+	 * so only the first {@link #MAX_ROUTE_STATISTICS} routes get statistics of their own, the other routes share theirs.
+	 */
+	private StatisticsKeeper getRouteStatistics(HttpHost targetHost) {
+		String route = targetHost.toURI();
+		StatisticsKeeper sk = routeStatistics.get(route);
+		if (sk != null) {
+			return sk;
+		}
+		if (routeStatistics.size() >= MAX_ROUTE_STATISTICS) {
+			return otherRoutesStatistics;
+		}
+		return routeStatistics.computeIfAbsent(route, r -> new StatisticsKeeper("response time of "+r));
+	}
+
+	PoolingConnectionManager getConnectionManager() {
+		return connectionManager;
+	}
+
+	private PoolStats getTotalPoolStats() {
+		PoolingConnectionManager manager = connectionManager;
+		return manager != null ? manager.getTotalStats() : new PoolStats(0, 0, 0, getMaxConnections());
+	}
+
+	private int getMaxConnectionsPerRouteOrDefault() {
+		return getMaxConnectionsPerRoute() > 0 ? getMaxConnectionsPerRoute() : getMaxConnections();
+	}
+
+	/**
+	 * The totals of the pool are published as gauges, that are created by configure() and registered when the metrics are initialized, before the sender is opened.
+	 * Routes only become known while the sender is used, so their counts are passed as plain values.
+	 */
+	@Override
+	public <D> void iterateOverStatistics(StatisticsKeeperIterationHandler<D> hski, D data, Action action) throws SenderException {
+		if (connectionsLeased != null) {
+			hski.handleScalar(data, "connectionsLeased", connectionsLeased);
+			hski.handleScalar(data, "connectionsAvailable", connectionsAvailable);
+			hski.handleScalar(data, "connectionRequestsPending", connectionRequestsPending);
+			hski.handleScalar(data, "connectionsMax", connectionsMax);
+		}
+		PoolingConnectionManager manager = connectionManager;
+		if (manager != null) {
+			for (HttpRoute route : manager.getRoutes()) {
+				PoolStats routeStats = manager.getStats(route);
+				String routeName = route.getTargetHost().toURI();
+				hski.handleScalar(data, "connections leased to "+routeName, routeStats.getLeased());
+				hski.handleScalar(data, "connections available to "+routeName, routeStats.getAvailable());
+				hski.handleScalar(data, "connection requests pending for "+routeName, routeStats.getPending());
+				hski.handleScalar(data, "connection limit for "+routeName, routeStats.getMax());
+			}
+		}
+		synchronized (leaseWaitStatistics) {
+			hski.handleStatisticsKeeper(data, leaseWaitStatistics);
+			leaseWaitStatistics.performAction(action);
+		}
+		for (StatisticsKeeper sk : routeStatistics.values()) {
+			synchronized (sk) {
+				hski.handleStatisticsKeeper(data, sk);
+				sk.performAction(action);
+			}
+		}
+		if (urlParameter != null) {
+			synchronized (otherRoutesStatistics) {
+				hski.handleStatisticsKeeper(data, otherRoutesStatistics);
+				otherRoutesStatistics.performAction(action);
+			}
+		}
+		synchronized (requestSizeStatistics) {
+			hski.handleStatisticsKeeper(data, requestSizeStatistics);
+			requestSizeStatistics.performAction(action);
+		}
+		synchronized (responseSizeStatistics) {
+			hski.handleStatisticsKeeper(data, responseSizeStatistics);
+			responseSizeStatistics.performAction(action);
+		}
+	}
+
 	@Override
 	public String getPhysicalDestinationName() {
 		if (urlParameter!=null) {
@@ -867,6 +1075,48 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 		maxConnections = i;
 	}
 
+	/**
+	 * Compression of the request body. The body is compressed while it is sent, and sent chunked. Compressed responses are always accepted, and decompressed while they are read
+	 * @ff.default NONE
+	 */
+	public void setRequestCompression(RequestCompression requestCompression) {
+		this.requestCompression = requestCompression;
+	}
+
+	/**
+	 * The maximum number of concurrent connections to a single host. When not set, all <code>maxConnections</code> can be used for the same host
+	 * @ff.default 0
+	 */
+	public void setMaxConnectionsPerRoute(int i) {
+		maxConnectionsPerRoute = i;
+	}
+
+	/**
+	 * If <code>true</code>, the number of connections per route is adapted to the behaviour of the host: it grows while responses are fast and successful,
+	 * and shrinks after errors and slow responses, between <code>minConnectionsPerRoute</code> and <code>maxConnectionsPerRoute</code>.
+	 * Requests are rejected immediately when as many requests are waiting for a connection to the host as there are connections
+	 * @ff.default false
+	 */
+	public void setAdaptiveConnections(boolean b) {
+		adaptiveConnections = b;
+	}
+
+	/**
+	 * The minimum number of concurrent connections to a single host when <code>adaptiveConnections</code> is <code>true</code>
+	 * @ff.default 1
+	 */
+	public void setMinConnectionsPerRoute(int i) {
+		minConnectionsPerRoute = i;
+	}
+
+	/**
+	 * Response time in ms above which a response is considered slow, which decreases the number of connections when <code>adaptiveConnections</code> is <code>true</code>
+	 * @ff.default 1000
+	 */
+	public void setSlowResponseThreshold(int i) {
+		slowResponseThreshold = i;
+	}
+
 	/**
 	 * The maximum number of times the execution is retried
 	 * @ff.default 1 (for repeatable messages) else 0
@@ -0,0 +1,221 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.http;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.logging.log4j.Logger;
+
+import lombok.Getter;
+import lombok.Setter;
+import nl.nn.adapterframework.statistics.StatisticsKeeper;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * {@link PoolingHttpClientConnectionManager} that keeps track of the time requests wait to lease a connection,
+ * and that can adapt the number of connections per route to the behaviour of the route.
+ * <p>
+ * In adaptive mode, the limit of a route is increased by one after as many consecutive fast and successful responses as the current limit,
+ * up to <code>maxRouteLimit</code>. It is decreased by a quarter, down to <code>minRouteLimit</code>, after a failure or a response that took
+ * longer than <code>slowResponseThreshold</code>, at most once per {@link #DECREASE_INTERVAL} ms. A route that has as many requests waiting
+ * for a connection as it has connections is considered saturated. The limit of a route is forgotten when the route is removed from the pool,
+ * after its last connection has been evicted.
+ * </p>
+ */
+public class PoolingConnectionManager extends PoolingHttpClientConnectionManager {
+	private Logger log = LogUtil.getLogger(this);
+
+	public static final long DECREASE_INTERVAL = 1000L;
+
+	private final StatisticsKeeper leaseWaitStatistics;
+
+	private @Getter @Setter boolean adaptive = false;
+	private @Getter @Setter int minRouteLimit = 1;
+	private @Getter @Setter int maxRouteLimit;
+	private @Getter @Setter long slowResponseThreshold;
+
+	private final Map<HttpRoute, RouteLimit> routeLimits = new ConcurrentHashMap<>();
+	// the blocking client leases the connection on the thread that executes the request, the HttpContext of a sender is shared by its concurrent requests
+	private final ThreadLocal<Long> leaseCompleted = new ThreadLocal<>();
+
+	private static class RouteLimit {
+		private int limit;
+		private int successes = 0;
+		private long lastDecrease = 0;
+		private boolean forgotten = false;
+
+		RouteLimit(int limit) {
+			this.limit = limit;
+		}
+	}
+
+	public PoolingConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry, long timeToLive, TimeUnit timeUnit, StatisticsKeeper leaseWaitStatistics) {
+		super(socketFactoryRegistry, null, null, null, timeToLive, timeUnit);
+		this.leaseWaitStatistics = leaseWaitStatistics;
+	}
+
+	@Override
+	public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+		ConnectionRequest connectionRequest = super.requestConnection(route, state);
+		return new ConnectionRequest() {
+
+			@Override
+			public boolean cancel() {
+				return connectionRequest.cancel();
+			}
+
+			@Override
+			public HttpClientConnection get(long timeout, TimeUnit timeUnit) throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+				long t0 = System.currentTimeMillis();
+				try {
+					HttpClientConnection connection = connectionRequest.get(timeout, timeUnit);
+					leaseCompleted.set(System.currentTimeMillis());
+					return connection;
+				} finally {
+					long duration = System.currentTimeMillis() - t0;
+					synchronized (leaseWaitStatistics) {
+						leaseWaitStatistics.addValue(duration);
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns the time at which the current thread last leased a connection, if that was not before <code>since</code>, and forgets it.
+	 * Otherwise <code>since</code> is returned.
+	 */
+	public long takeLeaseCompleted(long since) {
+		Long result = leaseCompleted.get();
+		leaseCompleted.remove();
+		return result != null && result >= since ? result : since;
+	}
+
+	/**
+	 * Returns the route to the target host that is currently in the pool, or <code>null</code> when no connection to the host has been requested yet.
+	 */
+	public HttpRoute findRoute(HttpHost targetHost) {
+		for (HttpRoute route : getRoutes()) {
+			if (route.getTargetHost().equals(targetHost)) {
+				return route;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns <code>true</code> in adaptive mode when the route to the target host has as many requests waiting for a connection as it has connections.
+	 */
+	public boolean isSaturated(HttpHost targetHost) {
+		if (!isAdaptive()) {
+			return false;
+		}
+		HttpRoute route = findRoute(targetHost);
+		if (route == null) {
+			return false;
+		}
+		PoolStats stats = getStats(route);
+		return stats.getPending() > 0 && stats.getPending() >= stats.getMax();
+	}
+
+	/**
+	 * Registers the outcome of a request to the target host, and adapts the limit of the route in adaptive mode.
+	 */
+	public void registerResult(HttpHost targetHost, long duration, boolean failed) {
+		if (!isAdaptive()) {
+			return;
+		}
+		HttpRoute route = findRoute(targetHost);
+		if (route == null) {
+			return;
+		}
+		RouteLimit routeLimit = routeLimits.computeIfAbsent(route, r -> new RouteLimit(getMaxPerRoute(r)));
+		synchronized (routeLimit) {
+			if (routeLimit.forgotten) {
+				return;
+			}
+			int oldLimit = routeLimit.limit;
+			if (failed || duration > getSlowResponseThreshold()) {
+				routeLimit.successes = 0;
+				long now = System.currentTimeMillis();
+				if (now - routeLimit.lastDecrease < DECREASE_INTERVAL) {
+					return;
+				}
+				routeLimit.lastDecrease = now;
+				routeLimit.limit = Math.max(getMinRouteLimit(), oldLimit - Math.max(1, oldLimit / 4));
+			} else if (++routeLimit.successes >= oldLimit) {
+				routeLimit.successes = 0;
+				routeLimit.limit = Math.min(getMaxRouteLimit(), oldLimit + 1);
+			}
+			if (routeLimit.limit != oldLimit) {
+				log.info("changing connection limit of route [{}] from [{}] to [{}]", route, oldLimit, routeLimit.limit);
+				setMaxPerRoute(route, routeLimit.limit);
+			}
+		}
+	}
+
+	/**
+	 * Called periodically by the idle connection evictor of the HttpClient. Routes without connections are removed from the pool
+	 * at the same time, so their limits are forgotten as well, to prevent them from accumulating when many different hosts are called.
+	 */
+	@Override
+	public void closeIdleConnections(long idleTimeout, TimeUnit timeUnit) {
+		super.closeIdleConnections(idleTimeout, timeUnit);
+		forgetRemovedRoutes();
+	}
+
+	@Override
+	public void closeExpiredConnections() {
+		super.closeExpiredConnections();
+		forgetRemovedRoutes();
+	}
+
+	void forgetRemovedRoutes() {
+		if (routeLimits.isEmpty()) {
+			return;
+		}
+		Set<HttpRoute> routes = getRoutes();
+		for (Map.Entry<HttpRoute, RouteLimit> entry : routeLimits.entrySet()) {
+			HttpRoute route = entry.getKey();
+			if (!routes.contains(route)) {
+				RouteLimit routeLimit = entry.getValue();
+				synchronized (routeLimit) {
+					routeLimit.forgotten = true;
+					routeLimits.remove(route, routeLimit);
+					setMaxPerRoute(route, -1); // removes the limit, the route falls back to the default
+				}
+				log.debug("forgot connection limit of route [{}]", route);
+			}
+		}
+	}
+
+	int getNumberOfRouteLimits() {
+		return routeLimits.size();
+	}
+}
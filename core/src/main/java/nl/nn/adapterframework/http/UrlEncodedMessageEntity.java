@@ -0,0 +1,147 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import nl.nn.adapterframework.stream.Message;
+
+/**
+ * {@link HttpEntity} for a body of URL encoded parameters that contains a {@link Message}, which is read while the
+ * entity is written instead of being copied into memory first. The message is either written as it is, followed by the
+ * parameters, or URL encoded as the value of a form field. As the length is not known in advance, the entity is sent chunked.
+ */
+public class UrlEncodedMessageEntity extends AbstractHttpEntity {
+	private final Message message;
+	private final String messageFieldName;
+	private final String encodedParameters;
+	private final Charset charset;
+
+	/**
+	 * @param message the message to write, or <code>null</code> when the body consists of the parameters only
+	 * @param messageFieldName when not <code>null</code>, the message is URL encoded as the value of this form field, otherwise it is written as it is
+	 * @param encodedParameters URL encoded parameters, separated by <code>&amp;</code>, that follow the message
+	 * @param charset character set used to write the body
+	 * @param contentType content type of the body, may be <code>null</code>
+	 */
+	public UrlEncodedMessageEntity(Message message, String messageFieldName, String encodedParameters, Charset charset, ContentType contentType) {
+		this.message = message;
+		this.messageFieldName = messageFieldName;
+		this.encodedParameters = encodedParameters;
+		this.charset = charset;
+		if (contentType != null) {
+			setContentType(contentType.toString());
+		}
+		setChunked(true);
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return message == null || message.isRepeatable();
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return message != null && message.requiresStream();
+	}
+
+	@Override
+	public long getContentLength() {
+		return -1;
+	}
+
+	/**
+	 * Provides the body for consumers that read instead of write the entity, e.g. for logging. The body is then built in memory.
+	 */
+	@Override
+	public InputStream getContent() throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		writeTo(body);
+		return new ByteArrayInputStream(body.toByteArray());
+	}
+
+	@Override
+	public void writeTo(OutputStream outStream) throws IOException {
+		// not closed, the connection manager takes care of the underlying stream
+		Writer writer = new OutputStreamWriter(outStream, charset);
+		boolean messageWritten = false;
+		if (message != null) {
+			if (messageFieldName != null) {
+				writer.write(URLEncoder.encode(messageFieldName, charset.name()));
+				writer.write('=');
+				writeMessage(writer, true);
+				messageWritten = true;
+			} else {
+				messageWritten = writeMessage(writer, false);
+			}
+		}
+		if (StringUtils.isNotEmpty(encodedParameters)) {
+			if (messageWritten) {
+				writer.write('&');
+			}
+			writer.write(encodedParameters);
+		}
+		writer.flush();
+	}
+
+	/**
+	 * @return <code>true</code> if the message was not empty
+	 */
+	private boolean writeMessage(Writer writer, boolean urlEncode) throws IOException {
+		try (Reader reader = message.asReader()) {
+			if (reader == null) {
+				return false;
+			}
+			char[] buffer = new char[OUTPUT_BUFFER_SIZE];
+			boolean written = false;
+			String pendingHighSurrogate = "";
+			int len;
+			while ((len = reader.read(buffer)) != -1) {
+				if (len == 0) {
+					continue;
+				}
+				written = true;
+				if (!urlEncode) {
+					writer.write(buffer, 0, len);
+					continue;
+				}
+				// a surrogate pair must be encoded as a whole, so a high surrogate at the end of the buffer waits for the next read
+				int end = Character.isHighSurrogate(buffer[len-1]) ? len-1 : len;
+				String chunk = pendingHighSurrogate + new String(buffer, 0, end);
+				pendingHighSurrogate = end < len ? String.valueOf(buffer[len-1]) : "";
+				writer.write(URLEncoder.encode(chunk, charset.name()));
+			}
+			if (!pendingHighSurrogate.isEmpty()) {
+				writer.write(URLEncoder.encode(pendingHighSurrogate, charset.name()));
+			}
+			return written;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*
-   Copyright 2021-2022 WeAreFrank!
+   Copyright 2021-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -15,14 +15,27 @@
 */
 package nl.nn.adapterframework.http.mime;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
 import jakarta.mail.BodyPart;
 import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.SharedByteArrayInputStream;
+import jakarta.mail.util.SharedFileInputStream;
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.Logger;
 
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.http.InputStreamDataSource;
+import nl.nn.adapterframework.util.AppConstants;
 import nl.nn.adapterframework.util.LogUtil;
+import nl.nn.adapterframework.util.Misc;
+import nl.nn.adapterframework.util.StreamUtil;
 
 public abstract class MultipartUtils {
 	private static Logger log = LogUtil.getLogger(MultipartUtils.class);
@@ -31,6 +44,9 @@ public abstract class MultipartUtils {
 	public static final String MULTIPART = "multipart/";
 	public static final String ATTACHMENT = "attachment";
 
+	public static final String IN_MEMORY_THRESHOLD_KEY = "api.multipart.inMemoryThreshold";
+	private static final long IN_MEMORY_THRESHOLD = AppConstants.getInstance().getLong(IN_MEMORY_THRESHOLD_KEY, 1024 * 1024);
+
 	public static boolean isMultipart(HttpServletRequest request) {
 		String httpMethod = request.getMethod().toUpperCase();
 		if("POST".equals(httpMethod) || "PUT".equals(httpMethod) || "PATCH".equals(httpMethod)) {
@@ -39,6 +55,53 @@ public abstract class MultipartUtils {
 		return false;
 	}
 
+	/**
+	 * Parses the multipart content of the request in a single pass over the request body. The body is kept in memory when its length is known
+	 * and does not exceed <code>api.multipart.inMemoryThreshold</code>, and is written to a temporary file otherwise. Either way, the
+	 * parts of the returned MimeMultipart refer to a section of that buffer, and are read lazily, instead of being copied into memory.
+	 * A temporary file is removed when the session is closed.
+	 */
+	public static MimeMultipart parseMultipart(HttpServletRequest request, PipeLineSession session) throws IOException, MessagingException {
+		InputStream requestStream = request.getInputStream();
+		long contentLength = request.getContentLengthLong();
+		InputStream sharedStream;
+		if (contentLength >= 0 && contentLength <= IN_MEMORY_THRESHOLD) {
+			sharedStream = new SharedByteArrayInputStream(StreamUtil.streamToByteArray(requestStream, false));
+		} else {
+			File file = createTempFile();
+			try {
+				Misc.streamToFile(requestStream, file);
+				SharedFileInputStream fileStream = new SharedFileInputStream(file);
+				session.scheduleCloseOnSessionExit(() -> {
+					try {
+						fileStream.close();
+					} finally {
+						Files.deleteIfExists(file.toPath());
+					}
+				}, "multipart request buffer ["+file+"]");
+				// MimeMultipart closes the stream it parses, and the parts close theirs when read. The root stream keeps the file open until the session is closed
+				sharedStream = fileStream.newStream(0, -1);
+			} catch (IOException | RuntimeException e) {
+				Files.deleteIfExists(file.toPath());
+				throw e;
+			}
+		}
+		return new MimeMultipart(new InputStreamDataSource(request.getContentType(), sharedStream));
+	}
+
+	private static File createTempFile() throws IOException {
+		String tmpDir = AppConstants.getInstance().getResolvedProperty("ibis.tmpdir");
+		if (StringUtils.isEmpty(tmpDir)) {
+			return File.createTempFile("multipart", ".tmp");
+		}
+		File directory = new File(tmpDir);
+		if (!directory.exists() && !directory.mkdirs()) {
+			log.warn("cannot create directory [{}], using the default temporary directory", directory);
+			return File.createTempFile("multipart", ".tmp");
+		}
+		return File.createTempFile("multipart", ".tmp", directory);
+	}
+
 	public static String getFieldName(BodyPart part) {
 		try {
 			String[] id = part.getHeader("Content-ID"); //MTOM requests
@@ -1,5 +1,5 @@
 /*
-   Copyright 2017-2022 WeAreFrank!
+   Copyright 2017-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.StringTokenizer;
 
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.util.MimeType;
 
 import com.nimbusds.jose.proc.SecurityContext;
@@ -30,12 +31,15 @@ import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.core.HasPhysicalDestination;
 import nl.nn.adapterframework.core.ListenerException;
 import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.core.SenderException;
 import nl.nn.adapterframework.doc.Default;
 import nl.nn.adapterframework.http.HttpSenderBase;
 import nl.nn.adapterframework.http.PushingListenerAdapter;
 import nl.nn.adapterframework.jwt.JwtValidator;
 import nl.nn.adapterframework.receivers.Receiver;
 import nl.nn.adapterframework.receivers.ReceiverAware;
+import nl.nn.adapterframework.statistics.HasStatistics;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.util.AppConstants;
 
@@ -55,7 +59,7 @@ import javax.annotation.Nullable;
  * @author Niels Meijer
  *
  */
-public class ApiListener extends PushingListenerAdapter implements HasPhysicalDestination, ReceiverAware<String> {
+public class ApiListener extends PushingListenerAdapter implements HasPhysicalDestination, ReceiverAware<String>, HasStatistics {
 
 	private final @Getter(onMethod = @__(@Override)) String domain = "Http";
 	private @Getter String uriPattern;
@@ -91,6 +95,7 @@ public class ApiListener extends PushingListenerAdapter implements HasPhysicalDe
 	private @Getter String roleClaim;
 
 	private @Getter JwtValidator<SecurityContext> jwtValidator;
+	private @Getter @Setter TaskExecutor taskExecutor;
 	private String servletUrlMapping = AppConstants.getInstance().getString("servlet.ApiListenerServlet.urlMapping", "api");
 
 	public enum AuthenticationMethods {
@@ -125,6 +130,7 @@ public class ApiListener extends PushingListenerAdapter implements HasPhysicalDe
 		if(getAuthenticationMethod() == AuthenticationMethods.JWT) {
 			try {
 				jwtValidator = new JwtValidator<SecurityContext>();
+				jwtValidator.setExecutor(getTaskExecutor());
 				jwtValidator.init(getJwksUrl(), getRequiredIssuer());
 			} catch (Exception e) {
 				throw new ListenerException("unable to initialize jwtSecurityHandler", e);
@@ -139,6 +145,13 @@ public class ApiListener extends PushingListenerAdapter implements HasPhysicalDe
 		ApiServiceDispatcher.getInstance().unregisterServiceClient(this);
 	}
 
+	@Override
+	public <D> void iterateOverStatistics(StatisticsKeeperIterationHandler<D> hski, D data, Action action) throws SenderException {
+		if (jwtValidator != null) {
+			jwtValidator.iterateOverStatistics(hski, data, action);
+		}
+	}
+
 	@Override
 	public Message processRequest(Message message, PipeLineSession requestContext) throws ListenerException {
 		Message result = super.processRequest(message, requestContext);
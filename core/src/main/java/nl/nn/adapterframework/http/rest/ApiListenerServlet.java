@@ -1,5 +1,5 @@
 /*
-   Copyright 2017-2022 WeAreFrank!
+   Copyright 2017-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -47,7 +47,6 @@ import jakarta.mail.internet.MimeMultipart;
 import nl.nn.adapterframework.core.PipeLineSession;
 import nl.nn.adapterframework.http.HttpSecurityHandler;
 import nl.nn.adapterframework.http.HttpServletBase;
-import nl.nn.adapterframework.http.InputStreamDataSource;
 import nl.nn.adapterframework.http.PartMessage;
 import nl.nn.adapterframework.http.mime.MultipartUtils;
 import nl.nn.adapterframework.http.rest.ApiListener.AuthenticationMethods;
@@ -481,8 +480,8 @@ public class ApiListenerServlet extends HttpServletBase {
 				if(MultipartUtils.isMultipart(request)) {
 					String multipartBodyName = listener.getMultipartBodyName();
 					try {
-						InputStreamDataSource dataSource = new InputStreamDataSource(request.getContentType(), request.getInputStream()); //the entire InputStream will be read here!
-						MimeMultipart mimeMultipart = new MimeMultipart(dataSource);
+						// parts are read lazily from a buffer that spills to a temporary file when the request is large
+						MimeMultipart mimeMultipart = MultipartUtils.parseMultipart(request, messageContext);
 						XmlBuilder attachments = new XmlBuilder("parts");
 
 						for (int i = 0; i < mimeMultipart.getCount(); i++) {
@@ -497,10 +496,11 @@ public class ApiListenerServlet extends HttpServletBase {
 							PartMessage message = new PartMessage(bodyPart);
 							if (!MultipartUtils.isBinary(bodyPart)) {
 								// Process regular form field (input type="text|radio|checkbox|etc", select, etc).
-								if(log.isTraceEnabled()) log.trace("setting multipart formField ["+fieldName+"] to ["+message+"]");
-								messageContext.put(fieldName, message.asString());
+								String value = message.asString();
+								if(log.isTraceEnabled()) log.trace("setting multipart formField ["+fieldName+"] to ["+value+"]");
+								messageContext.put(fieldName, value);
 								attachment.addAttribute("type", "text");
-								attachment.addAttribute("value", message.asString());
+								attachment.addAttribute("value", value);
 							} else {
 								// Process form file field (input type="file").
 								String fieldNameName = fieldName + "Name";
@@ -1,5 +1,5 @@
 /*
-   Copyright 2013 Nationale-Nederlanden, 2020, 2021 WeAreFrank!
+   Copyright 2013 Nationale-Nederlanden, 2020, 2021, 2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -17,7 +17,9 @@ package nl.nn.adapterframework.jdbc;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 import javax.naming.NamingException;
 import javax.sql.DataSource;
@@ -32,6 +34,7 @@ import nl.nn.adapterframework.core.HasPhysicalDestination;
 import nl.nn.adapterframework.core.IXAEnabled;
 import nl.nn.adapterframework.core.SenderException;
 import nl.nn.adapterframework.core.TimeoutException;
+import nl.nn.adapterframework.functional.ThrowingFunction;
 import nl.nn.adapterframework.jdbc.dbms.IDbmsSupport;
 import nl.nn.adapterframework.jdbc.dbms.IDbmsSupportFactory;
 import nl.nn.adapterframework.jndi.TransactionalDbmsSupportAwareDataSourceProxy;
@@ -74,6 +77,8 @@ public class JdbcFacade extends JndiBase implements HasPhysicalDestination, IXAE
 	private IDbmsSupport dbmsSupport=null;
 	private CredentialFactory cf=null;
 	private StatisticsKeeper connectionStatistics;
+	private @Getter int statementCacheSize=0;
+	private PreparedStatementCache statementCache;
 
 	private @Setter @Getter IDataSourceFactory dataSourceFactory = null; // Spring should wire this!
 
@@ -100,6 +105,20 @@ public class JdbcFacade extends JndiBase implements HasPhysicalDestination, IXAE
 			cf = new CredentialFactory(getAuthAlias(), getUsername(), getPassword());
 		}
 		connectionStatistics = new StatisticsKeeper("getConnection for "+getName());
+		if (getStatementCacheSize()>0) {
+			statementCache = new PreparedStatementCache(getStatementCacheSize());
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			if (statementCache!=null) {
+				statementCache.clear();
+			}
+		} finally {
+			super.close();
+		}
 	}
 
 	protected DataSource getDatasource() throws JdbcException {
@@ -179,6 +198,45 @@ public class JdbcFacade extends JndiBase implements HasPhysicalDestination, IXAE
 		}
 	}
 
+	/**
+	 * Obtains a PreparedStatement for the query, from the statement cache when <code>statementCacheSize</code> &gt; 0.
+	 * Statements obtained this way must be returned using {@link #releaseStatement(Statement)} instead of being closed.
+	 * The cacheKey must identify the query text together with all options used by the preparer.
+	 */
+	protected PreparedStatement prepareStatement(Connection connection, String cacheKey, ThrowingFunction<Connection,PreparedStatement,SQLException> preparer) throws SQLException {
+		if (statementCache==null) {
+			return preparer.apply(connection);
+		}
+		return statementCache.prepareStatement(connection, cacheKey, preparer);
+	}
+
+	protected PreparedStatement prepareStatement(Connection connection, String query) throws SQLException {
+		return prepareStatement(connection, query, c -> c.prepareStatement(query));
+	}
+
+	/**
+	 * Returns a statement to the statement cache, or closes it when it is not cached.
+	 */
+	protected void releaseStatement(Statement statement) throws SQLException {
+		if (statement==null) {
+			return;
+		}
+		if (statementCache!=null && statement instanceof PreparedStatement) {
+			statementCache.releaseStatement((PreparedStatement)statement);
+			return;
+		}
+		statement.close();
+	}
+
+	/**
+	 * Discards all cached statements of a connection, to be called when an exception has occurred that might have left the connection unusable.
+	 */
+	protected void invalidateStatementCache(Connection connection) {
+		if (statementCache!=null && connection!=null) {
+			statementCache.invalidate(connection);
+		}
+	}
+
 	public Connection getConnectionWithTimeout(int timeout) throws JdbcException, TimeoutException {
 		if (timeout<=0) {
 			return getConnection();
@@ -197,6 +255,11 @@ public class JdbcFacade extends JndiBase implements HasPhysicalDestination, IXAE
 	@Override
 	public void iterateOverStatistics(StatisticsKeeperIterationHandler hski, Object data, Action action) throws SenderException {
 		hski.handleStatisticsKeeper(data, connectionStatistics);
+		if (statementCache!=null) {
+			hski.handleScalar(data, "statementCacheHits", statementCache.getHits());
+			hski.handleScalar(data, "statementCacheMisses", statementCache.getMisses());
+			hski.handleScalar(data, "statementCacheEvictions", statementCache.getEvictions());
+		}
 	}
 
 	@Override
@@ -289,6 +352,17 @@ public class JdbcFacade extends JndiBase implements HasPhysicalDestination, IXAE
 		return transacted;
 	}
 
+	/**
+	 * When set larger than 0, PreparedStatements are kept open and reused for subsequent calls on the same connection, with at most this number
+	 * of statements per connection (least recently used statements are closed first). Statements are only reused while the connection is borrowed
+	 * from the pool, e.g. by listeners and storages that execute several statements on it; to reuse statements across borrows, configure the
+	 * statement cache of the connection pool or the driver.
+	 * @ff.default 0
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
 	/**
 	 * informs the sender that the obtained connection is from a pool
 	 * @ff.default true
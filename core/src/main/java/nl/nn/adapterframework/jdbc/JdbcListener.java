@@ -21,7 +21,6 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -189,23 +188,29 @@ public class JdbcListener<M extends Object> extends JdbcFacade implements IPeeka
 
 	protected M getRawMessage(Connection conn, Map<String,Object> threadContext) throws ListenerException {
 		String query=preparedSelectQuery;
-		try (Statement stmt= conn.createStatement()) {
-			stmt.setFetchSize(1);
-			if (trace && log.isDebugEnabled()) log.debug("executing query for ["+query+"]");
-			try (ResultSet rs=stmt.executeQuery(query)) {
-				if (!rs.next()) {
-					return null;
-				}
-				return extractRawMessage(rs);
-			} catch (SQLException e) {
-				if (!getDbmsSupport().hasSkipLockedFunctionality()) {
-					String errorMessage = e.getMessage();
-					if (errorMessage.toLowerCase().contains("timeout") && errorMessage.toLowerCase().contains("lock")) {
-						log.debug(getLogPrefix()+"caught lock timeout exception, returning null: ("+e.getClass().getName()+")"+e.getMessage());
-						return null; // resolve locking conflict for dbmses that do not support SKIP LOCKED
+		try {
+			PreparedStatement stmt = prepareStatement(conn, query);
+			try {
+				stmt.setFetchSize(1);
+				if (trace && log.isDebugEnabled()) log.debug("executing query for ["+query+"]");
+				try (ResultSet rs=stmt.executeQuery()) {
+					if (!rs.next()) {
+						return null;
+					}
+					return extractRawMessage(rs);
+				} catch (SQLException e) {
+					if (!getDbmsSupport().hasSkipLockedFunctionality()) {
+						String errorMessage = e.getMessage();
+						if (errorMessage.toLowerCase().contains("timeout") && errorMessage.toLowerCase().contains("lock")) {
+							log.debug(getLogPrefix()+"caught lock timeout exception, returning null: ("+e.getClass().getName()+")"+e.getMessage());
+							return null; // resolve locking conflict for dbmses that do not support SKIP LOCKED
+						}
 					}
+					invalidateStatementCache(conn);
+					throw e;
 				}
-				throw e;
+			} finally {
+				releaseStatement(stmt);
 			}
 		} catch (Exception e) {
 			throw new ListenerException(getLogPrefix() + "caught exception retrieving message using query ["+query+"]", e);
@@ -359,15 +364,23 @@ public class JdbcListener<M extends Object> extends JdbcFacade implements IPeeka
 	protected boolean execute(Connection conn, String query, String... parameters) throws ListenerException {
 		if (StringUtils.isNotEmpty(query)) {
 			if (trace && log.isDebugEnabled()) log.debug("executing statement ["+query+"]");
-			try (PreparedStatement stmt=conn.prepareStatement(query)) {
-				stmt.clearParameters();
-				int i=1;
-				for(String parameter:parameters) {
-					log.debug("setting parameter "+i+" to ["+parameter+"]");
-					JdbcUtil.setParameter(stmt, i++, parameter, getDbmsSupport().isParameterTypeMatchRequired());
-				}
+			try {
+				PreparedStatement stmt=prepareStatement(conn, query);
+				try {
+					stmt.clearParameters();
+					int i=1;
+					for(String parameter:parameters) {
+						log.debug("setting parameter "+i+" to ["+parameter+"]");
+						JdbcUtil.setParameter(stmt, i++, parameter, getDbmsSupport().isParameterTypeMatchRequired());
+					}
 
-				return stmt.executeUpdate() > 0;
+					return stmt.executeUpdate() > 0;
+				} catch (SQLException e) {
+					invalidateStatementCache(conn);
+					throw e;
+				} finally {
+					releaseStatement(stmt);
+				}
 			} catch (SQLException e) {
 				throw new ListenerException(getLogPrefix()+"exception executing statement ["+query+"]",e);
 			}
@@ -346,25 +346,7 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 	protected void createQueryTexts(IDbmsSupport dbmsSupport) throws ConfigurationException {
 		super.createQueryTexts(dbmsSupport);
 		setDataTypes(dbmsSupport);
-		boolean keyFieldsNeedsInsert=dbmsSupport.autoIncrementKeyMustBeInserted();
-		boolean blobFieldsNeedsEmptyBlobInsert=dbmsSupport.mustInsertEmptyBlobBeforeData();
-		insertQuery = "INSERT INTO "+getPrefix()+getTableName()+" ("+
-						(keyFieldsNeedsInsert?getKeyField()+",":"")+
-						(StringUtils.isNotEmpty(getTypeField())?getTypeField()+",":"")+
-						(StringUtils.isNotEmpty(getSlotId())?getSlotIdField()+",":"")+
-						(StringUtils.isNotEmpty(getHostField())?getHostField()+",":"")+
-						(StringUtils.isNotEmpty(getLabelField())?getLabelField()+",":"")+
-						getIdField()+","+getCorrelationIdField()+","+getDateField()+","+getCommentField()+","+getExpiryDateField()+
-						(isStoreFullMessage()?","+getMessageField():"")+
-						(isOnlyStoreWhenMessageIdUnique()?") SELECT ":") VALUES (")+
-						(keyFieldsNeedsInsert?dbmsSupport.autoIncrementInsertValue(getPrefix()+getSequenceName())+",":"")+
-						(StringUtils.isNotEmpty(getTypeField())?"?,":"")+
-						(StringUtils.isNotEmpty(getSlotId())?"?,":"")+
-						(StringUtils.isNotEmpty(getHostField())?"?,":"")+
-						(StringUtils.isNotEmpty(getLabelField())?"?,":"")+
-						"?,?,?,?,?"+
-						(isStoreFullMessage()?","+(blobFieldsNeedsEmptyBlobInsert?dbmsSupport.emptyBlobValue():"?"):"")+
-						(isOnlyStoreWhenMessageIdUnique()?" "+dbmsSupport.getFromForTablelessSelect()+" WHERE NOT EXISTS (SELECT * FROM IBISSTORE WHERE "+getIdField()+" = ?"+(StringUtils.isNotEmpty(getSlotId())?" AND "+getSlotIdField()+" = ?":"")+")":")");
+		insertQuery = createInsertQuery(dbmsSupport, isOnlyStoreWhenMessageIdUnique());
 		selectKeyQuery = dbmsSupport.getInsertedAutoIncrementValueQuery(getPrefix()+getSequenceName());
 		selectKeyQueryIsDbmsSupported=StringUtils.isNotEmpty(selectKeyQuery);
 		if (!selectKeyQueryIsDbmsSupported) {
@@ -400,6 +382,31 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 	}
 
 
+	/**
+	 * Creates the query to insert a message. When <code>checkMessageIdUnique</code> is set, the message is only inserted when its messageId is not present yet.
+	 */
+	protected String createInsertQuery(IDbmsSupport dbmsSupport, boolean checkMessageIdUnique) {
+		boolean keyFieldsNeedsInsert=dbmsSupport.autoIncrementKeyMustBeInserted();
+		boolean blobFieldsNeedsEmptyBlobInsert=dbmsSupport.mustInsertEmptyBlobBeforeData();
+		return "INSERT INTO "+getPrefix()+getTableName()+" ("+
+						(keyFieldsNeedsInsert?getKeyField()+",":"")+
+						(StringUtils.isNotEmpty(getTypeField())?getTypeField()+",":"")+
+						(StringUtils.isNotEmpty(getSlotId())?getSlotIdField()+",":"")+
+						(StringUtils.isNotEmpty(getHostField())?getHostField()+",":"")+
+						(StringUtils.isNotEmpty(getLabelField())?getLabelField()+",":"")+
+						getIdField()+","+getCorrelationIdField()+","+getDateField()+","+getCommentField()+","+getExpiryDateField()+
+						(isStoreFullMessage()?","+getMessageField():"")+
+						(checkMessageIdUnique?") SELECT ":") VALUES (")+
+						(keyFieldsNeedsInsert?dbmsSupport.autoIncrementInsertValue(getPrefix()+getSequenceName())+",":"")+
+						(StringUtils.isNotEmpty(getTypeField())?"?,":"")+
+						(StringUtils.isNotEmpty(getSlotId())?"?,":"")+
+						(StringUtils.isNotEmpty(getHostField())?"?,":"")+
+						(StringUtils.isNotEmpty(getLabelField())?"?,":"")+
+						"?,?,?,?,?"+
+						(isStoreFullMessage()?","+(blobFieldsNeedsEmptyBlobInsert?dbmsSupport.emptyBlobValue():"?"):"")+
+						(checkMessageIdUnique?" "+dbmsSupport.getFromForTablelessSelect()+" WHERE NOT EXISTS (SELECT * FROM "+getPrefix()+getTableName()+" WHERE "+getIdField()+" = ?"+(StringUtils.isNotEmpty(getSlotId())?" AND "+getSlotIdField()+" = ?":"")+")":")");
+	}
+
 	private String documentQuery(String name, String query, String purpose) {
 		return "\n"+name+(purpose!=null?"\n"+purpose:"")+"\n"+query+"\n";
 	}
@@ -504,6 +511,57 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 		}
 	}
 
+	/**
+	 * Sets the parameters of the {@link #insertQuery} up to the message field, and returns the position of the last parameter set.
+	 */
+	protected int applyInsertParameters(PreparedStatement stmt, String messageId, String correlationId, Timestamp receivedDateTime, String comments, String label) throws SQLException {
+		stmt.clearParameters();
+		int parPos=0;
+
+		if (StringUtils.isNotEmpty(getTypeField())) {
+			stmt.setString(++parPos,getType());
+		}
+		if (StringUtils.isNotEmpty(getSlotId())) {
+			stmt.setString(++parPos,getSlotId());
+		}
+		if (StringUtils.isNotEmpty(getHostField())) {
+			stmt.setString(++parPos,host);
+		}
+		if (StringUtils.isNotEmpty(getLabelField())) {
+			stmt.setString(++parPos,label);
+		}
+		stmt.setString(++parPos,messageId);
+		stmt.setString(++parPos,correlationId);
+		stmt.setTimestamp(++parPos, receivedDateTime);
+		stmt.setString(++parPos, comments);
+		if (StorageType.MESSAGELOG_PIPE.getCode().equalsIgnoreCase(getType()) || StorageType.MESSAGELOG_RECEIVER.getCode().equalsIgnoreCase(getType())) {
+			if (getRetention()<0) {
+				stmt.setTimestamp(++parPos, null);
+			} else {
+				Date date = new Date();
+				Calendar cal = Calendar.getInstance();
+				cal.setTime(date);
+				cal.add(Calendar.DAY_OF_MONTH, getRetention());
+				stmt.setTimestamp(++parPos, new Timestamp(cal.getTime().getTime()));
+			}
+		} else {
+			stmt.setTimestamp(++parPos, null);
+		}
+		return parPos;
+	}
+
+	/**
+	 * Serializes the message into a blob parameter of an insert statement.
+	 */
+	protected void applyMessageParameter(PreparedStatement stmt, int blobColumnIndex, S message) throws IOException, SQLException, JdbcException {
+		IDbmsSupport dbmsSupport=getDbmsSupport();
+		Object blobHandle=dbmsSupport.getBlobHandle(stmt, blobColumnIndex);
+		try (ObjectOutputStream oos = new ObjectOutputStream(JdbcUtil.getBlobOutputStream(dbmsSupport, blobHandle, stmt, blobColumnIndex, isBlobsCompressed()))) {
+			oos.writeObject(message);
+		}
+		dbmsSupport.applyBlobParameter(stmt, blobColumnIndex, blobHandle);
+	}
+
 	protected String storeMessageInDatabase(Connection conn, String messageId, String correlationId, Timestamp receivedDateTime, String comments, String label, S message) throws IOException, SQLException, JdbcException, SenderException {
 		PreparedStatement stmt = null;
 		try {
@@ -516,38 +574,7 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 			} else {
 				stmt = conn.prepareStatement(insertQuery);
 			}
-			stmt.clearParameters();
-			int parPos=0;
-
-			if (StringUtils.isNotEmpty(getTypeField())) {
-				stmt.setString(++parPos,getType());
-			}
-			if (StringUtils.isNotEmpty(getSlotId())) {
-				stmt.setString(++parPos,getSlotId());
-			}
-			if (StringUtils.isNotEmpty(getHostField())) {
-				stmt.setString(++parPos,host);
-			}
-			if (StringUtils.isNotEmpty(getLabelField())) {
-				stmt.setString(++parPos,label);
-			}
-			stmt.setString(++parPos,messageId);
-			stmt.setString(++parPos,correlationId);
-			stmt.setTimestamp(++parPos, receivedDateTime);
-			stmt.setString(++parPos, comments);
-			if (StorageType.MESSAGELOG_PIPE.getCode().equalsIgnoreCase(getType()) || StorageType.MESSAGELOG_RECEIVER.getCode().equalsIgnoreCase(getType())) {
-				if (getRetention()<0) {
-					stmt.setTimestamp(++parPos, null);
-				} else {
-					Date date = new Date();
-					Calendar cal = Calendar.getInstance();
-					cal.setTime(date);
-					cal.add(Calendar.DAY_OF_MONTH, getRetention());
-					stmt.setTimestamp(++parPos, new Timestamp(cal.getTime().getTime()));
-				}
-			} else {
-				stmt.setTimestamp(++parPos, null);
-			}
+			int parPos=applyInsertParameters(stmt, messageId, correlationId, receivedDateTime, comments, label);
 
 			if (!isStoreFullMessage()) {
 				if (isOnlyStoreWhenMessageIdUnique()) {
@@ -558,12 +585,7 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 				return null;
 			}
 			if (!dbmsSupport.mustInsertEmptyBlobBeforeData()) {
-				int blobColumnIndex = ++parPos;
-				Object blobHandle=dbmsSupport.getBlobHandle(stmt, blobColumnIndex);
-				try (ObjectOutputStream oos = new ObjectOutputStream(JdbcUtil.getBlobOutputStream(dbmsSupport, blobHandle, stmt, blobColumnIndex, isBlobsCompressed()))) {
-					oos.writeObject(message);
-				}
-				dbmsSupport.applyBlobParameter(stmt, blobColumnIndex, blobHandle);
+				applyMessageParameter(stmt, ++parPos, message);
 
 				if (isOnlyStoreWhenMessageIdUnique()) {
 					stmt.setString(++parPos, messageId);
@@ -687,12 +709,19 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 		return resultString;
 	}
 
+	/**
+	 * Starts or joins a transaction to store messages in, or returns <code>null</code> when no transaction manager is available.
+	 */
+	protected IbisTransaction createTransaction() {
+		if (txManager==null) {
+			return null;
+		}
+		return new IbisTransaction(txManager, txDef, ClassUtils.nameOf(this));
+	}
+
 	@Override
 	public String storeMessage(String messageId, String correlationId, Date receivedDate, String comments, String label, S message) throws SenderException {
-		IbisTransaction itx = null;
-		if (txManager!=null) {
-			itx = new IbisTransaction(txManager, txDef, ClassUtils.nameOf(this));
-		}
+		IbisTransaction itx = createTransaction();
 		try {
 			String result;
 			if (messageId==null) {
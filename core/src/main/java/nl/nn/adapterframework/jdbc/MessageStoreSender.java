@@ -16,26 +16,38 @@
 package nl.nn.adapterframework.jdbc;
 
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
 import org.apache.commons.text.TextStringBuilder;
 
 import lombok.Getter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
-import nl.nn.adapterframework.core.ISenderWithParameters;
+import nl.nn.adapterframework.core.IBlockEnabledSender;
+import nl.nn.adapterframework.core.IbisTransaction;
 import nl.nn.adapterframework.core.ParameterException;
 import nl.nn.adapterframework.core.PipeLineSession;
 import nl.nn.adapterframework.core.SenderException;
 import nl.nn.adapterframework.core.SenderResult;
 import nl.nn.adapterframework.core.TimeoutException;
 import nl.nn.adapterframework.doc.FrankDocGroup;
+import nl.nn.adapterframework.jdbc.dbms.IDbmsSupport;
 import nl.nn.adapterframework.parameters.Parameter;
 import nl.nn.adapterframework.parameters.ParameterList;
 import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.util.JdbcUtil;
 
 /**
  * Send messages to the ibisstore to have them processed exactly-once by another
@@ -58,17 +70,50 @@ import nl.nn.adapterframework.stream.Message;
 			&lt;param name="messageId" xpathExpression="/Envelope/Header/MessageID"/>
 		&lt;/sender>
 </pre></code>
+ *
+ * When used in a block, e.g. by an {@link nl.nn.adapterframework.pipes.IteratingPipe} with a blockSize, all messages of the block are stored using
+ * the same connection and transaction. When batchSize is set as well, the messages are collected and inserted using JDBC batches of that size,
+ * and duplicate messageIds are detected for a batch at once. In that case the key of the stored message is not returned.
  *
  * @ff.parameter messageId messageId to check for duplicates, when this parameter isn't present the messageId is read from sessionKey messageId
  *
  * @author Jaco de Groot
  */
 @FrankDocGroup(name = "Senders")
-public class MessageStoreSender extends JdbcTransactionalStorage<String> implements ISenderWithParameters {
+public class MessageStoreSender extends JdbcTransactionalStorage<String> implements IBlockEnabledSender<MessageStoreSender.BlockContext> {
 	public static final String PARAM_MESSAGEID = "messageId";
 
+	private static final int MAX_IN_LIST_SIZE = 1000;
+
 	private ParameterList paramList = null;
 	private @Getter String sessionKeys = null;
+	private @Getter int batchSize = 0;
+
+	private String batchInsertQuery;
+
+	public static class BlockContext {
+		private final IbisTransaction itx;
+		private Connection connection;
+		private List<StoreRequest> batch = new ArrayList<>();
+
+		private BlockContext(IbisTransaction itx) {
+			this.itx = itx;
+		}
+	}
+
+	private static class StoreRequest {
+		private final String messageId;
+		private final String correlationId;
+		private final Timestamp receivedDateTime;
+		private final String message;
+
+		private StoreRequest(String messageId, String correlationId, Timestamp receivedDateTime, String message) {
+			this.messageId = messageId;
+			this.correlationId = correlationId;
+			this.receivedDateTime = receivedDateTime;
+			this.message = message;
+		}
+	}
 
 	{
 		setOnlyStoreWhenMessageIdUnique(true);
@@ -83,6 +128,13 @@ public class MessageStoreSender extends JdbcTransactionalStorage<String> impleme
 		super.configure();
 	}
 
+	@Override
+	protected void createQueryTexts(IDbmsSupport dbmsSupport) throws ConfigurationException {
+		super.createQueryTexts(dbmsSupport);
+		// duplicates are removed before a batch is inserted, so the batch insert does not need to check for them itself
+		batchInsertQuery = createInsertQuery(dbmsSupport, false);
+	}
+
 	@Override
 	public boolean isSynchronous() {
 		return false;
@@ -103,6 +155,151 @@ public class MessageStoreSender extends JdbcTransactionalStorage<String> impleme
 
 	@Override
 	public SenderResult sendMessage(Message message, PipeLineSession session) throws SenderException, TimeoutException {
+		String messageToStore = getMessageToStore(message, session);
+		return new SenderResult(storeMessage(getMessageId(message, session), session.getCorrelationId(), new Date(), null, null, messageToStore));
+	}
+
+	@Override
+	public BlockContext openBlock(PipeLineSession session) throws SenderException, TimeoutException {
+		BlockContext blockContext = new BlockContext(createTransaction());
+		try {
+			blockContext.connection = getConnection();
+		} catch (JdbcException e) {
+			if (blockContext.itx!=null) {
+				blockContext.itx.setRollbackOnly();
+				blockContext.itx.commit();
+			}
+			throw new SenderException(getLogPrefix()+"cannot open connection", e);
+		}
+		return blockContext;
+	}
+
+	@Override
+	public SenderResult sendMessage(BlockContext blockContext, Message message, PipeLineSession session) throws SenderException, TimeoutException {
+		try {
+			String messageToStore = getMessageToStore(message, session);
+			String messageId = getMessageId(message, session);
+			String correlationId = session.getCorrelationId();
+			if (messageId==null) {
+				throw new SenderException("messageId cannot be null");
+			}
+			if (correlationId==null) {
+				throw new SenderException("correlationId cannot be null");
+			}
+			if (!isBatched()) {
+				return new SenderResult(storeMessage(blockContext.connection, messageId, correlationId, new Date(), null, null, messageToStore));
+			}
+			blockContext.batch.add(new StoreRequest(StringUtils.left(messageId, MAXIDLEN), StringUtils.left(correlationId, MAXCIDLEN), new Timestamp(System.currentTimeMillis()), messageToStore));
+			if (blockContext.batch.size()>=getBatchSize()) {
+				flushBatch(blockContext);
+			}
+			return new SenderResult(Message.nullMessage());
+		} catch (SenderException e) {
+			if (blockContext.itx!=null) {
+				blockContext.itx.setRollbackOnly();
+			}
+			throw e;
+		}
+	}
+
+	@Override
+	public void closeBlock(BlockContext blockContext, PipeLineSession session) throws SenderException {
+		try {
+			flushBatch(blockContext);
+		} catch (SenderException e) {
+			if (blockContext.itx!=null) {
+				blockContext.itx.setRollbackOnly();
+			}
+			throw e;
+		} finally {
+			try {
+				blockContext.connection.close();
+			} catch (SQLException e) {
+				log.warn(getLogPrefix()+"exception closing connection", e);
+			} finally {
+				if (blockContext.itx!=null) {
+					blockContext.itx.commit();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Batching requires the message to be inserted in the same statement as the other fields, which is not possible for databases that require an empty blob to be inserted first.
+	 */
+	private boolean isBatched() {
+		return getBatchSize()>0 && !(isStoreFullMessage() && getDbmsSupport().mustInsertEmptyBlobBeforeData());
+	}
+
+	private void flushBatch(BlockContext blockContext) throws SenderException {
+		List<StoreRequest> batch = blockContext.batch;
+		if (batch.isEmpty()) {
+			return;
+		}
+		blockContext.batch = new ArrayList<>();
+		try {
+			if (isOnlyStoreWhenMessageIdUnique()) {
+				batch = removeDuplicates(blockContext.connection, batch);
+				if (batch.isEmpty()) {
+					return;
+				}
+			}
+			if (log.isDebugEnabled()) {
+				log.debug(getLogPrefix()+"inserting batch of ["+batch.size()+"] messages using statement ["+batchInsertQuery+"]");
+			}
+			try (PreparedStatement stmt = blockContext.connection.prepareStatement(batchInsertQuery)) {
+				for (StoreRequest request:batch) {
+					int parPos = applyInsertParameters(stmt, request.messageId, request.correlationId, request.receivedDateTime, null, null);
+					if (isStoreFullMessage()) {
+						applyMessageParameter(stmt, ++parPos, request.message);
+					}
+					stmt.addBatch();
+				}
+				stmt.executeBatch();
+			}
+		} catch (IOException | JdbcException | SQLException e) {
+			throw new SenderException(getLogPrefix()+"cannot store batch of ["+batch.size()+"] messages", e);
+		}
+	}
+
+	/**
+	 * Removes the messages of which the messageId occurs earlier in the batch or is already present in the store, using one query per {@value #MAX_IN_LIST_SIZE} messageIds.
+	 */
+	private List<StoreRequest> removeDuplicates(Connection connection, List<StoreRequest> batch) throws SQLException {
+		Map<String,StoreRequest> requestsByMessageId = new LinkedHashMap<>();
+		for (StoreRequest request:batch) {
+			if (requestsByMessageId.putIfAbsent(request.messageId, request)!=null) {
+				log.warn("MessageID [" + request.messageId + "] already exists");
+			}
+		}
+		List<String> messageIds = new ArrayList<>(requestsByMessageId.keySet());
+		for (int start=0; start<messageIds.size(); start+=MAX_IN_LIST_SIZE) {
+			List<String> chunk = messageIds.subList(start, Math.min(start+MAX_IN_LIST_SIZE, messageIds.size()));
+			String query = "SELECT "+getIdField()+" FROM "+getPrefix()+getTableName()+" WHERE "
+							+(StringUtils.isNotEmpty(getSlotId())?getSlotIdField()+"=? AND ":"")
+							+getIdField()+" IN ("+String.join(",", Collections.nCopies(chunk.size(), "?"))+")";
+			try (PreparedStatement stmt = connection.prepareStatement(query)) {
+				int parPos=0;
+				if (StringUtils.isNotEmpty(getSlotId())) {
+					stmt.setString(++parPos, getSlotId());
+				}
+				for (String messageId:chunk) {
+					JdbcUtil.setParameter(stmt, ++parPos, messageId, getDbmsSupport().isParameterTypeMatchRequired());
+				}
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						String messageId = rs.getString(1);
+						if (requestsByMessageId.remove(messageId)!=null) {
+							log.warn("MessageID [" + messageId + "] already exists");
+						}
+					}
+				}
+			}
+		}
+		return new ArrayList<>(requestsByMessageId.values());
+	}
+
+	private String getMessageToStore(Message message, PipeLineSession session) throws SenderException {
 		try {
 			String messageToStore = message.asString(); // if no session keys are specified, message is stored without escaping, for compatibility with normal messagestore operation.
 			if (sessionKeys != null) {
@@ -118,23 +315,26 @@ public class MessageStoreSender extends JdbcTransactionalStorage<String> impleme
 				sb.appendWithSeparators(list, ",");
 				messageToStore = sb.toString();
 			}
-			// the messageId to be inserted in the messageStore defaults to the messageId of the session
-			String messageId = session.getMessageId();
-			String correlationID = session.getCorrelationId();
-			if (paramList != null && paramList.findParameter(PARAM_MESSAGEID) != null) {
-				try {
-					// the messageId to be inserted can also be specified via the parameter messageId
-					messageId = paramList.getValues(message, session).get(PARAM_MESSAGEID).asStringValue();
-				} catch (ParameterException e) {
-					throw new SenderException("Could not resolve parameter messageId", e);
-				}
-			}
-			return new SenderResult(storeMessage(messageId, correlationID, new Date(), null, null, messageToStore));
+			return messageToStore;
 		} catch (IOException e) {
 			throw new SenderException(getLogPrefix(),e);
 		}
 	}
 
+	/**
+	 * The messageId to be inserted in the messageStore defaults to the messageId of the session, but can also be specified via the parameter messageId.
+	 */
+	private String getMessageId(Message message, PipeLineSession session) throws SenderException {
+		if (paramList != null && paramList.findParameter(PARAM_MESSAGEID) != null) {
+			try {
+				return paramList.getValues(message, session).get(PARAM_MESSAGEID).asStringValue();
+			} catch (ParameterException e) {
+				throw new SenderException("Could not resolve parameter messageId", e);
+			}
+		}
+		return session.getMessageId();
+	}
+
 	/**
 	 * Comma separated list of sessionKey's to be stored together with the message. Please note: corresponding {@link MessageStoreListener} must have the same value for this attribute.
 	 */
@@ -142,6 +342,16 @@ public class MessageStoreSender extends JdbcTransactionalStorage<String> impleme
 		this.sessionKeys = sessionKeys;
 	}
 
+	/**
+	 * When set to a value greater than 0 and the sender is used in a block, messages are inserted in JDBC batches of this size. Not supported for databases that
+	 * require an empty blob to be inserted before the message, like Oracle; on those, messages in a block are stored one by one.
+	 *
+	 * @ff.default 0
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
 	/**
 	 * If set to <code>true</code>, the message is stored only if the MessageId is not present in the store yet.
 	 *
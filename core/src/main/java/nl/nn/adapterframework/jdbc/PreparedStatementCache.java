@@ -0,0 +1,264 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import nl.nn.adapterframework.functional.ThrowingFunction;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * Bounded LRU cache of {@link PreparedStatement}s, maintained per borrowed connection and keyed by query text.
+ * <p>
+ * A statement is checked out of the cache by {@link #prepareStatement(Connection, String, ThrowingFunction)} and must be handed back
+ * by {@link #releaseStatement(PreparedStatement)}, instead of being closed. Statements that were not obtained from the cache are closed
+ * on release. When a connection is found to be broken, {@link #invalidate(Connection)} closes all statements cached for it.
+ * </p>
+ * Statements are prepared through the connection that is passed by the caller, so that the connection pool and the transaction manager
+ * keep track of them. They are cached for the connection that was borrowed from the pool, found by unwrapping Spring connection proxies
+ * only, and are therefore only reused while that connection is borrowed, e.g. by a listener or storage that executes several statements
+ * on it. Reuse of statements across borrows is left to the statement cache of the pool or the driver.
+ * Statements of connections that have been closed, i.e. returned to the pool, are removed from the cache the next time a statement is prepared.
+ */
+public class PreparedStatementCache {
+	protected Logger log = LogUtil.getLogger(this);
+
+	public static final int MAX_CONNECTIONS = 64;
+
+	private final int maxStatementsPerConnection;
+
+	private final Map<Connection, LinkedHashMap<String,PreparedStatement>> idleStatements;
+	private final Map<PreparedStatement, CacheEntry> managedStatements = new IdentityHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private static class CacheEntry {
+		final Connection connection;
+		final String key;
+		boolean idle;
+
+		CacheEntry(Connection connection, String key) {
+			this.connection = connection;
+			this.key = key;
+		}
+	}
+
+	public PreparedStatementCache(int maxStatementsPerConnection) {
+		this.maxStatementsPerConnection = maxStatementsPerConnection;
+		idleStatements = new LinkedHashMap<Connection, LinkedHashMap<String,PreparedStatement>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Connection, LinkedHashMap<String,PreparedStatement>> eldest) {
+				if (size() > MAX_CONNECTIONS) {
+					closeAll(new ArrayList<>(eldest.getValue().values()));
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns a cached statement for the query key on the borrowed connection behind <code>connection</code>, or prepares a new one
+	 * using <code>preparer</code> on <code>connection</code>.
+	 */
+	public synchronized PreparedStatement prepareStatement(Connection connection, String key, ThrowingFunction<Connection,PreparedStatement,SQLException> preparer) throws SQLException {
+		Connection borrowedConnection = getBorrowedConnection(connection);
+		removeClosedConnections(borrowedConnection);
+		LinkedHashMap<String,PreparedStatement> statements = idleStatements.get(borrowedConnection);
+		if (statements!=null) {
+			PreparedStatement statement = statements.remove(key);
+			if (statement!=null) {
+				if (!statement.isClosed()) {
+					hits.incrementAndGet();
+					managedStatements.get(statement).idle = false;
+					statement.clearParameters();
+					statement.clearWarnings();
+					return statement;
+				}
+				managedStatements.remove(statement);
+				evictions.incrementAndGet();
+			}
+		}
+		misses.incrementAndGet();
+		PreparedStatement statement = preparer.apply(connection);
+		managedStatements.put(statement, new CacheEntry(borrowedConnection, key));
+		return statement;
+	}
+
+	/**
+	 * Returns the statement to the cache, to be reused for the next call. Statements that are not managed by this cache are closed.
+	 * Releasing a statement that is already idle has no effect.
+	 */
+	public synchronized void releaseStatement(PreparedStatement statement) {
+		if (statement==null) {
+			return;
+		}
+		CacheEntry entry = managedStatements.get(statement);
+		if (entry==null) {
+			close(statement);
+			return;
+		}
+		if (entry.idle) {
+			return;
+		}
+		try {
+			if (statement.isClosed()) {
+				managedStatements.remove(statement);
+				return;
+			}
+			statement.clearBatch();
+		} catch (SQLException e) {
+			log.debug("cannot reset statement for query ["+entry.key+"], closing it", e);
+			managedStatements.remove(statement);
+			close(statement);
+			return;
+		}
+		LinkedHashMap<String,PreparedStatement> statements = idleStatements.computeIfAbsent(entry.connection, c -> new LinkedHashMap<>(16, 0.75f, true));
+		PreparedStatement existing = statements.get(entry.key);
+		if (existing!=null) {
+			// another thread prepared the same query concurrently on a shared connection, keep only one of them
+			managedStatements.remove(statement);
+			close(statement);
+			return;
+		}
+		entry.idle = true;
+		statements.put(entry.key, statement);
+		if (statements.size() > maxStatementsPerConnection) {
+			String eldestKey = statements.keySet().iterator().next();
+			PreparedStatement eldest = statements.remove(eldestKey);
+			managedStatements.remove(eldest);
+			evictions.incrementAndGet();
+			close(eldest);
+		}
+	}
+
+	/**
+	 * Closes and removes all statements that are cached for the borrowed connection behind <code>connection</code>,
+	 * e.g. after an exception that indicates the connection is no longer usable.
+	 */
+	public synchronized void invalidate(Connection connection) {
+		Connection borrowedConnection = getBorrowedConnection(connection);
+		LinkedHashMap<String,PreparedStatement> statements = idleStatements.remove(borrowedConnection);
+		if (statements!=null) {
+			closeAll(new ArrayList<>(statements.values()));
+		}
+		managedStatements.values().removeIf(entry -> entry.connection==borrowedConnection);
+	}
+
+	/**
+	 * Forgets the statements of connections that have been closed, so that neither the connections nor the statements are kept
+	 * in memory. The statements of the connection in use are left alone.
+	 */
+	private void removeClosedConnections(Connection current) {
+		List<Connection> closedConnections = new ArrayList<>();
+		for (Connection cachedConnection : idleStatements.keySet()) {
+			if (cachedConnection!=current && isClosed(cachedConnection)) {
+				closedConnections.add(cachedConnection);
+			}
+		}
+		for (CacheEntry entry : managedStatements.values()) {
+			if (entry.connection!=current && !closedConnections.contains(entry.connection) && isClosed(entry.connection)) {
+				closedConnections.add(entry.connection);
+			}
+		}
+		for (Connection closedConnection : closedConnections) {
+			log.debug("removing statements of closed connection [{}]", closedConnection);
+			invalidate(closedConnection);
+		}
+	}
+
+	private boolean isClosed(Connection connection) {
+		try {
+			return connection.isClosed();
+		} catch (SQLException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Closes all idle statements.
+	 */
+	public synchronized void clear() {
+		for (LinkedHashMap<String,PreparedStatement> statements: idleStatements.values()) {
+			closeAll(new ArrayList<>(statements.values()));
+		}
+		idleStatements.clear();
+		managedStatements.clear();
+	}
+
+	private void closeAll(List<PreparedStatement> statements) {
+		for (PreparedStatement statement:statements) {
+			managedStatements.remove(statement);
+			evictions.incrementAndGet();
+			close(statement);
+		}
+	}
+
+	private void close(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			log.warn("Could not close statement", e);
+		}
+	}
+
+	/**
+	 * Returns the connection that was borrowed from the pool, behind any Spring connection proxies. The connection is not unwrapped
+	 * any further, as the connection of the pool enlists it in transactions and takes care of its statements.
+	 */
+	public static Connection getBorrowedConnection(Connection connection) {
+		Connection result = connection;
+		while (result instanceof ConnectionProxy) {
+			Connection target = ((ConnectionProxy)result).getTargetConnection();
+			if (target==null || target==result) {
+				return result;
+			}
+			result = target;
+		}
+		return result;
+	}
+
+	public synchronized int size() {
+		int result=0;
+		for (LinkedHashMap<String,PreparedStatement> statements: idleStatements.values()) {
+			result+=statements.size();
+		}
+		return result;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+	public long getMisses() {
+		return misses.get();
+	}
+	public long getEvictions() {
+		return evictions.get();
+	}
+}
@@ -1,5 +1,5 @@
 /*
-   Copyright 2021 WeAreFrank!
+   Copyright 2021, 2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -18,17 +18,27 @@ package nl.nn.adapterframework.jwt;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 
 import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.KeySourceException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
 import com.nimbusds.jose.jwk.source.JWKSource;
-import com.nimbusds.jose.jwk.source.RemoteJWKSet;
 import com.nimbusds.jose.proc.BadJOSEException;
 import com.nimbusds.jose.proc.JWSKeySelector;
 import com.nimbusds.jose.proc.JWSVerificationKeySelector;
@@ -42,20 +52,76 @@ import com.nimbusds.jwt.proc.DefaultJWTClaimsVerifier;
 import com.nimbusds.jwt.proc.DefaultJWTProcessor;
 
 import lombok.Getter;
+import lombok.Setter;
+import nl.nn.adapterframework.core.SenderException;
+import nl.nn.adapterframework.statistics.HasStatistics;
+import nl.nn.adapterframework.statistics.StatisticsKeeper;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
+import nl.nn.adapterframework.util.AppConstants;
+import nl.nn.adapterframework.util.LogUtil;
 
-public class JwtValidator<C extends SecurityContext> {
+/**
+ * Validates JSON Web Tokens against the keys published at a JWKS URL.
+ * <p>
+ * Tokens that have been validated successfully are kept in a cache of at most <code>jwt.tokenCache.size</code> tokens until they expire,
+ * so a token that is presented again is not verified again. Tokens without expiration time are not cached.
+ * Keys retrieved from a remote JWKS URL are refreshed in the background every <code>jwt.jwks.refreshInterval</code> ms.
+ * </p>
+ */
+public class JwtValidator<C extends SecurityContext> implements HasStatistics {
+	protected Logger log = LogUtil.getLogger(this);
+
+	public static final String TOKEN_CACHE_SIZE_KEY="jwt.tokenCache.size";
+	public static final String JWKS_REFRESH_INTERVAL_KEY="jwt.jwks.refreshInterval";
+	public static final long JWKS_MIN_RELOAD_INTERVAL=30000L;
 
 	private @Getter int connectTimeout=2000;
 	private @Getter int readTimeout=2000;
+	private @Getter int tokenCacheSize=AppConstants.getInstance().getInt(TOKEN_CACHE_SIZE_KEY, 1000);
+	private @Getter long jwksRefreshInterval=AppConstants.getInstance().getLong(JWKS_REFRESH_INTERVAL_KEY, 300000L);
+	private @Getter @Setter Executor executor;
 
 	private @Getter ConfigurableJWTProcessor<C> jwtProcessor = null;
+	private JWKSource<C> keySource;
+
+	private Map<String, CachedToken> tokenCache;
+	private final AtomicLong verifiedCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final AtomicLong cacheHits = new AtomicLong();
+	private final StatisticsKeeper verificationStatistics = new StatisticsKeeper("jwt verification");
+
+	private static class CachedToken {
+		private final Map<String, Object> claims;
+		private final long expiresAt;
+
+		CachedToken(Map<String, Object> claims, long expiresAt) {
+			this.claims = claims;
+			this.expiresAt = expiresAt;
+		}
+	}
 
 	public JwtValidator() {
 		jwtProcessor = new DefaultJWTProcessor<C>();
 	}
 
 	public void init(String jwksUrl, String requiredIssuer) throws ParseException, MalformedURLException, IOException {
-		JWKSource<C> keySource = getKeySource(new URL(jwksUrl));
+		keySource = getKeySource(new URL(jwksUrl));
+		if (keySource instanceof RefreshAheadJWKSource) {
+			try {
+				((RefreshAheadJWKSource<C>)keySource).getInitialSet();
+			} catch (KeySourceException e) {
+				log.warn("could not retrieve JWK set from [{}], will try again when the first token is validated", jwksUrl, e);
+			}
+		}
+		if (getTokenCacheSize() > 0) {
+			int maxSize = getTokenCacheSize();
+			tokenCache = new LinkedHashMap<String, CachedToken>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, CachedToken> eldest) {
+					return size() > maxSize;
+				}
+			};
+		}
 
 		// The expected JWS algorithm of the access tokens (agreed out-of-band)
 		JWSAlgorithm expectedJWSAlg = JWSAlgorithm.RS256;
@@ -86,23 +152,23 @@ public class JwtValidator<C extends SecurityContext> {
 	}
 
 	protected JWKSource<C> getKeySource(URL jwksURL) throws IOException, ParseException {
-		JWKSource<C> keySource = null;
+		JWKSource<C> jwkSource = null;
 		if(jwksURL.getProtocol().equals("file") || jwksURL.getProtocol().equals("jar")) {
 			JWKSet set = JWKSet.load(jwksURL.openStream());
-			keySource = new ImmutableJWKSet<C>(set);
-			return keySource;
+			jwkSource = new ImmutableJWKSet<C>(set);
+			return jwkSource;
 		} else {
 			// The public RSA keys to validate the signatures will be sourced from the
-			// OAuth 2.0 server's JWK set, published at a well-known URL. The RemoteJWKSet
-			// object caches the retrieved keys to speed up subsequent look-ups and can
+			// OAuth 2.0 server's JWK set, published at a well-known URL. The RefreshAheadJWKSource
+			// object caches the retrieved keys and refreshes them in the background, and can
 			// also gracefully handle key-rollover
 			ResourceRetriever retriever = new DefaultResourceRetriever(getConnectTimeout(), getReadTimeout());
-			//JWKSource<C> keySource = new RemoteJWKSet<C>(new URL(jwksURL),retriever);
 			// Implemented Seam for Dependency Injection of JWKSource for unit testing
-			keySource = new RemoteJWKSet<C>(jwksURL, retriever);
+			Executor refreshExecutor = getExecutor()!=null ? getExecutor() : new SimpleAsyncTaskExecutor("JwksRefresh");
+			jwkSource = new RefreshAheadJWKSource<C>(jwksURL, retriever, refreshExecutor, getJwksRefreshInterval(), JWKS_MIN_RELOAD_INTERVAL);
 		}
 
-		return keySource;
+		return jwkSource;
 	}
 
 	protected C createSecurityContext(String idToken) {
@@ -110,10 +176,86 @@ public class JwtValidator<C extends SecurityContext> {
 	}
 
 	public Map<String, Object> validateJWT(String idToken) throws ParseException, BadJOSEException, JOSEException {
+		String cacheKey = null;
+		if (tokenCache != null) {
+			cacheKey = digest(idToken);
+			CachedToken cachedToken;
+			synchronized (tokenCache) {
+				cachedToken = tokenCache.get(cacheKey);
+			}
+			if (cachedToken != null) {
+				if (cachedToken.expiresAt > System.currentTimeMillis()) {
+					cacheHits.incrementAndGet();
+					return new LinkedHashMap<>(cachedToken.claims);
+				}
+				synchronized (tokenCache) {
+					tokenCache.remove(cacheKey);
+				}
+			}
+		}
+
 		// Process the token
 		C ctx = createSecurityContext(idToken);
-		JWTClaimsSet claimsSet = getJwtProcessor().process(idToken, ctx);
-		return claimsSet.toJSONObject();
+		JWTClaimsSet claimsSet;
+		long t0 = System.currentTimeMillis();
+		try {
+			claimsSet = getJwtProcessor().process(idToken, ctx);
+			verifiedCount.incrementAndGet();
+		} catch (ParseException | BadJOSEException | JOSEException e) {
+			failedCount.incrementAndGet();
+			throw e;
+		} finally {
+			long t1 = System.currentTimeMillis();
+			synchronized (verificationStatistics) {
+				verificationStatistics.addValue(t1-t0);
+			}
+		}
+		Map<String, Object> claims = claimsSet.toJSONObject();
+		Date expirationTime = claimsSet.getExpirationTime();
+		if (cacheKey != null && expirationTime != null) {
+			synchronized (tokenCache) {
+				tokenCache.put(cacheKey, new CachedToken(claims, expirationTime.getTime()));
+			}
+			return new LinkedHashMap<>(claims);
+		}
+		return claims;
+	}
+
+	private String digest(String idToken) throws JOSEException {
+		try {
+			MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+			return Base64.getEncoder().encodeToString(messageDigest.digest(idToken.getBytes(StandardCharsets.US_ASCII)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new JOSEException("cannot compute digest of token", e);
+		}
+	}
+
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	public long getVerifiedCount() {
+		return verifiedCount.get();
+	}
+
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	@Override
+	public <D> void iterateOverStatistics(StatisticsKeeperIterationHandler<D> hski, D data, Action action) throws SenderException {
+		hski.handleScalar(data, "jwt tokens verified", getVerifiedCount());
+		hski.handleScalar(data, "jwt tokens rejected", getFailedCount());
+		hski.handleScalar(data, "jwt token cache hits", getCacheHits());
+		if (keySource instanceof RefreshAheadJWKSource) {
+			RefreshAheadJWKSource<C> refreshAheadJWKSource = (RefreshAheadJWKSource<C>)keySource;
+			hski.handleScalar(data, "jwks retrievals", refreshAheadJWKSource.getRetrievalCount());
+			hski.handleScalar(data, "jwks retrieval failures", refreshAheadJWKSource.getRetrievalFailures());
+		}
+		synchronized (verificationStatistics) {
+			hski.handleStatisticsKeeper(data, verificationStatistics);
+			verificationStatistics.performAction(action);
+		}
 	}
 
 	public void setConnectTimeout(int connectTimeout) {
@@ -124,4 +266,14 @@ public class JwtValidator<C extends SecurityContext> {
 		this.readTimeout = readTimeout;
 	}
 
+	/** Maximum number of validated tokens that are kept, 0 disables caching of validated tokens. Must be set before {@link #init(String, String)} is called. */
+	public void setTokenCacheSize(int tokenCacheSize) {
+		this.tokenCacheSize = tokenCacheSize;
+	}
+
+	/** Interval in ms after which keys retrieved from a remote JWKS URL are retrieved again in the background. Must be set before {@link #init(String, String)} is called. */
+	public void setJwksRefreshInterval(long jwksRefreshInterval) {
+		this.jwksRefreshInterval = jwksRefreshInterval;
+	}
+
 }
@@ -0,0 +1,146 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.jwt;
+
+import java.io.IOException;
+import java.net.URL;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Logger;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.ResourceRetriever;
+
+import lombok.Getter;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * {@link JWKSource} that retrieves the JWK set from a URL, and retrieves it again in the background when it is older than
+ * <code>refreshInterval</code>. Requests keep using the current keys while the set is being refreshed, so no request waits for
+ * the retrieval of the keys, except for the very first one, and requests for a key that is not in the current set, e.g. after a key rollover.
+ * The latter are limited to one retrieval per <code>minReloadInterval</code>.
+ */
+public class RefreshAheadJWKSource<C extends SecurityContext> implements JWKSource<C> {
+	private Logger log = LogUtil.getLogger(this);
+
+	private final URL jwksUrl;
+	private final ResourceRetriever retriever;
+	private final Executor executor;
+	private final @Getter long refreshInterval;
+	private final @Getter long minReloadInterval;
+
+	private volatile JWKSet jwkSet;
+	private volatile long loadedAt;
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+	private final AtomicLong retrievalCount = new AtomicLong();
+	private final AtomicLong retrievalFailures = new AtomicLong();
+
+	public RefreshAheadJWKSource(URL jwksUrl, ResourceRetriever retriever, Executor executor, long refreshInterval, long minReloadInterval) {
+		this.jwksUrl = jwksUrl;
+		this.retriever = retriever;
+		this.executor = executor;
+		this.refreshInterval = refreshInterval;
+		this.minReloadInterval = minReloadInterval;
+	}
+
+	@Override
+	public List<JWK> get(JWKSelector jwkSelector, C context) throws KeySourceException {
+		JWKSet currentSet = jwkSet;
+		if (currentSet == null) {
+			currentSet = getInitialSet();
+		} else if (System.currentTimeMillis() - loadedAt > refreshInterval) {
+			refreshInBackground();
+		}
+		List<JWK> matches = jwkSelector.select(currentSet);
+		long seenLoadedAt = loadedAt;
+		if (matches.isEmpty() && System.currentTimeMillis() - seenLoadedAt > minReloadInterval) {
+			log.debug("no matching key found in JWK set from [{}], retrieving it again", jwksUrl);
+			matches = jwkSelector.select(reload(seenLoadedAt));
+		}
+		return matches;
+	}
+
+	/**
+	 * Retrieves the JWK set again, unless another thread did so since <code>seenLoadedAt</code>.
+	 */
+	private synchronized JWKSet reload(long seenLoadedAt) throws KeySourceException {
+		return loadedAt != seenLoadedAt ? jwkSet : load();
+	}
+
+	/**
+	 * Retrieves the JWK set, if that has not been done yet.
+	 */
+	public synchronized JWKSet getInitialSet() throws KeySourceException {
+		JWKSet currentSet = jwkSet;
+		return currentSet != null ? currentSet : load();
+	}
+
+	private void refreshInBackground() {
+		if (refreshing.compareAndSet(false, true)) {
+			try {
+				executor.execute(() -> {
+					try {
+						load();
+					} catch (KeySourceException e) {
+						log.warn("could not refresh JWK set from [{}], will keep using the current keys", jwksUrl, e);
+					} finally {
+						refreshing.set(false);
+					}
+				});
+			} catch (RuntimeException e) {
+				refreshing.set(false);
+				log.warn("could not schedule refresh of JWK set from [{}]", jwksUrl, e);
+			}
+		}
+	}
+
+	private synchronized JWKSet load() throws KeySourceException {
+		retrievalCount.incrementAndGet();
+		try {
+			JWKSet newSet = JWKSet.parse(retriever.retrieveResource(jwksUrl).getContent());
+			jwkSet = newSet;
+			loadedAt = System.currentTimeMillis();
+			return newSet;
+		} catch (IOException | ParseException e) {
+			retrievalFailures.incrementAndGet();
+			JWKSet currentSet = jwkSet;
+			if (currentSet != null) {
+				// keep using the current keys, and retry after the minReloadInterval
+				loadedAt = System.currentTimeMillis() - refreshInterval + minReloadInterval;
+				log.warn("could not retrieve JWK set from [{}], will keep using the current keys", jwksUrl, e);
+				return currentSet;
+			}
+			throw new KeySourceException("could not retrieve JWK set from ["+jwksUrl+"]", e);
+		}
+	}
+
+	public long getRetrievalCount() {
+		return retrievalCount.get();
+	}
+
+	public long getRetrievalFailures() {
+		return retrievalFailures.get();
+	}
+}
@@ -1,6 +1,6 @@
 /*
 /*
-   Copyright 2019, 2020 WeAreFrank!
+   Copyright 2019, 2020, 2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.security.cert.CertPathValidatorException;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
@@ -49,6 +50,8 @@ import nl.nn.adapterframework.cache.ICache;
 import nl.nn.adapterframework.cache.ICacheEnabled;
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.core.SenderException;
+import nl.nn.adapterframework.statistics.HasStatistics;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
 import nl.nn.adapterframework.util.ClassUtils;
 import nl.nn.adapterframework.util.CredentialFactory;
 import nl.nn.adapterframework.util.LogUtil;
@@ -86,7 +89,7 @@ import nl.nn.adapterframework.util.LogUtil;
  * @see "http://docs.oracle.com/javase/jndi/tutorial/ldap/connect/config.html"
  *
  */
-public class LdapClient implements ICacheEnabled<String,Set<String>> {
+public class LdapClient implements ICacheEnabled<String,Set<String>>, HasStatistics {
 	protected static Logger log =  LogUtil.getLogger(LdapClient.class);
 
     private String DEFAULT_INITIAL_CONTEXT_FACTORY_NAME = "com.sun.jndi.ldap.LdapCtxFactory";
@@ -111,6 +114,7 @@ public class LdapClient implements ICacheEnabled<String,Set<String>> {
 
 	private Hashtable<String,Object> jndiEnv=null;
 	private ICache<String,Set<String>> attributeCache=null;
+	private LdapContextPool contextPool=null;
 
     static{
     	//set JVM custom properties from Ldap.properties only once
@@ -152,6 +156,12 @@ public class LdapClient implements ICacheEnabled<String,Set<String>> {
 	}
 
 	public void close() throws SenderException {
+		synchronized (this) {
+			if (contextPool!=null) {
+				contextPool.release();
+				contextPool=null;
+			}
+		}
 		if (attributeCache!=null) {
 			attributeCache.close();
 		}
@@ -166,6 +176,31 @@ public class LdapClient implements ICacheEnabled<String,Set<String>> {
 		return attributeCache;
 	}
 
+	/**
+	 * Returns the {@link LdapContextPool} the contexts are taken from, or <code>null</code> when pooling is switched off
+	 * by setting <code>com.sun.jndi.ldap.connect.pool=false</code> in the options.
+	 */
+	protected synchronized LdapContextPool getContextPool() {
+		if (contextPool==null && !"false".equals(jndiEnv.get("com.sun.jndi.ldap.connect.pool"))) {
+			contextPool=LdapContextPool.getPool(jndiEnv);
+		}
+		return contextPool;
+	}
+
+	@Override
+	public <D> void iterateOverStatistics(StatisticsKeeperIterationHandler<D> hski, D data, Action action) throws SenderException {
+		LdapContextPool pool;
+		synchronized (this) {
+			pool=contextPool;
+		}
+		if (pool!=null) {
+			pool.iterateOverStatistics(hski, data);
+		}
+		if (attributeCache instanceof HasStatistics) {
+			((HasStatistics)attributeCache).iterateOverStatistics(hski, data, action);
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	protected Hashtable<String,Object> getJndiEnv(@SuppressWarnings("rawtypes") Set optionSet) {
 		Hashtable<String,Object> jndiEnv = new Hashtable<String,Object>();
@@ -207,6 +242,10 @@ public class LdapClient implements ICacheEnabled<String,Set<String>> {
      */
     public DirContext getContext() throws NamingException {
     	try {
+    		LdapContextPool pool=getContextPool();
+    		if (pool!=null) {
+    			return pool.getContext();
+    		}
     		return new InitialDirContext(jndiEnv);
     	} catch (NamingException ne) {
     		for (Throwable cause=ne; cause!=null; cause=cause.getCause()) {
@@ -328,7 +367,25 @@ public class LdapClient implements ICacheEnabled<String,Set<String>> {
 //		}
 //    }
 
+    /**
+     * Returns the values of the attribute of the object, and recursively of the objects found as values. When a cache is configured,
+     * the complete result is cached, as well as the values of each object visited.
+     */
     public Set<String> searchRecursivelyViaAttributes(String uid, String baseDn, String attribute) throws NamingException {
+    	if (attributeCache!=null) {
+    		String cacheKey="recursive:"+uid+"/"+attribute;
+    		Set<String> results=attributeCache.get(cacheKey);
+    		if (results==null) {
+    			results=searchRecursivelyViaAttributesUncached(uid, baseDn, attribute);
+    			if (log.isDebugEnabled()) log.debug("caching set of ["+results.size()+"] items of recursive attribute ["+attribute+"] for object ["+uid+"]");
+    			attributeCache.put(cacheKey, results);
+    		}
+    		return new LinkedHashSet<String>(results);
+    	}
+    	return searchRecursivelyViaAttributesUncached(uid, baseDn, attribute);
+    }
+
+    private Set<String> searchRecursivelyViaAttributesUncached(String uid, String baseDn, String attribute) throws NamingException {
     	Set<String> results=new LinkedHashSet<String>();
     	Set<String> toBeSearched=new LinkedHashSet<String>();
        	Set<String> searched=new LinkedHashSet<String>();
@@ -507,6 +564,26 @@ public class LdapClient implements ICacheEnabled<String,Set<String>> {
        	}
 	}
 
+    /**
+     * Like {@link #searchSubtreeForSingleAttribute(String, String, String, String)}, but looks up the result in the cache first,
+     * when a cache is configured. Only found values are cached.
+     */
+    protected String searchSubtreeForSingleAttributeWithCache(String searchDN, String filter, String param, String attribute) throws NamingException {
+    	if (attributeCache!=null) {
+    		String cacheKey="search:"+searchDN+"/"+filter+"/"+param+"/"+attribute;
+    		Set<String> cached=attributeCache.get(cacheKey);
+    		if (cached!=null && !cached.isEmpty()) {
+    			return cached.iterator().next();
+    		}
+    		String result=searchSubtreeForSingleAttribute(searchDN, filter, param, attribute);
+    		if (result!=null) {
+    			attributeCache.put(cacheKey, Collections.singleton(result));
+    		}
+    		return result;
+    	}
+    	return searchSubtreeForSingleAttribute(searchDN, filter, param, attribute);
+    }
+
     public String getFirstSearchResult(NamingEnumeration<SearchResult> searchResultEnum) throws NamingException {
     	String result=null;
     	try {
@@ -671,7 +748,7 @@ public class LdapClient implements ICacheEnabled<String,Set<String>> {
 		if (username==null|| username.equals("") || password==null|| password.equals("")) {
 			return null;
 		}
-		String userDN=searchSubtreeForSingleAttribute(searchDN,searchFilter, username, returnedAttributeDN);
+		String userDN=searchSubtreeForSingleAttributeWithCache(searchDN,searchFilter, username, returnedAttributeDN);
 		if (userDN==null|| userDN.equals("")) {
 			return null;
 		}
@@ -0,0 +1,299 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.ldap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.CommunicationException;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+
+import org.apache.logging.log4j.Logger;
+
+import lombok.Getter;
+import nl.nn.adapterframework.core.SenderException;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
+import nl.nn.adapterframework.util.AppConstants;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * Pool of {@link DirContext}s that are connected to the same LDAP server with the same principal.
+ * <p>
+ * Pools are shared by all senders and pipes that use an identical JNDI environment, i.e. the same provider URL,
+ * principal, credentials and other settings. Each user obtains the pool by {@link #getPool(Hashtable)} and calls {@link #release()}
+ * when it is closed; the pool is removed and its idle contexts are closed when its last user has released it.
+ * A context obtained by {@link #getContext()} is returned to the pool
+ * when it is closed. Contexts that failed with a {@link CommunicationException} or {@link ServiceUnavailableException}
+ * are discarded instead. Contexts that have been idle longer than <code>ldap.pool.validationInterval</code> are checked
+ * before they are handed out again, and contexts idle longer than <code>ldap.pool.idleTimeout</code> are closed.
+ * </p>
+ * The contexts in the pool each keep their own connection; the pooling of the JNDI LDAP provider is not used for them.
+ */
+public class LdapContextPool {
+	private static Logger log = LogUtil.getLogger(LdapContextPool.class);
+
+	public static final String MAX_IDLE_KEY="ldap.pool.maxIdle";
+	public static final String IDLE_TIMEOUT_KEY="ldap.pool.idleTimeout";
+	public static final String VALIDATION_INTERVAL_KEY="ldap.pool.validationInterval";
+
+	private static final String JNDI_POOL_PROPERTY="com.sun.jndi.ldap.connect.pool";
+
+	private static final Map<Hashtable<Object,Object>, LdapContextPool> POOLS = new ConcurrentHashMap<>();
+
+	private final Hashtable<Object,Object> key;
+	private final Hashtable<Object,Object> environment;
+	private final @Getter String description;
+	private final @Getter int maxIdle;
+	private final @Getter long idleTimeout;
+	private final @Getter long validationInterval;
+
+	private final Deque<IdleContext> idleContexts = new ArrayDeque<>();
+	private int references = 0; // only changed while POOLS holds the lock on the key of the pool
+	private volatile boolean closed = false;
+
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong reused = new AtomicLong();
+	private final AtomicLong discarded = new AtomicLong();
+	private final AtomicLong evicted = new AtomicLong();
+
+	private static class IdleContext {
+		private final DirContext context;
+		private final long returnedAt = System.currentTimeMillis();
+
+		IdleContext(DirContext context) {
+			this.context = context;
+		}
+	}
+
+	LdapContextPool(Hashtable<Object,Object> environment, int maxIdle, long idleTimeout, long validationInterval) {
+		this.key = environment;
+		this.environment = new Hashtable<>(environment);
+		this.environment.put(JNDI_POOL_PROPERTY, "false");
+		this.description = "LDAP connection pool for ["+environment.get(Context.PROVIDER_URL)+"] principal ["+environment.get(Context.SECURITY_PRINCIPAL)+"]";
+		this.maxIdle = maxIdle;
+		this.idleTimeout = idleTimeout;
+		this.validationInterval = validationInterval;
+	}
+
+	/**
+	 * Returns the pool for the JNDI environment, creating it when it does not exist yet.
+	 * The caller must {@link #release()} the pool when it does not use it anymore.
+	 */
+	public static LdapContextPool getPool(Hashtable<?,?> environment) {
+		return POOLS.compute(new Hashtable<Object,Object>(environment), (env, pool) -> {
+			if (pool == null) {
+				AppConstants appConstants = AppConstants.getInstance();
+				pool = new LdapContextPool(env, appConstants.getInt(MAX_IDLE_KEY, 8), appConstants.getLong(IDLE_TIMEOUT_KEY, 300000L), appConstants.getLong(VALIDATION_INTERVAL_KEY, 30000L));
+				log.info("created {}", pool.getDescription());
+			}
+			pool.references++;
+			return pool;
+		});
+	}
+
+	/**
+	 * Releases a reference obtained by {@link #getPool(Hashtable)}. When the last reference is released, the pool is removed
+	 * and its idle contexts are closed. Contexts that are still in use are closed when they are returned.
+	 */
+	public void release() {
+		POOLS.computeIfPresent(key, (env, pool) -> {
+			if (pool != this || --references > 0) {
+				return pool;
+			}
+			closed = true;
+			return null;
+		});
+		if (closed) {
+			closeIdleContexts();
+		}
+	}
+
+	private void closeIdleContexts() {
+		Deque<IdleContext> contexts;
+		synchronized (this) {
+			contexts = new ArrayDeque<>(idleContexts);
+			idleContexts.clear();
+		}
+		if (!contexts.isEmpty()) {
+			log.info("closing {} idle contexts of {}", contexts.size(), description);
+		}
+		for (IdleContext idle : contexts) {
+			closeContext(idle.context);
+		}
+	}
+
+	/**
+	 * Returns a context from the pool, or a new context when no valid idle context is available.
+	 * The context must be closed by the caller, that returns it to the pool.
+	 */
+	public DirContext getContext() throws NamingException {
+		IdleContext idle;
+		while ((idle = pollIdleContext()) != null) {
+			long idleTime = System.currentTimeMillis() - idle.returnedAt;
+			if (idleTime > idleTimeout) {
+				evicted.incrementAndGet();
+				closeContext(idle.context);
+				continue;
+			}
+			if (idleTime > validationInterval && !isValid(idle.context)) {
+				discarded.incrementAndGet();
+				closeContext(idle.context);
+				continue;
+			}
+			reused.incrementAndGet();
+			return wrap(idle.context);
+		}
+		DirContext context = new InitialDirContext(environment);
+		created.incrementAndGet();
+		return wrap(context);
+	}
+
+	private synchronized IdleContext pollIdleContext() {
+		return idleContexts.pollFirst();
+	}
+
+	private boolean isValid(DirContext context) {
+		try {
+			// request the entry of the provider URL without any attributes
+			context.getAttributes("", new String[] { "1.1" });
+			return true;
+		} catch (NamingException e) {
+			log.debug("idle context of {} is not valid anymore: {}", description, e.getMessage());
+			return false;
+		}
+	}
+
+	private void release(DirContext context, boolean broken) {
+		if (broken) {
+			discarded.incrementAndGet();
+			closeContext(context);
+			return;
+		}
+		Deque<IdleContext> expired = new ArrayDeque<>();
+		boolean pooled = false;
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			while (!idleContexts.isEmpty() && now - idleContexts.peekLast().returnedAt > idleTimeout) {
+				expired.add(idleContexts.pollLast());
+			}
+			if (!closed && idleContexts.size() < maxIdle) {
+				idleContexts.addFirst(new IdleContext(context));
+				pooled = true;
+			}
+		}
+		for (IdleContext idle : expired) {
+			evicted.incrementAndGet();
+			closeContext(idle.context);
+		}
+		if (!pooled) {
+			closeContext(context);
+		}
+	}
+
+	private void closeContext(DirContext context) {
+		try {
+			context.close();
+		} catch (NamingException e) {
+			log.warn("exception closing context of {}", description, e);
+		}
+	}
+
+	private DirContext wrap(DirContext context) {
+		return (DirContext) Proxy.newProxyInstance(DirContext.class.getClassLoader(), new Class<?>[] { DirContext.class }, new PooledContextHandler(context));
+	}
+
+	private class PooledContextHandler implements InvocationHandler {
+		private DirContext target;
+		private boolean broken = false;
+
+		PooledContextHandler(DirContext target) {
+			this.target = target;
+		}
+
+		@Override
+		public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getDeclaringClass() == Object.class) {
+				switch (method.getName()) {
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				default:
+					return "pooled context of "+description;
+				}
+			}
+			if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+				if (target != null) {
+					release(target, broken);
+					target = null;
+				}
+				return null;
+			}
+			if (target == null) {
+				throw new NamingException("context has already been returned to the "+description);
+			}
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof CommunicationException || cause instanceof ServiceUnavailableException) {
+					broken = true;
+				}
+				throw cause;
+			}
+		}
+	}
+
+	public synchronized int getIdleCount() {
+		return idleContexts.size();
+	}
+
+	public long getCreatedCount() {
+		return created.get();
+	}
+
+	public long getReusedCount() {
+		return reused.get();
+	}
+
+	public long getDiscardedCount() {
+		return discarded.get();
+	}
+
+	public long getEvictedCount() {
+		return evicted.get();
+	}
+
+	public <D> void iterateOverStatistics(StatisticsKeeperIterationHandler<D> hski, D data) throws SenderException {
+		hski.handleScalar(data, "ldap connections created", getCreatedCount());
+		hski.handleScalar(data, "ldap connections reused", getReusedCount());
+		hski.handleScalar(data, "ldap connections discarded", getDiscardedCount());
+		hski.handleScalar(data, "ldap connections evicted", getEvictedCount());
+		hski.handleScalar(data, "ldap connections idle", getIdleCount());
+	}
+}
@@ -1,5 +1,5 @@
 /*
-   Copyright 2019-2021 WeAreFrank!
+   Copyright 2019-2021, 2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -31,6 +31,8 @@ import nl.nn.adapterframework.core.PipeRunException;
 import nl.nn.adapterframework.core.PipeRunResult;
 import nl.nn.adapterframework.core.PipeStartException;
 import nl.nn.adapterframework.core.SenderException;
+import nl.nn.adapterframework.statistics.HasStatistics;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.util.XmlBuilder;
 
@@ -59,7 +61,7 @@ import nl.nn.adapterframework.util.XmlBuilder;
  *
  * @author Gerrit van Brakel
  */
-public class LdapFindGroupMembershipsPipe extends LdapQueryPipeBase implements ICacheEnabled<String,Set<String>> {
+public class LdapFindGroupMembershipsPipe extends LdapQueryPipeBase implements ICacheEnabled<String,Set<String>>, HasStatistics {
 
 	private boolean recursiveSearch = true;
 
@@ -137,6 +139,12 @@ public class LdapFindGroupMembershipsPipe extends LdapQueryPipeBase implements I
 		}
 	}
 
+	@Override
+	public <D> void iterateOverStatistics(StatisticsKeeperIterationHandler<D> hski, D data, Action action) throws SenderException {
+		if (ldapClient!=null) {
+			ldapClient.iterateOverStatistics(hski, data, action);
+		}
+	}
 
 	@Override
 	public void setCache(ICache<String, Set<String>> cache) {
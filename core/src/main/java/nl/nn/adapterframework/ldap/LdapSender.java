@@ -1,5 +1,5 @@
 /*
-   Copyright 2013, 2020 Nationale-Nederlanden, 2020-2022 WeAreFrank!
+   Copyright 2013, 2020 Nationale-Nederlanden, 2020-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -54,6 +54,9 @@ import nl.nn.adapterframework.doc.EnumLabel;
 import nl.nn.adapterframework.jndi.JndiBase;
 import nl.nn.adapterframework.parameters.Parameter;
 import nl.nn.adapterframework.parameters.ParameterList;
+import nl.nn.adapterframework.statistics.HasStatistics;
+import nl.nn.adapterframework.statistics.StatisticsKeeper;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.util.ClassUtils;
 import nl.nn.adapterframework.util.XmlBuilder;
@@ -152,7 +155,7 @@ import nl.nn.adapterframework.util.XmlUtils;
  * @author Gerrit van Brakel
  * @author Jaco de Groot
  */
-public class LdapSender extends JndiBase implements ISenderWithParameters {
+public class LdapSender extends JndiBase implements ISenderWithParameters, HasStatistics {
 
 	private String FILTER = "filterExpression";
 	private String ENTRYNAME = "entryName";
@@ -283,6 +286,8 @@ public class LdapSender extends JndiBase implements ISenderWithParameters {
 	protected ParameterList paramList = null;
 	private boolean principalParameterFound = false;
 	private Hashtable<Object, Object> jndiEnv=null;
+	private LdapContextPool contextPool=null;
+	private StatisticsKeeper dirContextStatistics;
 
 	public LdapSender() {
 		super();
@@ -295,6 +300,7 @@ public class LdapSender extends JndiBase implements ISenderWithParameters {
 			throw new ConfigurationException("[" + getName()+ "] Required parameter with the name [entryName] not found!");
 		}
 		paramList.configure();
+		dirContextStatistics = new StatisticsKeeper("getDirContext for "+getName());
 
 		if (getOperation() == Operation.UPDATE && getManipulationSubject()!=Manipulation.ATTRIBUTE) {
 			throw new ConfigurationException("["+ getClass().getName()	+ "] manipulationSubject invalid for update operation (must be ['"
@@ -405,6 +411,16 @@ public class LdapSender extends JndiBase implements ISenderWithParameters {
 	public void open() throws SenderException {
 	}
 
+	@Override
+	public synchronized void close() {
+		if (contextPool!=null) {
+			contextPool.release();
+			contextPool=null;
+		}
+		jndiEnv=null;
+		super.close();
+	}
+
 	@Override
 	public boolean isSynchronous() {
 		return true;
@@ -929,10 +945,15 @@ public class LdapSender extends JndiBase implements ISenderWithParameters {
 			// Create a vector object and add the names of all of the sub-contexts to it
 			Vector<NameClassPair> n = new Vector<>();
 			NamingEnumeration<?> list = parentContext.list(relativeContext);
-			if (log.isDebugEnabled()) log.debug("getSubCOntextList(context) : context = " + relativeContext);
-			while(list.hasMoreElements()) {
-				NameClassPair nc = (NameClassPair)list.nextElement();
-				n.addElement(nc);
+			try {
+				if (log.isDebugEnabled()) log.debug("getSubCOntextList(context) : context = " + relativeContext);
+				while(list.hasMoreElements()) {
+					NameClassPair nc = (NameClassPair)list.nextElement();
+					n.addElement(nc);
+				}
+			} finally {
+				// closed before the context is returned to the pool, to not leave the connection with an unfinished result
+				list.close();
 			}
 
 			// Create a string array of the same size as the vector object
@@ -1031,48 +1052,68 @@ public class LdapSender extends JndiBase implements ISenderWithParameters {
 
 	/**
 	 * Retrieves the DirContext from the JNDI environment and sets the <code>providerURL</code> back to <code>ldapProviderURL</code> if specified.
+	 * When <code>usePooling=true</code> the DirContext is taken from the {@link LdapContextPool} for the environment, and returned to it when it is closed.
 	 */
-	protected synchronized DirContext loopkupDirContext(Map<String,Object> paramValueMap) throws NamingException, ParameterException {
-		DirContext dirContext;
-		if (jndiEnv==null) {
-			Hashtable<Object, Object> newJndiEnv = getJndiEnv();
-			//newJndiEnv.put("com.sun.jndi.ldap.trace.ber", System.err);//ldap response in log for debug purposes
-			if (getLdapProviderURL() != null) {
-				//Overwriting the (realm)providerURL if specified in configuration
-				newJndiEnv.put("java.naming.provider.url", getLdapProviderURL());
-			}
-			if (principalParameterFound) {
-				newJndiEnv.put(Context.SECURITY_PRINCIPAL, paramValueMap.get("principal"));
-				newJndiEnv.put(Context.SECURITY_CREDENTIALS, paramValueMap.get("credentials"));
-			}
+	protected DirContext loopkupDirContext(Map<String,Object> paramValueMap) throws NamingException, ParameterException {
+		Hashtable<Object, Object> env = getLdapJndiEnv(paramValueMap);
+		if (contextPool!=null) {
+			return contextPool.getContext();
+		}
+		return new InitialDirContext(env);
+	}
+
+	private synchronized Hashtable<Object, Object> getLdapJndiEnv(Map<String,Object> paramValueMap) throws NamingException {
+		if (jndiEnv!=null) {
+			return jndiEnv;
+		}
+		Hashtable<Object, Object> newJndiEnv = getJndiEnv();
+		//newJndiEnv.put("com.sun.jndi.ldap.trace.ber", System.err);//ldap response in log for debug purposes
+		if (getLdapProviderURL() != null) {
+			//Overwriting the (realm)providerURL if specified in configuration
+			newJndiEnv.put("java.naming.provider.url", getLdapProviderURL());
+		}
+		if (principalParameterFound) {
+			newJndiEnv.put(Context.SECURITY_PRINCIPAL, paramValueMap.get("principal"));
+			newJndiEnv.put(Context.SECURITY_CREDENTIALS, paramValueMap.get("credentials"));
+		}
+		// Connections are pooled by the LdapContextPool, not by the JNDI LDAP provider
+		newJndiEnv.put("com.sun.jndi.ldap.connect.pool", "false");
+		if (log.isDebugEnabled()) log.debug("created environment for LDAP provider URL [" + newJndiEnv.get("java.naming.provider.url") + "]");
+		if (!principalParameterFound) {
+			jndiEnv = newJndiEnv;
 			if (isUsePooling()) {
-				// Enable connection pooling
-				newJndiEnv.put("com.sun.jndi.ldap.connect.pool", "true");
-				//see http://java.sun.com/products/jndi/tutorial/ldap/connect/config.html
-//				newJndiEnv.put("com.sun.jndi.ldap.connect.pool.maxsize", "20" );
-//				newJndiEnv.put("com.sun.jndi.ldap.connect.pool.prefsize", "10" );
-//				newJndiEnv.put("com.sun.jndi.ldap.connect.pool.timeout", "300000" );
-			} else {
-				// Disable connection pooling
-				newJndiEnv.put("com.sun.jndi.ldap.connect.pool", "false");
-			}
-			if (log.isDebugEnabled()) log.debug("created environment for LDAP provider URL [" + newJndiEnv.get("java.naming.provider.url") + "]");
-			dirContext = new InitialDirContext(newJndiEnv);
-			if (!principalParameterFound) {
-				jndiEnv = newJndiEnv;
+				contextPool = LdapContextPool.getPool(newJndiEnv);
 			}
-		} else {
-			dirContext = new InitialDirContext(jndiEnv);
 		}
-		return dirContext;
-//		return (DirContext) dirContextTemplate.lookup(""); 	// return copy to be thread-safe
+		return newJndiEnv;
 	}
 
 	protected DirContext getDirContext(Map<String, Object> paramValueMap) throws SenderException, ParameterException {
+		long t0 = System.currentTimeMillis();
 		try {
 			return loopkupDirContext(paramValueMap);
 		} catch (NamingException e) {
 			throw new SenderException("cannot create InitialDirContext for ldapProviderURL ["+ getLdapProviderURL()	+ "]",e);
+		} finally {
+			if (dirContextStatistics!=null) {
+				long t1 = System.currentTimeMillis();
+				synchronized (dirContextStatistics) {
+					dirContextStatistics.addValue(t1-t0);
+				}
+			}
+		}
+	}
+
+	@Override
+	public <D> void iterateOverStatistics(StatisticsKeeperIterationHandler<D> hski, D data, Action action) throws SenderException {
+		if (dirContextStatistics!=null) {
+			synchronized (dirContextStatistics) {
+				hski.handleStatisticsKeeper(data, dirContextStatistics);
+				dirContextStatistics.performAction(action);
+			}
+		}
+		if (contextPool!=null) {
+			contextPool.iterateOverStatistics(hski, data);
 		}
 	}
 
@@ -1146,15 +1187,20 @@ public class LdapSender extends JndiBase implements ISenderWithParameters {
 	private XmlBuilder searchResultsToXml(NamingEnumeration<?> entries) throws NamingException {
 		XmlBuilder entriesElem = new XmlBuilder("entries");
 		int row=0;
-		while ((getMaxEntriesReturned()==0 || row<getMaxEntriesReturned()) && entries.hasMore()) {
-			SearchResult searchResult = (SearchResult) entries.next();
-			XmlBuilder entryElem = new XmlBuilder("entry");
+		try {
+			while ((getMaxEntriesReturned()==0 || row<getMaxEntriesReturned()) && entries.hasMore()) {
+				SearchResult searchResult = (SearchResult) entries.next();
+				XmlBuilder entryElem = new XmlBuilder("entry");
 
-			entryElem.addAttribute("name", searchResult.getName());
-			entryElem.addSubElement(attributesToXml(searchResult.getAttributes()));
+				entryElem.addAttribute("name", searchResult.getName());
+				entryElem.addSubElement(attributesToXml(searchResult.getAttributes()));
 
-			entriesElem.addSubElement(entryElem);
-			row++;
+				entriesElem.addSubElement(entryElem);
+				row++;
+			}
+		} finally {
+			// closed before the context is returned to the pool, also when not all entries have been read
+			entries.close();
 		}
 		return entriesElem;
 	}
@@ -1219,7 +1265,9 @@ public class LdapSender extends JndiBase implements ISenderWithParameters {
 	}
 
 	/**
-	 * Specifies whether connection pooling is used or not
+	 * Specifies whether connection pooling is used or not. Pooled connections are shared by all senders and pipes that connect to the same
+	 * LDAP provider with the same principal. The pool can be tuned with the properties <code>ldap.pool.maxIdle</code>,
+	 * <code>ldap.pool.idleTimeout</code> and <code>ldap.pool.validationInterval</code>
 	 * @ff.default true when principal not set as parameter, false otherwise
 	 */
 	public void setUsePooling(boolean b) {
@@ -20,6 +20,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -33,6 +34,8 @@ import org.springframework.messaging.Message;
 import nl.nn.adapterframework.configuration.Configuration;
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.configuration.ConfigurationUtils;
+import nl.nn.adapterframework.configuration.IbisContext;
+import nl.nn.adapterframework.configuration.StartupTimeline;
 import nl.nn.adapterframework.jdbc.FixedQuerySender;
 import nl.nn.adapterframework.jndi.JndiDataSourceFactory;
 import nl.nn.adapterframework.management.bus.ActionSelector;
@@ -75,6 +78,37 @@ public class ConfigManagement extends BusEndpointBase {
 		return ResponseMessage.Builder.create().withPayload(result.toString()).withMimeType(MediaType.APPLICATION_XML).raw();
 	}
 
+	/**
+	 * @return The startup timeline: when each configuration and each of its adapters was loaded and configured, and how long that took.
+	 * header configuration The name of the Configuration to show, when omitted all configurations are shown.
+	 */
+	@ActionSelector(BusAction.STATUS)
+	public Message<String> getStartupTimeline(Message<?> message) {
+		String configurationName = BusMessageUtils.getHeader(message, FrankApiBase.HEADER_CONFIGURATION_NAME_KEY);
+		IbisContext ibisContext = getIbisManager().getIbisContext();
+		StartupTimeline configurationTimeline = ibisContext != null ? ibisContext.getStartupTimeline() : new StartupTimeline();
+
+		List<Map<String, Object>> configurations = new LinkedList<>();
+		for (Configuration configuration : getIbisManager().getConfigurations()) {
+			if (StringUtils.isNotEmpty(configurationName) && !configurationName.equals(configuration.getName())) {
+				continue;
+			}
+			StartupTimeline.Entry entry = configurationTimeline.getEntry(configuration.getName());
+			Map<String, Object> configurationMap = entry != null ? entry.asMap() : new LinkedHashMap<>();
+			configurationMap.put("name", configuration.getName());
+			if (configuration.getAdapterManager() != null) {
+				List<Map<String, Object>> adapters = new LinkedList<>();
+				for (StartupTimeline.Entry adapterEntry : configuration.getAdapterManager().getStartupTimeline().getEntries()) {
+					adapters.add(adapterEntry.asMap());
+				}
+				configurationMap.put("adapters", adapters);
+			}
+			configurations.add(configurationMap);
+		}
+		configurations.sort(Comparator.comparing(configuration -> (Long) configuration.getOrDefault("startTime", Long.MAX_VALUE)));
+		return ResponseMessage.ok(configurations);
+	}
+
 	/**
 	 * @return If the configuration is of type DatabaseClassLoader, the metadata of the configurations found in the database.
 	 * header configuration The name of the Configuration to find
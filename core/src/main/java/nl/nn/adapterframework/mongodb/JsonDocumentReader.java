@@ -0,0 +1,91 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.mongodb;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.codecs.Decoder;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.json.JsonReader;
+
+/**
+ * Reads {@link Document}s one by one from a JSON array of documents, or from newline delimited JSON, i.e. one document per line.
+ * Only the document that is returned by {@link #next()} is kept in memory.
+ */
+public class JsonDocumentReader implements AutoCloseable {
+
+	private final BufferedReader reader;
+	private final Decoder<Document> decoder = new DocumentCodec();
+	private final DecoderContext decoderContext = DecoderContext.builder().build();
+	private JsonReader arrayReader;
+	private boolean endOfInput = false;
+
+	public JsonDocumentReader(Reader reader) throws IOException {
+		this.reader = reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader);
+		int c;
+		do {
+			this.reader.mark(1);
+			c = this.reader.read();
+		} while (c != -1 && Character.isWhitespace(c));
+		if (c == -1) {
+			endOfInput = true;
+			return;
+		}
+		this.reader.reset();
+		if (c == '[') {
+			arrayReader = new JsonReader(this.reader);
+			arrayReader.readStartArray();
+		}
+	}
+
+	/**
+	 * Returns the next document, or <code>null</code> when all documents have been read.
+	 */
+	public Document next() throws IOException {
+		if (endOfInput) {
+			return null;
+		}
+		if (arrayReader != null) {
+			if (arrayReader.readBsonType() == BsonType.END_OF_DOCUMENT) {
+				arrayReader.readEndArray();
+				endOfInput = true;
+				return null;
+			}
+			return decoder.decode(arrayReader, decoderContext);
+		}
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (!line.trim().isEmpty()) {
+				return Document.parse(line);
+			}
+		}
+		endOfInput = true;
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (arrayReader != null) {
+			arrayReader.close();
+		}
+		reader.close();
+	}
+}
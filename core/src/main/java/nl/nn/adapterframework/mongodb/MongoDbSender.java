@@ -1,5 +1,5 @@
 /*
-   Copyright 2021 WeAreFrank!
+   Copyright 2021, 2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -27,6 +27,7 @@ import javax.naming.NamingException;
 import org.apache.commons.lang3.StringUtils;
 import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.codecs.DocumentCodec;
 import org.bson.codecs.Encoder;
 import org.bson.codecs.EncoderContext;
@@ -34,19 +35,29 @@ import org.bson.json.JsonMode;
 import org.bson.json.JsonWriterSettings;
 import org.xml.sax.SAXException;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.InsertManyResult;
 import com.mongodb.client.result.InsertOneResult;
 import com.mongodb.client.result.UpdateResult;
 import com.mongodb.connection.ServerDescription;
 
-import jakarta.json.Json;
-import jakarta.json.JsonArray;
-import jakarta.json.JsonObject;
 import lombok.Getter;
 import lombok.Lombok;
 import lombok.Setter;
@@ -76,6 +87,14 @@ import nl.nn.adapterframework.util.StringResolver;
 
 /**
  * Sender to perform action on a MongoDB database.
+ * <p>
+ * The input of action <code>BULKWRITE</code> is a JSON array of operations, or newline delimited JSON with one operation per line.
+ * Each operation is an object with a single field, that names the operation, like in the MongoDB shell:
+ * <code>{"insertOne":{"document":{...}}}</code>, <code>{"updateOne":{"filter":{...},"update":{...},"upsert":false}}</code>,
+ * <code>updateMany</code>, <code>{"replaceOne":{"filter":{...},"replacement":{...},"upsert":false}}</code>,
+ * <code>{"deleteOne":{"filter":{...}}}</code> and <code>deleteMany</code>.
+ * The operations are read and written in batches of <code>batchSize</code> operations, so the input is never completely held in memory.
+ * </p>
  * 
  * @ff.parameter database Database to connect to. Overrides attribute <code>database</code>
  * @ff.parameter collection Collection to act upon. Overrides attribute <code>collection</code>
@@ -106,6 +125,8 @@ public class MongoDbSender extends StreamingSenderBase implements HasPhysicalDes
 	private @Getter boolean countOnly=false;
 	private @Getter DocumentFormat outputFormat=DocumentFormat.JSON;
 	private @Getter boolean prettyPrint=false;
+	private @Getter int batchSize=0;
+	private @Getter boolean ordered=true;
 
 	private @Setter @Getter IMongoClientFactory mongoClientFactory = null; // Spring should wire this!
 
@@ -120,9 +141,12 @@ public class MongoDbSender extends StreamingSenderBase implements HasPhysicalDes
 		UPDATEONE,
 		UPDATEMANY,
 		DELETEONE,
-		DELETEMANY;
+		DELETEMANY,
+		BULKWRITE;
 	}
 
+	public static final int DEFAULT_BULK_WRITE_BATCH_SIZE=1000;
+
 
 	@Override
 	public void configure() throws ConfigurationException {
@@ -141,6 +165,9 @@ public class MongoDbSender extends StreamingSenderBase implements HasPhysicalDes
 		if ((getLimit()>0 || (getParameterList()!=null && getParameterList().findParameter(PARAM_LIMIT)!=null)) && getAction()!=MongoAction.FINDMANY) {
 			throw new ConfigurationException("attribute limit or parameter "+PARAM_LIMIT+" can only be used for action "+MongoAction.FINDMANY);
 		}
+		if (getBatchSize()<0) {
+			throw new ConfigurationException("attribute batchSize cannot be negative");
+		}
 	}
 
 	@Override
@@ -191,7 +218,11 @@ public class MongoDbSender extends StreamingSenderBase implements HasPhysicalDes
 				renderResult(mongoCollection.find(getFilter(pvl, message)).first(), target);
 				break;
 			case FINDMANY:
-				renderResult(mongoCollection.find(getFilter(pvl, message)).limit(getLimit(pvl)), target);
+				FindIterable<Document> findResults = mongoCollection.find(getFilter(pvl, message)).limit(getLimit(pvl));
+				if (getBatchSize()>0) {
+					findResults.batchSize(getBatchSize());
+				}
+				renderResult(findResults, target);
 				break;
 			case UPDATEONE:
 				renderResult(mongoCollection.updateOne(getFilter(pvl, null), getDocument(message)), target);
@@ -205,6 +236,9 @@ public class MongoDbSender extends StreamingSenderBase implements HasPhysicalDes
 			case DELETEMANY:
 				renderResult(mongoCollection.deleteMany(getFilter(pvl, message)), target);
 				break;
+			case BULKWRITE:
+				renderResult(bulkWrite(mongoCollection, message), target);
+				break;
 			default:
 				throw new SenderException("Unknown action ["+getAction()+"]");
 			}
@@ -300,6 +334,127 @@ public class MongoDbSender extends StreamingSenderBase implements HasPhysicalDes
 		}
 	}
 
+	protected void renderResult(BulkWriteTotals totals, MessageOutputStream target) throws SAXException, StreamingException {
+		try (ObjectBuilder builder = DocumentBuilderFactory.startObjectDocument(getOutputFormat(), "bulkWriteResult", target, isPrettyPrint())) {
+			builder.add("operationCount", totals.operationCount);
+			builder.add("insertedCount", totals.insertedCount);
+			builder.add("matchedCount", totals.matchedCount);
+			builder.add("modifiedCount", totals.modifiedCount);
+			builder.add("deletedCount", totals.deletedCount);
+			builder.add("upsertedCount", totals.upsertedCount);
+			if (!totals.writeErrors.isEmpty()) {
+				try (ArrayBuilder errors = builder.addArrayField("writeErrors", "writeError")) {
+					for (String writeError : totals.writeErrors) {
+						errors.addElement(writeError);
+					}
+				}
+			}
+		}
+	}
+
+	protected static class BulkWriteTotals {
+		private long operationCount;
+		private long insertedCount;
+		private long matchedCount;
+		private long modifiedCount;
+		private long deletedCount;
+		private long upsertedCount;
+		private List<String> writeErrors = new ArrayList<>();
+
+		private void add(BulkWriteResult result) {
+			if (result.wasAcknowledged()) {
+				insertedCount += result.getInsertedCount();
+				matchedCount += result.getMatchedCount();
+				modifiedCount += result.getModifiedCount();
+				deletedCount += result.getDeletedCount();
+				upsertedCount += result.getUpserts().size();
+			}
+		}
+	}
+
+	/**
+	 * Reads the operations from the message and writes them in batches of <code>batchSize</code>. When <code>ordered=true</code>
+	 * the first failing operation stops the processing, otherwise the errors are collected and reported in the result.
+	 */
+	protected BulkWriteTotals bulkWrite(MongoCollection<Document> mongoCollection, Message message) throws IOException, SenderException {
+		int bulkSize = getBatchSize()>0 ? getBatchSize() : DEFAULT_BULK_WRITE_BATCH_SIZE;
+		BulkWriteOptions options = new BulkWriteOptions().ordered(isOrdered());
+		BulkWriteTotals totals = new BulkWriteTotals();
+		List<WriteModel<Document>> batch = new ArrayList<>(bulkSize);
+		try (JsonDocumentReader reader = new JsonDocumentReader(message.asReader())) {
+			Document operation;
+			while ((operation = reader.next())!=null) {
+				batch.add(getWriteModel(operation, totals.operationCount + batch.size()));
+				if (batch.size()>=bulkSize) {
+					writeBatch(mongoCollection, batch, options, totals);
+				}
+			}
+			if (!batch.isEmpty()) {
+				writeBatch(mongoCollection, batch, options, totals);
+			}
+		}
+		return totals;
+	}
+
+	private void writeBatch(MongoCollection<Document> mongoCollection, List<WriteModel<Document>> batch, BulkWriteOptions options, BulkWriteTotals totals) throws SenderException {
+		long offset = totals.operationCount;
+		totals.operationCount += batch.size();
+		try {
+			totals.add(mongoCollection.bulkWrite(batch, options));
+		} catch (MongoBulkWriteException e) {
+			totals.add(e.getWriteResult());
+			if (isOrdered()) {
+				BulkWriteError error = e.getWriteErrors().get(0);
+				throw new SenderException("bulk write stopped at operation ["+(offset+error.getIndex())+"] after inserting ["+totals.insertedCount+"], modifying ["+totals.modifiedCount+"] and deleting ["+totals.deletedCount+"] documents: "+error.getMessage(), e);
+			}
+			for (BulkWriteError error : e.getWriteErrors()) {
+				totals.writeErrors.add("operation ["+(offset+error.getIndex())+"] code ["+error.getCode()+"]: "+error.getMessage());
+			}
+		} finally {
+			batch.clear();
+		}
+	}
+
+	protected WriteModel<Document> getWriteModel(Document operation, long index) throws SenderException {
+		if (operation.size()!=1) {
+			throw new SenderException("operation ["+index+"] must have a single field that names the operation, found "+operation.keySet());
+		}
+		String operationType = operation.keySet().iterator().next();
+		Document spec = getOperationField(operation, operationType, index);
+		switch (operationType) {
+		case "insertOne":
+			return new InsertOneModel<>(getOperationField(spec, "document", index));
+		case "updateOne":
+		case "updateMany":
+			Bson filter = getOperationField(spec, "filter", index);
+			UpdateOptions updateOptions = new UpdateOptions().upsert(spec.getBoolean("upsert", false));
+			Object update = spec.get("update");
+			if (update instanceof List) {
+				@SuppressWarnings("unchecked")
+				List<Document> pipeline = (List<Document>)update;
+				return "updateOne".equals(operationType) ? new UpdateOneModel<>(filter, pipeline, updateOptions) : new UpdateManyModel<>(filter, pipeline, updateOptions);
+			}
+			Bson updateDocument = getOperationField(spec, "update", index);
+			return "updateOne".equals(operationType) ? new UpdateOneModel<>(filter, updateDocument, updateOptions) : new UpdateManyModel<>(filter, updateDocument, updateOptions);
+		case "replaceOne":
+			return new ReplaceOneModel<>(getOperationField(spec, "filter", index), getOperationField(spec, "replacement", index), new ReplaceOptions().upsert(spec.getBoolean("upsert", false)));
+		case "deleteOne":
+			return new DeleteOneModel<>(getOperationField(spec, "filter", index));
+		case "deleteMany":
+			return new DeleteManyModel<>(getOperationField(spec, "filter", index));
+		default:
+			throw new SenderException("operation ["+index+"] has unknown type ["+operationType+"]");
+		}
+	}
+
+	private Document getOperationField(Document document, String field, long index) throws SenderException {
+		Object value = document.get(field);
+		if (!(value instanceof Document)) {
+			throw new SenderException("operation ["+index+"] must have an object field ["+field+"]");
+		}
+		return (Document)value;
+	}
+
 	private String renderField(BsonValue bsonValue) {
 		if (bsonValue.isObjectId()) {
 			return bsonValue.asObjectId().getValue().toString();
@@ -326,10 +481,12 @@ public class MongoDbSender extends StreamingSenderBase implements HasPhysicalDes
 	}
 
 	protected List<Document> getDocuments(Message message) throws IOException {
-		JsonArray array = Json.createReader(message.asReader()).readArray();
 		List<Document> documents = new ArrayList<>();
-		for (JsonObject object:array.getValuesAs(JsonObject.class)) {
-			documents.add(getDocument(object.toString()));
+		try (JsonDocumentReader reader = new JsonDocumentReader(message.asReader())) {
+			Document document;
+			while ((document = reader.next())!=null) {
+				documents.add(document);
+			}
 		}
 		return documents;
 	}
@@ -435,4 +592,22 @@ public class MongoDbSender extends StreamingSenderBase implements HasPhysicalDes
 		this.prettyPrint = prettyPrint;
 	}
 
+	/**
+	 * For action FINDMANY: the number of documents that is fetched from the server per round trip, 0 means the default of the server.
+	 * For action BULKWRITE: the number of operations that is written per call to the server, 0 means {@value #DEFAULT_BULK_WRITE_BATCH_SIZE}.
+	 * @ff.default 0
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Only for action BULKWRITE: when <code>true</code>, the operations are executed in order, and processing stops at the first failing operation.
+	 * When <code>false</code>, the operations may be executed in any order, and failing operations are reported in the result.
+	 * @ff.default true
+	 */
+	public void setOrdered(boolean ordered) {
+		this.ordered = ordered;
+	}
+
 }
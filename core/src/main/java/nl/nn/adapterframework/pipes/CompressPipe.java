@@ -1,5 +1,5 @@
 /*
-   Copyright 2013 Nationale-Nederlanden, 2020-2022 WeAreFrank!
+   Copyright 2013 Nationale-Nederlanden, 2020-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -18,9 +18,12 @@ package nl.nn.adapterframework.pipes;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.StringTokenizer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
@@ -29,8 +32,11 @@ import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.output.WriterOutputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.task.TaskExecutor;
 
 import lombok.Getter;
+import lombok.Setter;
+import nl.nn.adapterframework.compression.ParallelGZIPOutputStream;
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.configuration.ConfigurationWarning;
 import nl.nn.adapterframework.core.ParameterException;
@@ -61,6 +67,10 @@ public class CompressPipe extends StreamingPipe {
 	private @Getter boolean compress;
 	private @Getter boolean convert2String;
 	private @Getter FileFormat fileFormat;
+	private @Getter int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+	private @Getter boolean parallelCompression = false;
+
+	private @Getter @Setter TaskExecutor taskExecutor;
 
 	public enum FileFormat {
 		/** Gzip format; also used when direction is compress and resultIsContent=<code>true</code>
@@ -78,6 +88,9 @@ public class CompressPipe extends StreamingPipe {
 		if(!resultIsContent && !messageIsContent && outputDirectory == null) {
 			throw new ConfigurationException("outputDirectory must be set");
 		}
+		if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+			throw new ConfigurationException("compressionLevel ["+compressionLevel+"] must be between "+Deflater.DEFAULT_COMPRESSION+" and "+Deflater.BEST_COMPRESSION);
+		}
 	}
 
 	@Override
@@ -135,6 +148,7 @@ public class CompressPipe extends StreamingPipe {
 	private void processStream(OutputStream out, InputStream in, boolean zipMultipleFiles, String filename, PipeLineSession session) throws Exception {
 		if (zipMultipleFiles) {
 			try (ZipOutputStream zipper = new ZipOutputStream(out)) {
+				zipper.setLevel(getCompressionLevel());
 				StringTokenizer st = new StringTokenizer(filename, ";");
 				while (st.hasMoreElements()) {
 					String fn = st.nextToken();
@@ -149,15 +163,18 @@ public class CompressPipe extends StreamingPipe {
 				}
 			}
 		} else {
+			OutputStream compressingStream = null;
 			if (compress) {
 				if (getFileFormat() == FileFormat.GZ || getFileFormat() == null && resultIsContent) {
-					out = new GZIPOutputStream(out);
+					compressingStream = createGZIPOutputStream(out);
 				} else {
 					ZipOutputStream zipper = new ZipOutputStream(out);
+					zipper.setLevel(getCompressionLevel());
 					String zipEntryName = getZipEntryName(filename, session);
 					zipper.putNextEntry(new ZipEntry(zipEntryName));
-					out = zipper;
+					compressingStream = zipper;
 				}
+				out = compressingStream;
 			} else {
 				if (getFileFormat() == FileFormat.GZ || getFileFormat() == null && messageIsContent) {
 					in = new GZIPInputStream(in);
@@ -179,7 +196,33 @@ public class CompressPipe extends StreamingPipe {
 			}
 
 			StreamUtil.copyStream(in, out, 4096);
+			// finish instead of close, to write the remaining compressed data and the trailer without closing the target, that is closed by the caller
+			if (compressingStream instanceof DeflaterOutputStream) {
+				((DeflaterOutputStream) compressingStream).finish();
+			} else if (compressingStream instanceof ParallelGZIPOutputStream) {
+				((ParallelGZIPOutputStream) compressingStream).finish();
+			}
+		}
+	}
+
+	private OutputStream createGZIPOutputStream(OutputStream out) throws IOException {
+		if (isParallelCompression()) {
+			return new ParallelGZIPOutputStream(out, getTaskExecutor(), getCompressionLevel(), ParallelGZIPOutputStream.DEFAULT_BLOCK_SIZE, 2 * Runtime.getRuntime().availableProcessors());
 		}
+		return new GZIPOutputStream(out, 4096) {
+			{
+				def.setLevel(getCompressionLevel());
+			}
+
+			@Override
+			public void finish() throws IOException {
+				try {
+					super.finish();
+				} finally {
+					def.end(); // the stream is not closed, so the deflater must be released here
+				}
+			}
+		};
 	}
 
 	@Override
@@ -247,4 +290,20 @@ public class CompressPipe extends StreamingPipe {
 		fileFormat = format;
 	}
 
+	/**
+	 * compression level when compressing, from 0 (no compression) to 9 (best compression). Use -1 for the default level of the compression library
+	 * @ff.default -1
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		this.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * if <code>true</code> and the result is in gzip format, blocks of data are compressed in parallel on multiple threads. This speeds up compression of large messages and files
+	 * @ff.default false
+	 */
+	public void setParallelCompression(boolean parallelCompression) {
+		this.parallelCompression = parallelCompression;
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
-   Copyright 2013, 2020 Nationale-Nederlanden, 2022 WeAreFrank!
+   Copyright 2013, 2020 Nationale-Nederlanden, 2022-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -51,8 +51,16 @@ public class IsolatedServiceCaller {
 	}
 
 	public void callServiceAsynchronous(String serviceName, Message message, PipeLineSession session, boolean targetIsJavaListener, ThreadLifeCycleEventListener threadLifeCycleEventListener) {
+		callServiceAsynchronous(serviceName, message, session, targetIsJavaListener, threadLifeCycleEventListener, getTaskExecutor());
+	}
+
+	/**
+	 * Calls the service asynchronously using the specified executor, for instance a {@link nl.nn.adapterframework.task.BoundedTaskExecutor} that limits
+	 * the number of threads used for calls to a single service. A {@link org.springframework.core.task.TaskRejectedException} thrown by the executor is passed on to the caller.
+	 */
+	public void callServiceAsynchronous(String serviceName, Message message, PipeLineSession session, boolean targetIsJavaListener, ThreadLifeCycleEventListener threadLifeCycleEventListener, TaskExecutor executor) {
 		IsolatedServiceExecutor ise=new IsolatedServiceExecutor(serviceName, message, session, targetIsJavaListener, null, threadLifeCycleEventListener);
-		getTaskExecutor().execute(ise);
+		executor.execute(ise);
 	}
 
 	public SenderResult callServiceIsolated(String serviceName, Message message, PipeLineSession session, boolean targetIsJavaListener, ThreadLifeCycleEventListener threadLifeCycleEventListener) throws ListenerException {
@@ -1,5 +1,5 @@
 /*
-   Copyright 2013, 2016 Nationale-Nederlanden, 2022 WeAreFrank!
+   Copyright 2013, 2016 Nationale-Nederlanden, 2022-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -51,14 +51,18 @@ public class IsolatedServiceExecutor extends RequestReplyExecutor {
 	@Override
 	public void run() {
 		try {
-			threadConnector.startThread(request.asString());
-			String result;
+			request = threadConnector.startThread(request);
+			Message result;
 			if (targetIsJavaListener) {
-				result = JavaListener.getListener(serviceName).processRequest(correlationID, request.asString(), session);
+				result = JavaListener.getListener(serviceName).processRequest(correlationID, request, session);
 			} else {
-				result = ServiceDispatcher.getInstance().dispatchRequest(serviceName, request.asString(), session);
+				result = ServiceDispatcher.getInstance().dispatchRequest(serviceName, request, session);
 			}
 			reply = new SenderResult(threadConnector.endThread(result));
+			if (guard == null && reply.getResult() != null) {
+				// asynchronous call, the reply will not be read
+				reply.getResult().close();
+			}
 		} catch (Throwable t) {
 			log.warn("IsolatedServiceCaller caught exception",t);
 			throwable = threadConnector.abortThread(t);
@@ -17,8 +17,8 @@ package nl.nn.adapterframework.pipes;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
 import java.util.Vector;
 
@@ -110,6 +110,7 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 	private @Getter boolean closeIteratorOnExit=true;
 	private @Getter boolean parallel = false;
 	private @Getter int maxChildThreads = 0;
+	private @Getter int maxPendingResults = 0;
 
 	private @Getter int blockSize=0;
 
@@ -214,16 +215,25 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 		private boolean blockOpen=false;
 		private Object blockHandle;
 		private Vector<I> inputItems = new Vector<I>();
-		private Guard guard;
-		private List<ParallelSenderExecutor> executorList;
+		private Deque<PendingResult> pendingResults;
+		private int resultsWritten=0;
+
+		private class PendingResult {
+			final ParallelSenderExecutor executor;
+			final Guard guard;
+
+			PendingResult(ParallelSenderExecutor executor, Guard guard) {
+				this.executor = executor;
+				this.guard = guard;
+			}
+		}
 
 		public ItemCallback(PipeLineSession session, ISender sender, Writer out) {
 			this.session=session;
 			this.sender=sender;
 			this.results=out;
 			if (isParallel() && isCollectResults()) {
-				guard = new Guard();
-				executorList = new ArrayList<ParallelSenderExecutor>();
+				pendingResults = new ArrayDeque<>();
 			}
 		}
 
@@ -300,6 +310,10 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 			} else {
 				log.debug("iteration [{}] item [{}]", totalItems, message);
 			}
+			if (isParallel() && isCollectResults()) {
+				// write the results that are ready, and wait for the oldest one when too many are pending
+				writeCompletedResults(false);
+			}
 			if (childThreadSemaphore!=null) {
 				try {
 					childThreadSemaphore.acquire();
@@ -310,12 +324,10 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 			try {
 				try {
 					if (isParallel()) {
-						if (isCollectResults()) {
-							guard.addResource();
-						}
+						Guard guard = isCollectResults() ? new Guard(1) : null;
 						ParallelSenderExecutor pse= new ParallelSenderExecutor(sender, message, session, childThreadSemaphore, guard, senderStatisticsKeeper);
 						if (isCollectResults()) {
-							executorList.add(pse);
+							pendingResults.add(new PendingResult(pse, guard));
 						}
 						getTaskExecutor().execute(pse);
 					} else {
@@ -410,27 +422,41 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 
 		public void waitForResults() throws SenderException, IOException {
 			if (isParallel()) {
-				try {
-					guard.waitForAllResources();
-					int count = 0;
-					for (ParallelSenderExecutor pse : executorList) {
-						count++;
-						String itemResult;
-						if (pse.getThrowable() == null) {
-							SenderResult senderResult = pse.getReply();
-							if (senderResult.isSuccess()) {
-								itemResult = senderResult.getResult().asString();
-							} else {
-								itemResult = "<exception>"+XmlUtils.encodeChars(senderResult.getResult().asString())+"</exception>";
-							}
+				writeCompletedResults(true);
+			}
+		}
+
+		/**
+		 * Writes the results of parallel calls in the order of the items. Results of calls that finished while an earlier call is still
+		 * running are kept pending. When <code>waitForAll</code> is set, or the number of pending results has reached <code>maxPendingResults</code>,
+		 * the oldest call is waited for.
+		 */
+		private void writeCompletedResults(boolean waitForAll) throws SenderException, IOException {
+			try {
+				while (!pendingResults.isEmpty()) {
+					PendingResult oldest = pendingResults.peek();
+					if (waitForAll || getMaxPendingResults()>0 && pendingResults.size()>=getMaxPendingResults()) {
+						oldest.guard.waitForAllResources();
+					} else if (!oldest.guard.isReleased()) {
+						return;
+					}
+					pendingResults.remove();
+					ParallelSenderExecutor pse = oldest.executor;
+					String itemResult;
+					if (pse.getThrowable() == null) {
+						SenderResult senderResult = pse.getReply();
+						if (senderResult.isSuccess()) {
+							itemResult = senderResult.getResult().asString();
 						} else {
-							itemResult = "<exception>"+XmlUtils.encodeChars(pse.getThrowable().getMessage())+"</exception>";
+							itemResult = "<exception>"+XmlUtils.encodeChars(senderResult.getResult().asString())+"</exception>";
 						}
-						addResult(count, pse.getRequest(), itemResult);
+					} else {
+						itemResult = "<exception>"+XmlUtils.encodeChars(pse.getThrowable().getMessage())+"</exception>";
 					}
-				} catch (InterruptedException e) {
-					throw new SenderException("was interupted",e);
+					addResult(++resultsWritten, pse.getRequest(), itemResult);
 				}
+			} catch (InterruptedException e) {
+				throw new SenderException("was interupted",e);
 			}
 		}
 
@@ -605,7 +631,7 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 	}
 
 	/**
-	 * When set <code>true</code>, the calls for all items are done in parallel (a new thread is started for each call). when collectresults set <code>true</code>, this pipe will wait for all calls to finish before results are collected and pipe result is returned
+	 * When set <code>true</code>, the calls for all items are done in parallel (a new thread is started for each call). when collectresults set <code>true</code>, the results are written in the order of the items, and this pipe will wait for all calls to finish before the pipe result is returned
 	 * @ff.default false
 	 */
 	public void setParallel(boolean parallel) {
@@ -620,6 +646,16 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 		this.maxChildThreads = maxChildThreads;
 	}
 
+	/**
+	 * Only used when <code>parallel</code> and <code>collectResults</code> are <code>true</code>. Results are written in the order of the items as soon as they are available.
+	 * When set to a value greater than 0, it specifies the maximum number of items of which the result has not been written yet. When this number is reached, the iteration waits
+	 * for the oldest item to complete, which keeps the memory usage flat when processing very large inputs. Use <code>0</code> for no limit
+	 * @ff.default 0
+	 */
+	public void setMaxPendingResults(int maxPendingResults) {
+		this.maxPendingResults = maxPendingResults;
+	}
+
 	/**
 	 * Controls multiline behaviour. When set to a value greater than 0, it specifies the number of rows send, in a one block, to the sender.
 	 * @ff.default 0
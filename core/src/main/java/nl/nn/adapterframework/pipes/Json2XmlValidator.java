@@ -141,6 +141,11 @@ public class Json2XmlValidator extends XmlValidator implements HasPhysicalDestin
 		}
 	}
 
+	@Override
+	protected boolean canStreamToNextPipe() {
+		return false; // the result of the validation may be converted or altered before it is passed on
+	}
+
 	/**
 	 * Validate the XML or JSON input, and align/convert it into JSON or XML according to a XML Schema.
 	 * The format of the input message (XML or JSON) is automatically detected.
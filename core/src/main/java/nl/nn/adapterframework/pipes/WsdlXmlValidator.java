@@ -209,6 +209,11 @@ public class WsdlXmlValidator extends SoapValidator {
 		return definition;
 	}
 
+	@Override
+	protected boolean canStreamToNextPipe() {
+		return false; // the messageRoot may be determined from the soapAction, which is not done when streaming
+	}
+
 	@Override
 	protected PipeForward validate(Message messageToValidate, PipeLineSession session, boolean responseMode, String messageRoot) throws XmlValidatorException, PipeRunException, ConfigurationException {
 		String soapAction = session.get(SoapBindingConstants.SOAP_ACTION, "");
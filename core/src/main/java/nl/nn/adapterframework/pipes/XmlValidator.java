@@ -33,6 +33,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.xerces.xs.XSModel;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationContext;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
 import org.xml.sax.helpers.XMLFilterImpl;
 
 import lombok.Getter;
@@ -40,6 +42,7 @@ import lombok.Setter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.configuration.ConfigurationWarnings;
 import nl.nn.adapterframework.configuration.HasSpecialDefaultValues;
+import nl.nn.adapterframework.core.IForwardTarget;
 import nl.nn.adapterframework.core.IValidator;
 import nl.nn.adapterframework.core.IXmlValidator;
 import nl.nn.adapterframework.core.PipeForward;
@@ -50,7 +53,11 @@ import nl.nn.adapterframework.core.PipeStartException;
 import nl.nn.adapterframework.doc.Category;
 import nl.nn.adapterframework.soap.SoapValidator;
 import nl.nn.adapterframework.soap.SoapVersion;
+import nl.nn.adapterframework.stream.IOutputStreamingSupport;
 import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.stream.MessageOutputStream;
+import nl.nn.adapterframework.stream.StreamingPipe;
+import nl.nn.adapterframework.stream.xml.XmlTee;
 import nl.nn.adapterframework.util.ClassUtils;
 import nl.nn.adapterframework.util.SpringUtils;
 import nl.nn.adapterframework.util.TransformerPool;
@@ -68,7 +75,9 @@ import nl.nn.adapterframework.validation.SchemasProvider;
 import nl.nn.adapterframework.validation.ValidationContext;
 import nl.nn.adapterframework.validation.XercesXmlValidator;
 import nl.nn.adapterframework.validation.XmlValidatorException;
+import nl.nn.adapterframework.xml.ExceptionCatchingFilter;
 import nl.nn.adapterframework.xml.RootElementToSessionKeyFilter;
+import nl.nn.adapterframework.xml.SaxException;
 
 
 /**
@@ -96,6 +105,9 @@ public class XmlValidator extends ValidatorBase implements SchemasProvider, HasS
 	private @Getter String importedSchemaLocationsToIgnore;
 	private @Getter boolean useBaseImportedSchemaLocationsToIgnore = false;
 	private @Getter String importedNamespacesToIgnore;
+	private @Getter boolean streamToNextPipe = false;
+
+	private boolean canStreamToNextPipe;
 
 	/*
 	 * Root validations are a set of lists.
@@ -178,6 +190,13 @@ public class XmlValidator extends ValidatorBase implements SchemasProvider, HasS
 			}
 
 			validator.configure(this);
+
+			boolean outputSideEffectsPresent = StringUtils.isNotEmpty(getStoreResultInSessionKey()) || isPreserveInput() || isRestoreMovedElements()
+					|| StringUtils.isNotEmpty(getElementToMove()) || StringUtils.isNotEmpty(getChompCharSize()) || StringUtils.isNotEmpty(getElementToMoveChain());
+			canStreamToNextPipe = isStreamToNextPipe() && StringUtils.isEmpty(getSoapNamespace()) && !outputSideEffectsPresent && !isWriteToSecLog();
+			if (isStreamToNextPipe() && !canStreamToNextPipe) {
+				ConfigurationWarnings.add(this, log, "streamToNextPipe is ignored, because it cannot be combined with soapNamespace or attributes that require the result of this pipe");
+			}
 		} catch(ConfigurationException e) {
 			configurationException = e;
 			throw e;
@@ -227,6 +246,12 @@ public class XmlValidator extends ValidatorBase implements SchemasProvider, HasS
 		try {
 			Message messageToValidate;
 			input.preserve();
+			if (!responseMode && StringUtils.isEmpty(messageRoot) && canStreamToNextPipe()) {
+				PipeRunResult result = validateAndStreamToNextPipe(input, session);
+				if (result != null) {
+					return result;
+				}
+			}
 			if (StringUtils.isNotEmpty(getSoapNamespace())) {
 				messageToValidate = getMessageToValidate(input, session);
 			} else {
@@ -241,8 +266,131 @@ public class XmlValidator extends ValidatorBase implements SchemasProvider, HasS
 
 	}
 
+	/**
+	 * Validates the input while it is parsed for the next pipe, that receives the validated XML as SAX events. This way the input is parsed only once.
+	 * When the validation does not result in the success forward, the output of the next pipe is discarded, and the input is returned with the forward of the validation result.
+	 * Returns <code>null</code> when the next pipe cannot provide an output stream, or might have side effects.
+	 */
+	private PipeRunResult validateAndStreamToNextPipe(Message input, PipeLineSession session) throws Exception {
+		IForwardTarget nextPipe = getNextPipe();
+		if (!acceptsStream(nextPipe) || !isFreeOfSideEffects(nextPipe)) {
+			return null;
+		}
+		MessageOutputStream target = ((IOutputStreamingSupport)nextPipe).provideOutputStream(session, null);
+		if (target == null) {
+			return null;
+		}
+		log.debug("validating input while streaming it to next pipe [{}]", nextPipe::getName);
+		NextPipeExceptionRecorder nextPipeHandler = new NextPipeExceptionRecorder(target.asContentHandler());
+		boolean streamed = false;
+		try {
+			PipeForward forward;
+			try {
+				forward = validate(input, session, false, null, nextPipeHandler);
+			} catch (XmlValidatorException e) {
+				if (nextPipeHandler.getException() == null) {
+					throw e;
+				}
+				forward = null;
+			}
+			if (nextPipeHandler.getException() != null) {
+				throw new PipeRunException(this, "next pipe [" + nextPipe.getName() + "] could not process validated message", nextPipeHandler.getException());
+			}
+			if (forward != getSuccessForward()) {
+				log.debug("validation resulted in forward [{}], discarding output of next pipe [{}]", forward.getName(), nextPipe.getName());
+				return new PipeRunResult(forward, input);
+			}
+			streamed = true;
+		} finally {
+			if (!streamed) {
+				discard(target);
+			}
+		}
+		try (MessageOutputStream closingTarget = target) {
+			return target.getPipeRunResult();
+		}
+	}
+
+	private boolean acceptsStream(IForwardTarget target) {
+		return target instanceof IOutputStreamingSupport && !(target instanceof StreamingPipe && !((StreamingPipe)target).isStreamingActive());
+	}
+
+	/**
+	 * Discarding the output of the next pipe closes its output stream, which completes its processing. Only an {@link XsltPipe}
+	 * that keeps its result in memory, because its own next pipe does not accept a stream, has no side effects then.
+	 */
+	private boolean isFreeOfSideEffects(IForwardTarget nextPipe) {
+		if (!(nextPipe instanceof XsltPipe)) {
+			log.debug("not streaming to next pipe [{}], as it is not an XsltPipe and might have side effects", nextPipe::getName);
+			return false;
+		}
+		XsltPipe xsltPipe = (XsltPipe)nextPipe;
+		try {
+			return !acceptsStream(getPipeLine().resolveForward(xsltPipe, xsltPipe.getSuccessForward()));
+		} catch (PipeRunException e) {
+			log.debug("cannot determine the pipe after next pipe [{}], not streaming to it", xsltPipe.getName(), e);
+			return false;
+		}
+	}
+
+	private void discard(MessageOutputStream target) {
+		try {
+			target.close();
+		} catch (Exception e) {
+			log.debug("ignoring exception closing discarded output stream", e);
+		}
+	}
+
+	/**
+	 * Keeps the first exception thrown by the next pipe, to tell it apart from validation errors found in the same parse.
+	 */
+	private static class NextPipeExceptionRecorder extends ExceptionCatchingFilter {
+		private @Getter Exception exception;
+
+		NextPipeExceptionRecorder(ContentHandler handler) {
+			super(handler);
+		}
+
+		@Override
+		protected void handleException(Exception e) throws SAXException {
+			if (exception == null) {
+				exception = e;
+			}
+			if (e instanceof SAXException) {
+				throw (SAXException) e;
+			}
+			throw new SaxException(e);
+		}
+	}
+
+	/**
+	 * Find the pipe that follows this pipe on success, if this pipe is part of the pipeline itself, i.e. not an input or output validator.
+	 */
+	protected IForwardTarget getNextPipe() {
+		if (getPipeLine() == null || getPipeLine().getPipe(getName()) != this) {
+			return null;
+		}
+		try {
+			return getPipeLine().resolveForward(this, getSuccessForward());
+		} catch (PipeRunException e) {
+			log.warn("no next pipe found", e);
+			return null;
+		}
+	}
+
+	protected boolean canStreamToNextPipe() {
+		return canStreamToNextPipe;
+	}
+
 	@Override
 	protected PipeForward validate(Message messageToValidate, PipeLineSession session, boolean responseMode, String messageRoot) throws XmlValidatorException, PipeRunException, ConfigurationException {
+		return validate(messageToValidate, session, responseMode, messageRoot, null);
+	}
+
+	/**
+	 * Validates the message. When <code>nextHandler</code> is not null, the validated SAX events are passed on to it while the message is parsed.
+	 */
+	private PipeForward validate(Message messageToValidate, PipeLineSession session, boolean responseMode, String messageRoot, ContentHandler nextHandler) throws XmlValidatorException, PipeRunException, ConfigurationException {
 		ValidationContext context = null;
 		if(StringUtils.isNotEmpty(messageRoot)) {
 			context = validator.createValidationContext(session, createRootValidation(messageRoot), getInvalidRootNamespaces());
@@ -254,7 +402,18 @@ public class XmlValidator extends ValidatorBase implements SchemasProvider, HasS
 		if (storeRootFilter!=null) {
 			validatorHandler.setContentHandler(storeRootFilter);
 		}
-		ValidationResult resultEvent = validator.validate(messageToValidate, session, validatorHandler, storeRootFilter, context);
+		XMLFilterImpl filter = storeRootFilter;
+		if (nextHandler!=null) {
+			XmlTee tee = new XmlTee();
+			tee.setSecondContentHandler(nextHandler);
+			if (storeRootFilter!=null) {
+				storeRootFilter.setContentHandler(tee);
+			} else {
+				validatorHandler.setContentHandler(tee);
+			}
+			filter = tee;
+		}
+		ValidationResult resultEvent = validator.validate(messageToValidate, session, validatorHandler, filter, context);
 		return determineForward(resultEvent, session, responseMode);
 	}
 
@@ -817,6 +976,18 @@ public class XmlValidator extends ValidatorBase implements SchemasProvider, HasS
 		return soapNamespace;
 	}
 
+	/**
+	 * If set <code>true</code>, and the next pipe can accept its input as a stream, the input is validated while it is streamed to the next pipe,
+	 * so that it is parsed only once. The output of the next pipe is discarded when the validation does not result in the success forward.
+	 * Only effective when soapNamespace is empty, the pipe is part of the pipeline, and no attributes are set that require the result of this pipe, like storeResultInSessionKey.
+	 * As a discarded output stream is still closed, which completes the processing of the next pipe, the input is only streamed to a next pipe without
+	 * side effects: an XsltPipe whose own next pipe does not accept a stream. For any other next pipe the input is validated first, as usual.
+	 * @ff.default false
+	 */
+	public void setStreamToNextPipe(boolean streamToNextPipe) {
+		this.streamToNextPipe = streamToNextPipe;
+	}
+
 	/** Key of session variable to store the name of the root element */
 	public void setRootElementSessionKey(String rootElementSessionKey) {
 		this.rootElementSessionKey = rootElementSessionKey;
@@ -16,6 +16,8 @@
 package nl.nn.adapterframework.processors;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReference;
 
 import nl.nn.adapterframework.cache.ICache;
 import nl.nn.adapterframework.core.PipeLine;
@@ -36,7 +38,7 @@ public class CachePipeLineProcessor extends PipeLineProcessorBase {
 
 	@Override
 	public PipeLineResult processPipeLine(PipeLine pipeLine, String messageId, Message message, PipeLineSession pipeLineSession, String firstPipe) throws PipeRunException {
-		ICache<String,String> cache=pipeLine.getCache();
+		ICache<String,Serializable> cache=pipeLine.getCache();
 		if (cache==null) {
 			return pipeLineProcessor.processPipeLine(pipeLine, messageId, message, pipeLineSession, firstPipe);
 		}
@@ -54,29 +56,33 @@ public class CachePipeLineProcessor extends PipeLineProcessorBase {
 		}
 
 		if (log.isDebugEnabled()) log.debug("cache key [{}]", key);
-		Message result;
-		String state;
-		synchronized (cache) {
-			result = new Message(cache.get("r"+key));
-			state = cache.get("s"+key);
+		AtomicReference<PipeLineResult> pipeLineResult = new AtomicReference<>();
+		// concurrent misses for the same key wait for a single execution of the pipeline
+		Serializable result = cache.get("r"+key, () -> {
+			if (log.isDebugEnabled()) log.debug("no cached results found using key [{}]", key);
+			PipeLineResult plr=pipeLineProcessor.processPipeLine(pipeLine, messageId, message, pipeLineSession, firstPipe);
+			pipeLineResult.set(plr);
+			if (log.isDebugEnabled()) log.debug("caching result using key [{}]", key);
+			Serializable cacheValue=cache.transformValue(plr.getResult(), pipeLineSession);
+			if (cacheValue!=null) {
+				// the state is stored before the result, so it is present for callers that find the result
+				cache.put("s"+key, plr.getState().name());
+			}
+			return cacheValue;
+		});
+		if (pipeLineResult.get()!=null) {
+			return pipeLineResult.get();
 		}
 
-		if (!result.isNull() && state!=null) {
-			if (log.isDebugEnabled()) log.debug("retrieved result from cache using key [{}]", key);
-			PipeLineResult plr=new PipeLineResult();
-			plr.setState(EnumUtils.parse(ExitState.class, state));
-			plr.setResult(result);
-			return plr;
-		}
-
-		if (log.isDebugEnabled()) log.debug("no cached results found using key [{}]", key);
-		PipeLineResult plr=pipeLineProcessor.processPipeLine(pipeLine, messageId, message, pipeLineSession, firstPipe);
-		if (log.isDebugEnabled()) log.debug("caching result using key [{}]", key);
-		String cacheValue=cache.transformValue(plr.getResult(), pipeLineSession);
-		synchronized (cache) {
-			cache.put("r"+key, cacheValue);
-			cache.put("s"+key, plr.getState().name());
+		String state = (String)cache.get("s"+key);
+		if (result==null || state==null) {
+			if (log.isDebugEnabled()) log.debug("no cached state found using key [{}]", key);
+			return pipeLineProcessor.processPipeLine(pipeLine, messageId, message, pipeLineSession, firstPipe);
 		}
+		if (log.isDebugEnabled()) log.debug("retrieved result from cache using key [{}]", key);
+		PipeLineResult plr=new PipeLineResult();
+		plr.setState(EnumUtils.parse(ExitState.class, state));
+		plr.setResult(Message.asMessage(result));
 		return plr;
 	}
 
@@ -16,8 +16,11 @@
 package nl.nn.adapterframework.processors;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReference;
 
 import nl.nn.adapterframework.cache.ICache;
+import nl.nn.adapterframework.core.IbisException;
 import nl.nn.adapterframework.core.PipeLineSession;
 import nl.nn.adapterframework.core.SenderException;
 import nl.nn.adapterframework.core.SenderResult;
@@ -35,7 +38,7 @@ public class CacheSenderWrapperProcessor extends SenderWrapperProcessorBase {
 
 	@Override
 	public SenderResult sendMessage(SenderWrapperBase senderWrapperBase, Message message, PipeLineSession session) throws SenderException, TimeoutException {
-		ICache<String,String> cache=senderWrapperBase.getCache();
+		ICache<String,Serializable> cache=senderWrapperBase.getCache();
 		if (cache==null) {
 			return senderWrapperProcessor.sendMessage(senderWrapperBase, message, session);
 		}
@@ -51,26 +54,32 @@ public class CacheSenderWrapperProcessor extends SenderWrapperProcessorBase {
 			return senderWrapperProcessor.sendMessage(senderWrapperBase, message, session);
 		}
 		if (log.isDebugEnabled()) log.debug("cache key [{}]", key);
-		SenderResult result;
-		String cacheResult=cache.get(key);
-		if (cacheResult!=null) {
-			if (log.isDebugEnabled()) log.debug("retrieved result from cache using key [{}]", key);
-			result = new SenderResult(cacheResult);
-		} else {
-			if (log.isDebugEnabled()) log.debug("no cached results found using key [{}]", key);
-			result = senderWrapperProcessor.sendMessage(senderWrapperBase, message, session);
-			if (log.isDebugEnabled()) log.debug("caching result using key [{}]", key);
-			if (result.isSuccess()) {
-				String cacheValue = cache.transformValue(result.getResult(), session);
-				if (cacheValue==null) {
-					if (log.isDebugEnabled()) log.debug("transformed cache value is null, will not cache");
-					return result;
+		AtomicReference<SenderResult> senderResult = new AtomicReference<>();
+		Serializable cacheValue;
+		try {
+			// concurrent misses for the same key wait for a single call to the sender
+			cacheValue = cache.<IbisException>get(key, () -> {
+				if (log.isDebugEnabled()) log.debug("no cached results found using key [{}]", key);
+				SenderResult result = senderWrapperProcessor.sendMessage(senderWrapperBase, message, session);
+				senderResult.set(result);
+				if (!result.isSuccess()) {
+					return null;
 				}
-				cache.put(key, cacheValue);
-				result = new SenderResult(cacheValue);
-			}
+				if (log.isDebugEnabled()) log.debug("caching result using key [{}]", key);
+				Serializable value = cache.transformValue(result.getResult(), session);
+				if (value==null && log.isDebugEnabled()) log.debug("transformed cache value is null, will not cache");
+				return value;
+			});
+		} catch (SenderException | TimeoutException e) {
+			throw e;
+		} catch (IbisException e) {
+			throw new SenderException(e);
+		}
+		if (cacheValue==null) {
+			return senderResult.get();
 		}
-		return result;
+		if (senderResult.get()==null && log.isDebugEnabled()) log.debug("retrieved result from cache using key [{}]", key);
+		return new SenderResult(Message.asMessage(cacheValue));
 	}
 
 }
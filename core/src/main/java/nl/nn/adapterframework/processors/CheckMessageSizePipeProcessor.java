@@ -32,6 +32,11 @@ import nl.nn.adapterframework.util.Misc;
  */
 public class CheckMessageSizePipeProcessor extends PipeProcessorBase {
 
+	@Override
+	protected boolean isActive(PipeLine pipeLine, IPipe pipe) {
+		return pipeLine.getMessageSizeWarnNum() >= 0 || pipe instanceof IExtendedPipe && ((IExtendedPipe)pipe).hasSizeStatistics();
+	}
+
 	@Override
 	protected PipeRunResult processPipe(PipeLine pipeLine, IPipe pipe, Message message, PipeLineSession pipeLineSession, ThrowingFunction<Message, PipeRunResult,PipeRunException> chain) throws PipeRunException {
 		checkMessageSize(message.size(), pipeLine, pipe, true);
@@ -61,6 +61,11 @@ public class CheckSemaphorePipeProcessor extends PipeProcessorBase {
 		return pipeRunResult;
 	}
 
+	@Override
+	protected boolean isActive(PipeLine pipeLine, IPipe pipe) {
+		return pipe.getMaxThreads() > 0;
+	}
+
 	// method needs to be overridden to enable AOP for debugger
 	@Override
 	public PipeRunResult processPipe(PipeLine pipeLine, IPipe pipe, Message message, PipeLineSession pipeLineSession) throws PipeRunException {
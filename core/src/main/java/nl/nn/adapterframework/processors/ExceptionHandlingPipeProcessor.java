@@ -31,6 +31,12 @@ import nl.nn.adapterframework.stream.Message;
 
 public class ExceptionHandlingPipeProcessor extends PipeProcessorBase {
 
+	@Override
+	protected boolean isActive(PipeLine pipeLine, IPipe pipe) {
+		Map<String, PipeForward> forwards = pipe.getForwards();
+		return forwards!=null && forwards.containsKey(PipeForward.EXCEPTION_FORWARD_NAME) && !(pipe instanceof ExceptionPipe);
+	}
+
 	@Override
 	protected PipeRunResult processPipe(PipeLine pipeLine, IPipe pipe, Message message, PipeLineSession pipeLineSession, ThrowingFunction<Message, PipeRunResult,PipeRunException> chain) throws PipeRunException {
 		PipeRunResult prr = null;
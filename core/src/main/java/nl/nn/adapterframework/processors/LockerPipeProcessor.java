@@ -30,6 +30,11 @@ import nl.nn.adapterframework.util.Locker;
  */
 public class LockerPipeProcessor extends PipeProcessorBase {
 
+	@Override
+	protected boolean isActive(PipeLine pipeLine, IPipe pipe) {
+		return pipe instanceof IExtendedPipe && ((IExtendedPipe)pipe).getLocker() != null;
+	}
+
 	@Override
 	protected PipeRunResult processPipe(PipeLine pipeLine, IPipe pipe, Message message, PipeLineSession pipeLineSession, ThrowingFunction<Message, PipeRunResult,PipeRunException> chain) throws PipeRunException {
 		PipeRunResult pipeRunResult;
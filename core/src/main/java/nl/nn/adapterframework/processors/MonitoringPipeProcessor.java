@@ -15,6 +15,8 @@
 */
 package nl.nn.adapterframework.processors;
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.Logger;
 
@@ -27,6 +29,7 @@ import nl.nn.adapterframework.core.PipeRunResult;
 import nl.nn.adapterframework.functional.ThrowingFunction;
 import nl.nn.adapterframework.pipes.AbstractPipe;
 import nl.nn.adapterframework.statistics.StatisticsKeeper;
+import nl.nn.adapterframework.statistics.ThreadResourceMeter;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.util.AppConstants;
 import nl.nn.adapterframework.util.LogUtil;
@@ -47,7 +50,7 @@ public class MonitoringPipeProcessor extends PipeProcessorBase {
 			pe = (IExtendedPipe)pipe;
 		}
 
-		long pipeStartTime= System.currentTimeMillis();
+		long pipeStartTime= System.nanoTime();
 
 		if (log.isDebugEnabled()){  // for performance reasons
 			StringBuffer sb=new StringBuffer();
@@ -72,6 +75,7 @@ public class MonitoringPipeProcessor extends PipeProcessorBase {
 
 		// start it
 		long pipeDuration = -1;
+		ThreadResourceMeter resourceMeter = ThreadResourceMeter.start();
 
 		try {
 			pipeRunResult = chain.apply(message);
@@ -86,13 +90,16 @@ public class MonitoringPipeProcessor extends PipeProcessorBase {
 			}
 			throw new PipeRunException(pipe, "Uncaught runtime exception running pipe '" + (pipe==null?"null":pipe.getName()) + "'", re);
 		} finally {
-			long pipeEndTime = System.currentTimeMillis();
-			pipeDuration = pipeEndTime - pipeStartTime;
+			long pipeDurationNanos = System.nanoTime() - pipeStartTime;
+			pipeDuration = TimeUnit.NANOSECONDS.toMillis(pipeDurationNanos);
 			StatisticsKeeper sk = pipeLine.getPipeStatistics(pipe);
 			if (sk==null) {
 				log.warn("Could not get statistics for pipe [+"+pipe.getName()+"]");
 			} else {
-				sk.addValue(pipeDuration);
+				sk.addNanos(pipeDurationNanos);
+			}
+			if (resourceMeter!=null) {
+				resourceMeter.stop(pipeLine.getPipeCpuStatistics(pipe), pipeLine.getPipeAllocationStatistics(pipe));
 			}
 
 			if (pe!=null && pe.getDurationThreshold() >= 0 && pipeDuration > pe.getDurationThreshold()) {
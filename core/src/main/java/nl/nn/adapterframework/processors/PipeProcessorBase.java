@@ -44,13 +44,28 @@ public abstract class PipeProcessorBase implements PipeProcessor {
 
 	protected abstract PipeRunResult processPipe(PipeLine pipeLine, IPipe pipe, Message message, PipeLineSession pipeLineSession, ThrowingFunction<Message, PipeRunResult,PipeRunException> chain) throws PipeRunException;
 
+	/**
+	 * Returns <code>false</code> when this processor has nothing to do for the pipe, e.g. because the pipe does not use the feature
+	 * the processor implements. The call is then passed directly to the next processor, without creating the chain function.
+	 * Only properties that are fixed after configuration should be used, as this method is evaluated for each call.
+	 */
+	protected boolean isActive(PipeLine pipeLine, IPipe pipe) {
+		return true;
+	}
+
 	@Override
 	public PipeRunResult processPipe(PipeLine pipeLine, IPipe pipe, Message message, PipeLineSession pipeLineSession) throws PipeRunException {
+		if (!isActive(pipeLine, pipe)) {
+			return pipeProcessor.processPipe(pipeLine, pipe, message, pipeLineSession);
+		}
 		return processPipe(pipeLine, pipe, message, pipeLineSession, m -> pipeProcessor.processPipe(pipeLine, pipe, m, pipeLineSession));
 	}
 
 	@Override
 	public PipeRunResult validate(PipeLine pipeLine, IValidator validator, Message message, PipeLineSession pipeLineSession, String messageRoot) throws PipeRunException {
+		if (!isActive(pipeLine, validator)) {
+			return pipeProcessor.validate(pipeLine, validator, message, pipeLineSession, messageRoot);
+		}
 		return processPipe(pipeLine, validator, message, pipeLineSession, m -> pipeProcessor.validate(pipeLine, validator, m, pipeLineSession, messageRoot));
 	}
 
@@ -1,5 +1,5 @@
 /*
-   Copyright 2013 Nationale-Nederlanden, 2020-2022 WeAreFrank!
+   Copyright 2013 Nationale-Nederlanden, 2020-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -125,6 +125,22 @@ public class JavaListener implements IPushingListener<String>, RequestProcessor,
 
 	@Override
 	public String processRequest(String correlationId, String rawMessage, HashMap context) throws ListenerException {
+		try {
+			return processRequest(correlationId, rawMessage, new Message(rawMessage), context).asString();
+		} catch (IOException e) {
+			throw new ListenerException("cannot convert stream", e);
+		}
+	}
+
+	/**
+	 * Processes the message without converting it to a String, so streaming and binary messages are passed to the adapter as they are.
+	 * The caller becomes the owner of the returned Message, and must close it, for instance by scheduling it to be closed on exit of its own session.
+	 */
+	public Message processRequest(String correlationId, Message message, Map<String,Object> context) throws ListenerException {
+		return processRequest(correlationId, null, message, context);
+	}
+
+	private Message processRequest(String correlationId, String rawMessage, Message message, Map<String,Object> context) throws ListenerException {
 		if (!isOpen()) {
 			throw new ListenerException("JavaListener [" + getName() + "] is not opened");
 		}
@@ -142,27 +158,22 @@ public class JavaListener implements IPushingListener<String>, RequestProcessor,
 		}
 		try (PipeLineSession session = new PipeLineSession(context)) {
 			session.put(PipeLineSession.correlationIdKey, correlationId);
-			Message message =  new Message(rawMessage);
 			try {
+				// the result is unscheduled from the session by the handler, so it survives the close of the session
 				if (throwException) {
-					try {
-						return handler.processRequest(this, rawMessage, message, session).asString();
-					} catch (IOException e) {
-						throw new ListenerException("cannot convert stream", e);
-					}
+					return handler.processRequest(this, rawMessage, message, session);
 				}
 				try {
-					return handler.processRequest(this, rawMessage, message, session).asString();
-				} catch (ListenerException | IOException e) {
-					try {
-						return handler.formatException(null,correlationId, message, e).asString();
-					} catch (IOException e1) {
-						e.addSuppressed(e1);
-						throw new ListenerException(e);
-					}
+					return handler.processRequest(this, rawMessage, message, session);
+				} catch (ListenerException e) {
+					return handler.formatException(null,correlationId, message, e);
 				}
 			} finally {
 				Misc.copyContext(getReturnedSessionKeys(), session, context, this);
+				// the message is owned by the caller, pipes that scheduled it for close must not close it with the session of the called adapter
+				if (message != null) {
+					message.unscheduleFromCloseOnExitOf(session);
+				}
 			}
 		}
 	}
@@ -257,7 +268,8 @@ public class JavaListener implements IPushingListener<String>, RequestProcessor,
 
 	@Deprecated
 	/**
-	 * If set <code>false</code>, the request is executed asynchronously. N.B. be aware that there is no limit on the number of threads generated
+	 * If set <code>false</code>, the request is executed asynchronously. N.B. be aware that there is no limit on the number of threads generated.
+	 * To limit the number of threads, call the listener from an IbisLocalSender with <code>synchronous=false</code> and <code>maxAsyncThreads</code> set
 	 * @ff.default true
 	 */
 	public void setSynchronous(boolean b) {
@@ -1,5 +1,5 @@
 /*
-   Copyright 2013, 2015, 2016, 2018 Nationale-Nederlanden, 2020-2022 WeAreFrank!
+   Copyright 2013, 2015, 2016, 2018 Nationale-Nederlanden, 2020-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -1669,6 +1669,9 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 				hski.closeGroup(qstatData);
 			}
 
+			if (getListener() instanceof HasStatistics) {
+				((HasStatistics)getListener()).iterateOverStatistics(hski, recData, action);
+			}
 		} finally {
 			hski.closeGroup(recData);
 		}
@@ -2033,7 +2036,7 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 	 * The number of threads that this receiver is configured to work with.
 	 */
 	/**
-	 * The number of threads that may execute a Pipeline concurrently (only for pulling listeners)
+	 * The number of threads that may execute a Pipeline concurrently (only for pulling listeners and pushing listeners that support it, like the MqttListener)
 	 * @ff.default 1
 	 */
 	public void setNumThreads(int newNumThreads) {
@@ -1,5 +1,5 @@
 /*
-   Copyright 2013, 2018-2020 Nationale-Nederlanden, 2020, 2022 WeAreFrank!
+   Copyright 2013, 2018-2020 Nationale-Nederlanden, 2020, 2022-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -65,16 +65,9 @@ public class ServiceDispatcher  {
 	 * @since 4.3
 	 */
 	public String dispatchRequest(String serviceName, String request, PipeLineSession session) throws ListenerException {
-		log.debug("dispatchRequest for service [{}] correlationId [{}] message [{}]", serviceName, session.getCorrelationId(), request);
-
-		ServiceClient client = registeredListeners.get(serviceName);
-		if (client == null) {
-			throw new ListenerException("service ["+serviceName+"] is not registered");
-		}
-
 		String result;
 		try {
-			result = client.processRequest(new Message(request), session).asString();
+			result = dispatchRequest(serviceName, new Message(request), session).asString();
 		} catch (IOException e) {
 			throw new ListenerException(e);
 		}
@@ -85,6 +78,20 @@ public class ServiceDispatcher  {
 		return result;
 	}
 
+	/**
+	 * Dispatch a request, without converting it to a String. The caller becomes the owner of the returned Message.
+	 */
+	public Message dispatchRequest(String serviceName, Message request, PipeLineSession session) throws ListenerException {
+		log.debug("dispatchRequest for service [{}] correlationId [{}] message [{}]", serviceName, session.getCorrelationId(), request);
+
+		ServiceClient client = registeredListeners.get(serviceName);
+		if (client == null) {
+			throw new ListenerException("service ["+serviceName+"] is not registered");
+		}
+
+		return client.processRequest(request, session);
+	}
+
 	/**
 	 * Retrieve the names of the registered listeners in alphabetical order.
 	 * @return Iterator with the names.
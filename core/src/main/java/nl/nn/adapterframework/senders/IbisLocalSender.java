@@ -1,5 +1,5 @@
 /*
-   Copyright 2013, 2016-2018 Nationale-Nederlanden, 2020-2022 WeAreFrank!
+   Copyright 2013, 2016-2018 Nationale-Nederlanden, 2020-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.core.task.TaskRejectedException;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -38,9 +39,13 @@ import nl.nn.adapterframework.http.WebServiceListener;
 import nl.nn.adapterframework.pipes.IsolatedServiceCaller;
 import nl.nn.adapterframework.receivers.JavaListener;
 import nl.nn.adapterframework.receivers.ServiceDispatcher;
+import nl.nn.adapterframework.statistics.HasStatistics;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
 import nl.nn.adapterframework.stream.IThreadCreator;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.stream.ThreadLifeCycleEventListener;
+import nl.nn.adapterframework.task.BoundedTaskExecutor;
+import nl.nn.adapterframework.util.ClassUtils;
 import nl.nn.adapterframework.util.Misc;
 
 /**
@@ -92,7 +97,7 @@ import nl.nn.adapterframework.util.Misc;
  * @since  4.2
  */
 @Category("Basic")
-public class IbisLocalSender extends SenderWithParametersBase implements HasPhysicalDestination, IThreadCreator{
+public class IbisLocalSender extends SenderWithParametersBase implements HasPhysicalDestination, IThreadCreator, HasStatistics {
 
 	private final @Getter(onMethod = @__(@Override)) String domain = "Local";
 
@@ -107,6 +112,20 @@ public class IbisLocalSender extends SenderWithParametersBase implements HasPhys
 	private @Getter String returnedSessionKeys=""; // do not intialize with null, returned session keys must be set explicitly
 	private @Setter IsolatedServiceCaller isolatedServiceCaller;
 	private @Getter boolean throwJavaListenerNotFoundException = true;
+	private @Getter int maxAsyncThreads=0;
+	private @Getter int maxAsyncQueueSize=100;
+	private @Getter AsyncRejectionPolicy asyncRejectionPolicy=AsyncRejectionPolicy.BLOCK;
+
+	private BoundedTaskExecutor asyncTaskExecutor;
+
+	public enum AsyncRejectionPolicy {
+		/** Wait until there is room in the queue */
+		BLOCK,
+		/** Call the service in the thread of the caller, i.e. synchronously */
+		CALLER_RUNS,
+		/** Throw a SenderException */
+		FAIL
+	}
 
 	protected @Setter ThreadLifeCycleEventListener<Object> threadLifeCycleEventListener;
 
@@ -131,6 +150,13 @@ public class IbisLocalSender extends SenderWithParametersBase implements HasPhys
 			throw new ConfigurationException(getLogPrefix()+"unable to determine configuration");
 		}
 		configuration = (Configuration) getApplicationContext();
+
+		if (!isSynchronous() && getMaxAsyncThreads()>0) {
+			if (getMaxAsyncQueueSize()<0) {
+				throw new ConfigurationException(getLogPrefix()+"maxAsyncQueueSize cannot be negative");
+			}
+			asyncTaskExecutor = new BoundedTaskExecutor(isolatedServiceCaller.getTaskExecutor(), "asynchronous calls of "+ClassUtils.nameOf(this), getMaxAsyncThreads(), getMaxAsyncQueueSize(), getAsyncRejectionPolicy()==AsyncRejectionPolicy.BLOCK);
+		}
 	}
 
 	@Override
@@ -220,14 +246,15 @@ public class IbisLocalSender extends SenderWithParametersBase implements HasPhys
 							result = isolatedServiceCaller.callServiceIsolated(getServiceName(), message, context, false, threadLifeCycleEventListener);
 						} else {
 							log.debug(getLogPrefix()+"calling "+serviceIndication+" in asynchronously");
-							isolatedServiceCaller.callServiceAsynchronous(getServiceName(), message, context, false, threadLifeCycleEventListener);
+							preserveForAsynchronousCall(message);
+							callServiceAsynchronous(getServiceName(), false, correlationID, message, context);
 							result = new SenderResult(message);
 						}
 					} else {
 						log.debug(getLogPrefix()+"calling "+serviceIndication+" in same Thread");
-						result = new SenderResult(ServiceDispatcher.getInstance().dispatchRequest(getServiceName(), message.asString(), context));
+						result = new SenderResult(ServiceDispatcher.getInstance().dispatchRequest(getServiceName(), message, context));
 					}
-				} catch (ListenerException | IOException e) {
+				} catch (ListenerException e) {
 					if (ExceptionUtils.getRootCause(e) instanceof TimeoutException) {
 						throw new TimeoutException(getLogPrefix()+"timeout calling "+serviceIndication+"",e);
 					}
@@ -237,6 +264,8 @@ public class IbisLocalSender extends SenderWithParametersBase implements HasPhys
 						log.debug("returning values of session keys ["+getReturnedSessionKeys()+"]");
 					}
 					Misc.copyContext(getReturnedSessionKeys(), context, session, this);
+					// the message is owned by the caller, it must not be closed on exit of the session of the called adapter
+					message.unscheduleFromCloseOnExitOf(context);
 				}
 			} else {
 				String javaListener;
@@ -266,14 +295,15 @@ public class IbisLocalSender extends SenderWithParametersBase implements HasPhys
 							result = isolatedServiceCaller.callServiceIsolated(javaListener, message, context, true, threadLifeCycleEventListener);
 						} else {
 							log.debug(getLogPrefix()+"calling "+serviceIndication+" in asynchronously");
-							isolatedServiceCaller.callServiceAsynchronous(javaListener, message, context, true, threadLifeCycleEventListener);
+							preserveForAsynchronousCall(message);
+							callServiceAsynchronous(javaListener, true, correlationID, message, context);
 							result = new SenderResult(message);
 						}
 					} else {
 						log.debug(getLogPrefix()+"calling "+serviceIndication+" in same Thread");
-						result = new SenderResult(listener.processRequest(correlationID,message.asString(),context));
+						result = new SenderResult(listener.processRequest(correlationID, message, context));
 					}
-				} catch (ListenerException | IOException e) {
+				} catch (ListenerException e) {
 					if (ExceptionUtils.getRootCause(e) instanceof TimeoutException) {
 						throw new TimeoutException(getLogPrefix()+"timeout calling "+serviceIndication,e);
 					}
@@ -283,9 +313,15 @@ public class IbisLocalSender extends SenderWithParametersBase implements HasPhys
 						log.debug("returning values of session keys ["+getReturnedSessionKeys()+"]");
 					}
 					Misc.copyContext(getReturnedSessionKeys(), context, session, this);
+					// the message is owned by the caller, it must not be closed on exit of the session of the called adapter
+					message.unscheduleFromCloseOnExitOf(context);
 				}
 			}
 
+			if (session!=null && result.getResult()!=null && result.getResult()!=message) {
+				// the result is handed over by the called adapter, and can be a stream that needs to be closed
+				result.getResult().closeOnCloseOf(session, this);
+			}
 			ExitState exitState = (ExitState)context.remove(PipeLineSession.EXIT_STATE_CONTEXT_KEY);
 			Object exitCode = context.remove(PipeLineSession.EXIT_CODE_CONTEXT_KEY);
 			String forwardName = exitCode !=null ? exitCode.toString() : null;
@@ -296,6 +332,50 @@ public class IbisLocalSender extends SenderWithParametersBase implements HasPhys
 		}
 	}
 
+	/*
+	 * The asynchronously called adapter reads the message while the caller returns it as its result, so both must be able to read it.
+	 */
+	private void preserveForAsynchronousCall(Message message) throws SenderException {
+		try {
+			message.preserve();
+		} catch (IOException e) {
+			throw new SenderException(getLogPrefix()+"cannot preserve message for asynchronous call", e);
+		}
+	}
+
+	private void callServiceAsynchronous(String target, boolean targetIsJavaListener, String correlationID, Message message, PipeLineSession context) throws ListenerException, SenderException {
+		if (asyncTaskExecutor==null) {
+			isolatedServiceCaller.callServiceAsynchronous(target, message, context, targetIsJavaListener, threadLifeCycleEventListener);
+			return;
+		}
+		try {
+			isolatedServiceCaller.callServiceAsynchronous(target, message, context, targetIsJavaListener, threadLifeCycleEventListener, asyncTaskExecutor);
+		} catch (TaskRejectedException e) {
+			if (getAsyncRejectionPolicy()!=AsyncRejectionPolicy.CALLER_RUNS) {
+				throw new SenderException(getLogPrefix()+"cannot call ["+target+"] asynchronously", e);
+			}
+			log.debug(getLogPrefix()+"no room to call ["+target+"] asynchronously, calling in same Thread");
+			Message result;
+			if (targetIsJavaListener) {
+				result = JavaListener.getListener(target).processRequest(correlationID, message, context);
+			} else {
+				result = ServiceDispatcher.getInstance().dispatchRequest(target, message, context);
+			}
+			try {
+				result.close();
+			} catch (Exception e2) {
+				log.warn(getLogPrefix()+"cannot close result of ["+target+"]", e2);
+			}
+		}
+	}
+
+	@Override
+	public <D> void iterateOverStatistics(StatisticsKeeperIterationHandler<D> hski, D data, Action action) throws SenderException {
+		if (asyncTaskExecutor!=null) {
+			asyncTaskExecutor.iterateOverStatistics(hski, data, action);
+		}
+	}
+
 	/** Name of the {@link WebServiceListener} that should be called */
 	@Deprecated
 	public void setServiceName(String serviceName) {
@@ -352,6 +432,31 @@ public class IbisLocalSender extends SenderWithParametersBase implements HasPhys
 		dependencyTimeOut = i;
 	}
 
+	/**
+	 * Only used when <code>synchronous=false</code>. Maximum number of threads that call the service asynchronously at the same time.
+	 * Calls that arrive when all threads are busy are queued. Use 0 for no limit, i.e. one thread per call
+	 * @ff.default 0
+	 */
+	public void setMaxAsyncThreads(int maxAsyncThreads) {
+		this.maxAsyncThreads = maxAsyncThreads;
+	}
+
+	/**
+	 * Only used when <code>maxAsyncThreads</code> is set. Maximum number of asynchronous calls that wait for a thread
+	 * @ff.default 100
+	 */
+	public void setMaxAsyncQueueSize(int maxAsyncQueueSize) {
+		this.maxAsyncQueueSize = maxAsyncQueueSize;
+	}
+
+	/**
+	 * Only used when <code>maxAsyncThreads</code> is set. Determines what happens to an asynchronous call when the queue is full
+	 * @ff.default BLOCK
+	 */
+	public void setAsyncRejectionPolicy(AsyncRejectionPolicy asyncRejectionPolicy) {
+		this.asyncRejectionPolicy = asyncRejectionPolicy;
+	}
+
 	/**
 	 * If set <code>false</code>, the xml-string \"&lt;error&gt;could not find JavaListener [...]&lt;/error&gt;\" is returned instead of throwing a senderexception
 	 * @ff.default true
@@ -21,6 +21,7 @@ import nl.nn.adapterframework.core.ISender;
 import nl.nn.adapterframework.core.PipeLineSession;
 import nl.nn.adapterframework.core.RequestReplyExecutor;
 import nl.nn.adapterframework.statistics.StatisticsKeeper;
+import nl.nn.adapterframework.statistics.ThreadResourceMeter;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.util.Guard;
 import nl.nn.adapterframework.util.LogUtil;
@@ -33,6 +34,8 @@ public class ParallelSenderExecutor extends RequestReplyExecutor {
 	private Semaphore semaphore; // supports to limit the number of threads processing in parallel, may be null
 	private Guard guard;         // supports to wait for all threads to have ended
 	private StatisticsKeeper sk;
+	private StatisticsKeeper cpuStatistics;
+	private StatisticsKeeper allocationStatistics;
 
 	public ParallelSenderExecutor(ISender sender, Message message, PipeLineSession session, Guard guard, StatisticsKeeper sk) {
 		this(sender, message, session, null, guard, sk);
@@ -49,10 +52,19 @@ public class ParallelSenderExecutor extends RequestReplyExecutor {
 		correlationID = session.getCorrelationId();
 	}
 
+	/**
+	 * Sets the statistics for the CPU time and allocated bytes of the sender, that are measured in the thread that executes it.
+	 */
+	public void setResourceUsageStatistics(StatisticsKeeper cpuStatistics, StatisticsKeeper allocationStatistics) {
+		this.cpuStatistics = cpuStatistics;
+		this.allocationStatistics = allocationStatistics;
+	}
+
 	@Override
 	public void run() {
 		try {
-			long t1 = System.currentTimeMillis();
+			ThreadResourceMeter resourceMeter = cpuStatistics!=null || allocationStatistics!=null ? ThreadResourceMeter.start() : null;
+			long t1 = System.nanoTime();
 			try {
 				reply = sender.sendMessage(request,session);
 				reply.getResult().preserve(); // consume the message immediately, to release any resources (like connections) associated with the sender execution
@@ -60,8 +72,11 @@ public class ParallelSenderExecutor extends RequestReplyExecutor {
 				throwable = tr;
 				log.warn("SenderExecutor caught exception",tr);
 			}
-			long t2 = System.currentTimeMillis();
-			sk.addValue(t2-t1);
+			long t2 = System.nanoTime();
+			sk.addNanos(t2-t1);
+			if (resourceMeter!=null) {
+				resourceMeter.stop(cpuStatistics, allocationStatistics);
+			}
 		} finally {
 			if (semaphore!=null) {
 				semaphore.release();
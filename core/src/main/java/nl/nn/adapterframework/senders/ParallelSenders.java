@@ -87,6 +87,7 @@ public class ParallelSenders extends SenderSeries {
 			// XsltSender and IbisLocalSender).
 
 			ParallelSenderExecutor pse = new ParallelSenderExecutor(sender, message, session, guard, getStatisticsKeeper(sender));
+			pse.setResourceUsageStatistics(getCpuStatisticsKeeper(sender), getAllocationStatisticsKeeper(sender));
 			executorMap.put(sender, pse);
 
 			executor.execute(pse);
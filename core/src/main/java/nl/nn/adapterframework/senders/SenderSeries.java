@@ -29,8 +29,10 @@ import nl.nn.adapterframework.core.SenderException;
 import nl.nn.adapterframework.core.SenderResult;
 import nl.nn.adapterframework.core.TimeoutException;
 import nl.nn.adapterframework.statistics.HasStatistics;
+import nl.nn.adapterframework.statistics.SizeStatisticsKeeper;
 import nl.nn.adapterframework.statistics.StatisticsKeeper;
 import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
+import nl.nn.adapterframework.statistics.ThreadResourceMeter;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.util.ClassUtils;
 
@@ -44,6 +46,8 @@ public class SenderSeries extends SenderWrapperBase {
 
 	private List<ISender> senderList = new LinkedList<>();
 	private Map<ISender, StatisticsKeeper> statisticsMap = new HashMap<>();
+	private Map<ISender, StatisticsKeeper> cpuStatisticsMap = new HashMap<>();
+	private Map<ISender, StatisticsKeeper> allocationStatisticsMap = new HashMap<>();
 	private @Getter @Setter boolean synchronous=true;
 
 	@Override
@@ -79,17 +83,21 @@ public class SenderSeries extends SenderWrapperBase {
 	public SenderResult doSendMessage(Message message, PipeLineSession session) throws SenderException, TimeoutException {
 		String correlationID = session==null ? null : session.getCorrelationId();
 		SenderResult result=null;
-		long t1 = System.currentTimeMillis();
+		long t1 = System.nanoTime();
 		for (ISender sender: getSenders()) {
 			if (log.isDebugEnabled()) log.debug(getLogPrefix()+"sending correlationID ["+correlationID+"] message ["+message+"] to sender ["+sender.getName()+"]");
+			ThreadResourceMeter resourceMeter = ThreadResourceMeter.start();
 			result = sender.sendMessage(message, session);
+			if (resourceMeter!=null) {
+				resourceMeter.stop(getCpuStatisticsKeeper(sender), getAllocationStatisticsKeeper(sender));
+			}
 			if (!result.isSuccess()) {
 				return result;
 			}
 			message = result.getResult();
-			long t2 = System.currentTimeMillis();
+			long t2 = System.nanoTime();
 			StatisticsKeeper sk = getStatisticsKeeper(sender);
-			sk.addValue(t2-t1);
+			sk.addNanos(t2-t1);
 			t1=t2;
 		}
 		return result!=null ? result : new SenderResult(message);
@@ -100,10 +108,19 @@ public class SenderSeries extends SenderWrapperBase {
 		//Object senderData=hski.openGroup(data,getName(),"sender");
 		for (ISender sender: getSenders()) {
 			hski.handleStatisticsKeeper(data,getStatisticsKeeper(sender));
+			if (getCpuStatisticsKeeper(sender)!=null) {
+				hski.handleStatisticsKeeper(data,getCpuStatisticsKeeper(sender));
+			}
+			if (getAllocationStatisticsKeeper(sender)!=null) {
+				hski.handleStatisticsKeeper(data,getAllocationStatisticsKeeper(sender));
+			}
 			if (sender instanceof HasStatistics) {
 				((HasStatistics)sender).iterateOverStatistics(hski,data,action);
 			}
 		}
+		if (getCache() instanceof HasStatistics) {
+			((HasStatistics)getCache()).iterateOverStatistics(hski,data,action);
+		}
 		//hski.closeGroup(senderData);
 	}
 
@@ -135,6 +152,12 @@ public class SenderSeries extends SenderWrapperBase {
 		senderList.add(sender);
 		setSynchronous(sender.isSynchronous()); // set synchronous to isSynchronous of the last Sender added
 		statisticsMap.put(sender, new StatisticsKeeper("-> "+ClassUtils.nameOf(sender)));
+		if (ThreadResourceMeter.isEnabled()) {
+			cpuStatisticsMap.put(sender, new StatisticsKeeper("-> "+ClassUtils.nameOf(sender)+" (cpu)"));
+			if (ThreadResourceMeter.isAllocationMeasured()) {
+				allocationStatisticsMap.put(sender, new SizeStatisticsKeeper("-> "+ClassUtils.nameOf(sender)+" (allocated)"));
+			}
+		}
 	}
 
 	protected Iterable<ISender> getSenders() {
@@ -143,5 +166,11 @@ public class SenderSeries extends SenderWrapperBase {
 	protected StatisticsKeeper getStatisticsKeeper(ISender sender) {
 		return statisticsMap.get(sender);
 	}
+	protected StatisticsKeeper getCpuStatisticsKeeper(ISender sender) {
+		return cpuStatisticsMap.get(sender);
+	}
+	protected StatisticsKeeper getAllocationStatisticsKeeper(ISender sender) {
+		return allocationStatisticsMap.get(sender);
+	}
 
 }
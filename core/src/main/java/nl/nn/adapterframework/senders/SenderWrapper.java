@@ -72,6 +72,9 @@ public class SenderWrapper extends SenderWrapperBase {
 		if (getSender() instanceof HasStatistics) {
 			((HasStatistics)getSender()).iterateOverStatistics(hski,data,action);
 		}
+		if (getCache() instanceof HasStatistics) {
+			((HasStatistics)getCache()).iterateOverStatistics(hski,data,action);
+		}
 	}
 
 	@Override
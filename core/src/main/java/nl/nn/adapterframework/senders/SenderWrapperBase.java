@@ -15,6 +15,8 @@
 */
 package nl.nn.adapterframework.senders;
 
+import java.io.Serializable;
+
 import org.apache.commons.lang3.StringUtils;
 
 import lombok.Getter;
@@ -36,7 +38,7 @@ import nl.nn.adapterframework.stream.Message;
  * @author  Gerrit van Brakel
  * @since   4.9
  */
-public abstract class SenderWrapperBase extends SenderWithParametersBase implements HasStatistics, ICacheEnabled<String,String> {
+public abstract class SenderWrapperBase extends SenderWithParametersBase implements HasStatistics, ICacheEnabled<String,Serializable> {
 
 	private @Getter String getInputFromSessionKey;
 	private @Getter String getInputFromFixedValue=null;
@@ -45,7 +47,7 @@ public abstract class SenderWrapperBase extends SenderWithParametersBase impleme
 	private @Getter boolean preserveInput=false;
 
 	protected @Setter SenderWrapperProcessor senderWrapperProcessor;
-	private @Getter @Setter ICache<String,String> cache=null;
+	private @Getter @Setter ICache<String,Serializable> cache=null;
 
 	@Override
 	public void configure() throws ConfigurationException {
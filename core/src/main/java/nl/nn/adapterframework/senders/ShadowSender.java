@@ -114,6 +114,7 @@ public class ShadowSender extends ParallelSenders {
 	protected void executeGuarded(ISender sender, Message message, PipeLineSession session, Guard guard, Map<ISender, ParallelSenderExecutor> executorMap) {
 		guard.addResource();
 		ParallelSenderExecutor pse = new ParallelSenderExecutor(sender, message, session, guard, getStatisticsKeeper(sender));
+		pse.setResourceUsageStatistics(getCpuStatisticsKeeper(sender), getAllocationStatisticsKeeper(sender));
 		executorMap.put(sender, pse);
 		getExecutor().execute(pse);
 
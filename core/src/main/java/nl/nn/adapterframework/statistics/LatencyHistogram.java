@@ -0,0 +1,162 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.statistics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of durations in nanoseconds, in the style of HdrHistogram.
+ * <p>
+ * Each power of two range is divided in a fixed number of equally sized sub-buckets, so that every recorded value is kept
+ * with a relative error of at most 1/{@value #SUB_BUCKET_COUNT}, from nanoseconds up to {@link #MAX_TRACKABLE_VALUE}. Larger values
+ * are counted in the highest bucket. Memory usage is fixed at a few kilobytes, recording is lock free, and histograms can be
+ * merged and subtracted to obtain totals over a group or the values recorded in an interval.
+ * </p>
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+
+	public static final long MAX_TRACKABLE_VALUE = TimeUnit.HOURS.toNanos(1);
+	private static final int BUCKET_COUNT = getIndex(MAX_TRACKABLE_VALUE) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long nanos) {
+		long value = Math.max(nanos, 0);
+		counts.incrementAndGet(getIndex(Math.min(value, MAX_TRACKABLE_VALUE)));
+		totalCount.incrementAndGet();
+		sum.addAndGet(value);
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	/**
+	 * Values below {@value #SUB_BUCKET_COUNT} have a bucket of their own. Higher values are shifted right until they fit in the upper half
+	 * of the sub-buckets, and each shift opens a new range of {@value #HALF_SUB_BUCKET_COUNT} buckets.
+	 */
+	private static int getIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int)value;
+		}
+		int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int subBucket = (int)(value >>> shift);
+		return SUB_BUCKET_COUNT + (shift-1) * HALF_SUB_BUCKET_COUNT + (subBucket - HALF_SUB_BUCKET_COUNT);
+	}
+
+	private static long getLowestValue(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+		long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+		return subBucket << shift;
+	}
+
+	private static long getHighestValue(int index) {
+		return getLowestValue(index+1) - 1;
+	}
+
+	/**
+	 * Returns the value below or at which <code>percentile</code> percent of the recorded values are found, in nanoseconds.
+	 * The value is the midpoint of the bucket that holds the requested rank, but never more than the maximum recorded value.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long count = getCount();
+		if (count==0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long)Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+		if (rank >= count) {
+			return getMax();
+		}
+		long seen = 0;
+		for (int i=0; i<BUCKET_COUNT; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				long lowest = getLowestValue(i);
+				return Math.min(lowest + (getHighestValue(i) - lowest) / 2, getMax());
+			}
+		}
+		return getMax();
+	}
+
+	public long getCount() {
+		return totalCount.get();
+	}
+
+	public long getSum() {
+		return sum.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+		long count = getCount();
+		return count==0 ? 0 : (double)getSum() / count;
+	}
+
+	/**
+	 * Adds all values recorded in <code>other</code> to this histogram.
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i=0; i<BUCKET_COUNT; i++) {
+			long count = other.counts.get(i);
+			if (count!=0) {
+				counts.addAndGet(i, count);
+			}
+		}
+		totalCount.addAndGet(other.getCount());
+		sum.addAndGet(other.getSum());
+		max.accumulateAndGet(other.getMax(), Math::max);
+	}
+
+	public LatencyHistogram copy() {
+		LatencyHistogram result = new LatencyHistogram();
+		result.add(this);
+		return result;
+	}
+
+	/**
+	 * Returns a histogram of the values that were recorded after <code>mark</code> was copied from this histogram.
+	 * The maximum of the result is estimated from the highest bucket that received values.
+	 */
+	public LatencyHistogram intervalSince(LatencyHistogram mark) {
+		LatencyHistogram result = new LatencyHistogram();
+		int highestIndex = -1;
+		for (int i=0; i<BUCKET_COUNT; i++) {
+			long count = counts.get(i) - mark.counts.get(i);
+			if (count>0) {
+				result.counts.set(i, count);
+				highestIndex = i;
+			}
+		}
+		result.totalCount.set(getCount() - mark.getCount());
+		result.sum.set(getSum() - mark.getSum());
+		if (highestIndex>=0) {
+			result.max.set(Math.min(getHighestValue(highestIndex), getMax()));
+		}
+		return result;
+	}
+}
@@ -22,6 +22,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.Logger;
 
@@ -72,6 +73,10 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 	public static final String HISTOGRAM_PUBLISH_KEY="Statistics.histograms.publish";
 	public static final String PERCENTILES_INTERNAL_KEY="Statistics.percentiles.internal";
 	public static final String PERCENTILE_PRECISION_KEY="Statistics.percentiles.precision";
+	public static final String HIGH_RESOLUTION_KEY="Statistics.highResolution";
+
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final int SUB_MILLISECOND_BUCKETS = 100;
 
 	private boolean publishPercentiles;
 	private boolean publishHistograms;
@@ -79,6 +84,8 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 	private int percentilePrecision;
 
 	protected PercentileEstimator pest;
+	private LatencyHistogram histogram;
+	private LatencyHistogram histogramMark;
 
 	private DistributionSummary distributionSummary;
 
@@ -127,6 +134,9 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 			}
 			if (publishHistograms) {
 				builder.publishPercentileHistogram();
+				if (histogram!=null) {
+					builder.minimumExpectedValue(1.0/SUB_MILLISECOND_BUCKETS);
+				}
 			}
 		}
 		DistributionSummary distributionSummary = builder.register(registry);
@@ -160,6 +170,9 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 		calculatePercentiles = appConstants.getBoolean(PERCENTILES_INTERNAL_KEY, false);
 		percentilePrecision = appConstants.getInt(PERCENTILE_PRECISION_KEY, 1);
 		initialize(name, basics, boundariesTokenizer, publishPercentiles, publishHistograms, calculatePercentiles, percentilePrecision);
+		if (appConstants.getBoolean(HIGH_RESOLUTION_KEY, false) && "ms".equals(getUnits())) {
+			enableHighResolution();
+		}
 	}
 
 	public StatisticsKeeper(String name, B basics, StringTokenizer boundariesTokenizer, boolean publishPercentiles, boolean publishHistograms, boolean calculatePercentiles, int percentilePrecision) {
@@ -199,6 +212,23 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 		}
 	}
 
+	/**
+	 * Keeps the durations with nanosecond resolution in a {@link LatencyHistogram}, that provides the percentiles.
+	 * Only durations that are recorded using {@link #addNanos(long)} take advantage of the higher resolution.
+	 */
+	protected void enableHighResolution() {
+		histogram = new LatencyHistogram();
+		histogramMark = histogram.copy();
+		if (pest==null) {
+			calculatePercentiles = true;
+			pest = new PercentileEstimatorRanked(percentileConfigKey,DEFAULT_P_LIST,100);
+		}
+	}
+
+	public boolean isHighResolution() {
+		return histogram!=null;
+	}
+
 	public String getUnits() {
 		return "ms";
 	}
@@ -209,13 +239,32 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 		}
 		if (action==Action.MARK_FULL || action==Action.MARK_MAIN) {
 			mark = cumulative.takeSnapshot();
+			if (histogram!=null) {
+				histogramMark = histogram.copy();
+			}
 		}
 	}
 
 
 	public void addValue(long value) {
+		addValue(value, TimeUnit.MILLISECONDS.toNanos(value));
+	}
+
+	/**
+	 * Records a duration measured with {@link System#nanoTime()}. The min, max, average and class counts are kept in milliseconds,
+	 * the percentiles and the exported metrics keep the full resolution when <code>Statistics.highResolution</code> is set.
+	 */
+	public void addNanos(long nanos) {
+		addValue(TimeUnit.NANOSECONDS.toMillis(nanos), nanos);
+	}
+
+	private void addValue(long value, long nanos) {
 		if (distributionSummary!=null) {
-			distributionSummary.record(value);
+			if (histogram!=null) {
+				distributionSummary.record(nanos/NANOS_PER_MILLI);
+			} else {
+				distributionSummary.record(value);
+			}
 		}
 		if (first==Long.MIN_VALUE) {
 			first=value;
@@ -225,7 +274,9 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 		long curMax=cumulative.getMax();
 		cumulative.addValue(value);
 		cumulative.updateIntervalMinMax(mark, value);
-		if (calculatePercentiles) {
+		if (histogram!=null) {
+			histogram.record(nanos);
+		} else if (calculatePercentiles) {
 			pest.addValue(value,cumulative.getCount(),curMin,curMax);
 		}
 
@@ -252,6 +303,9 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 		return NUM_STATIC_ITEMS+classBoundaries.length;
 	}
 	public int getIntervalItemCount() {
+		if (histogram!=null) {
+			return NUM_INTERVAL_ITEMS+pest.getNumPercentiles();
+		}
 		return NUM_INTERVAL_ITEMS;
 	}
 
@@ -281,7 +335,11 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 			case 3: return ITEM_NAME_AVERAGE;
 			case 4: return ITEM_NAME_SUM;
 			case 5: return ITEM_NAME_SUMSQ;
-			default: return null;
+			default:
+				if (histogram!=null && index-NUM_INTERVAL_ITEMS < pest.getNumPercentiles()) {
+					return "p"+pest.getPercentage(index-NUM_INTERVAL_ITEMS);
+				}
+				return null;
 		}
 	}
 
@@ -323,7 +381,7 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 			case 3: return Type.TIME;
 			case 4: return Type.INTEGER;
 			case 5: return Type.INTEGER;
-			default : return Type.INTEGER;
+			default : return histogram!=null ? Type.TIME : Type.INTEGER;
 		}
 	}
 
@@ -339,6 +397,9 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 				if ((index-NUM_STATIC_ITEMS) < classBoundaries.length) {
 					return new Double(new Double(classCounts[index-NUM_STATIC_ITEMS]).doubleValue()/getCount());
 				}
+				if (histogram!=null) {
+					return histogram.getValueAtPercentile(pest.getPercentage(index-NUM_STATIC_ITEMS-classBoundaries.length))/NANOS_PER_MILLI;
+				}
 				if (calculatePercentiles) {
 					return new Double(pest.getPercentileEstimate(index-NUM_STATIC_ITEMS-classBoundaries.length,getCount(),getMin(),getMax()));
 				}
@@ -354,7 +415,13 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 			case 3: if (cumulative.getIntervalCount(mark) == 0) return null; return new Double(cumulative.getIntervalAverage(mark));
 			case 4: return new Long(cumulative.getIntervalSum(mark));
 			case 5: return new Long(cumulative.getIntervalSumOfSquares(mark));
-			default : return null;
+			default :
+				if (histogram==null || index-NUM_INTERVAL_ITEMS >= pest.getNumPercentiles()) {
+					return null;
+				}
+				LatencyHistogram interval = histogram.intervalSince(histogramMark);
+				if (interval.getCount()==0) return null;
+				return interval.getValueAtPercentile(pest.getPercentage(index-NUM_INTERVAL_ITEMS))/NANOS_PER_MILLI;
 		}
 	}
 
@@ -492,6 +559,13 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 		return name;
 	}
 
+	/**
+	 * Returns the nanosecond resolution histogram, or <code>null</code> when <code>Statistics.highResolution</code> is not set.
+	 */
+	public LatencyHistogram getHistogram() {
+		return histogram;
+	}
+
 	public double getStdDev() {
 		return Math.sqrt(getVariance());
 	}
@@ -0,0 +1,142 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.statistics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.apache.logging.log4j.Logger;
+
+import nl.nn.adapterframework.util.AppConstants;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * Measures the CPU time used and the bytes allocated by the current thread between {@link #start()} and {@link #stop(StatisticsKeeper, StatisticsKeeper)},
+ * using the {@link ThreadMXBean} of the JVM.
+ * <p>
+ * Measurement is enabled by setting <code>Statistics.resourceUsage=true</code>, and only when the JVM supports thread CPU time measurement.
+ * Allocated bytes are only available on JVMs that provide <code>com.sun.management.ThreadMXBean</code>, like HotSpot and OpenJ9.
+ * Work that is handed off to other threads is not included in the figures of the thread that started it.
+ * </p>
+ */
+public class ThreadResourceMeter {
+	private static Logger log = LogUtil.getLogger(ThreadResourceMeter.class);
+
+	public static final String RESOURCE_USAGE_KEY="Statistics.resourceUsage";
+
+	private static final Probe PROBE = new Probe(AppConstants.getInstance().getBoolean(RESOURCE_USAGE_KEY, false), ManagementFactory.getThreadMXBean());
+
+	private final Probe probe;
+	private final long startCpuTime;
+	private final long startAllocatedBytes;
+
+	private ThreadResourceMeter(Probe probe) {
+		this.probe = probe;
+		startCpuTime = probe.getCurrentThreadCpuTime();
+		startAllocatedBytes = probe.getCurrentThreadAllocatedBytes();
+	}
+
+	public static boolean isEnabled() {
+		return PROBE.isEnabled();
+	}
+
+	public static boolean isAllocationMeasured() {
+		return PROBE.isAllocationMeasured();
+	}
+
+	/**
+	 * Starts a measurement for the current thread, or returns <code>null</code> when resource usage statistics are not enabled.
+	 */
+	public static ThreadResourceMeter start() {
+		return PROBE.start();
+	}
+
+	/**
+	 * Adds the CPU time and allocated bytes since the start of this measurement to the statistics. Must be called in the thread that started it.
+	 * Either statistics keeper may be <code>null</code>.
+	 */
+	public void stop(StatisticsKeeper cpuStatistics, StatisticsKeeper allocationStatistics) {
+		if (cpuStatistics!=null) {
+			cpuStatistics.addNanos(probe.getCurrentThreadCpuTime() - startCpuTime);
+		}
+		if (allocationStatistics!=null && startAllocatedBytes>=0) {
+			allocationStatistics.addValue(probe.getCurrentThreadAllocatedBytes() - startAllocatedBytes);
+		}
+	}
+
+	/**
+	 * Access to the thread resource counters of the JVM, enabled once when resource usage statistics are switched on.
+	 */
+	static class Probe {
+		private final ThreadMXBean threadMXBean;
+		private final com.sun.management.ThreadMXBean extendedThreadMXBean;
+		private final boolean enabled;
+
+		Probe(boolean enabled, ThreadMXBean threadMXBean) {
+			com.sun.management.ThreadMXBean extendedThreadMXBean = null;
+			if (enabled) {
+				try {
+					if (threadMXBean.isCurrentThreadCpuTimeSupported()) {
+						if (!threadMXBean.isThreadCpuTimeEnabled()) {
+							threadMXBean.setThreadCpuTimeEnabled(true);
+						}
+					} else {
+						log.warn("thread CPU time measurement is not supported by this JVM, resource usage statistics are disabled");
+						enabled = false;
+					}
+					if (enabled && threadMXBean instanceof com.sun.management.ThreadMXBean) {
+						com.sun.management.ThreadMXBean candidate = (com.sun.management.ThreadMXBean)threadMXBean;
+						if (candidate.isThreadAllocatedMemorySupported()) {
+							if (!candidate.isThreadAllocatedMemoryEnabled()) {
+								candidate.setThreadAllocatedMemoryEnabled(true);
+							}
+							extendedThreadMXBean = candidate;
+						}
+					}
+				} catch (UnsupportedOperationException | SecurityException e) {
+					log.warn("cannot enable thread resource usage measurement, resource usage statistics are disabled", e);
+					enabled = false;
+				}
+			}
+			this.threadMXBean = threadMXBean;
+			this.enabled = enabled;
+			this.extendedThreadMXBean = extendedThreadMXBean;
+		}
+
+		boolean isEnabled() {
+			return enabled;
+		}
+
+		boolean isAllocationMeasured() {
+			return extendedThreadMXBean!=null;
+		}
+
+		ThreadResourceMeter start() {
+			return enabled ? new ThreadResourceMeter(this) : null;
+		}
+
+		private long getCurrentThreadCpuTime() {
+			return threadMXBean.getCurrentThreadCpuTime();
+		}
+
+		private long getCurrentThreadAllocatedBytes() {
+			if (extendedThreadMXBean==null) {
+				return -1;
+			}
+			return extendedThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+	}
+}
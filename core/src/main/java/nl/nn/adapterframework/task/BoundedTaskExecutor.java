@@ -0,0 +1,164 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.task;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import lombok.Getter;
+import nl.nn.adapterframework.core.SenderException;
+import nl.nn.adapterframework.statistics.HasStatistics;
+import nl.nn.adapterframework.statistics.StatisticsKeeper;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * TaskExecutor that runs at most <code>maxThreads</code> tasks at the same time on the threads of another TaskExecutor.
+ * Tasks that arrive when all threads are busy are queued, up to <code>maxQueueSize</code> tasks. A thread that finishes
+ * a task picks up the next queued task, so no more threads are requested from the underlying TaskExecutor than allowed.
+ * <p>
+ * When the queue is full, {@link #execute(Runnable)} either waits until there is room in the queue, or throws a {@link TaskRejectedException}.
+ * </p>
+ */
+public class BoundedTaskExecutor implements TaskExecutor, HasStatistics {
+	private Logger log = LogUtil.getLogger(this);
+
+	private final TaskExecutor taskExecutor;
+	private final @Getter String name;
+	private final @Getter int maxThreads;
+	private final @Getter int maxQueueSize;
+	private final @Getter boolean blockWhenFull;
+
+	private final Deque<QueuedTask> queue = new ArrayDeque<>();
+	private int activeThreads = 0;
+	private long maxQueueDepth = 0;
+	private long rejectedCount = 0;
+	private final StatisticsKeeper waitStatistics;
+
+	private static class QueuedTask {
+		private final Runnable task;
+		private final long queuedAt = System.nanoTime();
+
+		QueuedTask(Runnable task) {
+			this.task = task;
+		}
+	}
+
+	public BoundedTaskExecutor(TaskExecutor taskExecutor, String name, int maxThreads, int maxQueueSize, boolean blockWhenFull) {
+		if (maxThreads < 1) {
+			throw new IllegalArgumentException("maxThreads must be at least 1");
+		}
+		if (maxQueueSize < 0) {
+			throw new IllegalArgumentException("maxQueueSize must not be negative");
+		}
+		this.taskExecutor = taskExecutor;
+		this.name = name;
+		this.maxThreads = maxThreads;
+		this.maxQueueSize = maxQueueSize;
+		this.blockWhenFull = blockWhenFull;
+		waitStatistics = new StatisticsKeeper(name+" queue wait time");
+	}
+
+	@Override
+	public void execute(Runnable task) throws TaskRejectedException {
+		QueuedTask queuedTask = new QueuedTask(task);
+		synchronized (this) {
+			while (activeThreads >= maxThreads && queue.size() >= maxQueueSize) {
+				if (!blockWhenFull) {
+					rejectedCount++;
+					throw new TaskRejectedException("all ["+maxThreads+"] threads are busy and the queue of ["+maxQueueSize+"] tasks is full");
+				}
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new TaskRejectedException("interrupted while waiting for room in the queue", e);
+				}
+			}
+			if (activeThreads >= maxThreads) {
+				queue.add(queuedTask);
+				maxQueueDepth = Math.max(maxQueueDepth, queue.size());
+				return;
+			}
+			activeThreads++;
+		}
+		try {
+			taskExecutor.execute(() -> runTasks(queuedTask));
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				activeThreads--;
+				notifyAll();
+			}
+			throw e;
+		}
+	}
+
+	private void runTasks(QueuedTask firstTask) {
+		QueuedTask queuedTask = firstTask;
+		while (queuedTask != null) {
+			synchronized (waitStatistics) {
+				waitStatistics.addNanos(System.nanoTime() - queuedTask.queuedAt);
+			}
+			try {
+				queuedTask.task.run();
+			} catch (Throwable t) {
+				log.warn("task threw exception", t);
+			} finally {
+				synchronized (this) {
+					queuedTask = queue.poll();
+					if (queuedTask == null) {
+						activeThreads--;
+					}
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	public synchronized int getQueueDepth() {
+		return queue.size();
+	}
+
+	public synchronized int getActiveThreads() {
+		return activeThreads;
+	}
+
+	@Override
+	public <D> void iterateOverStatistics(StatisticsKeeperIterationHandler<D> hski, D data, Action action) throws SenderException {
+		long queueDepth;
+		long maxDepth;
+		long rejected;
+		long active;
+		synchronized (this) {
+			queueDepth = queue.size();
+			maxDepth = maxQueueDepth;
+			rejected = rejectedCount;
+			active = activeThreads;
+		}
+		hski.handleScalar(data, getName()+" active threads", active);
+		hski.handleScalar(data, getName()+" queue depth", queueDepth);
+		hski.handleScalar(data, getName()+" max queue depth", maxDepth);
+		hski.handleScalar(data, getName()+" rejected tasks", rejected);
+		synchronized (waitStatistics) {
+			hski.handleStatisticsKeeper(data, waitStatistics);
+			waitStatistics.performAction(action);
+		}
+	}
+}
@@ -18,6 +18,7 @@ package nl.nn.adapterframework.unmanaged;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -57,7 +58,7 @@ public class DefaultIbisManager implements IbisManager, InitializingBean {
 	protected Logger secLog = LogUtil.getLogger("SEC");
 
 	private IbisContext ibisContext;
-	private List<Configuration> configurations = new ArrayList<>();
+	private List<Configuration> configurations = new CopyOnWriteArrayList<>();
 	private PlatformTransactionManager transactionManager;
 	private ApplicationEventPublisher applicationEventPublisher;
 	private @Getter @Setter ApplicationContext applicationContext;
@@ -0,0 +1,274 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import lombok.Getter;
+import lombok.Setter;
+import nl.nn.adapterframework.jdbc.JdbcException;
+import nl.nn.adapterframework.jdbc.dbms.IDbmsSupport;
+
+/**
+ * Writes a ResultSet as CSV, newline delimited JSON or flat XML directly to a character stream, without intermediate SAX or document events.
+ * A reader is resolved once per column from the {@link ResultSetMetaData}, so that per row only the values are fetched and written.
+ * Intended for bulk extracts of large result sets.
+ */
+public class ResultSetExporter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final boolean CONVERT_FIELDNAMES_TO_UPPERCASE = AppConstants.getInstance().getBoolean("jdbc.convertFieldnamesToUppercase", false);
+
+	public enum ExportFormat {
+		/** Comma separated values, with a header line containing the column names */
+		CSV,
+		/** One JSON object per line */
+		NDJSON,
+		/** Rows in the same layout as the default XML output, without field definitions */
+		XML
+	}
+
+	private @Getter @Setter String nullValue = "";
+	private @Getter @Setter boolean trimSpaces = true;
+	private @Getter @Setter boolean decompressBlobs = false;
+	private @Getter @Setter boolean getBlobSmart = false;
+	private @Getter @Setter String blobCharset = StreamUtil.DEFAULT_INPUT_STREAM_ENCODING;
+	private @Getter @Setter char csvSeparator = ',';
+
+	@FunctionalInterface
+	private interface ColumnReader {
+		/** returns the value of the column in the current row, or <code>null</code> if it is SQL NULL */
+		String read(ResultSet rs) throws SQLException, IOException;
+	}
+
+	/**
+	 * Writes at most <code>maxRows</code> rows of the ResultSet in UTF-8 to the OutputStream. The stream is flushed, but not closed.
+	 * @return the number of rows written
+	 */
+	public long export(ExportFormat format, IDbmsSupport dbmsSupport, ResultSet rs, int maxRows, OutputStream out) throws JdbcException {
+		try {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+			long rowCount = export(format, dbmsSupport, rs, maxRows, writer);
+			writer.flush();
+			return rowCount;
+		} catch (IOException e) {
+			throw new JdbcException("cannot export ResultSet as ["+format+"]", e);
+		}
+	}
+
+	/**
+	 * Writes at most <code>maxRows</code> rows of the ResultSet to the Writer, that is not flushed nor closed.
+	 * @return the number of rows written
+	 */
+	public long export(ExportFormat format, IDbmsSupport dbmsSupport, ResultSet rs, int maxRows, Writer writer) throws JdbcException {
+		long rowCount=0;
+		long maxRowCount = maxRows<0 ? Long.MAX_VALUE : maxRows;
+		try {
+			ResultSetMetaData rsmeta = rs.getMetaData();
+			int columnCount = rsmeta.getColumnCount();
+			String[] columnNames = new String[columnCount];
+			boolean[] numeric = new boolean[columnCount];
+			ColumnReader[] readers = new ColumnReader[columnCount];
+			for (int i=0; i<columnCount; i++) {
+				String columnName = "" + rsmeta.getColumnName(i+1);
+				columnNames[i] = CONVERT_FIELDNAMES_TO_UPPERCASE ? columnName.toUpperCase() : columnName;
+				numeric[i] = JdbcUtil.isNumeric(rsmeta.getColumnType(i+1));
+				readers[i] = getColumnReader(dbmsSupport, rsmeta, i+1);
+			}
+			switch (format) {
+				case CSV:
+					for (int i=0; i<columnCount; i++) {
+						if (i>0) writer.write(csvSeparator);
+						writeCsvValue(writer, columnNames[i]);
+					}
+					writer.write("\r\n");
+					while (rowCount<maxRowCount && rs.next()) {
+						for (int i=0; i<columnCount; i++) {
+							if (i>0) writer.write(csvSeparator);
+							String value = readers[i].read(rs);
+							writeCsvValue(writer, value!=null ? value : nullValue);
+						}
+						writer.write("\r\n");
+						rowCount++;
+					}
+					break;
+				case NDJSON:
+					String[] jsonNames = new String[columnCount];
+					for (int i=0; i<columnCount; i++) {
+						jsonNames[i] = "\""+escapeJson(columnNames[i])+"\":";
+					}
+					while (rowCount<maxRowCount && rs.next()) {
+						writer.write('{');
+						for (int i=0; i<columnCount; i++) {
+							if (i>0) writer.write(',');
+							writer.write(jsonNames[i]);
+							String value = readers[i].read(rs);
+							if (value==null) {
+								writer.write("null");
+							} else if (numeric[i]) {
+								writer.write(value);
+							} else {
+								writer.write('"');
+								writer.write(escapeJson(value));
+								writer.write('"');
+							}
+						}
+						writer.write("}\n");
+						rowCount++;
+					}
+					break;
+				case XML:
+					String[] fieldStarts = new String[columnCount];
+					String[] nullFieldStarts = new String[columnCount];
+					for (int i=0; i<columnCount; i++) {
+						String encodedName = XmlUtils.encodeChars(columnNames[i]);
+						fieldStarts[i] = "<field name=\""+encodedName+"\">";
+						nullFieldStarts[i] = "<field name=\""+encodedName+"\" null=\"true\">";
+					}
+					writer.write("<result><rowset>");
+					while (rowCount<maxRowCount && rs.next()) {
+						writer.write("<row number=\"");
+						writer.write(Long.toString(rowCount));
+						writer.write("\">");
+						for (int i=0; i<columnCount; i++) {
+							String value = readers[i].read(rs);
+							if (value==null) {
+								writer.write(nullFieldStarts[i]);
+								writer.write(XmlUtils.encodeCharsAndReplaceNonValidXmlCharacters(nullValue));
+							} else {
+								writer.write(fieldStarts[i]);
+								writer.write(XmlUtils.encodeCharsAndReplaceNonValidXmlCharacters(value));
+							}
+							writer.write("</field>");
+						}
+						writer.write("</row>");
+						rowCount++;
+					}
+					writer.write("</rowset></result>");
+					break;
+				default:
+					throw new IllegalArgumentException("Unsupported exportFormat ["+format+"]");
+			}
+			return rowCount;
+		} catch (SQLException | IOException e) {
+			throw new JdbcException("cannot export ResultSet as ["+format+"] at row ["+rowCount+"]", e);
+		}
+	}
+
+	private ColumnReader getColumnReader(IDbmsSupport dbmsSupport, ResultSetMetaData rsmeta, int column) throws SQLException {
+		if (dbmsSupport.isBlobType(rsmeta, column) || dbmsSupport.isClobType(rsmeta, column)) {
+			return genericReader(dbmsSupport, rsmeta, column);
+		}
+		switch (rsmeta.getColumnType(column)) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+				return rs -> {
+					long value = rs.getLong(column);
+					return rs.wasNull() ? null : Long.toString(value);
+				};
+			case Types.BOOLEAN:
+			case Types.BIT:
+				return rs -> {
+					boolean value = rs.getBoolean(column);
+					return rs.wasNull() ? null : Boolean.toString(value);
+				};
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+			case Types.FLOAT:
+			case Types.REAL:
+			case Types.DOUBLE:
+				return rs -> rs.getString(column);
+			case Types.CHAR:
+			case Types.NCHAR:
+			case Types.VARCHAR:
+			case Types.NVARCHAR:
+			case Types.LONGVARCHAR:
+			case Types.LONGNVARCHAR:
+				if (isTrimSpaces()) {
+					return rs -> {
+						String value = rs.getString(column);
+						return value==null ? null : value.trim();
+					};
+				}
+				return rs -> rs.getString(column);
+			default:
+				// dates, timestamps, binary types etc. are rendered like in the other output formats
+				return genericReader(dbmsSupport, rsmeta, column);
+		}
+	}
+
+	private ColumnReader genericReader(IDbmsSupport dbmsSupport, ResultSetMetaData rsmeta, int column) {
+		return rs -> {
+			String value = JdbcUtil.getValue(dbmsSupport, rs, column, rsmeta, getBlobCharset(), isDecompressBlobs(), null, isTrimSpaces(), isGetBlobSmart(), false);
+			return rs.wasNull() ? null : value;
+		};
+	}
+
+	private void writeCsvValue(Writer writer, String value) throws IOException {
+		boolean quote = false;
+		for (int i=0; i<value.length(); i++) {
+			char c = value.charAt(i);
+			if (c==csvSeparator || c=='"' || c=='\r' || c=='\n') {
+				quote = true;
+				break;
+			}
+		}
+		if (!quote) {
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		writer.write(value.replace("\"", "\"\""));
+		writer.write('"');
+	}
+
+	private static String escapeJson(String value) {
+		StringBuilder result = null;
+		for (int i=0; i<value.length(); i++) {
+			char c = value.charAt(i);
+			String replacement;
+			switch (c) {
+				case '"':  replacement = "\\\""; break;
+				case '\\': replacement = "\\\\"; break;
+				case '\n': replacement = "\\n"; break;
+				case '\r': replacement = "\\r"; break;
+				case '\t': replacement = "\\t"; break;
+				default:
+					replacement = c < 0x20 ? String.format("\\u%04x", (int)c) : null;
+			}
+			if (replacement!=null) {
+				if (result==null) {
+					result = new StringBuilder(value.length()+16).append(value, 0, i);
+				}
+				result.append(replacement);
+			} else if (result!=null) {
+				result.append(c);
+			}
+		}
+		return result==null ? value : result.toString();
+	}
+}
@@ -19,6 +19,8 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.util.Map;
 
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.Templates;
@@ -28,6 +30,7 @@ import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.URIResolver;
 import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.sax.SAXTransformerFactory;
 import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamSource;
@@ -41,7 +44,9 @@ import org.apache.commons.pool2.impl.SoftReferenceObjectPool;
 import org.apache.logging.log4j.Logger;
 import org.w3c.dom.Document;
 import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
 import lombok.Getter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
@@ -54,7 +59,9 @@ import nl.nn.adapterframework.parameters.ParameterValueList;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.stream.ThreadConnector;
 import nl.nn.adapterframework.xml.ClassLoaderURIResolver;
+import nl.nn.adapterframework.xml.NonResolvingExternalEntityResolver;
 import nl.nn.adapterframework.xml.NonResolvingURIResolver;
+import nl.nn.adapterframework.xml.SaxException;
 import nl.nn.adapterframework.xml.TransformerFilter;
 
 /**
@@ -373,7 +380,7 @@ public class TransformerPool {
 
 	public String transform(Message m, Map<String,Object> parameters, boolean namespaceAware) throws TransformerException, IOException, SAXException {
 		if (namespaceAware) {
-			return transform(XmlUtils.inputSourceToSAXSource(m.asInputSource(),namespaceAware, null), parameters);
+			return transform(m.asInputSource(), parameters);
 		}
 		try {
 			return transform(XmlUtils.stringToSource(m.asString(),namespaceAware), parameters);
@@ -383,13 +390,35 @@ public class TransformerPool {
 	}
 
 	public String transform(String s, Map<String,Object> parameters) throws TransformerException, IOException, SAXException {
-		return transform(XmlUtils.stringToSourceForSingleUse(s),parameters);
+		return transform(s, parameters, XmlUtils.isNamespaceAwareByDefault());
 	}
 
 	public String transform(String s, Map<String,Object> parameters, boolean namespaceAware) throws TransformerException, IOException, SAXException {
+		if (namespaceAware) {
+			return transform(new InputSource(new StringReader(s)), parameters);
+		}
 		return transform(XmlUtils.stringToSourceForSingleUse(s, namespaceAware),parameters);
 	}
 
+	/**
+	 * Transforms a namespace aware parse of the inputSource, using a parser from the {@link XmlParserPool}.
+	 */
+	private String transform(InputSource inputSource, Map<String,Object> parameters) throws TransformerException, IOException, SAXException {
+		SAXParser parser;
+		try {
+			parser = XmlParserPool.borrowSAXParser(true);
+		} catch (ParserConfigurationException e) {
+			throw new SaxException("Cannot configure parser", e);
+		}
+		try {
+			XMLReader xmlReader = parser.getXMLReader();
+			xmlReader.setEntityResolver(new NonResolvingExternalEntityResolver());
+			return transform(new SAXSource(xmlReader, inputSource), parameters);
+		} finally {
+			XmlParserPool.returnSAXParser(true, parser);
+		}
+	}
+
 	public String transform(Source s) throws TransformerException, IOException {
 		return transform(s,(Map<String,Object>)null);
 	}
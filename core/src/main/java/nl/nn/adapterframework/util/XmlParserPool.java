@@ -0,0 +1,125 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.util;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.logging.log4j.Logger;
+import org.xml.sax.SAXException;
+
+/**
+ * Keeps {@link SAXParser}s and {@link DocumentBuilder}s for reuse by the thread that used them last, to avoid the lookup of
+ * the parser factory and the construction of a parser for every document that is parsed.
+ * <p>
+ * Parsers are kept per thread for each combination of settings, i.e. namespace awareness. All parsers are created with secure processing enabled.
+ * A parser that is borrowed is not handed out again until it is returned, so nested parses each get a parser of their own.
+ * Returned parsers are reset to the state they were created in. Parsers that are handed out beyond the scope of a single parse,
+ * like the {@link org.xml.sax.XMLReader} returned by {@link XmlUtils#getXMLReader(org.xml.sax.ContentHandler)}, are not pooled.
+ * </p>
+ * Reuse can be switched off by setting <code>xml.parser.reuse=false</code>.
+ */
+public class XmlParserPool {
+	private static Logger log = LogUtil.getLogger(XmlParserPool.class);
+
+	public static final String PARSER_REUSE_KEY="xml.parser.reuse";
+
+	private static final String LEXICAL_HANDLER_PROPERTY="http://xml.org/sax/properties/lexical-handler";
+
+	private static final boolean REUSE_PARSERS = AppConstants.getInstance().getBoolean(PARSER_REUSE_KEY, true);
+
+	private static final ThreadLocal<SAXParser[]> IDLE_SAX_PARSERS = ThreadLocal.withInitial(() -> new SAXParser[2]);
+	private static final ThreadLocal<DocumentBuilder[]> IDLE_DOCUMENT_BUILDERS = ThreadLocal.withInitial(() -> new DocumentBuilder[2]);
+
+	private XmlParserPool() {
+		// only static methods
+	}
+
+	private static int getSlot(boolean namespaceAware) {
+		return namespaceAware ? 1 : 0;
+	}
+
+	public static SAXParser borrowSAXParser(boolean namespaceAware) throws ParserConfigurationException, SAXException {
+		if (REUSE_PARSERS) {
+			SAXParser[] idleParsers = IDLE_SAX_PARSERS.get();
+			SAXParser parser = idleParsers[getSlot(namespaceAware)];
+			if (parser != null) {
+				idleParsers[getSlot(namespaceAware)] = null;
+				return parser;
+			}
+		}
+		return createSAXParser(namespaceAware);
+	}
+
+	public static SAXParser createSAXParser(boolean namespaceAware) throws ParserConfigurationException, SAXException {
+		SAXParserFactory factory = XmlUtils.getSAXParserFactory(namespaceAware);
+		factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+		return factory.newSAXParser();
+	}
+
+	/**
+	 * Resets the parser and keeps it for reuse by the current thread. Must only be called when the parse has finished,
+	 * and the parser or its XMLReader are not referenced anymore.
+	 */
+	public static void returnSAXParser(boolean namespaceAware, SAXParser parser) {
+		if (!REUSE_PARSERS || parser == null) {
+			return;
+		}
+		try {
+			parser.reset();
+			// not every implementation restores the handlers set as property
+			parser.getXMLReader().setProperty(LEXICAL_HANDLER_PROPERTY, null);
+		} catch (Exception e) {
+			log.debug("cannot reset SAXParser, it will not be reused", e);
+			return;
+		}
+		IDLE_SAX_PARSERS.get()[getSlot(namespaceAware)] = parser;
+	}
+
+	public static DocumentBuilder borrowDocumentBuilder(boolean namespaceAware) throws ParserConfigurationException {
+		if (REUSE_PARSERS) {
+			DocumentBuilder[] idleBuilders = IDLE_DOCUMENT_BUILDERS.get();
+			DocumentBuilder builder = idleBuilders[getSlot(namespaceAware)];
+			if (builder != null) {
+				idleBuilders[getSlot(namespaceAware)] = null;
+				return builder;
+			}
+		}
+		DocumentBuilderFactory factory = XmlUtils.getDocumentBuilderFactory(namespaceAware);
+		factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+		return factory.newDocumentBuilder();
+	}
+
+	/**
+	 * Resets the document builder and keeps it for reuse by the current thread. The documents it has built are not affected.
+	 */
+	public static void returnDocumentBuilder(boolean namespaceAware, DocumentBuilder builder) {
+		if (!REUSE_PARSERS || builder == null) {
+			return;
+		}
+		try {
+			builder.reset();
+		} catch (Exception e) {
+			log.debug("cannot reset DocumentBuilder, it will not be reused", e);
+			return;
+		}
+		IDLE_DOCUMENT_BUILDERS.get()[getSlot(namespaceAware)] = builder;
+	}
+}
@@ -42,6 +42,7 @@ import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.soap.MessageFactory;
 import javax.xml.soap.SOAPException;
@@ -473,12 +474,7 @@ public class XmlUtils {
 	}
 
 	public static void parseXml(Resource resource, ContentHandler handler) throws IOException, SAXException {
-		try {
-			XMLReader reader = getXMLReader(resource, handler);
-			reader.parse(resource.asInputSource());
-		} catch (ParserConfigurationException e) {
-			throw new SaxException("Cannot configure parser",e);
-		}
+		parseXml(resource.asInputSource(), handler, null, resource);
 	}
 
 	public static void parseXml(String source, ContentHandler handler) throws IOException, SAXException {
@@ -499,16 +495,29 @@ public class XmlUtils {
 	}
 
 	public static void parseXml(InputSource inputSource, ContentHandler handler, ErrorHandler errorHandler) throws IOException, SAXException {
-		XMLReader xmlReader;
+		parseXml(inputSource, handler, errorHandler, null);
+	}
+
+	/**
+	 * Parses with a parser from the {@link XmlParserPool}, that is returned to the pool when the parse has finished.
+	 */
+	private static void parseXml(InputSource inputSource, ContentHandler handler, ErrorHandler errorHandler, IScopeProvider scopeProvider) throws IOException, SAXException {
+		SAXParser parser;
+		try {
+			parser = XmlParserPool.borrowSAXParser(true);
+		} catch (ParserConfigurationException e) {
+			throw new SaxException("Cannot configure parser",e);
+		}
 		try {
-			xmlReader = getXMLReader(null, handler);
+			XMLReader xmlReader = parser.getXMLReader();
+			configureXMLReader(xmlReader, scopeProvider, handler);
 			if (errorHandler != null) {
 				xmlReader.setErrorHandler(errorHandler);
 			}
-		} catch (ParserConfigurationException e) {
-			throw new SaxException("Cannot configure parser",e);
+			xmlReader.parse(inputSource);
+		} finally {
+			XmlParserPool.returnSAXParser(true, parser);
 		}
-		xmlReader.parse(inputSource);
 	}
 
 	public static XMLReader getXMLReader(ContentHandler handler) throws ParserConfigurationException, SAXException {
@@ -520,27 +529,35 @@ public class XmlUtils {
 	}
 
 	private static XMLReader getXMLReader(IScopeProvider scopeProvider, ContentHandler handler) throws ParserConfigurationException, SAXException {
-		XMLReader xmlReader = getXMLReader(true, scopeProvider);
-		xmlReader.setContentHandler(handler);
-		if (handler instanceof LexicalHandler) {
-			xmlReader.setProperty("http://xml.org/sax/properties/lexical-handler", handler);
-		}
-		if (handler instanceof ErrorHandler) {
-			xmlReader.setErrorHandler((ErrorHandler)handler);
-		}
+		XMLReader xmlReader = XmlParserPool.createSAXParser(true).getXMLReader();
+		configureXMLReader(xmlReader, scopeProvider, handler);
 		return xmlReader;
 	}
 
+	/**
+	 * Creates a new XMLReader. The reader is not taken from the {@link XmlParserPool}, because its use is not limited to a single parse in this class.
+	 */
 	private static XMLReader getXMLReader(boolean namespaceAware, IScopeProvider scopeProvider) throws ParserConfigurationException, SAXException {
-		SAXParserFactory factory = getSAXParserFactory(namespaceAware);
-		factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-		XMLReader xmlReader = factory.newSAXParser().getXMLReader();
+		XMLReader xmlReader = XmlParserPool.createSAXParser(namespaceAware).getXMLReader();
+		configureXMLReader(xmlReader, scopeProvider, null);
+		return xmlReader;
+	}
+
+	private static void configureXMLReader(XMLReader xmlReader, IScopeProvider scopeProvider, ContentHandler handler) throws SAXException {
 		if (scopeProvider!=null) {
 			xmlReader.setEntityResolver(new ClassLoaderEntityResolver(scopeProvider));
 		} else {
 			xmlReader.setEntityResolver(new NonResolvingExternalEntityResolver());
 		}
-		return xmlReader;
+		if (handler != null) {
+			xmlReader.setContentHandler(handler);
+			if (handler instanceof LexicalHandler) {
+				xmlReader.setProperty("http://xml.org/sax/properties/lexical-handler", handler);
+			}
+			if (handler instanceof ErrorHandler) {
+				xmlReader.setErrorHandler((ErrorHandler)handler);
+			}
+		}
 	}
 
 	public static Document buildDomDocument(Reader in) throws DomBuilderException {
@@ -557,10 +574,9 @@ public class XmlUtils {
 
 	public static Document buildDomDocument(InputSource src, boolean namespaceAware, boolean resolveExternalEntities) throws DomBuilderException {
 		Document document;
+		DocumentBuilder builder = null;
 		try {
-			DocumentBuilderFactory factory = getDocumentBuilderFactory(namespaceAware);
-			factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-			DocumentBuilder builder = factory.newDocumentBuilder();
+			builder = XmlParserPool.borrowDocumentBuilder(namespaceAware);
 			if (!resolveExternalEntities) {
 				builder.setEntityResolver(new NonResolvingExternalEntityResolver());
 			}
@@ -573,6 +589,8 @@ public class XmlUtils {
 			throw new DomBuilderException(e);
 		} catch (SAXException e) {
 			throw new DomBuilderException(e);
+		} finally {
+			XmlParserPool.returnDocumentBuilder(namespaceAware, builder);
 		}
 		if (document == null) {
 			throw new DomBuilderException("Parsed Document is null");
@@ -222,10 +222,19 @@ public abstract class AbstractXmlValidator implements IConfigurationAware {
 			XmlUtils.parseXml(inputSource, validatorHandler, context.getErrorHandler());
 		} catch (IOException | SAXException e) {
 			return finalizeValidation(context, session, e);
+		} finally {
+			releaseValidatorHandler(validatorHandler, context);
 		}
 		return finalizeValidation(context, session, null);
 	}
 
+	/**
+	 * Called when a validation is finished, to allow the validatorHandler to be reused.
+	 */
+	protected void releaseValidatorHandler(ValidatorHandler validatorHandler, ValidationContext context) {
+		// can be overridden when validator handlers are reused
+	}
+
 
 
 	protected String getLogPrefix(PipeLineSession session) {
@@ -177,7 +177,9 @@ public class XercesXmlValidator extends AbstractXmlValidator {
 	}
 
 	private PreparseResult preparse() throws ConfigurationException {
-		return preparse(schemasProvider.getSchemasId(), schemasProvider.getSchemas());
+		PreparseResult preparseResult = preparse(schemasProvider.getSchemasId(), schemasProvider.getSchemas());
+		preparseResult.setShared(true);
+		return preparseResult;
 	}
 
 
@@ -277,21 +279,34 @@ public class XercesXmlValidator extends AbstractXmlValidator {
 		return result;
 	}
 
+	/**
+	 * Validator handlers are reused per thread when the schemas are fixed, as creating them involves setting up the schema
+	 * validation components and a symbol table of their own. The {@link javax.xml.validation.Schema} they are created from is thread safe, and is
+	 * shared by all threads.
+	 */
 	@Override
 	public ValidatorHandler getValidatorHandler(PipeLineSession session, ValidationContext context) throws ConfigurationException {
-		ValidatorHandler validatorHandler;
+		PreparseResult preparseResult = ((XercesValidationContext) context).getPreparseResult();
+		ValidatorHandler validatorHandler = preparseResult.takeIdleValidatorHandler();
+		if (validatorHandler == null) {
+			validatorHandler = createValidatorHandler(preparseResult);
+		}
+		validatorHandler.setContentHandler(context.getContentHandler());
+		validatorHandler.setErrorHandler(context.getErrorHandler());
+		return validatorHandler;
+	}
 
-		try {
-			javax.xml.validation.Schema schemaObject;
-			if (isXmlSchema1_0()) {
-				XMLSchemaFactory schemaFactory = new XMLSchemaFactory();
-				schemaObject = schemaFactory.newSchema(((XercesValidationContext) context).getGrammarPool());
-			} else {
-				XMLSchema11Factory schemaFactory = new XMLSchema11Factory();
-				schemaObject = schemaFactory.newSchema(((XercesValidationContext) context).getGrammarPool());
-			}
+	@Override
+	protected void releaseValidatorHandler(ValidatorHandler validatorHandler, ValidationContext context) {
+		validatorHandler.setContentHandler(null);
+		validatorHandler.setErrorHandler(null);
+		((XercesValidationContext) context).getPreparseResult().releaseValidatorHandler(validatorHandler);
+	}
 
-			validatorHandler=schemaObject.newValidatorHandler();
+	private ValidatorHandler createValidatorHandler(PreparseResult preparseResult) throws ConfigurationException {
+		ValidatorHandler validatorHandler;
+		try {
+			validatorHandler=getSchemaObject(preparseResult).newValidatorHandler();
 		} catch (SAXException e) {
 			throw new ConfigurationException(logPrefix + " Cannot create schema", e);
 		}
@@ -306,9 +321,6 @@ public class XercesXmlValidator extends AbstractXmlValidator {
 			SecurityManager securityManager = new SecurityManager();
 			securityManager.setEntityExpansionLimit(entityExpansionLimit);
 			validatorHandler.setProperty(SECURITY_MANAGER_PROPERTY_ID, securityManager);
-
-			validatorHandler.setContentHandler(context.getContentHandler());
-			validatorHandler.setErrorHandler(context.getErrorHandler());
 		} catch (SAXNotRecognizedException e) {
 			throw new ConfigurationException(logPrefix + "ValidatorHandler does not recognize necessary feature", e);
 		} catch (SAXNotSupportedException e) {
@@ -316,6 +328,22 @@ public class XercesXmlValidator extends AbstractXmlValidator {
 		}
 		return validatorHandler;
 	}
+
+	private javax.xml.validation.Schema getSchemaObject(PreparseResult preparseResult) throws SAXException {
+		synchronized (preparseResult) {
+			if (preparseResult.getSchemaObject() == null) {
+				if (isXmlSchema1_0()) {
+					XMLSchemaFactory schemaFactory = new XMLSchemaFactory();
+					preparseResult.setSchemaObject(schemaFactory.newSchema(preparseResult.getGrammarPool()));
+				} else {
+					XMLSchema11Factory schemaFactory = new XMLSchema11Factory();
+					preparseResult.setSchemaObject(schemaFactory.newSchema(preparseResult.getGrammarPool()));
+				}
+			}
+			return preparseResult.getSchemaObject();
+		}
+	}
+
 	public XMLReader createValidatingParser(PipeLineSession session, ValidationContext context) throws XmlValidatorException, ConfigurationException, PipeRunException {
 		SymbolTable symbolTable = ((XercesValidationContext)context).getSymbolTable();
 		XMLGrammarPool grammarPool = ((XercesValidationContext)context).getGrammarPool();
@@ -376,6 +404,10 @@ class XercesValidationContext extends ValidationContext {
 		return preparseResult.getSchemasId();
 	}
 
+	PreparseResult getPreparseResult() {
+		return preparseResult;
+	}
+
 	public SymbolTable getSymbolTable() {
 		return preparseResult.getSymbolTable();
 	}
@@ -402,6 +434,9 @@ class PreparseResult {
 	private @Getter @Setter XMLGrammarPool grammarPool;
 	private @Getter @Setter Set<String> namespaceSet;
 	private @Setter List<XSModel> xsModels=null;
+	private @Getter @Setter javax.xml.validation.Schema schemaObject;
+	private @Getter @Setter boolean shared;
+	private final ThreadLocal<ValidatorHandler> idleValidatorHandler = new ThreadLocal<>();
 
 	public List<XSModel> getXsModels() {
 		if (xsModels==null) {
@@ -414,6 +449,28 @@ class PreparseResult {
 		return xsModels;
 	}
 
+	/**
+	 * Returns the validator handler that was last released by the current thread, or <code>null</code> if there is none.
+	 * A handler that is taken is not handed out again until it is released, so nested validations get a handler of their own.
+	 */
+	public ValidatorHandler takeIdleValidatorHandler() {
+		ValidatorHandler result = idleValidatorHandler.get();
+		if (result != null) {
+			idleValidatorHandler.remove();
+		}
+		return result;
+	}
+
+	/**
+	 * Keeps the validator handler for reuse by the current thread. Only done for shared results, results of schemas that are
+	 * determined per message are discarded after use.
+	 */
+	public void releaseValidatorHandler(ValidatorHandler validatorHandler) {
+		if (shared) {
+			idleValidatorHandler.set(validatorHandler);
+		}
+	}
+
 }
 class XercesValidationErrorHandler implements XMLErrorHandler {
 	protected Logger log = LogUtil.getLogger(this);
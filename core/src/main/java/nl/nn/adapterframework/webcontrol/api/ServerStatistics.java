@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import javax.annotation.security.PermitAll;
+import javax.annotation.security.RolesAllowed;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
@@ -55,6 +56,14 @@ public class ServerStatistics extends FrankApiBase {
 		return callSyncGateway(RequestMessageBuilder.create(this, BusTopic.CONFIGURATION, BusAction.FIND));
 	}
 
+	@GET
+	@RolesAllowed({"IbisObserver", "IbisDataAdmin", "IbisAdmin", "IbisTester"})
+	@Path("/server/startup")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getStartupTimeline() {
+		return callSyncGateway(RequestMessageBuilder.create(this, BusTopic.CONFIGURATION, BusAction.STATUS));
+	}
+
 	@GET
 	@PermitAll
 	@Path("/server/warnings")
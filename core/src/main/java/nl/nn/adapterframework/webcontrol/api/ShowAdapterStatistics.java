@@ -122,6 +122,12 @@ public final class ShowAdapterStatistics extends Base {
 			adapter.getPipeLine().iterateOverStatistics(handler, tmp, Action.FULL);
 			statisticsMap.put("durationPerPipe", tmp.get(PipeLine.PIPELINE_DURATION_STATS));
 			statisticsMap.put("sizePerPipe", tmp.get(PipeLine.PIPELINE_SIZE_STATS));
+			if (tmp.containsKey(PipeLine.PIPELINE_CPU_STATS)) {
+				statisticsMap.put("cpuPerPipe", tmp.get(PipeLine.PIPELINE_CPU_STATS));
+			}
+			if (tmp.containsKey(PipeLine.PIPELINE_ALLOCATION_STATS)) {
+				statisticsMap.put("allocationPerPipe", tmp.get(PipeLine.PIPELINE_ALLOCATION_STATS));
+			}
 		} catch (SenderException e) {
 			log.error("unable to parse pipeline statistics", e);
 		} finally {
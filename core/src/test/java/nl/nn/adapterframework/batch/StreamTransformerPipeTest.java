@@ -0,0 +1,166 @@
+package nl.nn.adapterframework.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import nl.nn.adapterframework.configuration.ConfigurationException;
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.core.PipeRunException;
+import nl.nn.adapterframework.pipes.PipeTestBase;
+import nl.nn.adapterframework.stream.Message;
+
+public class StreamTransformerPipeTest extends PipeTestBase<StreamTransformerPipe> {
+
+	private static final String STREAM_ID = "stream";
+
+	private TestRecordHandler recordHandler;
+	private CountingResultHandler resultHandler;
+
+	@Override
+	public StreamTransformerPipe createPipe() throws ConfigurationException {
+		StreamTransformerPipe pipe = new StreamTransformerPipe();
+		recordHandler = new TestRecordHandler();
+		recordHandler.setName("recordHandler");
+		resultHandler = new CountingResultHandler();
+		resultHandler.setName("resultHandler");
+		try {
+			pipe.registerRecordHandler(recordHandler);
+			pipe.registerResultHandler(resultHandler);
+		} catch (Exception e) {
+			throw new ConfigurationException(e);
+		}
+		return pipe;
+	}
+
+	private class TestRecordHandler extends AbstractRecordHandler {
+		private final AtomicInteger transformed = new AtomicInteger();
+		private final AtomicInteger maxUnhandled = new AtomicInteger();
+		private final Map<PipeLineSession, Message> sessions = Collections.synchronizedMap(new IdentityHashMap<>());
+
+		@Override
+		public String handleRecord(PipeLineSession session, List<String> parsedRecord) throws Exception {
+			int unhandled = transformed.incrementAndGet() - resultHandler.handled.get();
+			maxUnhandled.accumulateAndGet(unhandled, Math::max);
+			sessions.computeIfAbsent(session, s -> {
+				Message resource = new Message(new ByteArrayInputStream("resource".getBytes()));
+				resource.closeOnCloseOf(s, "test");
+				return resource;
+			});
+			Thread.sleep(ThreadLocalRandom.current().nextInt(3)); // let blocks finish out of order
+			String record = parsedRecord.get(0);
+			if (record.startsWith("fail")) {
+				throw new IllegalStateException("cannot handle record ["+record+"]");
+			}
+			return "transformed "+record;
+		}
+	}
+
+	private class CountingResultHandler extends Result2StringWriter {
+		private final AtomicInteger handled = new AtomicInteger();
+
+		@Override
+		public void handleResult(PipeLineSession session, String streamId, String recordKey, String result) throws Exception {
+			handled.incrementAndGet();
+			super.handleResult(session, streamId, recordKey, result);
+		}
+	}
+
+	private String createInput(int numberOfRecords) {
+		StringBuilder input = new StringBuilder();
+		for (int i=1; i<=numberOfRecords; i++) {
+			input.append("record ").append(i).append("\n");
+		}
+		return input.toString();
+	}
+
+	private String createExpectedResult(int numberOfRecords) {
+		StringBuilder result = new StringBuilder("<document name=\""+STREAM_ID+"\">\n");
+		for (int i=1; i<=numberOfRecords; i++) {
+			result.append("transformed record ").append(i).append("\n");
+		}
+		return result.append("</document>\n").toString();
+	}
+
+	private void configureParallel(int blockSize, int maxChildThreads, int maxPendingBlocks) throws Exception {
+		pipe.setParallel(true);
+		pipe.setParallelBlockSize(blockSize);
+		pipe.setMaxChildThreads(maxChildThreads);
+		pipe.setMaxPendingBlocks(maxPendingBlocks);
+		pipe.setTaskExecutor(new SimpleAsyncTaskExecutor());
+		configureAndStartPipe();
+		session.put(PipeLineSession.correlationIdKey, STREAM_ID);
+	}
+
+	@Test
+	public void testSequential() throws Exception {
+		configureAndStartPipe();
+		session.put(PipeLineSession.correlationIdKey, STREAM_ID);
+
+		assertEquals(createExpectedResult(50), doPipe(createInput(50)).getResult().asString());
+		assertEquals(1, recordHandler.sessions.size());
+		assertSame(session, recordHandler.sessions.keySet().iterator().next());
+	}
+
+	@Test
+	public void testParallelKeepsOrderOfRecords() throws Exception {
+		configureParallel(7, 4, 0);
+
+		assertEquals(createExpectedResult(500), doPipe(createInput(500)).getResult().asString());
+	}
+
+	@Test
+	public void testParallelBoundsPendingBlocks() throws Exception {
+		int blockSize = 5;
+		int maxPendingBlocks = 3;
+		configureParallel(blockSize, 4, maxPendingBlocks);
+
+		assertEquals(createExpectedResult(300), doPipe(createInput(300)).getResult().asString());
+		assertEquals(300, recordHandler.transformed.get());
+		int maxUnhandled = recordHandler.maxUnhandled.get();
+		assertTrue("at most "+maxPendingBlocks+" blocks of "+blockSize+" records may be pending, but "+maxUnhandled+" records were", maxUnhandled <= maxPendingBlocks*blockSize);
+	}
+
+	@Test
+	public void testParallelClosesBlockSessions() throws Exception {
+		configureParallel(10, 4, 0);
+
+		doPipe(createInput(100));
+		assertEquals(10, recordHandler.sessions.size());
+		assertFalse(recordHandler.sessions.containsKey(session));
+		recordHandler.sessions.forEach((blockSession, resource) -> {
+			assertFalse("resource must be unscheduled", resource.isScheduledForCloseOnExitOf(blockSession));
+			assertTrue("resource must be closed with the block session", resource.isNull());
+		});
+	}
+
+	@Test
+	public void testParallelRecordHandlerExceptionReachesCaller() throws Exception {
+		configureParallel(10, 4, 2);
+		String input = createInput(45) + "fail 46\n" + createInput(100);
+
+		try {
+			doPipe(input);
+			fail("expected exception");
+		} catch (PipeRunException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("at or after line [46]"));
+			Throwable cause = e.getCause();
+			assertTrue(String.valueOf(cause), cause instanceof IllegalStateException);
+			assertEquals("cannot handle record [fail 46]", cause.getMessage());
+		}
+		assertEquals(45, resultHandler.handled.get());
+	}
+}
@@ -0,0 +1,134 @@
+package nl.nn.adapterframework.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nl.nn.adapterframework.stream.Message;
+
+public class CacheAdapterBaseTest {
+
+	private MapCache cache;
+	private ExecutorService executor;
+
+	private static class MapCache extends CacheAdapterBase<String> {
+		private final Map<String,String> values = new ConcurrentHashMap<>();
+		private final Map<String,Long> creationTimes = new ConcurrentHashMap<>();
+
+		@Override
+		public void open() {
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		protected String getElement(String key) {
+			return values.get(key);
+		}
+
+		@Override
+		protected long getElementCreationTime(String key) {
+			return creationTimes.getOrDefault(key, 0L);
+		}
+
+		@Override
+		protected void putElement(String key, String value) {
+			values.put(key, value);
+			creationTimes.put(key, System.currentTimeMillis());
+		}
+
+		@Override
+		protected boolean removeElement(Object key) {
+			creationTimes.remove(key);
+			return values.remove(key)!=null;
+		}
+
+		@Override
+		protected String toValue(Message value) {
+			return value.toString();
+		}
+	}
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		cache = new MapCache();
+		cache.configure("test");
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentMissesLoadOnce() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<String> first = executor.submit(() -> cache.get("key", () -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			release.await();
+			return "value";
+		}));
+		assertTrue(loading.await(10, TimeUnit.SECONDS));
+		Future<String> second = executor.submit(() -> cache.get("key", () -> {
+			loads.incrementAndGet();
+			return "other value";
+		}));
+		Thread.sleep(100);
+		release.countDown();
+
+		assertEquals("value", first.get(10, TimeUnit.SECONDS));
+		assertEquals("value", second.get(10, TimeUnit.SECONDS));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void testUncachableResultIsNotShared() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+
+		assertNull(cache.get("key", () -> { loads.incrementAndGet(); return null; }));
+		assertEquals("value", cache.get("key", () -> { loads.incrementAndGet(); return "value"; }));
+		assertEquals("value", cache.get("key", () -> { loads.incrementAndGet(); return "other value"; }));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void testStaleValueIsServedWhileRefreshing() throws Exception {
+		cache.setRefreshAfterSeconds(1);
+		cache.put("key", "old value");
+		cache.creationTimes.put("key", System.currentTimeMillis()-5000);
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<String> refresher = executor.submit(() -> cache.get("key", () -> {
+			loading.countDown();
+			release.await();
+			return "new value";
+		}));
+		assertTrue(loading.await(10, TimeUnit.SECONDS));
+		assertEquals("old value", cache.get("key", () -> "unexpected value"));
+		release.countDown();
+
+		assertEquals("new value", refresher.get(10, TimeUnit.SECONDS));
+		assertEquals("new value", cache.get("key", () -> "unexpected value"));
+	}
+}
@@ -0,0 +1,77 @@
+package nl.nn.adapterframework.compression;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import nl.nn.adapterframework.util.StreamUtil;
+
+public class ParallelGZIPOutputStreamTest {
+
+	private ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private byte[] createData(int size) {
+		// partly repetitive data, to have back references that cross block boundaries
+		Random random = new Random(42);
+		byte[] data = new byte[size];
+		for (int i=0; i<size; i++) {
+			data[i] = i % 1000 < 500 ? (byte)('a' + random.nextInt(4)) : data[i % 500];
+		}
+		return data;
+	}
+
+	private byte[] compress(byte[] data, int writeSize) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		try (ParallelGZIPOutputStream out = new ParallelGZIPOutputStream(result, executor, Deflater.DEFAULT_COMPRESSION, 32*1024, 3)) {
+			for (int off=0; off<data.length; off+=writeSize) {
+				out.write(data, off, Math.min(writeSize, data.length-off));
+			}
+		}
+		return result.toByteArray();
+	}
+
+	private byte[] decompress(byte[] compressed) throws IOException {
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			return StreamUtil.streamToByteArray(in, false);
+		}
+	}
+
+	@Test
+	public void testRoundTripMultipleBlocks() throws IOException {
+		byte[] data = createData(1000*1000 + 17);
+		assertArrayEquals(data, decompress(compress(data, 10000)));
+	}
+
+	@Test
+	public void testRoundTripSingleByteWrites() throws IOException {
+		byte[] data = createData(100*1000);
+		assertArrayEquals(data, decompress(compress(data, 1)));
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		assertArrayEquals(new byte[0], decompress(compress(new byte[0], 1)));
+	}
+
+	@Test
+	public void testExactBlockSize() throws IOException {
+		byte[] data = createData(2*32*1024);
+		assertArrayEquals(data, decompress(compress(data, 32*1024)));
+	}
+}
@@ -2,10 +2,13 @@ package nl.nn.adapterframework.configuration;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,12 +22,13 @@ import nl.nn.adapterframework.configuration.classloaders.IConfigurationClassLoad
 import nl.nn.adapterframework.lifecycle.MessageEventListener;
 import nl.nn.adapterframework.testutil.TestClassLoader;
 import nl.nn.adapterframework.testutil.mock.MockIbisManager;
+import nl.nn.adapterframework.util.AppConstants;
 import nl.nn.adapterframework.util.MessageKeeperMessage;
 
 public class IbisContextTest {
 
 	private static final class IbisTestContext extends IbisContext {
-		private Map<String, Class<? extends IConfigurationClassLoader>> configurations = new HashMap<>();
+		private Map<String, Class<? extends IConfigurationClassLoader>> configurations = new LinkedHashMap<>();
 
 		public IbisTestContext(String configurationToLoad) {
 			this(configurationToLoad, null);
@@ -34,6 +38,10 @@ public class IbisContextTest {
 			configurations.put(configurationName, classLoaderClass);
 		}
 
+		public IbisTestContext(Map<String, Class<? extends IConfigurationClassLoader>> configurations) {
+			this.configurations = configurations;
+		}
+
 		@Override
 		protected Map<String, Class<? extends IConfigurationClassLoader>> retrieveAllConfigNames() {
 			return configurations;
@@ -141,4 +149,59 @@ public class IbisContextTest {
 			assertEquals(0, suppressed.length, "no further information");
 		}
 	}
+
+	@Test
+	public void nullClassLoaderIsRecordedInTimeline() {
+		String configurationName = "ConfigWithNullClassLoader";
+
+		try(IbisTestContext context = new IbisTestContext(configurationName, TestClassLoader.class)) {
+			context.init(false);
+
+			StartupTimeline.Entry entry = context.getStartupTimeline().getEntry(configurationName);
+			assertNotNull(entry, "failed load of ["+configurationName+"] must be in the startup timeline");
+			assertFalse(entry.isSuccess());
+		}
+	}
+
+	@Test
+	public void loadInParallel() {
+		Map<String, Class<? extends IConfigurationClassLoader>> configurations = new LinkedHashMap<>();
+		configurations.put("Parent", DummyClassLoader.class);
+		configurations.put("ConfigWithNullClassLoader", TestClassLoader.class);
+		configurations.put("ConfigWithUnknownClassLoader", IConfigurationClassLoader.class);
+		configurations.put("Child", DummyClassLoader.class);
+		configurations.put("Other", DummyClassLoader.class);
+
+		AppConstants appConstants = AppConstants.getInstance();
+		appConstants.setProperty(IbisContext.LOAD_THREADS_KEY, "3");
+		appConstants.setProperty("configurations.Child.parentConfig", "Parent");
+		try(IbisTestContext context = new IbisTestContext(configurations)) {
+			context.init(false);
+
+			StartupTimeline timeline = context.getStartupTimeline();
+			assertEquals(configurations.size(), timeline.getEntries().size(), "every configuration must be in the startup timeline");
+			for (StartupTimeline.Entry entry : timeline.getEntries()) {
+				assertThat(entry.getThreadName(), Matchers.startsWith("ConfigurationLoader-"));
+			}
+
+			// the failing configurations do not prevent the others from being loaded
+			assertFalse(timeline.getEntry("ConfigWithNullClassLoader").isSuccess());
+			assertFalse(timeline.getEntry("ConfigWithUnknownClassLoader").isSuccess());
+			assertNotNull(context.getIbisManager().getConfiguration("ConfigWithUnknownClassLoader").getConfigurationException());
+			for (String configurationName : new String[] {"Parent", "Child", "Other"}) {
+				assertTrue(timeline.getEntry(configurationName).isSuccess(), "configuration ["+configurationName+"] must be loaded");
+				Configuration config = context.getIbisManager().getConfiguration(configurationName);
+				assertNotNull(config, "configuration ["+configurationName+"] not found");
+				assertNull(config.getConfigurationException());
+			}
+
+			// a configuration is only loaded after its parent configuration
+			StartupTimeline.Entry parent = timeline.getEntry("Parent");
+			StartupTimeline.Entry child = timeline.getEntry("Child");
+			assertTrue(child.getStartTime() >= parent.getStartTime() + parent.getDuration(), "Child must be loaded after Parent");
+		} finally {
+			appConstants.remove(IbisContext.LOAD_THREADS_KEY);
+			appConstants.remove("configurations.Child.parentConfig");
+		}
+	}
 }
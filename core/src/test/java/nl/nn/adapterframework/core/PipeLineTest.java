@@ -3,6 +3,8 @@ package nl.nn.adapterframework.core;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
@@ -274,4 +276,44 @@ public class PipeLineTest {
 		configuration.close();
 		configuration = null;
 	}
+
+	@Test
+	public void testForwardsAreLinkedToTargets() throws ConfigurationException, PipeRunException {
+		TestConfiguration configuration = new TestConfiguration();
+		PipeLine pipeline = configuration.createBean(PipeLine.class);
+
+		EchoPipe pipe = configuration.createBean(EchoPipe.class);
+		pipe.setName("firstPipe");
+		PipeForward toNextPipe = new PipeForward("success", "nextPipe");
+		pipe.registerForward(toNextPipe);
+		pipe.setPipeLine(pipeline);
+		pipeline.addPipe(pipe);
+
+		EchoPipe pipe2 = configuration.createBean(EchoPipe.class);
+		pipe2.setName("nextPipe");
+		PipeForward toExit = new PipeForward("success", "exit");
+		pipe2.registerForward(toExit);
+		pipe2.setPipeLine(pipeline);
+		pipeline.addPipe(pipe2);
+
+		PipeLineExit exit = new PipeLineExit();
+		exit.setPath("exit");
+		exit.setState(ExitState.SUCCESS);
+		pipeline.registerPipeLineExit(exit);
+		pipeline.configure();
+
+		assertSame(pipe2, toNextPipe.getTarget());
+		assertSame(exit, toExit.getTarget());
+		assertSame(pipe2, pipeline.resolveForward(pipe, toNextPipe));
+		assertSame(exit, pipeline.resolveForward(pipe2, toExit));
+
+		// forwards that are not linked are still resolved by path
+		assertSame(pipe2, pipeline.resolveForward(pipe, new PipeForward("other", "nextPipe")));
+
+		toNextPipe.setPath("exit");
+		assertNull(toNextPipe.getTarget());
+		assertSame(exit, pipeline.resolveForward(pipe, toNextPipe));
+
+		configuration.close();
+	}
 }
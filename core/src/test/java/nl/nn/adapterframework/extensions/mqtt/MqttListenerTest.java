@@ -0,0 +1,145 @@
+package nl.nn.adapterframework.extensions.mqtt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+
+import nl.nn.adapterframework.configuration.ConfigurationException;
+import nl.nn.adapterframework.core.IMessageHandler;
+import nl.nn.adapterframework.core.ListenerException;
+import nl.nn.adapterframework.receivers.Receiver;
+
+public class MqttListenerTest {
+
+	private MqttAsyncClient mockClient;
+	private MqttListener listener;
+	private Receiver<MqttMessage> receiver;
+	private IMessageHandler<MqttMessage> handler;
+	private Semaphore finishedTasks = new Semaphore(0);
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		mockClient = mock(MqttAsyncClient.class);
+		receiver = mock(Receiver.class);
+		handler = mock(IMessageHandler.class);
+
+		listener = new MqttListener() {
+			@Override
+			protected MqttAsyncClient createClient() {
+				return mockClient;
+			}
+		};
+		listener.setName("MqttListenerTest");
+		listener.setClientId("clientId");
+		listener.setBrokerUrl("tcp://localhost:1883");
+		listener.setTopic("test/topic");
+		listener.setPersistenceDirectory("mqtt");
+		listener.setQos(1);
+		listener.setReceiver(receiver);
+		listener.setHandler(handler);
+		// counts the tasks that have completely finished, including the acknowledgement
+		TaskExecutor taskExecutor = task -> new Thread(() -> {
+			try {
+				task.run();
+			} finally {
+				finishedTasks.release();
+			}
+		}).start();
+		listener.setTaskExecutor(taskExecutor);
+	}
+
+	private MqttMessage createMessage(int id, String payload) {
+		MqttMessage message = new MqttMessage(payload.getBytes(StandardCharsets.UTF_8));
+		message.setId(id);
+		message.setQos(1);
+		return message;
+	}
+
+	private String payloadOf(MqttMessage message) {
+		return new String(message.getPayload(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testSequentialProcessingUsesAutomaticAcks() throws Exception {
+		when(receiver.getNumThreads()).thenReturn(1);
+		listener.configure();
+
+		MqttMessage message = createMessage(1, "message");
+		listener.messageArrived("test/topic", message);
+
+		verify(handler).processRawMessage(same(listener), same(message));
+		verify(mockClient, never()).setManualAcks(true);
+		verify(mockClient, never()).messageArrivedComplete(anyInt(), anyInt());
+	}
+
+	@Test
+	public void testConcurrentProcessingNeedsTaskExecutor() {
+		when(receiver.getNumThreads()).thenReturn(3);
+		listener.setTaskExecutor(null);
+
+		assertThrows(ConfigurationException.class, listener::configure);
+	}
+
+	@Test
+	public void testConcurrentProcessingAcknowledgesAllMessages() throws Exception {
+		int numThreads = 3;
+		when(receiver.getNumThreads()).thenReturn(numThreads);
+		listener.configure();
+		verify(mockClient).setManualAcks(true);
+
+		CountDownLatch allProcessing = new CountDownLatch(numThreads);
+		AtomicInteger maxConcurrent = new AtomicInteger();
+		AtomicInteger concurrent = new AtomicInteger();
+		doAnswer(invocation -> {
+			MqttMessage message = invocation.getArgument(1);
+			if (payloadOf(message).startsWith("fail")) {
+				throw new ListenerException("cannot process ["+payloadOf(message)+"]");
+			}
+			maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+			try {
+				allProcessing.countDown();
+				// only completes when the messages are processed concurrently
+				if (!allProcessing.await(5, TimeUnit.SECONDS)) {
+					throw new IllegalStateException("messages are not processed concurrently");
+				}
+			} finally {
+				concurrent.decrementAndGet();
+			}
+			return null;
+		}).when(handler).processRawMessage(same(listener), any(MqttMessage.class));
+
+		for (int i=1; i<=numThreads; i++) {
+			listener.messageArrived("test/topic", createMessage(i, "message "+i));
+		}
+		listener.messageArrived("test/topic", createMessage(99, "fail 99"));
+
+		assertTrue(finishedTasks.tryAcquire(numThreads+1, 10, TimeUnit.SECONDS), "messages were not processed in time");
+		assertEquals(numThreads, maxConcurrent.get());
+		for (int i=1; i<=numThreads; i++) {
+			verify(mockClient).messageArrivedComplete(i, 1);
+		}
+		// a failed message is acknowledged after the receiver has handled the failure, to not block the in-flight window
+		verify(mockClient).messageArrivedComplete(99, 1);
+	}
+}
@@ -0,0 +1,165 @@
+package nl.nn.adapterframework.extensions.mqtt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.core.SenderException;
+import nl.nn.adapterframework.stream.Message;
+
+public class MqttSenderTest {
+
+	private static final String TOPIC = "test/topic";
+
+	private MqttAsyncClient mockClient;
+	private MqttSender sender;
+	private PipeLineSession session;
+	private BlockingQueue<IMqttActionListener> deliveryListeners = new LinkedBlockingQueue<>();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		mockClient = mock(MqttAsyncClient.class);
+		when(mockClient.isConnected()).thenReturn(true);
+		when(mockClient.publish(eq(TOPIC), any(MqttMessage.class), isNull(), any(IMqttActionListener.class))).thenAnswer(invocation -> {
+			deliveryListeners.add(invocation.getArgument(3));
+			return mock(IMqttDeliveryToken.class);
+		});
+
+		sender = new MqttSender() {
+			@Override
+			protected MqttAsyncClient createClient() {
+				return mockClient;
+			}
+		};
+		sender.setName("MqttSenderTest");
+		sender.setClientId("clientId");
+		sender.setBrokerUrl("tcp://localhost:1883");
+		sender.setTopic(TOPIC);
+		sender.setPersistenceDirectory("mqtt");
+		sender.setQos(1);
+		sender.setWaitForDelivery(false);
+		session = new PipeLineSession();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		session.close();
+	}
+
+	private void send(String message) throws Exception {
+		sender.sendMessage(new Message(message), session);
+	}
+
+	private IMqttActionListener nextDeliveryListener() throws InterruptedException {
+		IMqttActionListener listener = deliveryListeners.poll(5, TimeUnit.SECONDS);
+		if (listener == null) {
+			throw new IllegalStateException("message was not published");
+		}
+		return listener;
+	}
+
+	@Test
+	public void testInflightWindowBlocksUntilDelivery() throws Exception {
+		sender.setMaxInflight(2);
+		sender.configure();
+		assertEquals(3, sender.connectOptions.getMaxInflight());
+
+		send("message 1");
+		send("message 2");
+		IMqttActionListener firstDelivery = nextDeliveryListener();
+		nextDeliveryListener();
+
+		CompletableFuture<Void> third = CompletableFuture.runAsync(() -> {
+			try {
+				send("message 3");
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		Thread.sleep(200);
+		assertFalse(third.isDone(), "third message must wait while the window of 2 messages is full");
+		verify(mockClient, times(2)).publish(eq(TOPIC), any(MqttMessage.class), isNull(), any(IMqttActionListener.class));
+
+		firstDelivery.onSuccess(mock(IMqttToken.class));
+		Thread.sleep(200);
+		assertFalse(third.isDone(), "third message must wait until the client has completed the delivery");
+
+		sender.deliveryComplete(mock(IMqttDeliveryToken.class));
+		third.get(5, TimeUnit.SECONDS);
+		nextDeliveryListener();
+		verify(mockClient, times(3)).publish(eq(TOPIC), any(MqttMessage.class), isNull(), any(IMqttActionListener.class));
+	}
+
+	@Test
+	public void testDeliveryFailureSurfacesOnNextSend() throws Exception {
+		sender.configure();
+
+		send("message 1");
+		MqttException deliveryException = new MqttException(MqttException.REASON_CODE_CONNECTION_LOST);
+		nextDeliveryListener().onFailure(mock(IMqttToken.class), deliveryException);
+
+		SenderException e = assertThrows(SenderException.class, () -> send("message 2"));
+		assertSame(deliveryException, e.getCause());
+		verify(mockClient, times(1)).publish(eq(TOPIC), any(MqttMessage.class), isNull(), any(IMqttActionListener.class));
+
+		// the failure is reported once, the sender continues after that
+		send("message 3");
+		nextDeliveryListener().onSuccess(mock(IMqttToken.class));
+		verify(mockClient, times(2)).publish(eq(TOPIC), any(MqttMessage.class), isNull(), any(IMqttActionListener.class));
+	}
+
+	@Test
+	public void testFailedPublishReleasesWindow() throws Exception {
+		sender.setMaxInflight(1);
+		sender.configure();
+		when(mockClient.publish(eq(TOPIC), any(MqttMessage.class), isNull(), any(IMqttActionListener.class)))
+				.thenThrow(new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED))
+				.thenAnswer(invocation -> {
+					deliveryListeners.add(invocation.getArgument(3));
+					return mock(IMqttDeliveryToken.class);
+				});
+
+		assertThrows(SenderException.class, () -> send("message 1"));
+		send("message 2"); // would block if the permit of the failed publish was not released
+		nextDeliveryListener().onSuccess(mock(IMqttToken.class));
+	}
+
+	@Test
+	public void testWaitForDelivery() throws Exception {
+		sender.setWaitForDelivery(true);
+		sender.configure();
+		IMqttDeliveryToken token = mock(IMqttDeliveryToken.class);
+		when(mockClient.publish(eq(TOPIC), any(MqttMessage.class))).thenReturn(token);
+
+		send("message");
+
+		verify(token).waitForCompletion();
+		verify(mockClient, never()).publish(eq(TOPIC), any(MqttMessage.class), isNull(), any(IMqttActionListener.class));
+		assertEquals(0, deliveryListeners.size());
+	}
+}
@@ -3,13 +3,23 @@ package nl.nn.adapterframework.http;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
@@ -17,6 +27,7 @@ import org.apache.http.entity.InputStreamEntity;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import nl.nn.adapterframework.http.HttpSenderBase.RequestCompression;
 import nl.nn.adapterframework.stream.FileMessage;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.credentialprovider.util.Misc;
@@ -158,6 +169,108 @@ public class HttpMessageEntityTest {
 		assertEquals(REPEATABLE_TS_MESSAGE.asString(), toString(hmeUrlRepeatable));
 	}
 
+	@Test
+	public void testGzipCompressingEntity() throws Exception {
+		CompressingHttpEntity entity = new CompressingHttpEntity(new HttpMessageEntity(Message.asMessage(new FilterInputStream(REPEATABLE_MESSAGE.asInputStream()) {})), RequestCompression.GZIP);
+		assertEquals("gzip", entity.getContentEncoding().getValue());
+		assertEquals(-1, entity.getContentLength());
+		assertEquals(true, entity.isChunked());
+
+		ByteArrayOutputStream boas = new ByteArrayOutputStream();
+		entity.writeTo(boas);
+		assertEquals(MESSAGE_CONTENT, Misc.streamToString(new GZIPInputStream(new ByteArrayInputStream(boas.toByteArray()))));
+	}
+
+	@Test
+	public void testDeflateCompressingEntity() throws Exception {
+		CompressingHttpEntity entity = new CompressingHttpEntity(new HttpMessageEntity(REPEATABLE_MESSAGE), RequestCompression.DEFLATE);
+		assertEquals("deflate", entity.getContentEncoding().getValue());
+		assertEquals(true, entity.isRepeatable());
+
+		ByteArrayOutputStream boas = new ByteArrayOutputStream();
+		entity.writeTo(boas);
+		assertEquals(MESSAGE_CONTENT, Misc.streamToString(new InflaterInputStream(new ByteArrayInputStream(boas.toByteArray()))));
+	}
+
+	@Test
+	public void testGzipCompressingEntityContent() throws Exception {
+		String content = StringUtils.repeat("dummy content with a € sign ", 10_000);
+		CompressingHttpEntity entity = new CompressingHttpEntity(new HttpMessageEntity(new Message(content)), RequestCompression.GZIP);
+
+		try (InputStream compressed = entity.getContent()) {
+			assertEquals(content, Misc.streamToString(new GZIPInputStream(compressed)));
+		}
+	}
+
+	@Test
+	public void testGzipCompressingEntityContentClosedEarly() throws Exception {
+		AtomicBoolean contentClosed = new AtomicBoolean();
+		InputStream content = new FilterInputStream(new ByteArrayInputStream(StringUtils.repeat("dummy content ", 10_000).getBytes(StandardCharsets.UTF_8))) {
+			@Override
+			public void close() throws IOException {
+				contentClosed.set(true);
+				super.close();
+			}
+		};
+		CompressingHttpEntity entity = new CompressingHttpEntity(new InputStreamEntity(content), RequestCompression.GZIP);
+
+		InputStream compressed = entity.getContent();
+		compressed.read(new byte[100]);
+		compressed.close();
+		assertTrue(contentClosed.get());
+	}
+
+	@Test
+	public void testDeflateCompressingEntityContent() throws Exception {
+		CompressingHttpEntity entity = new CompressingHttpEntity(new HttpMessageEntity(REPEATABLE_MESSAGE), RequestCompression.DEFLATE);
+
+		try (InputStream compressed = entity.getContent()) {
+			assertEquals(MESSAGE_CONTENT, Misc.streamToString(new InflaterInputStream(compressed)));
+		}
+	}
+
+	@Test
+	public void testUrlEncodedMessageEntityWithMessageAsField() throws Exception {
+		UrlEncodedMessageEntity entity = new UrlEncodedMessageEntity(new Message("a value & \uD83D\uDE00"), "message", "param1=x&param2=y", StandardCharsets.UTF_8, ContentType.APPLICATION_FORM_URLENCODED);
+		assertEquals(-1, entity.getContentLength());
+		assertEquals(true, entity.isChunked());
+		assertNull(entity.getContentEncoding());
+
+		String expected = "message=a+value+%26+%F0%9F%98%80&param1=x&param2=y";
+		assertEquals(expected, toString(entity));
+		assertEquals(expected, Misc.streamToString(entity.getContent()));
+	}
+
+	@Test
+	public void testUrlEncodedMessageEntityWithMessageAsIs() throws Exception {
+		assertEquals("a=1&b=2&param1=x", toString(new UrlEncodedMessageEntity(new Message("a=1&b=2"), null, "param1=x", StandardCharsets.UTF_8, null)));
+		assertEquals("a=1&b=2", toString(new UrlEncodedMessageEntity(new Message("a=1&b=2"), null, null, StandardCharsets.UTF_8, null)));
+		assertEquals("param1=x", toString(new UrlEncodedMessageEntity(null, null, "param1=x", StandardCharsets.UTF_8, null)));
+		assertEquals("param1=x", toString(new UrlEncodedMessageEntity(Message.nullMessage(), null, "param1=x", StandardCharsets.UTF_8, null)));
+	}
+
+	@Test
+	public void testUrlEncodedMessageEntityEncodesSurrogatePairsAcrossBuffers() throws Exception {
+		// puts the high surrogate of a pair at the end of the first read buffer
+		String content = StringUtils.repeat("a", 4095) + "\uD83D\uDE00";
+		UrlEncodedMessageEntity entity = new UrlEncodedMessageEntity(new Message(content), "m", null, StandardCharsets.UTF_8, null);
+
+		assertEquals("m="+URLEncoder.encode(content, "UTF-8"), toString(entity));
+	}
+
+	@Test
+	public void testCountingEntity() throws Exception {
+		AtomicLong size = new AtomicLong(-1);
+		CountingHttpEntity entity = new CountingHttpEntity(new HttpMessageEntity(REPEATABLE_MESSAGE), size::set);
+
+		assertEquals(MESSAGE_CONTENT, toString(entity));
+		assertEquals(MESSAGE_CONTENT.length(), size.get());
+
+		size.set(-1);
+		assertEquals(MESSAGE_CONTENT, Misc.streamToString(entity.getContent()));
+		assertEquals(MESSAGE_CONTENT.length(), size.get());
+	}
+
 	private String toString(HttpEntity entity) throws IOException {
 		ByteArrayOutputStream boas = new ByteArrayOutputStream();
 		entity.writeTo(boas);
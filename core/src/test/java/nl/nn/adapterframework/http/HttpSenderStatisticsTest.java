@@ -0,0 +1,205 @@
+package nl.nn.adapterframework.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.protocol.HttpContext;
+import org.junit.jupiter.api.Test;
+
+import nl.nn.adapterframework.core.SenderException;
+import nl.nn.adapterframework.http.HttpSenderBase.HttpMethod;
+import nl.nn.adapterframework.statistics.HasStatistics.Action;
+import nl.nn.adapterframework.statistics.ScalarMetricBase;
+import nl.nn.adapterframework.statistics.StatisticsKeeper;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
+import nl.nn.adapterframework.testutil.ParameterBuilder;
+
+public class HttpSenderStatisticsTest extends HttpSenderTestBase<HttpSender> {
+
+	@Override
+	public HttpSender createSender() {
+		return spy(new HttpSender());
+	}
+
+	/**
+	 * Collects the statistics keepers by name, and the scalars by name.
+	 */
+	private static class StatisticsCollector implements StatisticsKeeperIterationHandler<Object> {
+		private final Map<String, StatisticsKeeper> statisticsKeepers = new LinkedHashMap<>();
+		private final Map<String, Long> scalars = new LinkedHashMap<>();
+
+		@Override
+		public void configure() {
+		}
+
+		@Override
+		public Object start(Date now, Date mainMark, Date detailMark) {
+			return null;
+		}
+
+		@Override
+		public void end(Object data) {
+		}
+
+		@Override
+		public void handleStatisticsKeeper(Object data, StatisticsKeeper sk) {
+			statisticsKeepers.put(sk.getName(), sk);
+		}
+
+		@Override
+		public void handleScalar(Object data, String name, ScalarMetricBase<?> meter) {
+			scalars.put(name, meter.getValue());
+		}
+
+		@Override
+		public void handleScalar(Object data, String scalarName, long value) {
+			scalars.put(scalarName, value);
+		}
+
+		@Override
+		public void handleScalar(Object data, String scalarName, Date value) {
+		}
+
+		@Override
+		public Object openGroup(Object parentData, String name, String type) {
+			return null;
+		}
+
+		@Override
+		public void closeGroup(Object data) {
+		}
+	}
+
+	private StatisticsCollector collectStatistics() throws SenderException {
+		StatisticsCollector collector = new StatisticsCollector();
+		sender.iterateOverStatistics(collector, null, Action.SUMMARY);
+		return collector;
+	}
+
+	@Test
+	public void testRouteStatisticsAreCapped() throws Exception {
+		sender = getSender(false);
+		sender.setMethodType(HttpMethod.GET);
+		sender.setUrl(null);
+		sender.setUrlParam("url");
+		sender.addParameter(ParameterBuilder.create().withName("url").withSessionKey("url"));
+		sender.configure();
+		sender.open();
+
+		int numberOfHosts = HttpSenderBase.MAX_ROUTE_STATISTICS + 5;
+		for (int i=0; i<numberOfHosts; i++) {
+			session.put("url", "http://host"+i+"/");
+			sendMessage("hallo").close();
+		}
+
+		StatisticsCollector statistics = collectStatistics();
+		long numberOfRouteStatistics = statistics.statisticsKeepers.keySet().stream().filter(name -> name.startsWith("response time of http")).count();
+		assertEquals(HttpSenderBase.MAX_ROUTE_STATISTICS, numberOfRouteStatistics);
+		assertEquals(5, statistics.statisticsKeepers.get("response time of other routes").getCount());
+	}
+
+	@Test
+	public void testLeaseTimeoutDoesNotLowerRouteLimit() throws Exception {
+		sender = getSender(false);
+		sender.setMethodType(HttpMethod.GET);
+		sender.setAdaptiveConnections(true);
+		sender.setMaxConnectionsPerRoute(4);
+		sender.configure();
+		sender.open();
+
+		// leasing a connection registers the route in the pool, the connection is not opened
+		PoolingConnectionManager connectionManager = sender.getConnectionManager();
+		HttpRoute route = new HttpRoute(new HttpHost("127.0.0.1", 80, "http"));
+		HttpClientConnection connection = connectionManager.requestConnection(route, null).get(1, TimeUnit.SECONDS);
+		try {
+			when(sender.getHttpClient().execute(any(HttpHost.class), any(HttpRequestBase.class), any(HttpContext.class)))
+					.thenThrow(new ConnectionPoolTimeoutException("Timeout waiting for connection from pool"))
+					.thenThrow(new NoHttpResponseException("127.0.0.1:80 failed to respond"));
+
+			assertThrows(SenderException.class, () -> sendMessage("hallo"));
+			assertEquals(4, connectionManager.getMaxPerRoute(route));
+
+			assertThrows(SenderException.class, () -> sendMessage("hallo"));
+			assertTrue(connectionManager.getMaxPerRoute(route) < 4, "a failed request must lower the limit of the route");
+		} finally {
+			connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Test
+	public void testMaxConnectionsPerRoute() throws Exception {
+		sender = getSender(false);
+		sender.setMaxConnections(10);
+		sender.setMaxConnectionsPerRoute(3);
+		sender.configure();
+		sender.open();
+
+		PoolingConnectionManager connectionManager = sender.getConnectionManager();
+		assertEquals(10, connectionManager.getMaxTotal());
+		assertEquals(3, connectionManager.getDefaultMaxPerRoute());
+		assertEquals(3, connectionManager.getMaxRouteLimit());
+	}
+
+	@Test
+	public void testMaxConnectionsPerRouteDefaultsToMaxConnections() throws Exception {
+		sender = getSender(false);
+		sender.setMaxConnections(7);
+		sender.configure();
+		sender.open();
+
+		assertEquals(7, sender.getConnectionManager().getDefaultMaxPerRoute());
+	}
+
+	@Test
+	public void testIterateOverStatistics() throws Exception {
+		sender = getSender(false);
+		sender.setMethodType(HttpMethod.GET);
+		sender.setMaxConnections(5);
+		sender.setMaxConnectionsPerRoute(2);
+		sender.configure();
+
+		// the statistics of the only route exist before the sender is opened, to be registered as metrics
+		StatisticsCollector statistics = collectStatistics();
+		assertEquals(0, statistics.statisticsKeepers.get("response time of http://127.0.0.1:80").getCount());
+		assertEquals(0L, statistics.scalars.get("connectionsLeased"));
+		assertEquals(5L, statistics.scalars.get("connectionsMax"));
+		assertTrue(statistics.statisticsKeepers.containsKey("connection lease wait"));
+		assertTrue(statistics.statisticsKeepers.containsKey("request size"));
+		assertTrue(statistics.statisticsKeepers.containsKey("response size"));
+
+		sender.open();
+		sendMessage("hallo").close();
+
+		// leasing a connection registers the route in the pool, the connection is not opened
+		PoolingConnectionManager connectionManager = sender.getConnectionManager();
+		HttpRoute route = new HttpRoute(new HttpHost("127.0.0.1", 80, "http"));
+		HttpClientConnection connection = connectionManager.requestConnection(route, null).get(1, TimeUnit.SECONDS);
+		try {
+			statistics = collectStatistics();
+			assertEquals(1, statistics.statisticsKeepers.get("response time of http://127.0.0.1:80").getCount());
+			assertEquals(1, statistics.statisticsKeepers.get("connection lease wait").getCount());
+			assertEquals(1L, statistics.scalars.get("connectionsLeased"));
+			assertEquals(0L, statistics.scalars.get("connectionRequestsPending"));
+			assertEquals(1L, statistics.scalars.get("connections leased to http://127.0.0.1:80"));
+			assertEquals(0L, statistics.scalars.get("connections available to http://127.0.0.1:80"));
+			assertEquals(2L, statistics.scalars.get("connection limit for http://127.0.0.1:80"));
+		} finally {
+			connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+		}
+	}
+}
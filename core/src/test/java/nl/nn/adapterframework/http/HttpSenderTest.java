@@ -16,13 +16,18 @@
 package nl.nn.adapterframework.http;
 
 import static nl.nn.adapterframework.testutil.TestAssertions.assertEqualsIgnoreCRLF;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.spy;
 
 import java.io.ByteArrayInputStream;
+import java.net.URI;
 import java.net.URL;
 
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.RequestContent;
 import org.junit.Test;
 
 import nl.nn.adapterframework.configuration.ConfigurationException;
@@ -1164,4 +1169,39 @@ public class HttpSenderTest extends HttpSenderTestBase<HttpSender> {
 		String result = sender.sendMessageOrThrow(input, pls).asString();
 		assertEqualsIgnoreCRLF(getFile("simpleMockedHttpHead.txt"), result.trim());
 	}
-}
\ No newline at end of file
+
+	private HttpRequestBase getRequestWithEntityHeaders(Message input) throws Exception {
+		HttpRequestBase request = sender.getMethod(new URI("http://localhost/path"), input, null, session);
+		// adds the Content-Type, Content-Encoding and Content-Length or Transfer-Encoding headers of the entity, like the HttpClient does
+		new RequestContent().process(request, new BasicHttpContext());
+		return request;
+	}
+
+	@Test
+	public void rawPostRequestHeaders() throws Throwable {
+		sender = getSender(false);
+		sender.setMethodType(HttpMethod.POST);
+		sender.setContentType("application/json");
+		sender.configure();
+
+		HttpRequestBase request = getRequestWithEntityHeaders(new Message("{\"key\": \"value\"}"));
+
+		assertEquals("application/json; charset=UTF-8", request.getFirstHeader("Content-Type").getValue());
+		assertNull("charset must not be sent as Content-Encoding", request.getFirstHeader("Content-Encoding"));
+	}
+
+	@Test
+	public void urlEncodedPostRequestHeaders() throws Throwable {
+		sender = getSender(false);
+		sender.setMethodType(HttpMethod.POST);
+		sender.setPostType(PostType.URLENCODED);
+		sender.setFirstBodyPartName("message");
+		sender.configure();
+
+		HttpRequestBase request = getRequestWithEntityHeaders(new Message("a value"));
+
+		assertEquals("application/x-www-form-urlencoded; charset=UTF-8", request.getFirstHeader("Content-Type").getValue());
+		assertNull(request.getFirstHeader("Content-Encoding"));
+		assertEquals("chunked", request.getFirstHeader("Transfer-Encoding").getValue());
+	}
+}
@@ -0,0 +1,125 @@
+package nl.nn.adapterframework.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nl.nn.adapterframework.statistics.StatisticsKeeper;
+
+public class PoolingConnectionManagerTest {
+
+	private final HttpHost targetHost = new HttpHost("localhost", 8080, "http");
+	private final HttpRoute route = new HttpRoute(targetHost);
+	private StatisticsKeeper leaseWaitStatistics;
+	private PoolingConnectionManager connectionManager;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		leaseWaitStatistics = new StatisticsKeeper("connection lease wait");
+		connectionManager = new PoolingConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create().register("http", PlainConnectionSocketFactory.getSocketFactory()).build(), -1, TimeUnit.SECONDS, leaseWaitStatistics);
+		connectionManager.setMaxTotal(10);
+		connectionManager.setDefaultMaxPerRoute(2);
+		connectionManager.setAdaptive(true);
+		connectionManager.setMinRouteLimit(1);
+		connectionManager.setMaxRouteLimit(4);
+		connectionManager.setSlowResponseThreshold(100);
+
+		// leasing a connection registers the route, the connection is not opened
+		HttpClientConnection connection = connectionManager.requestConnection(route, null).get(1, TimeUnit.SECONDS);
+		connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	public void testLeaseWaitIsRecorded() {
+		assertEquals(1, leaseWaitStatistics.getCount());
+		assertEquals(route, connectionManager.findRoute(targetHost));
+	}
+
+	@Test
+	public void testLeaseCompletedIsTakenOnce() throws Exception {
+		long t0 = System.currentTimeMillis();
+		Thread.sleep(20);
+		HttpClientConnection connection = connectionManager.requestConnection(route, null).get(1, TimeUnit.SECONDS);
+		connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+
+		long leaseCompleted = connectionManager.takeLeaseCompleted(t0);
+		assertTrue(leaseCompleted >= t0+20, "lease must be completed after the request started");
+		assertEquals(t0, connectionManager.takeLeaseCompleted(t0));
+	}
+
+	@Test
+	public void testEarlierLeaseIsIgnored() {
+		// the lease of setUp completed before this request started
+		long t0 = System.currentTimeMillis()+1000;
+		assertEquals(t0, connectionManager.takeLeaseCompleted(t0));
+	}
+
+	@Test
+	public void testLimitIncreasesAfterFastResponses() {
+		connectionManager.registerResult(targetHost, 10, false);
+		assertEquals(2, connectionManager.getMaxPerRoute(route));
+		connectionManager.registerResult(targetHost, 10, false);
+		assertEquals(3, connectionManager.getMaxPerRoute(route));
+
+		for (int i=0; i<10; i++) {
+			connectionManager.registerResult(targetHost, 10, false);
+		}
+		assertEquals(4, connectionManager.getMaxPerRoute(route));
+	}
+
+	@Test
+	public void testLimitDecreasesAfterFailureOrSlowResponse() {
+		connectionManager.registerResult(targetHost, 10, true);
+		assertEquals(1, connectionManager.getMaxPerRoute(route));
+
+		connectionManager.registerResult(targetHost, 500, false);
+		assertEquals(1, connectionManager.getMaxPerRoute(route));
+	}
+
+	@Test
+	public void testLimitIsNotAdaptedWhenNotAdaptive() {
+		connectionManager.setAdaptive(false);
+		connectionManager.registerResult(targetHost, 10, true);
+		assertEquals(2, connectionManager.getMaxPerRoute(route));
+	}
+
+	@Test
+	public void testLimitOfRemovedRouteIsForgotten() {
+		connectionManager.registerResult(targetHost, 10, true);
+		assertEquals(1, connectionManager.getMaxPerRoute(route));
+		assertEquals(1, connectionManager.getNumberOfRouteLimits());
+
+		// the route has no connections, evicting idle connections removes it from the pool
+		connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+
+		assertNull(connectionManager.findRoute(targetHost));
+		assertEquals(0, connectionManager.getNumberOfRouteLimits());
+		assertEquals(2, connectionManager.getMaxPerRoute(route));
+	}
+
+	@Test
+	public void testLimitOfRouteInUseIsKept() throws Exception {
+		HttpClientConnection connection = connectionManager.requestConnection(route, null).get(1, TimeUnit.SECONDS);
+		try {
+			connectionManager.registerResult(targetHost, 10, true);
+			connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+			connectionManager.closeExpiredConnections();
+
+			assertEquals(1, connectionManager.getNumberOfRouteLimits());
+			assertEquals(1, connectionManager.getMaxPerRoute(route));
+		} finally {
+			connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+		}
+	}
+}
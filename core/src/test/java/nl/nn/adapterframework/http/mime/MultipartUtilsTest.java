@@ -1,12 +1,20 @@
 package nl.nn.adapterframework.http.mime;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.charset.StandardCharsets;
+
 import jakarta.mail.BodyPart;
 import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMultipart;
 
 import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.http.PartMessage;
 
 public class MultipartUtilsTest {
 
@@ -44,4 +52,52 @@ public class MultipartUtilsTest {
 		part.setHeader("Content-Disposition", "attachment; filename=\"dummy.jpg\"");
 		assertTrue(MultipartUtils.isBinary(part));
 	}
+
+	private static final String MULTIPART_BODY = "--boundary\r\n"
+			+ "Content-Disposition: form-data; name=\"text\"\r\n"
+			+ "\r\n"
+			+ "text value\r\n"
+			+ "--boundary\r\n"
+			+ "Content-Disposition: form-data; name=\"file\"; filename=\"dummy.bin\"\r\n"
+			+ "Content-Type: application/octet-stream\r\n"
+			+ "\r\n"
+			+ "file content\r\n"
+			+ "--boundary--\r\n";
+
+	private MockHttpServletRequest createMultipartRequest(boolean lengthKnown) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/") {
+			@Override
+			public long getContentLengthLong() {
+				return lengthKnown ? super.getContentLengthLong() : -1;
+			}
+		};
+		request.setContentType("multipart/form-data; boundary=boundary");
+		request.setContent(MULTIPART_BODY.getBytes(StandardCharsets.UTF_8));
+		return request;
+	}
+
+	private void assertParts(MimeMultipart mimeMultipart) throws Exception {
+		assertEquals(2, mimeMultipart.getCount());
+		assertEquals("text", MultipartUtils.getFieldName(mimeMultipart.getBodyPart(0)));
+		assertEquals("text value", new PartMessage(mimeMultipart.getBodyPart(0)).asString());
+		assertEquals("dummy.bin", MultipartUtils.getFileName(mimeMultipart.getBodyPart(1)));
+		assertEquals("file content", new PartMessage(mimeMultipart.getBodyPart(1)).asString());
+	}
+
+	@Test
+	public void testParseMultipartInMemory() throws Exception {
+		try (PipeLineSession session = new PipeLineSession()) {
+			assertParts(MultipartUtils.parseMultipart(createMultipartRequest(true), session));
+		}
+	}
+
+	@Test
+	public void testParseMultipartOfUnknownLength() throws Exception {
+		try (PipeLineSession session = new PipeLineSession()) {
+			MimeMultipart mimeMultipart = MultipartUtils.parseMultipart(createMultipartRequest(false), session);
+			assertParts(mimeMultipart);
+			// the parts can be read repeatedly, as long as the session is open
+			assertParts(mimeMultipart);
+		}
+	}
 }
@@ -24,6 +24,7 @@ import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.stream.document.DocumentFormat;
 import nl.nn.adapterframework.testutil.ParameterBuilder;
 import nl.nn.adapterframework.testutil.TestFileUtils;
+import nl.nn.adapterframework.util.ResultSetExporter.ExportFormat;
 
 public class FixedQuerySenderTest extends JdbcSenderTestBase<FixedQuerySender> {
 
@@ -266,6 +267,34 @@ public class FixedQuerySenderTest extends JdbcSenderTestBase<FixedQuerySender> {
 		testOutputFormat(DocumentFormat.JSON, false, r-> assertJsonEquals(expected, r));
 	}
 
+	public void testExportFormat(ExportFormat exportFormat, String expected) throws Exception {
+		assumeTrue(getDataSourceName().equals("H2"));
+		sender.setQuery("SELECT COUNT(*) as CNT, 'string' as STR, 5 as NUM, null as NULLCOL FROM "+JdbcTestBase.TEST_TABLE+" WHERE 1=0");
+		sender.setExportFormat(exportFormat);
+		sender.setFetchSize(100);
+		sender.setQueryType("select");
+		sender.configure();
+		sender.open();
+
+		Message result = sendMessage("dummy");
+		assertEquals(expected, result.asString());
+	}
+
+	@Test
+	public void testExportFormatCsv() throws Exception {
+		testExportFormat(ExportFormat.CSV, "CNT,STR,NUM,NULLCOL\r\n0,string,5,\r\n");
+	}
+
+	@Test
+	public void testExportFormatNdJson() throws Exception {
+		testExportFormat(ExportFormat.NDJSON, "{\"CNT\":0,\"STR\":\"string\",\"NUM\":5,\"NULLCOL\":null}\n");
+	}
+
+	@Test
+	public void testExportFormatXml() throws Exception {
+		testExportFormat(ExportFormat.XML, "<result><rowset><row number=\"0\"><field name=\"CNT\">0</field><field name=\"STR\">string</field><field name=\"NUM\">5</field><field name=\"NULLCOL\" null=\"true\"></field></row></rowset></result>");
+	}
+
 	public String getLongString(int sizeInK) {
 		StringBuilder result=new StringBuilder();
 		for(int i=0; i<16; i++) {
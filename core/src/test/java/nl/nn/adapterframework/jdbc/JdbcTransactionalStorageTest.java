@@ -21,6 +21,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import nl.nn.adapterframework.core.IMessageBrowsingIteratorItem;
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.util.JdbcUtil;
 
 public class JdbcTransactionalStorageTest extends TransactionManagerTestBase {
 
@@ -249,4 +252,38 @@ public class JdbcTransactionalStorageTest extends TransactionManagerTestBase {
 		assertEquals(message,result);
 	}
 
+	@Test
+	public void testMessageStoreSenderBatchInsert() throws Exception {
+		MessageStoreSender sender = getConfiguration().createBean(MessageStoreSender.class);
+		sender.setTableName(tableName);
+		sender.setMessageField(messageField);
+		sender.setKeyField(keyField);
+		sender.setCheckTable(false);
+		sender.setSequenceName("SEQ_"+tableName);
+		sender.setSlotId("test");
+		sender.setBatchSize(3);
+		autowire(sender);
+		sender.configure();
+		storage.configure();
+
+		try (PipeLineSession session = new PipeLineSession()) {
+			session.put(PipeLineSession.correlationIdKey, "correlationId");
+			MessageStoreSender.BlockContext blockContext = sender.openBlock(session);
+			try {
+				for (String messageId : new String[] {"1", "2", "1", "3", "4", "2", "5"}) {
+					session.put(PipeLineSession.messageIdKey, messageId);
+					sender.sendMessage(blockContext, new Message("message "+messageId), session);
+				}
+			} finally {
+				sender.closeBlock(blockContext, session);
+			}
+		}
+
+		try (Connection connection = getConnection()) {
+			assertEquals("5", JdbcUtil.executeStringQuery(connection, "SELECT COUNT(*) FROM "+tableName));
+			String key = JdbcUtil.executeStringQuery(connection, "SELECT "+keyField+" FROM "+tableName+" WHERE "+storage.getIdField()+"='3'");
+			assertEquals("message 3", storage.getMessage(key));
+		}
+	}
+
 }
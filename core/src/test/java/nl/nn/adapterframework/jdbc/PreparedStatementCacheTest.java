@@ -0,0 +1,196 @@
+package nl.nn.adapterframework.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+
+public class PreparedStatementCacheTest {
+
+	private PreparedStatementCache cache;
+	private Connection connection;
+
+	@BeforeEach
+	public void setUp() throws SQLException {
+		cache = new PreparedStatementCache(2);
+		connection = mock(Connection.class);
+		when(connection.prepareStatement("q1")).thenAnswer(i -> mock(PreparedStatement.class));
+		when(connection.prepareStatement("q2")).thenAnswer(i -> mock(PreparedStatement.class));
+		when(connection.prepareStatement("q3")).thenAnswer(i -> mock(PreparedStatement.class));
+	}
+
+	private PreparedStatement prepare(String query) throws SQLException {
+		return cache.prepareStatement(connection, query, c -> c.prepareStatement(query));
+	}
+
+	@Test
+	public void testReuseAfterRelease() throws SQLException {
+		PreparedStatement stmt1 = prepare("q1");
+		cache.releaseStatement(stmt1);
+		PreparedStatement stmt2 = prepare("q1");
+
+		assertSame(stmt1, stmt2);
+		verify(stmt1, never()).close();
+		verify(stmt1).clearParameters();
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testNoReuseWhileCheckedOut() throws SQLException {
+		PreparedStatement stmt1 = prepare("q1");
+		PreparedStatement stmt2 = prepare("q1");
+
+		assertNotSame(stmt1, stmt2);
+		cache.releaseStatement(stmt1);
+		cache.releaseStatement(stmt2);
+		verify(stmt1, never()).close();
+		verify(stmt2).close();
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testDoubleReleaseDoesNotClose() throws SQLException {
+		PreparedStatement stmt1 = prepare("q1");
+		cache.releaseStatement(stmt1);
+		cache.releaseStatement(stmt1);
+
+		verify(stmt1, never()).close();
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws SQLException {
+		PreparedStatement stmt1 = prepare("q1");
+		PreparedStatement stmt2 = prepare("q2");
+		PreparedStatement stmt3 = prepare("q3");
+		cache.releaseStatement(stmt1);
+		cache.releaseStatement(stmt2);
+		cache.releaseStatement(stmt3);
+
+		verify(stmt1).close();
+		verify(stmt2, never()).close();
+		verify(stmt3, never()).close();
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	public void testClosedStatementIsNotReused() throws SQLException {
+		PreparedStatement stmt1 = prepare("q1");
+		cache.releaseStatement(stmt1);
+		when(stmt1.isClosed()).thenReturn(true);
+
+		PreparedStatement stmt2 = prepare("q1");
+		assertNotSame(stmt1, stmt2);
+		assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	public void testInvalidate() throws SQLException {
+		PreparedStatement stmt1 = prepare("q1");
+		PreparedStatement stmt2 = prepare("q2");
+		cache.releaseStatement(stmt1);
+
+		cache.invalidate(connection);
+		verify(stmt1).close();
+		assertEquals(0, cache.size());
+
+		cache.releaseStatement(stmt2); // was in use during invalidation, must not be cached anymore
+		verify(stmt2).close();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testUnmanagedStatementIsClosed() throws SQLException {
+		PreparedStatement stmt = mock(PreparedStatement.class);
+		cache.releaseStatement(stmt);
+		verify(stmt).close();
+	}
+
+	/**
+	 * DataSource that behaves like a connection pool: each borrow returns a new wrapper around the same physical connection,
+	 * that returns the physical connection on unwrap() and does not close it on close().
+	 */
+	private DataSource createPooledDataSource(List<Connection> preparingConnections) throws SQLException {
+		DataSource pool = mock(DataSource.class);
+		when(pool.getConnection()).thenAnswer(i -> {
+			AtomicBoolean closed = new AtomicBoolean();
+			return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+				switch (method.getName()) {
+				case "unwrap":
+					return connection;
+				case "close":
+					closed.set(true);
+					return null;
+				case "isClosed":
+					return closed.get();
+				case "prepareStatement":
+					preparingConnections.add((Connection)proxy);
+					return method.invoke(connection, args);
+				default:
+					return method.invoke(connection, args);
+				}
+			});
+		});
+		return new TransactionAwareDataSourceProxy(pool);
+	}
+
+	@Test
+	public void testStatementsArePreparedAndReusedOnBorrowedConnection() throws SQLException {
+		List<Connection> preparingConnections = new ArrayList<>();
+		DataSource dataSource = createPooledDataSource(preparingConnections);
+
+		Connection borrowed1 = dataSource.getConnection();
+		PreparedStatement stmt1 = cache.prepareStatement(borrowed1, "q1", c -> c.prepareStatement("q1"));
+		cache.releaseStatement(stmt1);
+		assertSame(stmt1, cache.prepareStatement(borrowed1, "q1", c -> c.prepareStatement("q1")));
+		cache.releaseStatement(stmt1);
+		// the statement is prepared on the connection of the pool, not on the physical connection it wraps
+		assertEquals(1, preparingConnections.size());
+		assertSame(PreparedStatementCache.getBorrowedConnection(borrowed1), preparingConnections.get(0));
+		borrowed1.close();
+
+		Connection borrowed2 = dataSource.getConnection();
+		PreparedStatement stmt2 = cache.prepareStatement(borrowed2, "q1", c -> c.prepareStatement("q1"));
+		cache.releaseStatement(stmt2);
+		borrowed2.close();
+
+		// statements are not reused after the connection has been returned to the pool
+		assertNotSame(stmt1, stmt2);
+		verify(stmt1).close();
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testStatementsOfClosedConnectionAreRemoved() throws SQLException {
+		PreparedStatement stmt1 = prepare("q1");
+		cache.releaseStatement(stmt1);
+		when(connection.isClosed()).thenReturn(true);
+
+		Connection otherConnection = mock(Connection.class);
+		when(otherConnection.prepareStatement("q1")).thenAnswer(i -> mock(PreparedStatement.class));
+		cache.releaseStatement(cache.prepareStatement(otherConnection, "q1", c -> c.prepareStatement("q1")));
+
+		verify(stmt1).close();
+		assertEquals(1, cache.size());
+	}
+}
@@ -0,0 +1,126 @@
+package nl.nn.adapterframework.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Resource;
+import com.nimbusds.jose.util.ResourceRetriever;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+public class JwtValidatorTest {
+
+	private RSAKey signingKey;
+	private JwtValidator<SecurityContext> validator;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		signingKey = new RSAKeyGenerator(2048).keyID("1").generate();
+		validator = new JwtValidator<SecurityContext>() {
+			@Override
+			protected JWKSource<SecurityContext> getKeySource(URL jwksURL) {
+				return new ImmutableJWKSet<>(new JWKSet(signingKey.toPublicJWK()));
+			}
+		};
+		validator.init("http://localhost/jwks", "JwtValidatorTest");
+	}
+
+	private String createToken(Date expirationTime) throws Exception {
+		JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
+				.issuer("JwtValidatorTest")
+				.subject("UnitTest")
+				.expirationTime(expirationTime)
+				.build();
+		SignedJWT signedJWT = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("1").build(), claimsSet);
+		signedJWT.sign(new RSASSASigner(signingKey));
+		return signedJWT.serialize();
+	}
+
+	@Test
+	public void testValidatedTokenIsCached() throws Exception {
+		String token = createToken(new Date(System.currentTimeMillis() + 60000));
+
+		Map<String, Object> claims1 = validator.validateJWT(token);
+		Map<String, Object> claims2 = validator.validateJWT(token);
+
+		assertEquals("UnitTest", claims1.get("sub"));
+		assertEquals(claims1, claims2);
+		assertEquals(1, validator.getVerifiedCount());
+		assertEquals(1, validator.getCacheHits());
+	}
+
+	@Test
+	public void testTokenWithoutExpirationIsNotCached() throws Exception {
+		String token = createToken(null);
+
+		validator.validateJWT(token);
+		validator.validateJWT(token);
+
+		assertEquals(2, validator.getVerifiedCount());
+		assertEquals(0, validator.getCacheHits());
+	}
+
+	@Test
+	public void testRejectedTokenIsNotCached() throws Exception {
+		String token = createToken(new Date(System.currentTimeMillis() - 120000));
+
+		assertThrows(BadJOSEException.class, () -> validator.validateJWT(token));
+		assertThrows(BadJOSEException.class, () -> validator.validateJWT(token));
+
+		assertEquals(2, validator.getFailedCount());
+		assertEquals(0, validator.getCacheHits());
+	}
+
+	@Test
+	public void testJwksIsRefreshedInTheBackground() throws Exception {
+		ResourceRetriever retriever = mock(ResourceRetriever.class);
+		when(retriever.retrieveResource(any(URL.class))).thenReturn(new Resource(new JWKSet(signingKey.toPublicJWK()).toString(), "application/json"));
+		RefreshAheadJWKSource<SecurityContext> source = new RefreshAheadJWKSource<>(new URL("http://localhost/jwks"), retriever, Runnable::run, 0L, 60000L);
+		JWKSelector selector = new JWKSelector(new JWKMatcher.Builder().keyID("1").build());
+
+		assertEquals(1, source.get(selector, null).size());
+		assertEquals(1, source.getRetrievalCount());
+
+		Thread.sleep(5);
+		assertEquals(1, source.get(selector, null).size());
+		assertEquals(2, source.getRetrievalCount());
+	}
+
+	@Test
+	public void testJwksIsKeptWhenRefreshFails() throws Exception {
+		ResourceRetriever retriever = mock(ResourceRetriever.class);
+		when(retriever.retrieveResource(any(URL.class)))
+				.thenReturn(new Resource(new JWKSet(signingKey.toPublicJWK()).toString(), "application/json"))
+				.thenThrow(new IOException("connection refused"));
+		RefreshAheadJWKSource<SecurityContext> source = new RefreshAheadJWKSource<>(new URL("http://localhost/jwks"), retriever, Runnable::run, 0L, 60000L);
+		JWKSelector selector = new JWKSelector(new JWKMatcher.Builder().keyID("1").build());
+
+		source.get(selector, null);
+		Thread.sleep(5);
+		assertEquals(1, source.get(selector, null).size());
+		assertEquals(1, source.getRetrievalFailures());
+	}
+}
@@ -0,0 +1,138 @@
+package nl.nn.adapterframework.ldap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+
+import javax.naming.CommunicationException;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchControls;
+import javax.naming.spi.InitialContextFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LdapContextPoolTest {
+
+	private static List<DirContext> createdContexts = new ArrayList<>();
+
+	public static class MockContextFactory implements InitialContextFactory {
+		@Override
+		public Context getInitialContext(Hashtable<?, ?> environment) throws NamingException {
+			DirContext context = mock(DirContext.class);
+			createdContexts.add(context);
+			return context;
+		}
+	}
+
+	private Hashtable<Object,Object> env;
+	private LdapContextPool pool;
+
+	@BeforeEach
+	public void setUp() {
+		createdContexts.clear();
+		env = new Hashtable<>();
+		env.put(Context.INITIAL_CONTEXT_FACTORY, MockContextFactory.class.getName());
+		env.put(Context.PROVIDER_URL, "ldap://localhost:389");
+		pool = new LdapContextPool(env, 2, 300000L, 30000L);
+	}
+
+	@Test
+	public void testPoolIsClosedByLastRelease() throws Exception {
+		LdapContextPool pool1 = LdapContextPool.getPool(env);
+		LdapContextPool pool2 = LdapContextPool.getPool(env);
+		assertSame(pool1, pool2);
+
+		DirContext idleContext = pool1.getContext();
+		DirContext contextInUse = pool1.getContext();
+		idleContext.close();
+
+		pool1.release();
+		assertEquals(1, pool2.getIdleCount());
+		verify(createdContexts.get(0), never()).close();
+
+		pool2.release();
+		assertEquals(0, pool2.getIdleCount());
+		verify(createdContexts.get(0)).close();
+
+		// a context in use when the pool is closed is closed when it is returned
+		contextInUse.close();
+		assertEquals(0, pool2.getIdleCount());
+		verify(createdContexts.get(1)).close();
+
+		LdapContextPool newPool = LdapContextPool.getPool(env);
+		try {
+			assertNotSame(pool1, newPool);
+		} finally {
+			newPool.release();
+		}
+	}
+
+	@Test
+	public void testContextIsReusedAfterClose() throws Exception {
+		DirContext context = pool.getContext();
+		context.close();
+		DirContext reusedContext = pool.getContext();
+		reusedContext.close();
+
+		assertEquals(1, createdContexts.size());
+		assertEquals(1, pool.getCreatedCount());
+		assertEquals(1, pool.getReusedCount());
+		assertEquals(1, pool.getIdleCount());
+		verify(createdContexts.get(0), times(0)).close();
+	}
+
+	@Test
+	public void testBrokenContextIsDiscarded() throws Exception {
+		DirContext context = pool.getContext();
+		DirContext target = createdContexts.get(0);
+		when(target.search(any(String.class), any(String.class), any(SearchControls.class))).thenThrow(new CommunicationException("connection reset"));
+
+		assertThrows(CommunicationException.class, () -> context.search("ou=test", "(cn=x)", new SearchControls()));
+		context.close();
+
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(1, pool.getDiscardedCount());
+		verify(target).close();
+
+		DirContext newContext = pool.getContext();
+		newContext.close();
+		assertEquals(2, createdContexts.size());
+	}
+
+	@Test
+	public void testMaxIdle() throws Exception {
+		DirContext context1 = pool.getContext();
+		DirContext context2 = pool.getContext();
+		DirContext context3 = pool.getContext();
+		context1.close();
+		context2.close();
+		context3.close();
+
+		assertEquals(2, pool.getIdleCount());
+		verify(createdContexts.get(2)).close();
+	}
+
+	@Test
+	public void testClosedContextCannotBeUsed() throws Exception {
+		DirContext context = pool.getContext();
+		context.close();
+		context.close();
+
+		assertThrows(NamingException.class, () -> context.getAttributes("cn=x"));
+		assertEquals(1, pool.getIdleCount());
+	}
+}
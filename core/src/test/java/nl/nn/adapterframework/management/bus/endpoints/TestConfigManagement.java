@@ -1,6 +1,7 @@
 package nl.nn.adapterframework.management.bus.endpoints;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.integration.support.MessageBuilder;
@@ -63,4 +64,14 @@ public class TestConfigManagement extends BusTestBase {
 		Message<?> response = callSyncGateway(request);
 		assertEquals("[{\"name\":\"TestConfiguration\",\"stubbed\":false,\"state\":\"STARTING\",\"type\":\"JunitTestClassLoaderWrapper\",\"jdbcMigrator\":true}]", response.getPayload());
 	}
+
+	@Test
+	public void getStartupTimeline() {
+		MessageBuilder<String> request = createRequestMessage("NONE", BusTopic.CONFIGURATION, BusAction.STATUS);
+		request.setHeader("configuration", TestConfiguration.TEST_CONFIGURATION_NAME);
+		Message<?> response = callSyncGateway(request);
+		String payload = (String) response.getPayload();
+		assertTrue(payload.startsWith("[{\"name\":\"TestConfiguration\""), payload);
+		assertTrue(payload.contains("\"adapters\":["), payload);
+	}
 }
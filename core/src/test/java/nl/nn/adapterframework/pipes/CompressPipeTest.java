@@ -6,8 +6,12 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
 
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
 
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.core.PipeForward;
@@ -119,6 +123,24 @@ public class CompressPipeTest extends PipeTestBase<CompressPipe> {
 		assertEquals("success", prr.getPipeForward().getName());
 	}
 
+	@Test
+	public void testParallelGzCompression() throws Exception {
+		pipe.setMessageIsContent(true);
+		pipe.setResultIsContent(true);
+		pipe.setCompress(true);
+		pipe.setFileFormat(FileFormat.GZ);
+		pipe.setParallelCompression(true);
+		pipe.setCompressionLevel(9);
+		pipe.setTaskExecutor(new ConcurrentTaskExecutor());
+		configureAndStartPipe();
+		String input = StringUtils.repeat("parallel compression of a large message ", 20000);
+		PipeRunResult prr = doPipe(input);
+
+		try (InputStream in = new GZIPInputStream(prr.getResult().asInputStream())) {
+			assertEquals(input, StreamUtil.streamToString(in, null, "UTF-8"));
+		}
+	}
+
 	@Test
 	public void testGetterSetterMessageIsContent() {
 		pipe.setMessageIsContent(true);
@@ -15,6 +15,7 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
 
 import org.hamcrest.Matchers;
 import org.hamcrest.core.StringContains;
@@ -980,6 +981,27 @@ public class ForEachChildElementPipeTest extends StreamingPipeTestBase<ForEachCh
 		assertEquals(expected, actual);
 	}
 
+	@Test
+	public void testBulk2ParallelWithMaxPendingResults() throws Exception, IOException {
+		pipe.setSender(getElementRenderer());
+		pipe.setTargetElement("XDOC");
+		pipe.setBlockSize(4);
+		pipe.setParallel(true);
+		pipe.setTaskExecutor(new ConcurrentTaskExecutor(Executors.newFixedThreadPool(4)));
+		pipe.setMaxChildThreads(4);
+		pipe.setMaxPendingResults(2);
+		pipe.setRemoveNamespaces(false);
+		configurePipe();
+		pipe.start();
+
+		String input = TestFileUtils.getTestFile("/ForEachChildElementPipe/bulk2.xml");
+		String expected = TestFileUtils.getTestFile("/ForEachChildElementPipe/bulk2out.xml");
+		PipeRunResult prr = doPipe(pipe, input, session);
+		String actual = Message.asString(prr.getResult());
+
+		assertEquals(expected, actual);
+	}
+
 
 	@Test
 	public void testRemoveNamespacesInAttributes() throws Exception, IOException {
@@ -0,0 +1,110 @@
+package nl.nn.adapterframework.pipes;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import nl.nn.adapterframework.core.ConfiguredTestBase;
+import nl.nn.adapterframework.core.IPipe;
+import nl.nn.adapterframework.core.PipeForward;
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.core.PipeRunResult;
+import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.testutil.TestFileUtils;
+import nl.nn.adapterframework.validation.ValidatorTestBase;
+
+public class XmlValidatorStreamToNextPipeTest extends ConfiguredTestBase {
+
+	private XmlValidator validator;
+	private XsltPipe nextPipe;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+		validator = new XmlValidator();
+		autowireByType(validator);
+		validator.setName("validator");
+		validator.setSchemaLocation(ValidatorTestBase.SCHEMA_LOCATION_BASIC_A_OK);
+		validator.setSoapNamespace("");
+		validator.setStreamToNextPipe(true);
+		validator.registerForward(new PipeForward("success", "next"));
+		validator.registerForward(new PipeForward("failure", "READY"));
+		pipeline.addPipe(validator);
+
+		nextPipe = spy(new XsltPipe());
+		autowireByType(nextPipe);
+		nextPipe.setName("next");
+		nextPipe.setXpathExpression("name(/*)");
+		nextPipe.setStreamingActive(true);
+		pipeline.addPipe(nextPipe);
+	}
+
+	private void startPipes(String forwardOfNextPipe) throws Exception {
+		nextPipe.registerForward(new PipeForward("success", forwardOfNextPipe));
+		configurePipeline();
+		for (IPipe pipe : pipeline.getPipes()) {
+			pipe.start();
+		}
+	}
+
+	@Test
+	public void testValidInputIsStreamedToNextPipe() throws Exception {
+		startPipes("READY");
+		String input = TestFileUtils.getTestFile(ValidatorTestBase.INPUT_FILE_BASIC_A_OK+".xml");
+
+		PipeRunResult prr = validator.doPipe(new Message(input), session);
+
+		assertEquals("success", prr.getPipeForward().getName());
+		assertEquals("A", prr.getResult().asString());
+		verify(nextPipe).provideOutputStream(any(PipeLineSession.class), any());
+	}
+
+	@Test
+	public void testNotStreamedWhenNextPipeStreamsFurther() throws Exception {
+		// the output of the next pipe is streamed to a pipe that might have side effects, that could not be discarded
+		XsltPipe pipeAfterNext = new XsltPipe();
+		autowireByType(pipeAfterNext);
+		pipeAfterNext.setName("afterNext");
+		pipeAfterNext.setXpathExpression("'done'");
+		pipeAfterNext.setStreamingActive(true);
+		pipeAfterNext.registerForward(new PipeForward("success", "READY"));
+		pipeline.addPipe(pipeAfterNext);
+		startPipes("afterNext");
+		String input = TestFileUtils.getTestFile(ValidatorTestBase.INPUT_FILE_BASIC_A_OK+".xml");
+
+		PipeRunResult prr = validator.doPipe(new Message(input), session);
+
+		assertEquals("success", prr.getPipeForward().getName());
+		assertEquals(input, prr.getResult().asString());
+		verify(nextPipe, never()).provideOutputStream(any(PipeLineSession.class), any());
+	}
+
+	@Test
+	public void testInvalidInputDiscardsOutputOfNextPipe() throws Exception {
+		startPipes("READY");
+		String input = TestFileUtils.getTestFile(ValidatorTestBase.BASE_DIR_VALIDATION+"/Basic/in/with_errors.xml");
+
+		PipeRunResult prr = validator.doPipe(new Message(input), session);
+
+		assertEquals("failure", prr.getPipeForward().getName());
+		assertEquals(input, prr.getResult().asString());
+	}
+
+	@Test
+	public void testValidatesRepeatedly() throws Exception {
+		startPipes("READY");
+		String validInput = TestFileUtils.getTestFile(ValidatorTestBase.INPUT_FILE_BASIC_A_OK+".xml");
+		String invalidInput = TestFileUtils.getTestFile(ValidatorTestBase.BASE_DIR_VALIDATION+"/Basic/in/with_errors.xml");
+
+		for (int i=0; i<3; i++) {
+			assertEquals("success", validator.doPipe(new Message(validInput), session).getPipeForward().getName());
+			assertEquals("failure", validator.doPipe(new Message(invalidInput), session).getPipeForward().getName());
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package nl.nn.adapterframework.processors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nl.nn.adapterframework.core.Adapter;
+import nl.nn.adapterframework.core.IPipe;
+import nl.nn.adapterframework.core.IValidator;
+import nl.nn.adapterframework.core.PipeForward;
+import nl.nn.adapterframework.core.PipeLine;
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.core.PipeRunException;
+import nl.nn.adapterframework.core.PipeRunResult;
+import nl.nn.adapterframework.pipes.EchoPipe;
+import nl.nn.adapterframework.stream.Message;
+
+public class ExceptionHandlingPipeProcessorTest {
+
+	private ExceptionHandlingPipeProcessor processor;
+	private PipeLine pipeLine;
+	private PipeLineSession session;
+
+	@BeforeEach
+	public void setUp() {
+		processor = new ExceptionHandlingPipeProcessor();
+		processor.setPipeProcessor(new PipeProcessor() {
+			@Override
+			public PipeRunResult processPipe(PipeLine pipeLine, IPipe pipe, Message message, PipeLineSession pipeLineSession) throws PipeRunException {
+				throw new PipeRunException(pipe, "pipe failed");
+			}
+
+			@Override
+			public PipeRunResult validate(PipeLine pipeLine, IValidator validator, Message message, PipeLineSession pipeLineSession, String messageRoot) throws PipeRunException {
+				throw new PipeRunException(validator, "validation failed");
+			}
+		});
+
+		pipeLine = new PipeLine();
+		Adapter owner = new Adapter();
+		owner.setName("PipeLine owner");
+		pipeLine.setOwner(owner);
+
+		session = new PipeLineSession();
+	}
+
+	@Test
+	public void testExceptionForward() throws Exception {
+		EchoPipe pipe = new EchoPipe();
+		pipe.setName("pipe");
+		pipe.registerForward(new PipeForward(PipeForward.EXCEPTION_FORWARD_NAME, "errorExit"));
+		pipe.setPipeLine(pipeLine);
+
+		assertTrue(processor.isActive(pipeLine, pipe));
+		PipeRunResult prr = processor.processPipe(pipeLine, pipe, new Message("input"), session);
+		assertEquals(PipeForward.EXCEPTION_FORWARD_NAME, prr.getPipeForward().getName());
+	}
+
+	@Test
+	public void testNoExceptionForwardBypassesProcessor() throws Exception {
+		EchoPipe pipe = new EchoPipe();
+		pipe.setName("pipe");
+		pipe.registerForward(new PipeForward(PipeForward.SUCCESS_FORWARD_NAME, "exit"));
+		pipe.setPipeLine(pipeLine);
+
+		assertFalse(processor.isActive(pipeLine, pipe));
+		PipeRunException e = assertThrows(PipeRunException.class, () -> processor.processPipe(pipeLine, pipe, new Message("input"), session));
+		assertTrue(e.getMessage().contains("pipe failed"));
+	}
+}
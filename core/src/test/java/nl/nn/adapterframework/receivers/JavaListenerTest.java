@@ -0,0 +1,93 @@
+package nl.nn.adapterframework.receivers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nl.nn.adapterframework.core.IMessageHandler;
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.stream.Message;
+
+public class JavaListenerTest {
+
+	private JavaListener listener;
+	private IMessageHandler<String> handler;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		handler = mock(IMessageHandler.class);
+		listener = new JavaListener();
+		listener.setName("JavaListenerTest");
+		listener.setHandler(handler);
+		listener.setReturnedSessionKeys("returned");
+		listener.configure();
+		listener.open();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		listener.close();
+	}
+
+	@Test
+	public void testMessageIsPassedWithoutConversion() throws Exception {
+		Message request = new Message(new ByteArrayInputStream("request".getBytes(StandardCharsets.UTF_8)));
+		Message response = new Message(new ByteArrayInputStream("response".getBytes(StandardCharsets.UTF_8)));
+		when(handler.processRequest(same(listener), isNull(), same(request), any(PipeLineSession.class))).thenAnswer(invocation -> {
+			invocation.getArgument(3, PipeLineSession.class).put("returned", "value");
+			return response;
+		});
+
+		try (PipeLineSession context = new PipeLineSession()) {
+			Message result = listener.processRequest("cid", request, context);
+
+			assertSame(response, result);
+			assertEquals("response", result.asString());
+			assertEquals("value", context.get("returned"));
+		}
+	}
+
+	@Test
+	public void testCallerKeepsOwnershipOfMessage() throws Exception {
+		Message request = new Message(new ByteArrayInputStream("request".getBytes(StandardCharsets.UTF_8)));
+		when(handler.processRequest(same(listener), isNull(), same(request), any(PipeLineSession.class))).thenAnswer(invocation -> {
+			PipeLineSession session = invocation.getArgument(3, PipeLineSession.class);
+			session.put(PipeLineSession.originalMessageKey, invocation.getArgument(2, Message.class));
+			// like a pipe of the called adapter with getInputFromSessionKey="originalMessage", that schedules its input for close on exit
+			Message input = session.getMessage(PipeLineSession.originalMessageKey);
+			input.closeOnCloseOf(session, "pipe of called adapter");
+			assertTrue(input.isScheduledForCloseOnExitOf(session));
+			return new Message("response");
+		});
+
+		try (PipeLineSession context = new PipeLineSession()) {
+			Message result = listener.processRequest("cid", request, context);
+
+			assertEquals("response", result.asString());
+			assertFalse(request.isNull(), "message of the caller must not be closed by the called adapter");
+			assertEquals("request", request.asString());
+		}
+	}
+
+	@Test
+	public void testStringRequest() throws Exception {
+		when(handler.processRequest(same(listener), any(String.class), any(Message.class), any(PipeLineSession.class))).thenAnswer(invocation -> new Message("response to "+invocation.getArgument(2, Message.class).asString()));
+
+		assertEquals("response to request", listener.processRequest("cid", "request", new HashMap<>()));
+	}
+}
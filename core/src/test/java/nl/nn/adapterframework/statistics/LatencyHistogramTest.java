@@ -0,0 +1,119 @@
+package nl.nn.adapterframework.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import nl.nn.adapterframework.statistics.HasStatistics.Action;
+
+public class LatencyHistogramTest {
+
+	private void assertWithinRelativeError(double expected, double actual) {
+		assertTrue(Math.abs(actual-expected) <= expected/LatencyHistogram.SUB_BUCKET_COUNT, "expected ["+expected+"] but was ["+actual+"]");
+	}
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i=1; i<=10000; i++) {
+			histogram.record(i*1000L);
+		}
+
+		assertEquals(10000, histogram.getCount());
+		assertEquals(10_000_000L, histogram.getMax());
+		assertWithinRelativeError(5_000_000, histogram.getValueAtPercentile(50));
+		assertWithinRelativeError(9_900_000, histogram.getValueAtPercentile(99));
+		assertWithinRelativeError(9_990_000, histogram.getValueAtPercentile(99.9));
+		assertEquals(10_000_000L, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void testSmallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i=0; i<LatencyHistogram.SUB_BUCKET_COUNT; i++) {
+			histogram.record(i);
+		}
+
+		assertEquals(7, histogram.getValueAtPercentile(25));
+	}
+
+	@Test
+	public void testEmpty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		assertEquals(0, histogram.getMean(), 0.0);
+	}
+
+	@Test
+	public void testValuesAboveMaximumAreCounted() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(TimeUnit.HOURS.toNanos(5));
+		histogram.record(-1);
+
+		assertEquals(2, histogram.getCount());
+		assertEquals(TimeUnit.HOURS.toNanos(5), histogram.getMax());
+		assertEquals(0, histogram.getValueAtPercentile(50));
+	}
+
+	@Test
+	public void testMerge() {
+		LatencyHistogram histogram1 = new LatencyHistogram();
+		LatencyHistogram histogram2 = new LatencyHistogram();
+		for (int i=0; i<100; i++) {
+			histogram1.record(1_000_000L);
+			histogram2.record(3_000_000L);
+		}
+
+		histogram1.add(histogram2);
+		assertEquals(200, histogram1.getCount());
+		assertEquals(2_000_000, histogram1.getMean(), 0.0);
+		assertWithinRelativeError(1_000_000, histogram1.getValueAtPercentile(50));
+		assertWithinRelativeError(3_000_000, histogram1.getValueAtPercentile(51));
+	}
+
+	@Test
+	public void testInterval() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i=0; i<100; i++) {
+			histogram.record(1_000_000L);
+		}
+		LatencyHistogram mark = histogram.copy();
+		for (int i=0; i<10; i++) {
+			histogram.record(50_000L);
+		}
+
+		LatencyHistogram interval = histogram.intervalSince(mark);
+		assertEquals(10, interval.getCount());
+		assertWithinRelativeError(50_000, interval.getValueAtPercentile(50));
+		assertWithinRelativeError(50_000, interval.getMax());
+	}
+
+	@Test
+	public void testHighResolutionStatisticsKeeper() {
+		StatisticsKeeper sk = new StatisticsKeeper("test", new Basics(), new StringTokenizer("100,1000",","), false, false, false, 1);
+		sk.enableHighResolution();
+		for (int i=0; i<100; i++) {
+			sk.addNanos(250_000L);
+		}
+
+		assertEquals(100, sk.getCount());
+		assertEquals(0, sk.getMax());
+		int p50 = sk.getItemIndex("p50");
+		assertWithinRelativeError(0.25, (Double)sk.getItemValue(p50));
+
+		sk.performAction(Action.MARK_FULL);
+		int intervalP50 = StatisticsKeeper.NUM_INTERVAL_ITEMS;
+		assertEquals("p50", sk.getIntervalItemName(intervalP50));
+		assertNull(sk.getIntervalItemValue(intervalP50));
+
+		sk.addNanos(2_500_000L);
+		assertWithinRelativeError(2.5, (Double)sk.getIntervalItemValue(intervalP50));
+		assertEquals(2, sk.getMax());
+	}
+}
@@ -0,0 +1,151 @@
+package nl.nn.adapterframework.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import nl.nn.adapterframework.statistics.ThreadResourceMeter.Probe;
+
+public class ThreadResourceMeterTest {
+
+	private com.sun.management.ThreadMXBean mockExtendedThreadMXBean() {
+		com.sun.management.ThreadMXBean threadMXBean = mock(com.sun.management.ThreadMXBean.class);
+		when(threadMXBean.isCurrentThreadCpuTimeSupported()).thenReturn(true);
+		when(threadMXBean.isThreadAllocatedMemorySupported()).thenReturn(true);
+		return threadMXBean;
+	}
+
+	@Test
+	public void testCpuAndAllocationDeltas() {
+		com.sun.management.ThreadMXBean threadMXBean = mockExtendedThreadMXBean();
+		when(threadMXBean.getCurrentThreadCpuTime()).thenReturn(1_000_000L, 26_000_000L);
+		when(threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId())).thenReturn(4096L, 10240L);
+		Probe probe = new Probe(true, threadMXBean);
+		assertTrue(probe.isEnabled());
+		assertTrue(probe.isAllocationMeasured());
+		verify(threadMXBean).setThreadCpuTimeEnabled(true);
+		verify(threadMXBean).setThreadAllocatedMemoryEnabled(true);
+
+		StatisticsKeeper cpuStatistics = new StatisticsKeeper("cpu");
+		StatisticsKeeper allocationStatistics = new SizeStatisticsKeeper("allocated");
+		ThreadResourceMeter meter = probe.start();
+		assertNotNull(meter);
+		meter.stop(cpuStatistics, allocationStatistics);
+
+		assertEquals(1, cpuStatistics.getCount());
+		assertEquals(25, cpuStatistics.getTotal()); // milliseconds
+		assertEquals(1, allocationStatistics.getCount());
+		assertEquals(6144, allocationStatistics.getTotal());
+	}
+
+	@Test
+	public void testNullStatisticsAreSkipped() {
+		com.sun.management.ThreadMXBean threadMXBean = mockExtendedThreadMXBean();
+		when(threadMXBean.getCurrentThreadCpuTime()).thenReturn(0L, TimeUnit.MILLISECONDS.toNanos(5));
+		Probe probe = new Probe(true, threadMXBean);
+
+		StatisticsKeeper cpuStatistics = new StatisticsKeeper("cpu");
+		probe.start().stop(cpuStatistics, null);
+
+		assertEquals(5, cpuStatistics.getTotal());
+	}
+
+	@Test
+	public void testDisabled() {
+		ThreadMXBean threadMXBean = mockExtendedThreadMXBean();
+		Probe probe = new Probe(false, threadMXBean);
+
+		assertFalse(probe.isEnabled());
+		assertFalse(probe.isAllocationMeasured());
+		assertNull(probe.start());
+		verify(threadMXBean, never()).setThreadCpuTimeEnabled(anyBoolean());
+	}
+
+	@Test
+	public void testCpuTimeNotSupported() {
+		ThreadMXBean threadMXBean = mock(ThreadMXBean.class);
+		when(threadMXBean.isCurrentThreadCpuTimeSupported()).thenReturn(false);
+		Probe probe = new Probe(true, threadMXBean);
+
+		assertFalse(probe.isEnabled());
+		assertNull(probe.start());
+	}
+
+	@Test
+	public void testCpuTimeCannotBeEnabled() {
+		ThreadMXBean threadMXBean = mock(ThreadMXBean.class);
+		when(threadMXBean.isCurrentThreadCpuTimeSupported()).thenReturn(true);
+		doThrow(new SecurityException("not allowed")).when(threadMXBean).setThreadCpuTimeEnabled(true);
+		Probe probe = new Probe(true, threadMXBean);
+
+		assertFalse(probe.isEnabled());
+		assertNull(probe.start());
+	}
+
+	@Test
+	public void testAllocationNotSupported() {
+		ThreadMXBean threadMXBean = mock(ThreadMXBean.class); // not a com.sun.management.ThreadMXBean
+		when(threadMXBean.isCurrentThreadCpuTimeSupported()).thenReturn(true);
+		when(threadMXBean.isThreadCpuTimeEnabled()).thenReturn(true);
+		when(threadMXBean.getCurrentThreadCpuTime()).thenReturn(0L, TimeUnit.MILLISECONDS.toNanos(3));
+		Probe probe = new Probe(true, threadMXBean);
+		assertTrue(probe.isEnabled());
+		assertFalse(probe.isAllocationMeasured());
+
+		StatisticsKeeper cpuStatistics = new StatisticsKeeper("cpu");
+		StatisticsKeeper allocationStatistics = new SizeStatisticsKeeper("allocated");
+		probe.start().stop(cpuStatistics, allocationStatistics);
+
+		assertEquals(3, cpuStatistics.getTotal());
+		assertEquals(0, allocationStatistics.getCount());
+	}
+
+	@Test
+	public void testAllocationSupportDisabled() {
+		com.sun.management.ThreadMXBean threadMXBean = mockExtendedThreadMXBean();
+		when(threadMXBean.isThreadAllocatedMemorySupported()).thenReturn(false);
+		Probe probe = new Probe(true, threadMXBean);
+
+		assertTrue(probe.isEnabled());
+		assertFalse(probe.isAllocationMeasured());
+		verify(threadMXBean, never()).getThreadAllocatedBytes(anyLong());
+	}
+
+	@Test
+	public void testMeasuresRealWork() {
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		assumeTrue(threadMXBean.isCurrentThreadCpuTimeSupported(), "thread CPU time is not supported by this JVM");
+		Probe probe = new Probe(true, threadMXBean);
+
+		StatisticsKeeper cpuStatistics = new StatisticsKeeper("cpu");
+		StatisticsKeeper allocationStatistics = new SizeStatisticsKeeper("allocated");
+		ThreadResourceMeter meter = probe.start();
+		byte[][] allocated = new byte[100][];
+		for (int i=0; i<allocated.length; i++) {
+			allocated[i] = new byte[10_000];
+		}
+		meter.stop(cpuStatistics, allocationStatistics);
+
+		assertEquals(1, cpuStatistics.getCount());
+		assertTrue(cpuStatistics.getTotal() >= 0);
+		if (probe.isAllocationMeasured()) {
+			assertTrue(allocationStatistics.getTotal() >= allocated.length * 10_000L, "allocated bytes ["+allocationStatistics.getTotal()+"]");
+		}
+	}
+}
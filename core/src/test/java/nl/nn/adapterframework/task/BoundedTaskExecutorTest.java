@@ -0,0 +1,93 @@
+package nl.nn.adapterframework.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+public class BoundedTaskExecutorTest {
+
+	private SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor();
+
+	@Test
+	public void testConcurrencyIsLimited() throws Exception {
+		BoundedTaskExecutor executor = new BoundedTaskExecutor(taskExecutor, "test", 2, 100, true);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(20);
+
+		for (int i=0; i<20; i++) {
+			executor.execute(() -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+				done.countDown();
+			});
+		}
+
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertTrue(maxRunning.get() <= 2, "at most 2 tasks should run at the same time, but ["+maxRunning.get()+"] did");
+		assertEquals(0, executor.getQueueDepth());
+	}
+
+	@Test
+	public void testRejectWhenQueueIsFull() throws Exception {
+		BoundedTaskExecutor executor = new BoundedTaskExecutor(taskExecutor, "test", 1, 1, false);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(2);
+		Runnable task = () -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			done.countDown();
+		};
+
+		executor.execute(task);
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		executor.execute(task);
+		assertEquals(1, executor.getQueueDepth());
+		assertThrows(TaskRejectedException.class, () -> executor.execute(task));
+
+		release.countDown();
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testBlockUntilQueueHasRoom() throws Exception {
+		BoundedTaskExecutor executor = new BoundedTaskExecutor(taskExecutor, "test", 1, 0, true);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(2);
+
+		executor.execute(() -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			done.countDown();
+		});
+		Thread blocked = new Thread(() -> executor.execute(done::countDown));
+		blocked.start();
+		blocked.join(200);
+		assertTrue(blocked.isAlive(), "second task should wait for the first to finish");
+
+		release.countDown();
+		blocked.join(10000);
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+}
@@ -1,7 +1,13 @@
 package nl.nn.adapterframework.util;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -10,7 +16,9 @@ import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.runners.MethodSorters;
 import org.xml.sax.InputSource;
+import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
 import nl.nn.adapterframework.core.Resource;
 import nl.nn.adapterframework.stream.Message;
@@ -76,4 +84,39 @@ public class XmlParserTest {
 		
 		MatchUtils.assertXmlEquals(expected,writer.toString());
 	}
+
+	@Test
+	public void testReusedParserDoesNotPassEventsToPreviousHandler() throws IOException, SAXException {
+		XmlWriter first = new XmlWriter();
+		XmlUtils.parseXml("<root><!--first comment--></root>", first);
+		assertTrue(first.toString().contains("first comment"));
+
+		XmlUtils.parseXml("<root><!--second comment--></root>", new DefaultHandler());
+		assertFalse(first.toString().contains("second comment"));
+	}
+
+	@Test
+	public void testNestedParse() throws IOException, SAXException {
+		List<String> innerResults = new ArrayList<>();
+		XmlWriter outer = new XmlWriter() {
+			@Override
+			public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+				if ("nested".equals(localName)) {
+					try {
+						XmlWriter inner = new XmlWriter();
+						XmlUtils.parseXml("<inner>text</inner>", inner);
+						innerResults.add(inner.toString());
+					} catch (IOException e) {
+						throw new SAXException(e);
+					}
+				}
+				super.startElement(uri, localName, qName, attributes);
+			}
+		};
+		XmlUtils.parseXml("<outer><nested/><nested/></outer>", outer);
+
+		assertEquals("<outer><nested/><nested/></outer>", outer.toString());
+		assertEquals(2, innerResults.size());
+		assertEquals("<inner>text</inner>", innerResults.get(1));
+	}
 }
@@ -0,0 +1,113 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.ibistesttool;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.Setter;
+import nl.nn.adapterframework.util.LogUtil;
+import nl.nn.testtool.Report;
+import nl.nn.testtool.storage.file.Storage;
+
+/**
+ * Debug storage that writes closed reports to file on a background thread, so that the thread that ends a pipeline
+ * run does not wait for the report to be written.
+ * <p>
+ * Reports are queued in a queue of at most <code>queueSize</code> reports. When the queue is full the report is dropped,
+ * and counted in {@link #getDroppedReports()}, rather than delaying the pipeline run. A <code>queueSize</code> of 0 or less
+ * writes reports synchronously.
+ * </p>
+ * <p>
+ * Only {@link #storeWithoutException(Report)}, the method of the <code>LogStorage</code> interface through which the TestTool stores
+ * closed reports in its debug storage, is queued. Reports that are stored by any other method of the file storage are written synchronously.
+ * </p>
+ */
+public class AsynchronousStorage extends Storage implements InitializingBean, DisposableBean {
+	private final Logger log = LogUtil.getLogger(this);
+
+	public static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+	private @Getter @Setter int queueSize = 1000;
+	private @Setter MeterRegistry meterRegistry;
+
+	private ThreadPoolExecutor writer;
+	private final AtomicLong droppedReports = new AtomicLong();
+
+	@Override
+	public void afterPropertiesSet() {
+		if (queueSize > 0) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ladybug-storage-");
+			threadFactory.setDaemon(true);
+			writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), threadFactory, (r, executor) -> {
+				long dropped = droppedReports.incrementAndGet();
+				log.warn("report queue of storage [{}] is full, dropping report ({} reports dropped so far)", getName(), dropped);
+			});
+		}
+		if (meterRegistry != null) {
+			FunctionCounter.builder("ladybug.reports.dropped", droppedReports, AtomicLong::get).description("reports that are not stored because the report queue was full").register(meterRegistry);
+			Gauge.builder("ladybug.reports.queued", this, AsynchronousStorage::getQueuedReports).description("reports waiting to be stored").register(meterRegistry);
+		}
+	}
+
+	@Override
+	public void storeWithoutException(Report report) {
+		if (writer == null || writer.isShutdown()) {
+			storeSynchronously(report);
+			return;
+		}
+		writer.execute(() -> storeSynchronously(report));
+	}
+
+	/**
+	 * Writes the report to file, on the thread that calls this method.
+	 */
+	protected void storeSynchronously(Report report) {
+		super.storeWithoutException(report);
+	}
+
+	public long getDroppedReports() {
+		return droppedReports.get();
+	}
+
+	public int getQueuedReports() {
+		return writer != null ? writer.getQueue().size() : 0;
+	}
+
+	/**
+	 * Stops accepting new reports and waits for the queued reports to be written.
+	 */
+	@Override
+	public void destroy() throws InterruptedException {
+		if (writer != null) {
+			writer.shutdown();
+			if (!writer.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				log.warn("timeout waiting for [{}] queued reports of storage [{}] to be written", getQueuedReports(), getName());
+			}
+		}
+	}
+}
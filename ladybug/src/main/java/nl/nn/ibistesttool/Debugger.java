@@ -340,6 +340,14 @@ public class Debugger implements IbisDebugger, nl.nn.testtool.Debugger, Applicat
 		return stubINamedObject("Listener ", listener, correlationId);
 	}
 
+	// Called by IbisDebuggerAdvice
+	@Override
+	public boolean isRerun(String correlationId) {
+		synchronized(inRerun) {
+			return inRerun.contains(correlationId);
+		}
+	}
+
 	private boolean stubINamedObject(String checkpointNamePrefix, INamedObject namedObject, String correlationId) {
 		boolean stub = false;
 		boolean rerun;
@@ -71,4 +71,6 @@ public interface IbisDebugger {
 
 	public boolean stubReplyListener(IListener<?> listener, String correlationId);
 
+	public boolean isRerun(String correlationId);
+
 }
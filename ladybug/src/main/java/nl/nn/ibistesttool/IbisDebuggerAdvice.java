@@ -1,5 +1,5 @@
 /*
-   Copyright 2018-2020 Nationale-Nederlanden, 2020-2022 WeAreFrank!
+   Copyright 2018-2020 Nationale-Nederlanden, 2020-2023 WeAreFrank!
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.io.Writer;
 import java.util.Iterator;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 
 import org.apache.commons.lang3.StringUtils;
@@ -29,6 +30,8 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationListener;
 import org.xml.sax.ContentHandler;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Setter;
 import nl.nn.adapterframework.configuration.IbisManager;
 import nl.nn.adapterframework.core.IBlockEnabledSender;
@@ -80,6 +83,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 
 	private @Setter IbisDebugger ibisDebugger;
 	private @Setter IbisManager ibisManager;
+	private @Setter MeterRegistry meterRegistry;
 
 	// Contract for testtool state:
 	// - when the state changes a DebuggerStatusChangedEvent must be fired to notify others
@@ -89,6 +93,8 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 
 	private AtomicInteger threadCounter = new AtomicInteger(0);
 
+	private final ReportSampler reportSampler = new ReportSampler();
+	private final AtomicLong captureNanos = new AtomicLong();
 
 	@Override
 	public void afterPropertiesSet() throws Exception {
@@ -97,6 +103,11 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 		}
 		// As ibisDebugger lives in the WebApplicationContext it cannot get wired with ibisManager by Spring
 		ibisDebugger.setIbisManager(ibisManager);
+		if (meterRegistry != null) {
+			FunctionCounter.builder("ladybug.runs.sampled", reportSampler, ReportSampler::getSampledRuns).description("pipeline runs that are reported by the debugger").register(meterRegistry);
+			FunctionCounter.builder("ladybug.runs.skipped", reportSampler, ReportSampler::getSkippedRuns).description("pipeline runs that are not reported due to sampling").register(meterRegistry);
+			FunctionCounter.builder("ladybug.capture.time", captureNanos, n -> n.get() / 1_000_000_000.0).baseUnit("seconds").description("time spent capturing pipeline and pipe checkpoints").register(meterRegistry);
+		}
 	}
 
 	/**
@@ -107,6 +118,23 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 			return (PipeLineResult)proceedingJoinPoint.proceed();
 		}
 		String correlationId = getCorrelationId(session);
+		String adapterName = pipeLine.getAdapter()!=null ? pipeLine.getAdapter().getName() : null;
+		if (!reportSampler.pipeLineStarted(adapterName, correlationId, ibisDebugger.isRerun(correlationId))) {
+			try {
+				return (PipeLineResult)proceedingJoinPoint.proceed();
+			} finally {
+				reportSampler.pipeLineEnded(correlationId);
+			}
+		}
+		try {
+			return doDebugPipeLineInputOutputAbort(proceedingJoinPoint, pipeLine, correlationId, message, session);
+		} finally {
+			reportSampler.pipeLineEnded(correlationId);
+		}
+	}
+
+	private PipeLineResult doDebugPipeLineInputOutputAbort(ProceedingJoinPoint proceedingJoinPoint, PipeLine pipeLine, String correlationId, Message message, PipeLineSession session) throws Throwable {
+		long captureStart = System.nanoTime();
 		message = ibisDebugger.pipeLineInput(pipeLine, correlationId, message);
 		TreeSet<String> keys = new TreeSet<String>(session.keySet());
 		Iterator<String> iterator = keys.iterator();
@@ -116,6 +144,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 			sessionValue = ibisDebugger.pipeLineSessionKey(correlationId, sessionKey, sessionValue);
 			session.put(sessionKey, sessionValue);
 		}
+		addCaptureTime(captureStart);
 		PipeLineResult pipeLineResult = null;
 		try {
 			PipeLineSession pipeLineSessionDebugger = PipeLineSessionDebugger.newInstance(session, ibisDebugger);
@@ -125,6 +154,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 		} catch(Throwable throwable) {
 			throw ibisDebugger.pipeLineAbort(pipeLine, correlationId, throwable);
 		}
+		captureStart = System.nanoTime();
 		ibisDebugger.showValue(correlationId, "exitState", pipeLineResult.getState().name());
 		if (pipeLineResult.getExitCode()!=0) {
 			ibisDebugger.showValue(correlationId, "exitCode", Integer.toString(pipeLineResult.getExitCode()));
@@ -135,6 +165,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 		} else {
 			pipeLineResult.setResult(ibisDebugger.pipeLineOutput(pipeLine, correlationId, pipeLineResult.getResult()));
 		}
+		addCaptureTime(captureStart);
 		return pipeLineResult;
 	}
 
@@ -142,11 +173,13 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 	 * Provides advice for {@link InputOutputPipeProcessor#processPipe(PipeLine pipeLine, IPipe pipe, Message message, PipeLineSession session)}
 	 */
 	public PipeRunResult debugPipeInputOutputAbort(ProceedingJoinPoint proceedingJoinPoint, PipeLine pipeLine, IPipe pipe, Message message, PipeLineSession session) throws Throwable {
-		if (!isEnabled()) {
+		if (!isEnabled(session)) {
 			return (PipeRunResult)proceedingJoinPoint.proceed();
 		}
 		String correlationId = getCorrelationId(session);
+		long captureStart = System.nanoTime();
 		message = ibisDebugger.pipeInput(pipeLine, pipe, correlationId, message);
+		addCaptureTime(captureStart);
 		PipeRunResult pipeRunResult = null;
 		try {
 			Object[] args = proceedingJoinPoint.getArgs();
@@ -155,11 +188,13 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 		} catch(Throwable throwable) {
 			throw ibisDebugger.pipeAbort(pipeLine, pipe, correlationId, throwable);
 		}
+		captureStart = System.nanoTime();
 		if (pipe instanceof IExtendedPipe && ((IExtendedPipe)pipe).isPreserveInput()) {
 			// signal in the debugger that the result of the pipe has been replaced with the original input
 			pipeRunResult.setResult(ibisDebugger.preserveInput(correlationId, pipeRunResult.getResult()));
 		}
 		pipeRunResult.setResult(ibisDebugger.pipeOutput(pipeLine, pipe, correlationId, pipeRunResult.getResult()));
+		addCaptureTime(captureStart);
 		return pipeRunResult;
 	}
 
@@ -168,7 +203,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 	 * CheckSemaphorePipeProcessor is just after InputOutputPipeProcessor, so it sees the effect of the replacements made by the latter.
 	 */
 	public PipeRunResult debugPipeGetInputFrom(ProceedingJoinPoint proceedingJoinPoint, PipeLine pipeLine, IPipe pipe, Message message, PipeLineSession session) throws Throwable {
-		if (!isEnabled()) {
+		if (!isEnabled(session)) {
 			return (PipeRunResult)proceedingJoinPoint.proceed();
 		}
 		if (pipe instanceof IExtendedPipe) {
@@ -185,7 +220,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 	}
 
 	public PipeRunResult debugValidatorInputOutputAbort(ProceedingJoinPoint proceedingJoinPoint, PipeLine pipeLine, IValidator validator, Message message, PipeLineSession session, String messageRoot) throws Throwable {
-		if (!isEnabled()) {
+		if (!isEnabled(session)) {
 			return (PipeRunResult)proceedingJoinPoint.proceed();
 		}
 		String correlationId = getCorrelationId(session);
@@ -214,7 +249,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 	}
 
 	private <M> M debugSenderInputOutputAbort(ProceedingJoinPoint proceedingJoinPoint, Message message, PipeLineSession session, int messageParamIndex, SenderReturnType returnType) throws Throwable {
-		if (!isEnabled()) {
+		if (!isEnabled(session)) {
 			return (M)proceedingJoinPoint.proceed();
 		}
 		ISender sender = (ISender)proceedingJoinPoint.getTarget();
@@ -305,7 +340,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 	 * Provides advice for {@link IOutputStreamingSupport#provideOutputStream(PipeLineSession session, IForwardTarget next)}
 	 */
 	public MessageOutputStream debugProvideOutputStream(ProceedingJoinPoint proceedingJoinPoint, PipeLineSession session) throws Throwable {
-		if (!isEnabled()) {
+		if (!isEnabled(session)) {
 			return (MessageOutputStream)proceedingJoinPoint.proceed();
 		}
 		String correlationId = getCorrelationId(session);
@@ -348,7 +383,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 
 	@Override
 	public ContentHandler inspectXml(PipeLineSession session, String label, ContentHandler contentHandler, BiConsumer<AutoCloseable,String> closeOnCloseRegister) {
-		if (!isEnabled()) {
+		if (!isEnabled(session)) {
 			return contentHandler;
 		}
 		String correlationId = getCorrelationId(session);
@@ -367,7 +402,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 	 * Provides advice for {@link CacheSenderWrapperProcessor#sendMessage(SenderWrapperBase senderWrapperBase, Message message, PipeLineSession session)}
 	 */
 	public SenderResult debugSenderGetInputFrom(ProceedingJoinPoint proceedingJoinPoint, SenderWrapperBase senderWrapperBase, Message message, PipeLineSession session) throws Throwable {
-		if (!isEnabled()) {
+		if (!isEnabled(session)) {
 			return (SenderResult)proceedingJoinPoint.proceed();
 		}
 		String correlationId = getCorrelationId(session);
@@ -384,7 +419,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 	}
 
 	public <M> M debugReplyListenerInputOutputAbort(ProceedingJoinPoint proceedingJoinPoint, ICorrelatedPullingListener<M> listener, String correlationId, PipeLineSession pipeLineSession) throws Throwable {
-		if (!isEnabled()) {
+		if (!isEnabled(pipeLineSession)) {
 			return (M)proceedingJoinPoint.proceed();
 		}
 		correlationId = ibisDebugger.replyListenerInput(listener, pipeLineSession.getMessageId(), correlationId);
@@ -417,7 +452,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 
 	@Override
 	public ThreadDebugInfo announceChildThread(Object owner, String correlationId) {
-		if (!isEnabled()) {
+		if (!isEnabled() || reportSampler.isSkipped(correlationId)) {
 			return null;
 		}
 		ThreadDebugInfo threadInfo = new ThreadDebugInfo();
@@ -434,7 +469,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 
 	@Override
 	public void cancelChildThread(ThreadDebugInfo threadInfo) {
-		if (!isEnabled()) {
+		if (!isEnabled() || threadInfo==null) {
 			return;
 		}
 		if (log.isDebugEnabled()) {
@@ -446,7 +481,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 
 	@Override
 	public <R> R threadCreated(ThreadDebugInfo ref, R request) {
-		if (!isEnabled()) {
+		if (!isEnabled() || ref==null) {
 			return request;
 		}
 		if (log.isDebugEnabled()) {
@@ -458,7 +493,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 
 	@Override
 	public <R> R threadEnded(ThreadDebugInfo ref, R result) {
-		if (!isEnabled()) {
+		if (!isEnabled() || ref==null) {
 			return result;
 		}
 		if (log.isDebugEnabled()) {
@@ -470,7 +505,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 
 	@Override
 	public Throwable threadAborted(ThreadDebugInfo ref, Throwable t) {
-		if (!isEnabled()) {
+		if (!isEnabled() || ref==null) {
 			return t;
 		}
 		if (log.isDebugEnabled()) {
@@ -484,7 +519,7 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 	 * Provides advice for {@link Parameter#getValue(ParameterValueList alreadyResolvedParameters, Message message, PipeLineSession session, boolean namespaceAware)}
 	 */
 	public Object debugParameterResolvedTo(ProceedingJoinPoint proceedingJoinPoint, ParameterValueList alreadyResolvedParameters, Message message, PipeLineSession session, boolean namespaceAware) throws Throwable {
-		if (!isEnabled()) {
+		if (!isEnabled(session)) {
 			return proceedingJoinPoint.proceed();
 		}
 		Object result = proceedingJoinPoint.proceed();
@@ -550,6 +585,17 @@ public class IbisDebuggerAdvice implements InitializingBean, ThreadLifeCycleEven
 		return ibisDebugger != null && enabled;
 	}
 
+	/**
+	 * Returns <code>false</code> also when the pipeline run that the session belongs to is not sampled to be reported.
+	 */
+	private boolean isEnabled(PipeLineSession session) {
+		return isEnabled() && !reportSampler.isSkipped(getCorrelationId(session));
+	}
+
+	private void addCaptureTime(long captureStart) {
+		captureNanos.addAndGet(System.nanoTime() - captureStart);
+	}
+
 	@Override
 	public void onApplicationEvent(DebuggerStatusChangedEvent event) {
 		setEnabled(event.isEnabled());
@@ -0,0 +1,156 @@
+/*
+   Copyright 2023 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.ibistesttool;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.apache.commons.lang3.StringUtils;
+
+import nl.nn.adapterframework.util.AppConstants;
+
+/**
+ * Decides per pipeline run whether a Ladybug report is created. The decision is taken when the outermost pipeline
+ * for a correlationId is started, and applies to all nested pipelines, pipes, senders and child threads of that run,
+ * so that reports are either complete or absent.
+ * <p>
+ * Sampling is configured with the properties <code>ibistesttool.sampling.percentage</code> and
+ * <code>ibistesttool.sampling.maxReportsPerSecond</code>, that can be overridden per adapter by appending
+ * <code>.&lt;adapterName&gt;</code> to the property name. With the defaults (100 percent, no maximum) every run is reported.
+ * </p>
+ */
+public class ReportSampler {
+
+	public static final String PERCENTAGE_PROPERTY = "ibistesttool.sampling.percentage";
+	public static final String MAX_REPORTS_PER_SECOND_PROPERTY = "ibistesttool.sampling.maxReportsPerSecond";
+
+	private final AppConstants appConstants;
+	private final LongSupplier clock;
+	private final int defaultPercentage;
+	private final int defaultMaxReportsPerSecond;
+
+	private final Map<String, AdapterSampling> adapterSamplings = new ConcurrentHashMap<>();
+	private final Map<String, RunDecision> runDecisions = new ConcurrentHashMap<>();
+
+	private final AtomicLong sampledRuns = new AtomicLong();
+	private final AtomicLong skippedRuns = new AtomicLong();
+
+	private class AdapterSampling {
+		final int percentage;
+		final int maxReportsPerSecond;
+		long currentSecond;
+		int reportsInCurrentSecond;
+
+		AdapterSampling(String adapterName) {
+			percentage = Math.max(0, Math.min(100, appConstants.getInt(PERCENTAGE_PROPERTY+"."+adapterName, defaultPercentage)));
+			maxReportsPerSecond = appConstants.getInt(MAX_REPORTS_PER_SECOND_PROPERTY+"."+adapterName, defaultMaxReportsPerSecond);
+		}
+
+		boolean isUnrestricted() {
+			return percentage>=100 && maxReportsPerSecond<0;
+		}
+
+		boolean sample() {
+			if (percentage<100 && ThreadLocalRandom.current().nextInt(100)>=percentage) {
+				return false;
+			}
+			if (maxReportsPerSecond>=0) {
+				long second = clock.getAsLong() / 1000;
+				synchronized (this) {
+					if (second!=currentSecond) {
+						currentSecond = second;
+						reportsInCurrentSecond = 0;
+					}
+					if (reportsInCurrentSecond>=maxReportsPerSecond) {
+						return false;
+					}
+					reportsInCurrentSecond++;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static class RunDecision {
+		final boolean sampled;
+		int depth=1;
+
+		RunDecision(boolean sampled) {
+			this.sampled = sampled;
+		}
+	}
+
+	public ReportSampler() {
+		this(AppConstants.getInstance(), System::currentTimeMillis);
+	}
+
+	ReportSampler(AppConstants appConstants, LongSupplier clock) {
+		this.appConstants = appConstants;
+		this.clock = clock;
+		defaultPercentage = appConstants.getInt(PERCENTAGE_PROPERTY, 100);
+		defaultMaxReportsPerSecond = appConstants.getInt(MAX_REPORTS_PER_SECOND_PROPERTY, -1);
+	}
+
+	/**
+	 * Registers the start of a pipeline for the correlationId and returns whether it must be reported. Each call
+	 * must be matched by a call to {@link #pipeLineEnded(String)}. When <code>force</code> is set, e.g. for a rerun
+	 * from the debugger, a new run is always reported.
+	 */
+	public boolean pipeLineStarted(String adapterName, String correlationId, boolean force) {
+		if (correlationId==null) {
+			return true;
+		}
+		RunDecision decision = runDecisions.compute(correlationId, (cid, existing) -> {
+			if (existing!=null) {
+				existing.depth++;
+				return existing;
+			}
+			AdapterSampling sampling = adapterSamplings.computeIfAbsent(StringUtils.defaultString(adapterName), AdapterSampling::new);
+			boolean sampled = force || sampling.isUnrestricted() || sampling.sample();
+			(sampled ? sampledRuns : skippedRuns).incrementAndGet();
+			return new RunDecision(sampled);
+		});
+		return decision.sampled;
+	}
+
+	public void pipeLineEnded(String correlationId) {
+		if (correlationId==null) {
+			return;
+		}
+		runDecisions.computeIfPresent(correlationId, (cid, existing) -> --existing.depth>0 ? existing : null);
+	}
+
+	/**
+	 * Returns <code>true</code> when the run with this correlationId was started and not selected to be reported.
+	 */
+	public boolean isSkipped(String correlationId) {
+		if (correlationId==null || runDecisions.isEmpty()) {
+			return false;
+		}
+		RunDecision decision = runDecisions.get(correlationId);
+		return decision!=null && !decision.sampled;
+	}
+
+	public long getSampledRuns() {
+		return sampledRuns.get();
+	}
+	public long getSkippedRuns() {
+		return skippedRuns.get();
+	}
+}
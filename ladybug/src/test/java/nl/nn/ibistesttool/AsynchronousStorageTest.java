@@ -0,0 +1,88 @@
+package nl.nn.ibistesttool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import nl.nn.testtool.Report;
+
+public class AsynchronousStorageTest {
+
+	private static class BlockingStorage extends AsynchronousStorage {
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final List<Report> stored = new CopyOnWriteArrayList<>();
+		private final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+		@Override
+		protected void storeSynchronously(Report report) {
+			threads.add(Thread.currentThread());
+			started.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			stored.add(report);
+		}
+	}
+
+	@Test
+	public void testReportsAreStoredInBackground() throws Exception {
+		BlockingStorage storage = new BlockingStorage();
+		storage.afterPropertiesSet();
+		Report report = new Report();
+
+		storage.storeWithoutException(report);
+		storage.started.await(10, TimeUnit.SECONDS);
+		assertNotEquals(Thread.currentThread(), storage.threads.get(0));
+		assertEquals(0, storage.stored.size());
+
+		storage.release.countDown();
+		storage.destroy();
+		assertEquals(1, storage.stored.size());
+		assertSame(report, storage.stored.get(0));
+		assertEquals(0, storage.getDroppedReports());
+	}
+
+	@Test
+	public void testReportsAreDroppedWhenQueueIsFull() throws Exception {
+		BlockingStorage storage = new BlockingStorage();
+		storage.setQueueSize(2);
+		storage.afterPropertiesSet();
+
+		storage.storeWithoutException(new Report()); // taken by the writer thread
+		storage.started.await(10, TimeUnit.SECONDS);
+		storage.storeWithoutException(new Report());
+		storage.storeWithoutException(new Report());
+		assertEquals(2, storage.getQueuedReports());
+		storage.storeWithoutException(new Report());
+		storage.storeWithoutException(new Report());
+		assertEquals(2, storage.getDroppedReports());
+
+		storage.release.countDown();
+		storage.destroy();
+		assertEquals(3, storage.stored.size());
+		assertEquals(0, storage.getQueuedReports());
+	}
+
+	@Test
+	public void testSynchronousWhenQueueSizeIsZero() throws Exception {
+		BlockingStorage storage = new BlockingStorage();
+		storage.setQueueSize(0);
+		storage.afterPropertiesSet();
+		storage.release.countDown();
+
+		storage.storeWithoutException(new Report());
+		assertEquals(1, storage.stored.size());
+		assertSame(Thread.currentThread(), storage.threads.get(0));
+		storage.destroy();
+	}
+}
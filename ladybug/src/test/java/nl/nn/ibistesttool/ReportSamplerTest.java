@@ -0,0 +1,79 @@
+package nl.nn.ibistesttool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import nl.nn.adapterframework.util.AppConstants;
+
+public class ReportSamplerTest {
+
+	private AppConstants appConstants = AppConstants.getInstance();
+	private AtomicLong clock = new AtomicLong(1000);
+
+	@AfterEach
+	public void tearDown() {
+		appConstants.remove(ReportSampler.PERCENTAGE_PROPERTY+".none");
+		appConstants.remove(ReportSampler.MAX_REPORTS_PER_SECOND_PROPERTY+".limited");
+	}
+
+	private ReportSampler createSampler() {
+		return new ReportSampler(appConstants, clock::get);
+	}
+
+	@Test
+	public void testDefaultReportsAll() {
+		ReportSampler sampler = createSampler();
+		for (int i=0; i<10; i++) {
+			assertTrue(sampler.pipeLineStarted("adapter", "cid"+i, false));
+			sampler.pipeLineEnded("cid"+i);
+		}
+		assertEquals(10, sampler.getSampledRuns());
+		assertEquals(0, sampler.getSkippedRuns());
+	}
+
+	@Test
+	public void testNestedPipeLinesFollowOuterDecision() {
+		appConstants.setProperty(ReportSampler.PERCENTAGE_PROPERTY+".none", "0");
+		ReportSampler sampler = createSampler();
+
+		assertFalse(sampler.pipeLineStarted("none", "cid", false));
+		assertTrue(sampler.isSkipped("cid"));
+		assertFalse(sampler.pipeLineStarted("adapter", "cid", false)); // nested call of another adapter
+		sampler.pipeLineEnded("cid");
+		assertTrue(sampler.isSkipped("cid"));
+		sampler.pipeLineEnded("cid");
+		assertFalse(sampler.isSkipped("cid"));
+		assertEquals(1, sampler.getSkippedRuns());
+	}
+
+	@Test
+	public void testForcedRunIsReported() {
+		appConstants.setProperty(ReportSampler.PERCENTAGE_PROPERTY+".none", "0");
+		ReportSampler sampler = createSampler();
+
+		assertTrue(sampler.pipeLineStarted("none", "cid", true));
+		assertFalse(sampler.isSkipped("cid"));
+	}
+
+	@Test
+	public void testMaxReportsPerSecond() {
+		appConstants.setProperty(ReportSampler.MAX_REPORTS_PER_SECOND_PROPERTY+".limited", "2");
+		ReportSampler sampler = createSampler();
+
+		assertTrue(sampler.pipeLineStarted("limited", "cid1", false));
+		assertTrue(sampler.pipeLineStarted("limited", "cid2", false));
+		assertFalse(sampler.pipeLineStarted("limited", "cid3", false));
+		assertTrue(sampler.pipeLineStarted("other", "cid4", false));
+
+		clock.addAndGet(1000);
+		assertTrue(sampler.pipeLineStarted("limited", "cid5", false));
+		assertEquals(4, sampler.getSampledRuns());
+		assertEquals(1, sampler.getSkippedRuns());
+	}
+}
@@ -246,6 +246,55 @@ public class MongoDbSenderTest extends SenderTestBase<MongoDbSender> {
 		assertThat(result.asString(),StringContains.containsString("<modifiedCount>"));
 	}
 
+	@Test
+	public void testFindManyBatchSize() throws Exception {
+		sender.setAction(MongoAction.FINDMANY);
+		sender.setCollection("Students");
+		sender.setBatchSize(1);
+		sender.configure();
+		sender.open();
+
+		Message result = sendMessage("{ \"student_id\": \"Evert\" }");
+		assertThat(result.asString(),StringContains.containsString("\"student_id\":\"Evert\",\"class_id\":\"1c\""));
+	}
+
+	@Test
+	public void testBulkWrite() throws Exception {
+		sender.setAction(MongoAction.BULKWRITE);
+		sender.setCollection("Students");
+		sender.setBatchSize(2);
+		sender.configure();
+		sender.open();
+
+		JsonArrayBuilder operations = Json.createArrayBuilder();
+		operations.add(Json.createObjectBuilder().add("insertOne", Json.createObjectBuilder().add("document", createStudent("Piet","1a", 6,7,8))));
+		operations.add(Json.createObjectBuilder().add("insertOne", Json.createObjectBuilder().add("document", createStudent("Jan","1a", 5,6,7))));
+		operations.add(Json.createObjectBuilder().add("updateOne", Json.createObjectBuilder()
+				.add("filter", Json.createObjectBuilder().add("student_id", "Piet"))
+				.add("update", Json.createObjectBuilder().add("$set", Json.createObjectBuilder().add("seatno", 12)))));
+		operations.add(Json.createObjectBuilder().add("deleteOne", Json.createObjectBuilder().add("filter", Json.createObjectBuilder().add("student_id", "Jan"))));
+		Message result = sendMessage(operations.build().toString());
+		System.out.println("BulkWrite: ["+result.asString()+"]");
+		assertThat(result.asString(),StringContains.containsString("\"operationCount\":4,\"insertedCount\":2"));
+		assertThat(result.asString(),StringContains.containsString("\"deletedCount\":1"));
+	}
+
+	@Test
+	public void testBulkWriteNewlineDelimited() throws Exception {
+		sender.setAction(MongoAction.BULKWRITE);
+		sender.setCollection("Students");
+		sender.setOrdered(false);
+		sender.configure();
+		sender.open();
+
+		String operations = "{\"insertOne\":{\"document\":"+createStudent("Kees","1b", 7,7,7)+"}}\n"
+				+ "\n"
+				+ "{\"deleteMany\":{\"filter\":{\"student_id\":\"Kees\"}}}\n";
+		Message result = sendMessage(operations);
+		System.out.println("BulkWrite: ["+result.asString()+"]");
+		assertThat(result.asString(),StringContains.containsString("\"operationCount\":2,\"insertedCount\":1"));
+	}
+
 	public JsonObject createStudent(String studentId, String classId, Integer... grades) {
 		JsonObjectBuilder builder = Json.createObjectBuilder();
 		builder.add("student_id", studentId).add("class_id", classId);